@@ -231,11 +231,11 @@ public class App extends Application {
                     new ApplicationEvent(ApplicationEvent.SHOW_BUSY_INDICATOR, ps));
             });
             Umap umap = (Umap) event.object1;
-            umap.setThreads(12);
+            umap.setThreads(Runtime.getRuntime().availableProcessors());
             ManifoldEvent.POINT_SOURCE source = (ManifoldEvent.POINT_SOURCE) event.object2;
             FeatureCollection originalFC = new FeatureCollection();
             if (source == ManifoldEvent.POINT_SOURCE.HYPERSURFACE) {
-                originalFC = FeatureCollection.fromData(hypersurface3DPane.dataGrid);
+                originalFC = FeatureCollection.fromData(hypersurface3DPane.dataGrid.toArray());
                 for (int i = 0; i < originalFC.getFeatures().size() - 1; i++) {
                     FeatureVector actualFV = hypersurface3DPane.getAllFeatureVectors().get(i);
                     originalFC.getFeatures().get(i).setLabel(actualFV.getLabel());
@@ -558,6 +558,7 @@ public class App extends Application {
 
         fveh = new FeatureVectorEventHandler(false);
         scene.getRoot().addEventHandler(FeatureVectorEvent.NEW_FEATURE_VECTOR, fveh);
+        scene.getRoot().addEventHandler(FeatureVectorEvent.NEW_FEATURE_VECTOR_BATCH, fveh);
         scene.getRoot().addEventHandler(FeatureVectorEvent.LOCATE_FEATURE_VECTOR, fveh);
         scene.getRoot().addEventHandler(FeatureVectorEvent.NEW_FEATURE_COLLECTION, fveh);
         scene.getRoot().addEventHandler(FeatureVectorEvent.RESCAN_FACTOR_LABELS, fveh);
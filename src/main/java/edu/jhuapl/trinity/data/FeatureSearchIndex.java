@@ -0,0 +1,403 @@
+package edu.jhuapl.trinity.data;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import edu.jhuapl.trinity.data.messages.FeatureVector;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.stream.IntStream;
+
+/**
+ * Search index over a renderer's feature vectors. Terms are looked up through
+ * an inverted index of character trigrams taken from the metadata keys, values
+ * and text of each vector, candidates are then confirmed with an exact
+ * substring check. Score and pfa are kept in sorted primitive columns so range
+ * filters are a binary search.
+ * <p>
+ * The index follows its list by identity: new vectors at the tail are indexed
+ * as they show up and vectors evicted from the head are skipped. A list whose
+ * head or tail no longer lines up with the index, such as after a clear, is
+ * indexed again from scratch. Query results are BitSets of list positions.
+ *
+ * @author Sean Phillips
+ */
+public class FeatureSearchIndex {
+    public static final int GRAM = 3;
+    private static final int INITIAL_DOCS = 1024;
+    private static final int PARALLEL_THRESHOLD = 10000;
+
+    private FeatureVector[] docs = new FeatureVector[INITIAL_DOCS];
+    private int firstDoc = 0; //id of the vector at list position 0
+    private int nextDoc = 0; //id the next indexed vector gets
+    private final GramTable postings = new GramTable();
+    private final SortedColumn scores = new SortedColumn();
+    private final SortedColumn pfas = new SortedColumn();
+
+    public FeatureSearchIndex() {
+    }
+
+    /**
+     * Ascending doc ids of every vector containing a trigram.
+     */
+    private static final class Postings {
+        int[] ids = new int[4];
+        int size = 0;
+
+        void add(int id) {
+            if (size == ids.length)
+                ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        int lowerBound(int id) {
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (ids[mid] < id) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        boolean contains(int id) {
+            int i = lowerBound(id);
+            return i < size && ids[i] == id;
+        }
+    }
+
+    /**
+     * Open addressing map from a packed trigram to its postings, avoids boxing
+     * a Long for every trigram of every vector.
+     */
+    private static final class GramTable {
+        long[] keys = new long[1024];
+        Postings[] lists = new Postings[1024];
+        int size = 0;
+
+        void clear() {
+            keys = new long[1024];
+            lists = new Postings[1024];
+            size = 0;
+        }
+
+        int slot(long key) {
+            int mask = keys.length - 1;
+            int i = (int) (key ^ (key >>> 29) ^ (key >>> 17)) * 0x9E3779B9 & mask;
+            while (null != lists[i] && keys[i] != key)
+                i = (i + 1) & mask;
+            return i;
+        }
+
+        Postings get(long key) {
+            return lists[slot(key)];
+        }
+
+        Postings getOrAdd(long key) {
+            int i = slot(key);
+            if (null == lists[i]) {
+                if ((size + 1) * 2 > keys.length) {
+                    grow();
+                    i = slot(key);
+                }
+                keys[i] = key;
+                lists[i] = new Postings();
+                size++;
+            }
+            return lists[i];
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            Postings[] oldLists = lists;
+            keys = new long[oldKeys.length * 2];
+            lists = new Postings[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (null != oldLists[i]) {
+                    int j = slot(oldKeys[i]);
+                    keys[j] = oldKeys[i];
+                    lists[j] = oldLists[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Values sorted ascending with the doc id of each, NaN sorts last.
+     */
+    private static final class SortedColumn {
+        double[] values = new double[0];
+        int[] ids = new int[0];
+
+        void clear() {
+            values = new double[0];
+            ids = new int[0];
+        }
+
+        void append(double[] added, int firstId) {
+            int[] order = sortedOrder(added);
+            double[] mergedValues = new double[values.length + added.length];
+            int[] mergedIds = new int[mergedValues.length];
+            int i = 0, j = 0, k = 0;
+            while (i < values.length || j < order.length) {
+                if (j == order.length || (i < values.length
+                    && Double.compare(values[i], added[order[j]]) <= 0)) {
+                    mergedValues[k] = values[i];
+                    mergedIds[k++] = ids[i++];
+                } else {
+                    mergedValues[k] = added[order[j]];
+                    mergedIds[k++] = firstId + order[j++];
+                }
+            }
+            values = mergedValues;
+            ids = mergedIds;
+        }
+
+        /**
+         * Bottom up merge sort of the positions of values, keeps everything
+         * primitive instead of sorting boxed indices with a comparator.
+         */
+        static int[] sortedOrder(double[] values) {
+            int[] order = new int[values.length];
+            int[] buffer = new int[values.length];
+            for (int i = 0; i < order.length; i++)
+                order[i] = i;
+            for (int width = 1; width < order.length; width *= 2) {
+                for (int lo = 0; lo < order.length; lo += width * 2) {
+                    int mid = Math.min(lo + width, order.length);
+                    int hi = Math.min(lo + width * 2, order.length);
+                    int i = lo, j = mid, k = lo;
+                    while (i < mid && j < hi)
+                        buffer[k++] = Double.compare(values[order[i]], values[order[j]]) <= 0
+                            ? order[i++] : order[j++];
+                    while (i < mid)
+                        buffer[k++] = order[i++];
+                    while (j < hi)
+                        buffer[k++] = order[j++];
+                }
+                int[] swap = order;
+                order = buffer;
+                buffer = swap;
+            }
+            return order;
+        }
+
+        void range(double minimum, double maximum, int firstDoc, BitSet matches) {
+            int lo = 0, hi = values.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (values[mid] < minimum) lo = mid + 1;
+                else hi = mid;
+            }
+            for (int k = lo; k < values.length && values[k] <= maximum; k++)
+                if (ids[k] >= firstDoc)
+                    matches.set(ids[k] - firstDoc);
+            //NaN never falls outside a range, same as the plain comparisons
+            for (int k = values.length - 1; k >= 0 && Double.isNaN(values[k]); k--)
+                if (ids[k] >= firstDoc)
+                    matches.set(ids[k] - firstDoc);
+        }
+    }
+
+    /**
+     * Brings the index up to date with the list it searches, indexing only the
+     * vectors added since the last call when the list was appended to.
+     *
+     * @param featureVectors the renderer's current feature vectors
+     */
+    public synchronized void sync(List<FeatureVector> featureVectors) {
+        int size = featureVectors.size();
+        int first = size > 0 ? locate(featureVectors.get(0)) : -1;
+        if (first < 0) {
+            rebuild(featureVectors);
+            return;
+        }
+        firstDoc = first;
+        int live = nextDoc - firstDoc;
+        if (live > size || docs[nextDoc - 1] != featureVectors.get(live - 1)
+            || (firstDoc > INITIAL_DOCS && firstDoc > live)) {
+            rebuild(featureVectors);
+            return;
+        }
+        append(featureVectors.subList(live, size));
+    }
+
+    public synchronized void clear() {
+        docs = new FeatureVector[INITIAL_DOCS];
+        firstDoc = 0;
+        nextDoc = 0;
+        postings.clear();
+        scores.clear();
+        pfas.clear();
+    }
+
+    public synchronized int size() {
+        return nextDoc - firstDoc;
+    }
+
+    /**
+     * @param term substring to look for in metadata keys, values and text
+     * @return list positions of the vectors containing the term
+     */
+    public synchronized BitSet searchTerm(String term) {
+        BitSet matches = new BitSet(size());
+        if (term.length() < GRAM) {
+            for (int id = firstDoc; id < nextDoc; id++)
+                if (containsTerm(docs[id], term))
+                    matches.set(id - firstDoc);
+            return matches;
+        }
+        long[] grams = new long[term.length()];
+        grams = distinct(grams, gramCount(grams, 0, term));
+        Postings[] lists = new Postings[grams.length];
+        for (int i = 0; i < grams.length; i++) {
+            lists[i] = postings.get(grams[i]);
+            if (null == lists[i])
+                return matches;
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+        Postings shortest = lists[0];
+        candidates:
+        for (int k = shortest.lowerBound(firstDoc); k < shortest.size; k++) {
+            int id = shortest.ids[k];
+            for (int j = 1; j < lists.length; j++)
+                if (!lists[j].contains(id))
+                    continue candidates;
+            if (containsTerm(docs[id], term))
+                matches.set(id - firstDoc);
+        }
+        return matches;
+    }
+
+    /**
+     * @return list positions of the vectors with minimum &lt;= score &lt;= maximum
+     */
+    public synchronized BitSet searchScore(double minimum, double maximum) {
+        BitSet matches = new BitSet(size());
+        scores.range(minimum, maximum, firstDoc, matches);
+        return matches;
+    }
+
+    /**
+     * @return list positions of the vectors with minimum &lt;= pfa &lt;= maximum
+     */
+    public synchronized BitSet searchPfa(double minimum, double maximum) {
+        BitSet matches = new BitSet(size());
+        pfas.range(minimum, maximum, firstDoc, matches);
+        return matches;
+    }
+
+    public static boolean containsTerm(FeatureVector featureVector, String term) {
+        if (null != featureVector.getMetaData()) {
+            for (Entry<String, String> entry : featureVector.getMetaData().entrySet()) {
+                if ((null != entry.getKey() && entry.getKey().contains(term))
+                    || (null != entry.getValue() && entry.getValue().contains(term)))
+                    return true;
+            }
+        }
+        return null != featureVector.getText() && featureVector.getText().contains(term);
+    }
+
+    private int locate(FeatureVector featureVector) {
+        for (int id = firstDoc; id < nextDoc; id++)
+            if (docs[id] == featureVector)
+                return id;
+        return -1;
+    }
+
+    private void rebuild(List<FeatureVector> featureVectors) {
+        clear();
+        append(featureVectors);
+    }
+
+    private void append(List<FeatureVector> added) {
+        int count = added.size();
+        if (count == 0)
+            return;
+        if (nextDoc + count > docs.length)
+            docs = Arrays.copyOf(docs, Math.max(docs.length * 2, nextDoc + count));
+        FeatureVector[] batch = added.toArray(FeatureVector[]::new);
+        long[][] grams = new long[count][];
+        IntStream indices = IntStream.range(0, count);
+        if (count >= PARALLEL_THRESHOLD)
+            indices = indices.parallel();
+        indices.forEach(i -> grams[i] = gramsOf(batch[i]));
+
+        double[] addedScores = new double[count];
+        double[] addedPfas = new double[count];
+        for (int i = 0; i < count; i++) {
+            int id = nextDoc + i;
+            docs[id] = batch[i];
+            for (long gram : grams[i])
+                postings.getOrAdd(gram).add(id);
+            addedScores[i] = batch[i].getScore();
+            addedPfas[i] = batch[i].getPfa();
+        }
+        scores.append(addedScores, nextDoc);
+        pfas.append(addedPfas, nextDoc);
+        nextDoc += count;
+    }
+
+    private static long[] gramsOf(FeatureVector featureVector) {
+        long[] grams = new long[64];
+        int count = 0;
+        if (null != featureVector.getMetaData()) {
+            for (Entry<String, String> entry : featureVector.getMetaData().entrySet()) {
+                grams = ensure(grams, count, entry.getKey());
+                count = gramCount(grams, count, entry.getKey());
+                grams = ensure(grams, count, entry.getValue());
+                count = gramCount(grams, count, entry.getValue());
+            }
+        }
+        grams = ensure(grams, count, featureVector.getText());
+        count = gramCount(grams, count, featureVector.getText());
+        return distinct(grams, count);
+    }
+
+    private static long[] ensure(long[] grams, int count, String s) {
+        if (null == s || count + s.length() <= grams.length)
+            return grams;
+        return Arrays.copyOf(grams, Math.max(grams.length * 2, count + s.length()));
+    }
+
+    private static int gramCount(long[] grams, int count, String s) {
+        if (null == s)
+            return count;
+        for (int i = 0; i + GRAM <= s.length(); i++)
+            grams[count++] = gram(s, i);
+        return count;
+    }
+
+    private static long gram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    private static long[] distinct(long[] grams, int count) {
+        Arrays.sort(grams, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++)
+            if (unique == 0 || grams[i] != grams[unique - 1])
+                grams[unique++] = grams[i];
+        return Arrays.copyOf(grams, unique);
+    }
+}
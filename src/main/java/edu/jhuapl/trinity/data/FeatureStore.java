@@ -0,0 +1,314 @@
+package edu.jhuapl.trinity.data;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import edu.jhuapl.trinity.data.messages.FeatureVector;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Columnar store for a queue of equally sized feature vectors. All values live
+ * in one contiguous float block with a stride of the vector dimension, labels
+ * are interned into a code column and layers kept in an int column. Rows are
+ * appended at the tail and evicted from the head, row ids never change.
+ * <p>
+ * A stored FeatureVector keeps working as before for JSON I/O and analysis,
+ * its data list becomes a view of its row. Values are held in float precision,
+ * which is what the renderers and UMAP use anyway. When a row is evicted its
+ * FeatureVector gets a private copy of the row so it stays valid.
+ * <p>
+ * Writers are synchronized, readers go through a volatile block reference so
+ * the render thread can read while a loader thread appends.
+ *
+ * @author Sean Phillips
+ */
+public class FeatureStore {
+    private static final int INITIAL_ROWS = 1024;
+
+    private final int dimensions;
+    private volatile Block block;
+    private int firstRow = 0; //oldest live row id
+    private int nextRow = 0; //id the next added row gets
+    private final List<String> labelTable = new ArrayList<>();
+    private final HashMap<String, Integer> labelCodes = new HashMap<>();
+
+    private static final class Block {
+        final float[] values;
+        final int[] labels;
+        final int[] layers;
+        final RowView[] views;
+        final int baseRow; //row id stored at index 0
+
+        Block(int capacity, int baseRow, int dimensions) {
+            values = new float[capacity * dimensions];
+            labels = new int[capacity];
+            layers = new int[capacity];
+            views = new RowView[capacity];
+            this.baseRow = baseRow;
+        }
+
+        int capacity() {
+            return labels.length;
+        }
+    }
+
+    public FeatureStore(int dimensions) {
+        this.dimensions = dimensions;
+        block = new Block(INITIAL_ROWS, 0, dimensions);
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    public synchronized int size() {
+        return nextRow - firstRow;
+    }
+
+    public synchronized boolean isEmpty() {
+        return nextRow == firstRow;
+    }
+
+    /**
+     * Copies a feature vector into a new row and turns its data list into a
+     * view of that row. Vectors of another dimension are not stored.
+     *
+     * @param featureVector vector to store
+     * @return the new row id, or -1 if the dimension does not match
+     */
+    public synchronized int add(FeatureVector featureVector) {
+        List<Double> data = featureVector.getData();
+        if (null == data || data.size() != dimensions)
+            return -1;
+        Block current = reserveRow();
+        int row = nextRow;
+        int index = row - current.baseRow;
+        int offset = index * dimensions;
+        for (int i = 0; i < dimensions; i++)
+            current.values[offset + i] = data.get(i).floatValue();
+        String label = internLabel(featureVector.getLabel());
+        current.labels[index] = null == label ? -1 : labelCodes.get(label);
+        current.layers[index] = featureVector.getLayer();
+        RowView view = new RowView(this, row);
+        current.views[index] = view;
+        featureVector.setLabel(label);
+        featureVector.setData(view);
+        nextRow++;
+        return row;
+    }
+
+    /**
+     * Drops the oldest rows. Their feature vectors get a private copy of the
+     * data so anything still holding them keeps working.
+     *
+     * @param count number of rows to evict
+     */
+    public synchronized void evict(int count) {
+        Block current = block;
+        count = Math.min(count, size());
+        for (int i = 0; i < count; i++) {
+            int index = firstRow - current.baseRow;
+            RowView view = current.views[index];
+            if (null != view)
+                view.detach(copyRow(current, index));
+            current.views[index] = null;
+            firstRow++;
+        }
+    }
+
+    /**
+     * Evicts every row.
+     */
+    public synchronized void clear() {
+        evict(size());
+    }
+
+    /**
+     * @param featureVector vector to check
+     * @return true if the vector's data is a live row of this store
+     */
+    public boolean holds(FeatureVector featureVector) {
+        return featureVector.getData() instanceof RowView
+            && ((RowView) featureVector.getData()).store == this;
+    }
+
+    public float get(int row, int dimension) {
+        Block current = block;
+        return current.values[(row - current.baseRow) * dimensions + dimension];
+    }
+
+    public void set(int row, int dimension, float value) {
+        Block current = block;
+        current.values[(row - current.baseRow) * dimensions + dimension] = value;
+    }
+
+    public String getLabel(int row) {
+        Block current = block;
+        int code = current.labels[row - current.baseRow];
+        synchronized (this) {
+            return code < 0 ? null : labelTable.get(code);
+        }
+    }
+
+    public int getLayer(int row) {
+        Block current = block;
+        return current.layers[row - current.baseRow];
+    }
+
+    /**
+     * @param row row id
+     * @return a new double array with the row values
+     */
+    public double[] getRow(int row) {
+        Block current = block;
+        int offset = (row - current.baseRow) * dimensions;
+        double[] values = new double[dimensions];
+        for (int i = 0; i < dimensions; i++)
+            values[i] = current.values[offset + i];
+        return values;
+    }
+
+    /**
+     * Data list of a feature vector as a new double array, copying straight
+     * from the store when the list is a row view.
+     *
+     * @param data data list of a feature vector
+     * @return the values as doubles
+     */
+    public static double[] toArray(List<Double> data) {
+        if (data instanceof RowView)
+            return ((RowView) data).copyInto(new double[data.size()]);
+        double[] values = new double[data.size()];
+        for (int i = 0; i < values.length; i++)
+            values[i] = data.get(i);
+        return values;
+    }
+
+    private String internLabel(String label) {
+        if (null == label)
+            return null;
+        Integer code = labelCodes.get(label);
+        if (null == code) {
+            labelCodes.put(label, labelTable.size());
+            labelTable.add(label);
+            return label;
+        }
+        return labelTable.get(code);
+    }
+
+    private float[] copyRow(Block current, int index) {
+        float[] copy = new float[dimensions];
+        System.arraycopy(current.values, index * dimensions, copy, 0, dimensions);
+        return copy;
+    }
+
+    //makes room for one more row, compacting away evicted rows or growing
+    private Block reserveRow() {
+        Block current = block;
+        if (nextRow - current.baseRow < current.capacity())
+            return current;
+        int live = nextRow - firstRow;
+        int capacity = current.capacity();
+        if (live + 1 > capacity / 2)
+            capacity *= 2;
+        //always a new block so readers never see rows move under them
+        Block next = new Block(capacity, firstRow, dimensions);
+        int start = firstRow - current.baseRow;
+        System.arraycopy(current.values, start * dimensions, next.values, 0, live * dimensions);
+        System.arraycopy(current.labels, start, next.labels, 0, live);
+        System.arraycopy(current.layers, start, next.layers, 0, live);
+        System.arraycopy(current.views, start, next.views, 0, live);
+        block = next;
+        return next;
+    }
+
+    /**
+     * List view of one row, used as the data list of a stored FeatureVector.
+     * Size is fixed, values can be read and replaced.
+     */
+    public static final class RowView extends AbstractList<Double> implements RandomAccess {
+        private volatile FeatureStore store;
+        private final int row;
+        private volatile float[] detached = null;
+
+        private RowView(FeatureStore store, int row) {
+            this.store = store;
+            this.row = row;
+        }
+
+        private void detach(float[] values) {
+            detached = values;
+            store = null;
+        }
+
+        public double getDouble(int index) {
+            if (index < 0 || index >= size())
+                throw new IndexOutOfBoundsException(index);
+            float[] values = detached;
+            if (null == values) {
+                FeatureStore owner = store;
+                if (null != owner) {
+                    Block current = owner.block;
+                    int position = row - current.baseRow;
+                    if (position >= 0)
+                        return current.values[position * owner.dimensions + index];
+                }
+                //evicted and compacted away while we looked
+                values = detached;
+            }
+            return values[index];
+        }
+
+        @Override
+        public Double get(int index) {
+            return getDouble(index);
+        }
+
+        @Override
+        public Double set(int index, Double element) {
+            Double previous = get(index);
+            float[] values = detached;
+            FeatureStore owner = store;
+            if (null == values && null != owner)
+                owner.set(row, index, element.floatValue());
+            else
+                detached[index] = element.floatValue();
+            return previous;
+        }
+
+        @Override
+        public int size() {
+            FeatureStore owner = store;
+            return null != owner ? owner.dimensions : detached.length;
+        }
+
+        public double[] copyInto(double[] values) {
+            for (int i = 0; i < values.length; i++)
+                values[i] = getDouble(i);
+            return values;
+        }
+    }
+}
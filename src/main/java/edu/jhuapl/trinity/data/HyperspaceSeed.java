@@ -34,6 +34,8 @@ public class HyperspaceSeed {
     public int x, y, z; //coordinate indices
     public int xDir, yDir, zDir; //coordinate indices
     public double[] vector;
+    //when set the values are read from this row of a shared store, not vector
+    public FeatureStore.RowView rowView = null;
 
     public HyperspaceSeed(int x, int y, int z) {
         this.x = x;
@@ -64,6 +66,23 @@ public class HyperspaceSeed {
         this.zDir = zDir;
     }
 
+    /**
+     * Seed that reads its values from a FeatureStore row instead of holding
+     * its own copy.
+     */
+    public HyperspaceSeed(int x, int y, int z, int xDir, int yDir, int zDir, FeatureStore.RowView rowView) {
+        this(x, y, z, xDir, yDir, zDir);
+        this.rowView = rowView;
+    }
+
+    public double get(int index) {
+        return null != rowView ? rowView.getDouble(index) : vector[index];
+    }
+
+    public int dimensions() {
+        return null != rowView ? rowView.size() : vector.length;
+    }
+
     public void setVector(double[] vector) {
         this.vector = new double[vector.length];
         System.arraycopy(vector, 0, this.vector, 0, this.vector.length);
@@ -0,0 +1,246 @@
+package edu.jhuapl.trinity.data;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import edu.jhuapl.trinity.data.messages.FeatureVector;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Row major grid of surface heights held in one flat float array. Rows run
+ * along the Z (sample) axis and columns along the X (feature) axis. The
+ * backing array is reused when the grid is reloaded with the same or a
+ * smaller size.
+ * <p>
+ * The rows also form a circular buffer for streaming: an allocated grid fills
+ * up with pushRow and once full every push overwrites the oldest row. Row
+ * indices are always logical, row 0 is the oldest and depth - 1 the newest.
+ *
+ * @author Sean Phillips
+ */
+public class SurfaceGrid {
+    //rows above which loading is split across the common pool
+    public static int PARALLEL_ROW_THRESHOLD = 256;
+
+    private float[] values = new float[0];
+    private boolean[] hidden = new boolean[0];
+    private int width = 0;
+    private int depth = 0;
+    private int capacity = 0;
+    private int firstRow = 0; //physical row holding logical row 0
+
+    public SurfaceGrid() {
+    }
+
+    public SurfaceGrid(int depth, int width) {
+        resize(depth, width);
+    }
+
+    /**
+     * Sets the dimensions of the grid and zeroes every value.
+     *
+     * @param depth number of rows (Z)
+     * @param width number of columns (X)
+     */
+    public void resize(int depth, int width) {
+        allocate(depth, width);
+        this.depth = depth;
+    }
+
+    /**
+     * Sets the dimensions of an empty grid that rows are then pushed into.
+     *
+     * @param capacity number of rows kept before the oldest is overwritten
+     * @param width    number of columns (X)
+     */
+    public void allocate(int capacity, int width) {
+        int size = capacity * width;
+        if (values.length < size)
+            values = new float[size];
+        else
+            Arrays.fill(values, 0, size, 0f);
+        if (hidden.length < capacity)
+            hidden = new boolean[capacity];
+        else
+            Arrays.fill(hidden, 0, capacity, false);
+        this.capacity = capacity;
+        this.width = width;
+        depth = 0;
+        firstRow = 0;
+    }
+
+    public void clear() {
+        depth = 0;
+        width = 0;
+        capacity = 0;
+        firstRow = 0;
+    }
+
+    /**
+     * Appends a row, overwriting the oldest row once the grid is full.
+     *
+     * @param data  row values, padded with zero or truncated to the width
+     * @param scale multiplier applied to every value
+     * @return true if the oldest row was dropped and every row moved down one
+     */
+    public boolean pushRow(List<Double> data, double scale) {
+        if (capacity == 0)
+            return false;
+        boolean scrolled = depth == capacity;
+        int physical;
+        if (scrolled) {
+            physical = firstRow;
+            firstRow = firstRow + 1 == capacity ? 0 : firstRow + 1;
+        } else {
+            physical = depth++;
+        }
+        Arrays.fill(values, physical * width, (physical + 1) * width, 0f);
+        hidden[physical] = false;
+        writeRow(physical, data, 0, 1, scale);
+        return scrolled;
+    }
+
+    private int physical(int row) {
+        int physical = firstRow + row;
+        return physical >= capacity ? physical - capacity : physical;
+    }
+
+    /**
+     * Replaces the grid with the data of the given feature vectors, one row
+     * per vector. The width is taken from the first vector, shorter vectors
+     * are padded with zero.
+     *
+     * @param featureVectors rows of the new grid
+     */
+    public void setFeatureVectors(List<FeatureVector> featureVectors) {
+        if (featureVectors.isEmpty()) {
+            clear();
+            return;
+        }
+        resize(featureVectors.size(), featureVectors.get(0).getData().size());
+        rows(depth).forEach(row ->
+            setRow(row, featureVectors.get(row).getData(), 0, 1, 1.0));
+    }
+
+    /**
+     * Copies a list of values into a row, taking every stride-th value starting
+     * at offset and multiplying it by scale. Values past the width are ignored
+     * and missing values are left at zero.
+     */
+    public void setRow(int row, List<Double> data, int offset, int stride, double scale) {
+        writeRow(physical(row), data, offset, stride, scale);
+    }
+
+    private void writeRow(int physical, List<Double> data, int offset, int stride, double scale) {
+        int base = physical * width;
+        int column = 0;
+        for (int i = offset; i < data.size() && column < width; i += stride) {
+            values[base + column++] = (float) (data.get(i) * scale);
+        }
+    }
+
+    public float get(int row, int column) {
+        return values[physical(row) * width + column];
+    }
+
+    public void set(int row, int column, float value) {
+        values[physical(row) * width + column] = value;
+    }
+
+    /**
+     * Bounds checked lookup, anything outside the grid or on a hidden row
+     * reads as zero.
+     */
+    public float lookup(int row, int column) {
+        if (row < 0 || row >= depth || column < 0 || column >= width)
+            return 0f;
+        int physical = physical(row);
+        if (hidden[physical])
+            return 0f;
+        return values[physical * width + column];
+    }
+
+    public boolean isRowVisible(int row) {
+        return !hidden[physical(row)];
+    }
+
+    /**
+     * Hidden rows keep their values but read as zero through lookup. A row
+     * becomes visible again when pushRow reuses it.
+     */
+    public void setRowVisible(int row, boolean visible) {
+        hidden[physical(row)] = !visible;
+    }
+
+    public Double[] getRow(int row) {
+        Double[] rowValues = new Double[width];
+        int base = physical(row) * width;
+        for (int i = 0; i < width; i++) {
+            rowValues[i] = (double) values[base + i];
+        }
+        return rowValues;
+    }
+
+    public Double[] getColumn(int column) {
+        Double[] columnValues = new Double[depth];
+        for (int i = 0; i < depth; i++) {
+            columnValues[i] = (double) values[physical(i) * width + column];
+        }
+        return columnValues;
+    }
+
+    /**
+     * @return a copy of the grid as rows of doubles
+     */
+    public double[][] toArray() {
+        double[][] array = new double[depth][width];
+        rows(depth).forEach(row -> {
+            int base = physical(row) * width;
+            for (int i = 0; i < width; i++) {
+                array[row][i] = values[base + i];
+            }
+        });
+        return array;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public boolean isEmpty() {
+        return depth == 0 || width == 0;
+    }
+
+    private static IntStream rows(int count) {
+        IntStream rows = IntStream.range(0, count);
+        return count > PARALLEL_ROW_THRESHOLD ? rows.parallel() : rows;
+    }
+}
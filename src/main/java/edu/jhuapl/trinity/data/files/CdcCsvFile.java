@@ -29,7 +29,6 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.util.List;
-import java.util.Optional;
 
 import static edu.jhuapl.trinity.data.CdcCsv.csvToCdcCsv;
 
@@ -72,8 +71,7 @@ public class CdcCsvFile extends File implements Transferable {
      * @throws java.io.IOException
      */
     public static boolean isCdcCsvFile(File file) throws IOException {
-        Optional<String> firstLine = Files.lines(file.toPath()).findFirst();
-        return firstLine.isPresent() && firstLine.get().startsWith(FILE_DESC);
+        return FileTypeSniffer.sample(file).firstLine.startsWith(FILE_DESC);
     }
 
     /**
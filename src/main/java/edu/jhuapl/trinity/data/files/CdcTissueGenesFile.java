@@ -41,7 +41,6 @@ import java.io.LineNumberReader;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 
 import static edu.jhuapl.trinity.data.CdcTissueGenes.csvToCdcTissueGenes;
 
@@ -84,8 +83,7 @@ public class CdcTissueGenesFile extends File implements Transferable {
      * @throws java.io.IOException
      */
     public static boolean isCdcTissueGenesFile(File file) throws IOException {
-        Optional<String> firstLine = Files.lines(file.toPath()).findFirst();
-        return firstLine.isPresent() && firstLine.get().contains(FILE_DESC);
+        return FileTypeSniffer.sample(file).firstLine.contains(FILE_DESC);
     }
 
     /**
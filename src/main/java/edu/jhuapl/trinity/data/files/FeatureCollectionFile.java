@@ -29,7 +29,6 @@ import java.awt.datatransfer.Transferable;
 import java.awt.datatransfer.UnsupportedFlavorException;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 
 /**
  * @author Sean Phillips
@@ -71,8 +70,7 @@ public class FeatureCollectionFile extends File implements Transferable {
      * @throws java.io.IOException
      */
     public static boolean isFeatureCollectionFile(File file) throws IOException {
-        String body = Files.readString(file.toPath());
-        return FeatureCollection.isFeatureCollection(body);
+        return FeatureCollection.isFeatureCollection(FileTypeSniffer.sample(file).text);
 //        return firstLine.isPresent() &&
 //        (firstLine.get().contains(FILE_DESC1) || firstLine.get().contains(FILE_DESC2));
     }
@@ -91,8 +89,7 @@ public class FeatureCollectionFile extends File implements Transferable {
         /** Provides deserialization support for JSON messages */
         ObjectMapper mapper = new ObjectMapper();
         mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        String message = Files.readString(this.toPath());
-        featureCollection = mapper.readValue(message, FeatureCollection.class);
+        featureCollection = mapper.readValue(this, FeatureCollection.class);
         return featureCollection;
     }
 
@@ -0,0 +1,175 @@
+package edu.jhuapl.trinity.data.files;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import edu.jhuapl.trinity.data.messages.FeatureCollection;
+import edu.jhuapl.trinity.data.messages.LabelConfig;
+import edu.jhuapl.trinity.data.messages.ManifoldData;
+import edu.jhuapl.trinity.data.messages.TextEmbeddingCollection;
+import edu.jhuapl.trinity.data.terrain.FireAreaTextFile;
+import edu.jhuapl.trinity.data.terrain.TerrainTextFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Classifies data files by looking at a bounded, memory mapped sample of
+ * the file instead of reading the whole thing. The sample is the first
+ * HEAD_BYTES of the file plus the last TAIL_BYTES, so JSON files whose type
+ * field is serialized after their payload are still recognized.
+ *
+ * @author Sean Phillips
+ */
+public enum FileTypeSniffer {
+    INSTANCE;
+    public static final int HEAD_BYTES = 64 * 1024;
+    public static final int TAIL_BYTES = 4 * 1024;
+
+    public static enum FileType {
+        LABEL_CONFIG, TERRAIN_TEXT, FIRE_AREA_TEXT, SEMANTIC_MAP_COLLECTION,
+        FEATURE_COLLECTION, GAUSSIAN_MIXTURE_COLLECTION, TEXT_EMBEDDING_COLLECTION,
+        CDC_CSV, CDC_TISSUE_GENES, MCCLOD_SPLIT_DATA, ZERO_PILOT_LATENTS,
+        MANIFOLD_DATA, UNKNOWN
+    }
+
+    /**
+     * Bounded view of a file's content used for type detection.
+     */
+    public static class Sample {
+        /**
+         * head and tail of the file joined by a newline
+         */
+        public final String text;
+        public final String firstLine;
+        public final String secondLine;
+
+        public Sample(String head, String tail) {
+            text = tail.isEmpty() ? head : head + "\n" + tail;
+            int firstEnd = lineEnd(head, 0);
+            firstLine = stripCarriageReturn(head.substring(0, firstEnd));
+            if (firstEnd < head.length()) {
+                int secondEnd = lineEnd(head, firstEnd + 1);
+                secondLine = stripCarriageReturn(head.substring(firstEnd + 1, secondEnd));
+            } else
+                secondLine = "";
+        }
+
+        private static int lineEnd(String s, int from) {
+            int end = s.indexOf('\n', from);
+            return end < 0 ? s.length() : end;
+        }
+
+        private static String stripCarriageReturn(String line) {
+            return line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+        }
+    }
+
+    /**
+     * Maps at most HEAD_BYTES from the start and TAIL_BYTES from the end of
+     * the file. Multi-byte characters cut at the sample boundaries are
+     * replaced, which is harmless for marker matching.
+     *
+     * @param file the File to sample
+     * @return the bounded sample
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public static Sample sample(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            String head = decode(channel, 0, (int) Math.min(size, HEAD_BYTES));
+            String tail = "";
+            if (size > HEAD_BYTES) {
+                int tailLength = (int) Math.min(size - HEAD_BYTES, TAIL_BYTES);
+                tail = decode(channel, size - tailLength, tailLength);
+            }
+            return new Sample(head, tail);
+        }
+    }
+
+    private static String decode(FileChannel channel, long position, int length) throws IOException {
+        if (length == 0)
+            return "";
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Determines the file type from a single bounded sample. Checks are made
+     * in the same order the drag and drop handler has always used.
+     *
+     * @param file the File to classify
+     * @return the detected type, UNKNOWN if nothing matched
+     * @throws IOException if the file cannot be sampled
+     */
+    public static FileType sniff(File file) throws IOException {
+        return sniff(sample(file));
+    }
+
+    public static FileType sniff(Sample sample) {
+        if (LabelConfig.isLabelConfig(sample.text))
+            return FileType.LABEL_CONFIG;
+        if (sample.firstLine.contentEquals(TerrainTextFile.TERRAIN_TEXT_MARKER))
+            return FileType.TERRAIN_TEXT;
+        if (sample.firstLine.contains(FireAreaTextFile.FIREAREA_TEXT_MARKER))
+            return FileType.FIRE_AREA_TEXT;
+        if (isSemanticMapCollection(sample))
+            return FileType.SEMANTIC_MAP_COLLECTION;
+        if (FeatureCollection.isFeatureCollection(sample.text))
+            return FileType.FEATURE_COLLECTION;
+        if (sample.firstLine.contains(GaussianMixtureCollectionFile.FILE_DESC1)
+            || sample.firstLine.contains(GaussianMixtureCollectionFile.FILE_DESC2))
+            return FileType.GAUSSIAN_MIXTURE_COLLECTION;
+        if (TextEmbeddingCollection.isTextEmbeddingCollection(sample.text))
+            return FileType.TEXT_EMBEDDING_COLLECTION;
+        if (sample.firstLine.startsWith(CdcCsvFile.FILE_DESC))
+            return FileType.CDC_CSV;
+        if (sample.firstLine.contains(CdcTissueGenesFile.FILE_DESC))
+            return FileType.CDC_TISSUE_GENES;
+        if (sample.firstLine.contains(McclodSplitDataTsvFile.FILE_DESC))
+            return FileType.MCCLOD_SPLIT_DATA;
+        if (sample.firstLine.contains(ZeroPilotLatentsFile.FILE_DESC))
+            return FileType.ZERO_PILOT_LATENTS;
+        if (ManifoldData.isManifoldData(sample.text))
+            return FileType.MANIFOLD_DATA;
+        return FileType.UNKNOWN;
+    }
+
+    static boolean isSemanticMapCollection(Sample sample) {
+        return containsWithin(sample.firstLine, 256, SemanticMapCollectionFile.FILE_DESC1, SemanticMapCollectionFile.FILE_DESC2)
+            || containsWithin(sample.secondLine, 256, SemanticMapCollectionFile.FILE_DESC1, SemanticMapCollectionFile.FILE_DESC2);
+    }
+
+    static boolean containsWithin(String line, int limit, String... markers) {
+        String prefix = line.length() > limit ? line.substring(0, limit) : line;
+        for (String marker : markers) {
+            if (prefix.contains(marker))
+                return true;
+        }
+        return false;
+    }
+}
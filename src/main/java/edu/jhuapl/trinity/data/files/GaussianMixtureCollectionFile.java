@@ -29,8 +29,6 @@ import java.awt.datatransfer.Transferable;
 import java.awt.datatransfer.UnsupportedFlavorException;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.util.Optional;
 
 /**
  * @author Sean Phillips
@@ -72,9 +70,8 @@ public class GaussianMixtureCollectionFile extends File implements Transferable
      * @throws java.io.IOException
      */
     public static boolean isGaussianMixtureCollectionFile(File file) throws IOException {
-        Optional<String> firstLine = Files.lines(file.toPath()).findFirst();
-        return firstLine.isPresent() &&
-            (firstLine.get().contains(FILE_DESC1) || firstLine.get().contains(FILE_DESC2));
+        String firstLine = FileTypeSniffer.sample(file).firstLine;
+        return firstLine.contains(FILE_DESC1) || firstLine.contains(FILE_DESC2);
     }
 
     /**
@@ -91,8 +88,7 @@ public class GaussianMixtureCollectionFile extends File implements Transferable
         /** Provides deserialization support for JSON messages */
         ObjectMapper mapper = new ObjectMapper();
         mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        String message = Files.readString(this.toPath());
-        gaussianMixtureCollection = mapper.readValue(message, GaussianMixtureCollection.class);
+        gaussianMixtureCollection = mapper.readValue(this, GaussianMixtureCollection.class);
         return gaussianMixtureCollection;
     }
 
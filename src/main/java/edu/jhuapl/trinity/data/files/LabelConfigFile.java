@@ -29,7 +29,6 @@ import java.awt.datatransfer.Transferable;
 import java.awt.datatransfer.UnsupportedFlavorException;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 
 /**
  * @author Sean Phillips
@@ -81,8 +80,7 @@ public class LabelConfigFile extends File implements Transferable {
      * @throws java.io.IOException
      */
     public static boolean isLabelConfigFile(File file) throws IOException {
-        String body = Files.readString(file.toPath());
-        return LabelConfig.isLabelConfig(body);
+        return LabelConfig.isLabelConfig(FileTypeSniffer.sample(file).text);
     }
 
     /**
@@ -99,8 +97,7 @@ public class LabelConfigFile extends File implements Transferable {
         /** Provides deserialization support for JSON messages */
         ObjectMapper mapper = new ObjectMapper();
         mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        String message = Files.readString(this.toPath());
-        labelConfig = mapper.readValue(message, LabelConfig.class);
+        labelConfig = mapper.readValue(this, LabelConfig.class);
         return labelConfig;
     }
 
@@ -28,7 +28,6 @@ import java.awt.datatransfer.Transferable;
 import java.awt.datatransfer.UnsupportedFlavorException;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 
 /**
  * @author Sean Phillips
@@ -70,8 +69,7 @@ public class ManifoldDataFile extends File implements Transferable {
      * @throws java.io.IOException
      */
     public static boolean isManifoldDataFile(File file) throws IOException {
-        String body = Files.readString(file.toPath());
-        return ManifoldData.isManifoldData(body);
+        return ManifoldData.isManifoldData(FileTypeSniffer.sample(file).text);
 //        return firstLine.isPresent() &&
 //        (firstLine.get().contains(FILE_DESC1) || firstLine.get().contains(FILE_DESC2));
     }
@@ -90,8 +88,7 @@ public class ManifoldDataFile extends File implements Transferable {
         /** Provides deserialization support for JSON messages */
         ObjectMapper mapper = new ObjectMapper();
         mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        String message = Files.readString(this.toPath());
-        manifoldData = mapper.readValue(message, ManifoldData.class);
+        manifoldData = mapper.readValue(this, ManifoldData.class);
         return manifoldData;
     }
 
@@ -29,7 +29,6 @@ import java.awt.datatransfer.Transferable;
 import java.awt.datatransfer.UnsupportedFlavorException;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 
 /**
  * @author Sean Phillips
@@ -73,11 +72,7 @@ public class SemanticMapCollectionFile extends File implements Transferable {
      * @throws java.io.IOException
      */
     public static boolean isSemanticMapCollectionFile(File file) throws IOException {
-        return Files.lines(file.toPath()).limit(2).anyMatch(t -> {
-            int lim = t.length() > 256 ? 256 : t.length();
-            return t.substring(0, lim).contains(FILE_DESC1)
-                || t.substring(0, lim).contains(FILE_DESC2);
-        });
+        return FileTypeSniffer.isSemanticMapCollection(FileTypeSniffer.sample(file));
     }
 
     /**
@@ -94,8 +89,7 @@ public class SemanticMapCollectionFile extends File implements Transferable {
         /** Provides deserialization support for JSON messages */
         ObjectMapper mapper = new ObjectMapper();
         mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        String message = Files.readString(this.toPath());
-        semanticMapCollection = mapper.readValue(message, SemanticMapCollection.class);
+        semanticMapCollection = mapper.readValue(this, SemanticMapCollection.class);
         return semanticMapCollection;
     }
 
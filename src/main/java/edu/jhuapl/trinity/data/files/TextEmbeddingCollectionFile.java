@@ -29,7 +29,6 @@ import java.awt.datatransfer.Transferable;
 import java.awt.datatransfer.UnsupportedFlavorException;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 
 /**
  * @author Sean Phillips
@@ -71,8 +70,7 @@ public class TextEmbeddingCollectionFile extends File implements Transferable {
      * @throws java.io.IOException
      */
     public static boolean isTextEmbeddingCollection(File file) throws IOException {
-        String body = Files.readString(file.toPath());
-        return TextEmbeddingCollection.isTextEmbeddingCollection(body);
+        return TextEmbeddingCollection.isTextEmbeddingCollection(FileTypeSniffer.sample(file).text);
     }
 
     /**
@@ -89,8 +87,7 @@ public class TextEmbeddingCollectionFile extends File implements Transferable {
         /** Provides deserialization support for JSON messages */
         ObjectMapper mapper = new ObjectMapper();
         mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        String message = Files.readString(this.toPath());
-        textEmbeddingCollection = mapper.readValue(message, TextEmbeddingCollection.class);
+        textEmbeddingCollection = mapper.readValue(this, TextEmbeddingCollection.class);
         return textEmbeddingCollection;
     }
 
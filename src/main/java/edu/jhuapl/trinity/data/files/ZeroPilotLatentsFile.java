@@ -41,7 +41,6 @@ import java.io.LineNumberReader;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 
 /**
  * @author Sean Phillips
@@ -82,8 +81,7 @@ public class ZeroPilotLatentsFile extends File implements Transferable {
      * @throws java.io.IOException
      */
     public static boolean isZeroPilotLatentsFile(File file) throws IOException {
-        Optional<String> firstLine = Files.lines(file.toPath()).findFirst();
-        return firstLine.isPresent() && firstLine.get().contains(FILE_DESC);
+        return FileTypeSniffer.sample(file).firstLine.contains(FILE_DESC);
     }
 
     /**
@@ -22,6 +22,7 @@ package edu.jhuapl.trinity.data.messages;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import edu.jhuapl.trinity.data.FeatureStore;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -172,11 +173,18 @@ public class FeatureVector extends MessageData {
         return meanVector;
     }
 
-    public static void updateMeanVector(List<Double> meanVector, FeatureVector featureVector) {
+    /**
+     * Folds one more vector into a running mean.
+     *
+     * @param meanVector    mean of the previous vectors, updated in place
+     * @param featureVector vector to fold in
+     * @param count         number of vectors the mean was taken over before
+     */
+    public static void updateMeanVector(List<Double> meanVector, FeatureVector featureVector, long count) {
         int dataSize = meanVector.size();
-
         for (int i = 0; i < dataSize; i++) {
-            meanVector.set(i, (meanVector.get(i) + featureVector.getData().get(i)) / 2.0);
+            double mean = meanVector.get(i);
+            meanVector.set(i, mean + (featureVector.getData().get(i) - mean) / (count + 1));
         }
     }
 
@@ -194,11 +202,7 @@ public class FeatureVector extends MessageData {
     };
 
     public static Function<FeatureVector, double[]> mapToStateArray = (state) -> {
-        double[] states = new double[state.data.size()];
-        for (int i = 0; i < states.length; i++) {
-            states[i] = state.data.get(i);
-        }
-        return states;
+        return FeatureStore.toArray(state.data);
     };
 
     public static FeatureVector EMPTY_FEATURE_VECTOR(String label, int dataSize) {
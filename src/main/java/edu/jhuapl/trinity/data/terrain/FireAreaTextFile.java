@@ -20,6 +20,8 @@ package edu.jhuapl.trinity.data.terrain;
  * #L%
  */
 
+import edu.jhuapl.trinity.data.files.FileTypeSniffer;
+
 import java.awt.datatransfer.DataFlavor;
 import java.awt.datatransfer.Transferable;
 import java.awt.datatransfer.UnsupportedFlavorException;
@@ -69,8 +71,7 @@ public class FireAreaTextFile extends File implements Transferable {
      * @throws java.io.IOException
      */
     public static boolean isFireAreaTextFile(File file) throws IOException {
-        return Files.lines(file.toPath())
-            .findFirst().get().contains(FIREAREA_TEXT_MARKER);
+        return FileTypeSniffer.sample(file).firstLine.contains(FIREAREA_TEXT_MARKER);
     }
 
     /**
@@ -24,6 +24,8 @@ import javafx.beans.property.SimpleBooleanProperty;
 import javafx.geometry.Insets;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
 import javafx.scene.layout.Background;
 import javafx.scene.layout.BackgroundFill;
 import javafx.scene.layout.CornerRadii;
@@ -44,6 +46,8 @@ public class ShadowPane extends CanvasOverlayPane {
     Rectangle bindingRectangle = null;
     public SimpleBooleanProperty showNearsidePoints = new SimpleBooleanProperty(false);
     GraphicsContext gc;
+    //rasterized points, kept under the canvas so canvas drawing stays on top
+    ImageView splatView = new ImageView();
 
     public ShadowPane() {
         this(false, true);
@@ -78,6 +82,22 @@ public class ShadowPane extends CanvasOverlayPane {
             redraw();
         });
         gc = getCanvas().getGraphicsContext2D();
+
+        splatView.setMouseTransparent(true);
+        splatView.layoutXProperty().bind(getCanvas().layoutXProperty());
+        splatView.layoutYProperty().bind(getCanvas().layoutYProperty());
+        splatView.fitWidthProperty().bind(getCanvas().widthProperty());
+        splatView.fitHeightProperty().bind(getCanvas().heightProperty());
+        getChildren().add(0, splatView);
+    }
+
+    /**
+     * Shows a rasterized image under the canvas, scaled to the canvas size.
+     *
+     * @param image image to show, may be shared with other panes
+     */
+    public void setSplatImage(Image image) {
+        splatView.setImage(image);
     }
 
     public void drawPoint(double x, double y, double radius, Color color) {
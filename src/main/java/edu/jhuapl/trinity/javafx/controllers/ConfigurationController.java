@@ -131,6 +131,8 @@ public class ConfigurationController implements Initializable {
     @FXML
     private CheckBox showNearsidePointsCheckBox;
     @FXML
+    private CheckBox densityShadingCheckBox;
+    @FXML
     private CheckBox overrideDomainTransformCheckBox;
     @FXML
     private CheckBox showAxesAndLabelsCheckBox;
@@ -922,6 +924,11 @@ public class ConfigurationController implements Initializable {
                 ShadowEvent.ENABLE_CUBE_PROJECTIONS,
                 enableCubeRenderingCheckBox.isSelected()));
         });
+        densityShadingCheckBox.selectedProperty().addListener(cl -> {
+            scene.getRoot().fireEvent(new ShadowEvent(
+                ShadowEvent.ENABLE_DENSITY_SHADING,
+                densityShadingCheckBox.isSelected()));
+        });
 
         domainMinimumSpinner.setValueFactory(
             new SpinnerValueFactory.DoubleSpinnerValueFactory(-10.0, 10.0, -1.0, 0.1));
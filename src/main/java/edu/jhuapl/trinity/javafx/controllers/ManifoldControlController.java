@@ -76,6 +76,8 @@ public class ManifoldControlController implements Initializable {
     @FXML
     private ChoiceBox labelChoiceBox;
     @FXML
+    private CheckBox concaveCheckBox;
+    @FXML
     private CheckBox automaticCheckBox;
     @FXML
     private Spinner manualSpinner;
@@ -125,6 +127,12 @@ public class ManifoldControlController implements Initializable {
     private ChoiceBox metricChoiceBox;
     @FXML
     private CheckBox verboseCheckBox;
+    @FXML
+    private CheckBox stopWhenStableCheckBox;
+    @FXML
+    private CheckBox warmStartCheckBox;
+    @FXML
+    private CheckBox exactNeighborsCheckBox;
     //Geometry Tab
     @FXML
     private RadioButton useHyperspaceButton;
@@ -303,6 +311,21 @@ public class ManifoldControlController implements Initializable {
                     (Double) manualSpinner.getValue()));
         });
         manualSpinner.disableProperty().bind(automaticCheckBox.selectedProperty());
+        automaticCheckBox.selectedProperty().addListener(e -> {
+            scene.getRoot().fireEvent(
+                new ManifoldEvent(ManifoldEvent.USE_AUTOMATIC_TOLERANCE,
+                    automaticCheckBox.isSelected(), (Double) manualSpinner.getValue()));
+        });
+        warmStartCheckBox.selectedProperty().addListener(e -> {
+            scene.getRoot().fireEvent(
+                new ManifoldEvent(ManifoldEvent.USE_WARM_START,
+                    warmStartCheckBox.isSelected()));
+        });
+        concaveCheckBox.selectedProperty().addListener(e -> {
+            scene.getRoot().fireEvent(
+                new ManifoldEvent(ManifoldEvent.USE_CONCAVE_HULL,
+                    concaveCheckBox.isSelected()));
+        });
 
         manifoldDiffuseColorPicker.setValue(Color.CYAN);
         manifoldDiffuseColorPicker.valueProperty().addListener(cl -> {
@@ -469,6 +492,39 @@ public class ManifoldControlController implements Initializable {
             ManifoldEvent.SAVE_PROJECTION_DATA, file));
         }        
     } 
+
+    @FXML
+    public void saveUmapModel() {
+        FileChooser fc = new FileChooser();
+        fc.setTitle("Choose UMAP model file output...");
+        fc.setInitialFileName("UmapModel.umap");
+        if(!latestDir.isDirectory())
+            latestDir = new File(".");
+        fc.setInitialDirectory(latestDir);
+        File file = fc.showSaveDialog(scene.getWindow());
+        if (null != file) {
+            if(file.getParentFile().isDirectory())
+                latestDir = file;
+            scene.getRoot().fireEvent(new ManifoldEvent(
+            ManifoldEvent.SAVE_UMAP_MODEL, file));
+        }
+    }
+
+    @FXML
+    public void loadUmapModel() {
+        FileChooser fc = new FileChooser();
+        fc.setTitle("Choose UMAP model file to load...");
+        if(!latestDir.isDirectory())
+            latestDir = new File(".");
+        fc.setInitialDirectory(latestDir);
+        File file = fc.showOpenDialog(scene.getWindow());
+        if (null != file) {
+            if(file.getParentFile().isDirectory())
+                latestDir = file;
+            scene.getRoot().fireEvent(new ManifoldEvent(
+            ManifoldEvent.LOAD_UMAP_MODEL, file));
+        }
+    }
             
     @FXML
     public void project() {
@@ -484,6 +540,12 @@ public class ManifoldControlController implements Initializable {
         umap.setLocalConnectivity((int) localConnectivitySpinner.getValue());
         umap.setMetric((String) metricChoiceBox.getValue());
         umap.setVerbose(verboseCheckBox.isSelected());
+        umap.setExactNearestNeighbors(exactNeighborsCheckBox.isSelected());
+        //progress output includes a recall check of the approximate neighbors
+        umap.setRecallSampleSize(verboseCheckBox.isSelected()
+            ? Umap.DEFAULT_RECALL_SAMPLE_SIZE : 0);
+        umap.setStabilityTolerance(stopWhenStableCheckBox.isSelected()
+            ? Umap.DEFAULT_STABILITY_TOLERANCE : 0);
         ManifoldEvent.POINT_SOURCE pointSource = useHypersurfaceButton.isSelected() ?
             ManifoldEvent.POINT_SOURCE.HYPERSURFACE : ManifoldEvent.POINT_SOURCE.HYPERSPACE;
         scene.getRoot().fireEvent(new ManifoldEvent(
@@ -492,6 +554,17 @@ public class ManifoldControlController implements Initializable {
         
     }
 
+    @FXML
+    public void stopUmap() {
+        //keeps the layout reached so far
+        scene.getRoot().fireEvent(new ManifoldEvent(ManifoldEvent.STOP_UMAP_FIT));
+    }
+
+    @FXML
+    public void cancelUmap() {
+        scene.getRoot().fireEvent(new ManifoldEvent(ManifoldEvent.CANCEL_UMAP_FIT));
+    }
+
     @FXML
     public void generate() {
         scene.getRoot().fireEvent(new ManifoldEvent(
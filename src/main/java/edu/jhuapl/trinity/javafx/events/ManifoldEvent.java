@@ -47,7 +47,13 @@ public class ManifoldEvent extends Event {
     public static final EventType<ManifoldEvent> CLEAR_DISTANCE_CONNECTORS = new EventType(ANY, "CLEAR_DISTANCE_CONNECTORS");
     //UMAP
     public static final EventType<ManifoldEvent> SAVE_PROJECTION_DATA = new EventType(ANY, "SAVE_PROJECTION_DATA");
+    public static final EventType<ManifoldEvent> SAVE_UMAP_MODEL = new EventType<>(ANY, "SAVE_UMAP_MODEL");
+    public static final EventType<ManifoldEvent> LOAD_UMAP_MODEL = new EventType<>(ANY, "LOAD_UMAP_MODEL");
+    public static final EventType<ManifoldEvent> STOP_UMAP_FIT = new EventType<>(ANY, "STOP_UMAP_FIT");
+    public static final EventType<ManifoldEvent> CANCEL_UMAP_FIT = new EventType<>(ANY, "CANCEL_UMAP_FIT");
     public static final EventType<ManifoldEvent> GENERATE_NEW_UMAP = new EventType(ANY, "GENERATE_NEW_UMAP");
+    public static final EventType<ManifoldEvent> USE_WARM_START = new EventType<>(ANY, "USE_WARM_START");
+    public static final EventType<ManifoldEvent> USE_CONCAVE_HULL = new EventType<>(ANY, "USE_CONCAVE_HULL");
     public static final EventType<ManifoldEvent> USE_AUTOMATIC_TOLERANCE = new EventType(ANY, "USE_AUTOMATIC_TOLERANCE");
     public static final EventType<ManifoldEvent> SET_DISTANCE_TOLERANCE = new EventType(ANY, "SET_DISTANCE_TOLERANCE");
     public static final EventType<ManifoldEvent> GENERATE_HYPERSPACE_MANIFOLD = new EventType(ANY, "GENERATE_HYPERSPACE_MANIFOLD");
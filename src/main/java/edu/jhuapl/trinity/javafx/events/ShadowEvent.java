@@ -47,6 +47,7 @@ public class ShadowEvent extends Event {
     public static final EventType<ShadowEvent> SET_DOMAIN_MINIMUM = new EventType(ANY, "SET_DOMAIN_MINIMUM");
     public static final EventType<ShadowEvent> SET_DOMAIN_MAXIMUM = new EventType(ANY, "SET_DOMAIN_MAXIMUM");
     public static final EventType<ShadowEvent> SET_POINT_OPACITY = new EventType(ANY, "SET_POINT_OPACITY");
+    public static final EventType<ShadowEvent> ENABLE_DENSITY_SHADING = new EventType<>(ANY, "ENABLE_DENSITY_SHADING");
 
     public ShadowEvent(EventType<? extends Event> arg0) {
         super(arg0);
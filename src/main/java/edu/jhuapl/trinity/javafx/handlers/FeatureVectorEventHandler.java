@@ -125,6 +125,17 @@ public class FeatureVectorEventHandler implements EventHandler<FeatureVectorEven
         }
     }
 
+    public void handleFeatureVectorBatchEvent(FeatureVectorEvent event) {
+        @SuppressWarnings("unchecked")
+        List<FeatureVector> featureVectors = (List<FeatureVector>) event.object;
+        if (null == featureVectors || featureVectors.isEmpty())
+            return;
+        scanLabelsAndLayers(featureVectors);
+        for (FeatureVectorRenderer renderer : renderers) {
+            renderer.addFeatureVectors(featureVectors);
+        }
+    }
+
     public void scanLabelsAndLayers(List<FeatureVector> featureVectors) {
         featureVectors.forEach(featureVector -> {
             //Have we seen this label before?
@@ -276,6 +287,8 @@ public class FeatureVectorEventHandler implements EventHandler<FeatureVectorEven
         if (event.getEventType().equals(FeatureVectorEvent.NEW_FEATURE_VECTOR)
             || event.getEventType().equals(FeatureVectorEvent.LOCATE_FEATURE_VECTOR))
             handleFeatureVectorEvent(event);
+        else if (event.getEventType().equals(FeatureVectorEvent.NEW_FEATURE_VECTOR_BATCH))
+            handleFeatureVectorBatchEvent(event);
         else if (event.getEventType().equals(FeatureVectorEvent.NEW_FEATURE_COLLECTION))
             handleFeatureCollectionEvent(event);
         else if (event.getEventType().equals(FeatureVectorEvent.NEW_LABEL_CONFIG))
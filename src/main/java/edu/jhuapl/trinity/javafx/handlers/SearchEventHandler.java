@@ -21,8 +21,8 @@ package edu.jhuapl.trinity.javafx.handlers;
  */
 
 import edu.jhuapl.trinity.App;
+import edu.jhuapl.trinity.data.FeatureSearchIndex;
 import edu.jhuapl.trinity.data.FilterSet;
-import edu.jhuapl.trinity.data.messages.FeatureVector;
 import edu.jhuapl.trinity.javafx.events.CommandTerminalEvent;
 import edu.jhuapl.trinity.javafx.events.SearchEvent;
 import edu.jhuapl.trinity.javafx.renderers.FeatureVectorRenderer;
@@ -31,6 +31,8 @@ import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
 
 /**
@@ -39,23 +41,47 @@ import java.util.List;
 public class SearchEventHandler implements EventHandler<SearchEvent> {
 
     List<FeatureVectorRenderer> renderers;
+    HashMap<FeatureVectorRenderer, FeatureSearchIndex> indices;
 
     public SearchEventHandler() {
         renderers = new ArrayList<>();
+        indices = new HashMap<>();
     }
 
     public void addFeatureVectorRenderer(FeatureVectorRenderer renderer) {
         renderers.add(renderer);
+        indices.put(renderer, new FeatureSearchIndex());
+    }
+
+    /**
+     * @return the renderer's index, caught up with its current feature vectors
+     */
+    private FeatureSearchIndex indexFor(FeatureVectorRenderer renderer) {
+        FeatureSearchIndex index = indices.computeIfAbsent(renderer, r -> new FeatureSearchIndex());
+        index.sync(renderer.getAllFeatureVectors());
+        return index;
+    }
+
+    /**
+     * Hides every indexed feature vector that is not in the matches.
+     *
+     * @return the number of feature vectors hidden
+     */
+    private int hideUnmatched(FeatureVectorRenderer renderer, FeatureSearchIndex index, BitSet matches) {
+        BitSet hidden = (BitSet) matches.clone();
+        hidden.flip(0, index.size());
+        renderer.setVisibleByIndices(hidden, false);
+        //request render update
+        renderer.refresh();
+        return hidden.cardinality();
     }
 
     public void handleClearAllFilters(SearchEvent event) {
         System.out.print("Clearing Filters... ");
         for (FeatureVectorRenderer renderer : renderers) {
-            List<FeatureVector> fvList = renderer.getAllFeatureVectors();
-            int size = fvList.size();
-            for (int i = 0; i < size; i++) {
-                renderer.setVisibleByIndex(i, true);
-            }
+            BitSet all = new BitSet();
+            all.set(0, renderer.getAllFeatureVectors().size());
+            renderer.setVisibleByIndices(all, true);
             //request render update
             renderer.refresh();
         }
@@ -66,17 +92,8 @@ public class SearchEventHandler implements EventHandler<SearchEvent> {
         String metadataTerm = (String) event.eventObject;
         System.out.print("Filtering based on " + metadataTerm + "... ");
         for (FeatureVectorRenderer renderer : renderers) {
-            List<FeatureVector> fvList = renderer.getAllFeatureVectors();
-            int size = fvList.size();
-            for (int i = 0; i < size; i++) {
-                if (!fvList.get(i).metaContainsTerm(metadataTerm))
-                    renderer.setVisibleByIndex(i, false);
-//@DEBUG SMP useful print... but it is very slow
-//                else
-//                    System.out.println("Index: " + i + " | " + fvList.get(i).metadataAsString(" "));
-            }
-            //request render update
-            renderer.refresh();
+            FeatureSearchIndex index = indexFor(renderer);
+            hideUnmatched(renderer, index, index.searchTerm(metadataTerm));
         }
         System.out.println("Filtering complete.");
     }
@@ -89,20 +106,9 @@ public class SearchEventHandler implements EventHandler<SearchEvent> {
         System.out.print(msg);
 
         for (FeatureVectorRenderer renderer : renderers) {
-            List<FeatureVector> fvList = renderer.getAllFeatureVectors();
-            int size = fvList.size();
-            int filteredCount = 0;
-            double score;
-            for (int i = 0; i < size; i++) {
-                score = fvList.get(i).getScore();
-                if (score < filterSet.minimum.doubleValue()
-                    || score > filterSet.maximum.doubleValue()) {
-                    renderer.setVisibleByIndex(i, false);
-                    filteredCount++;
-                }
-            }
-            //request render update
-            renderer.refresh();
+            FeatureSearchIndex index = indexFor(renderer);
+            int filteredCount = hideUnmatched(renderer, index, index.searchScore(
+                filterSet.minimum.doubleValue(), filterSet.maximum.doubleValue()));
             msg = filteredCount + " featureVectors filtered.";
             System.out.println(msg);
             App.getAppScene().getRoot().fireEvent(new CommandTerminalEvent(msg));
@@ -117,20 +123,9 @@ public class SearchEventHandler implements EventHandler<SearchEvent> {
         System.out.print(msg);
 
         for (FeatureVectorRenderer renderer : renderers) {
-            List<FeatureVector> fvList = renderer.getAllFeatureVectors();
-            int size = fvList.size();
-            int filteredCount = 0;
-            double probability;
-            for (int i = 0; i < size; i++) {
-                probability = fvList.get(i).getPfa();
-                if (probability < filterSet.minimum.doubleValue()
-                    || probability > filterSet.maximum.doubleValue()) {
-                    renderer.setVisibleByIndex(i, false);
-                    filteredCount++;
-                }
-            }
-            //request render update
-            renderer.refresh();
+            FeatureSearchIndex index = indexFor(renderer);
+            int filteredCount = hideUnmatched(renderer, index, index.searchPfa(
+                filterSet.minimum.doubleValue(), filterSet.maximum.doubleValue()));
             msg = filteredCount + " featureVectors filtered.";
             System.out.println(msg);
             App.getAppScene().getRoot().fireEvent(new CommandTerminalEvent(msg));
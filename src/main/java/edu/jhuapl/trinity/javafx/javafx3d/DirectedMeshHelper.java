@@ -26,7 +26,6 @@ import org.fxyz3d.shapes.primitives.helper.MeshHelper;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author Sean Phillips
@@ -43,51 +42,71 @@ public class DirectedMeshHelper extends MeshHelper {
     these meshes that can be joined into one
     */
     public void addMesh(MeshHelper mh, List<Point3D> translate, List<Point3D> endPoints) {
-        float[] newPoints = new float[getPoints().length + mh.getPoints().length * translate.size()];
-        float[] newF = new float[getF().length + mh.getF().length * translate.size()];
-        float[] newTexCoords = new float[getTexCoords().length + mh.getTexCoords().length * translate.size()];
-        int[] newFaces = new int[getFaces().length + mh.getFaces().length * translate.size()];
-        int[] newFaceSmoothingGroups = new int[getFaceSmoothingGroups().length + mh.getFaceSmoothingGroups().length * translate.size()];
-        System.arraycopy(getPoints(), 0, newPoints, 0, getPoints().length);
-        System.arraycopy(getF(), 0, newF, 0, getF().length);
-        System.arraycopy(getTexCoords(), 0, newTexCoords, 0, getTexCoords().length);
-        System.arraycopy(getFaces(), 0, newFaces, 0, getFaces().length);
-        System.arraycopy(getFaceSmoothingGroups(), 0, newFaceSmoothingGroups, 0, getFaceSmoothingGroups().length);
-        int numPoints = mh.getPoints().length;
-        int numF = mh.getF().length;
-        int numTexCoords = mh.getTexCoords().length;
-        int numFaces = mh.getFaces().length;
-        int numFaceSmoothingGroups = mh.getFaceSmoothingGroups().length;
-        AtomicInteger count = new AtomicInteger();
-        //optimize for array traversal and eliminate object creation
-
-//        List<float[]> collect = translate.parallelStream().map(p3d->transform(mh.getPoints(),p3d)).collect(Collectors.toList());
-        //@TODO SMP to make parallel we have to combine translate and endpoint
-        //into a single collection that can be streamed
-//        translate.parallelStream().forEach(point3D -> {
-//
-//        });
+        int count = translate.size();
+        float[] translateArray = new float[count * 3];
+        float[] endArray = new float[count * 3];
+        float[] f = new float[count];
+        for (int i = 0; i < count; i++) {
+            Point3D p3d = translate.get(i);
+            translateArray[3 * i] = p3d.x;
+            translateArray[3 * i + 1] = p3d.y;
+            translateArray[3 * i + 2] = p3d.z;
+            f[i] = p3d.f;
+            Point3D endPoint = endPoints.get(i);
+            endArray[3 * i] = endPoint.x;
+            endArray[3 * i + 1] = endPoint.y;
+            endArray[3 * i + 2] = endPoint.z;
+        }
+        addMesh(mh, translateArray, endArray, f, 0, count);
+    }
 
-        Point3D[] translateArray = translate.toArray(Point3D[]::new);
-        Point3D[] endArray = endPoints.toArray(Point3D[]::new);
-//        for(int i=0; i<translate.size(); i++) {
-//            Point3D p3d = translate.get(i);
-//            Point3D endPoint = endPoints.get(i);
-        float[] transformedArray;
-        float[] ff;
-        //currently 2 ms for 20k points
-        for (int i = 0; i < translateArray.length; i++) {
-            transformedArray = transform(mh.getPoints(), translateArray[i]);
-            transformedArray[0] += endArray[i].x;
-            transformedArray[1] += endArray[i].y;
-            transformedArray[2] += endArray[i].z;
-            System.arraycopy(transformedArray, 0, newPoints, getPoints().length + numPoints * count.get(), mh.getPoints().length);
-            ff = mh.getF();
-            Arrays.fill(ff, translateArray[i].f);
-            System.arraycopy(ff, 0, newF, getF().length + numF * count.get(), ff.length);
-            System.arraycopy(mh.getTexCoords(), 0, newTexCoords, getTexCoords().length + numTexCoords * count.get(), mh.getTexCoords().length);
-            System.arraycopy(translateFaces(mh.getFaces(), numPoints / 3 * (count.get() + 1), numTexCoords / 2 * (count.get() + 1)), 0, newFaces, getFaces().length + numFaces * count.get(), mh.getFaces().length);
-            System.arraycopy(mh.getFaceSmoothingGroups(), 0, newFaceSmoothingGroups, getFaceSmoothingGroups().length + numFaceSmoothingGroups * count.getAndIncrement(), mh.getFaceSmoothingGroups().length);
+    /*
+    Same as above but reading positions, end points and function values straight
+    from primitive buffers (x, y, z per point), so no Point3D is created.
+    Points first .. first + count - 1 are added.
+    */
+    public void addMesh(MeshHelper mh, float[] translate, float[] endPoints, float[] f, int first, int count) {
+        float[] points = getPoints();
+        float[] meshPoints = mh.getPoints();
+        float[] meshTexCoords = mh.getTexCoords();
+        int[] meshFaces = mh.getFaces();
+        int[] meshFaceSmoothingGroups = mh.getFaceSmoothingGroups();
+        int numPoints = meshPoints.length;
+        int numF = mh.getF().length;
+        int numTexCoords = meshTexCoords.length;
+        int numFaces = meshFaces.length;
+        int numFaceSmoothingGroups = meshFaceSmoothingGroups.length;
+        float[] newPoints = Arrays.copyOf(points, points.length + numPoints * count);
+        float[] newF = Arrays.copyOf(getF(), getF().length + numF * count);
+        float[] newTexCoords = Arrays.copyOf(getTexCoords(), getTexCoords().length + numTexCoords * count);
+        int[] newFaces = Arrays.copyOf(getFaces(), getFaces().length + numFaces * count);
+        int[] newFaceSmoothingGroups = Arrays.copyOf(getFaceSmoothingGroups(),
+            getFaceSmoothingGroups().length + numFaceSmoothingGroups * count);
+        //one pass over primitive arrays, 20k points well under 2 ms
+        for (int i = 0; i < count; i++) {
+            int source = 3 * (first + i);
+            int pointOffset = points.length + numPoints * i;
+            for (int v = 0; v < numPoints; v += 3) {
+                newPoints[pointOffset + v] = meshPoints[v] + translate[source];
+                newPoints[pointOffset + v + 1] = meshPoints[v + 1] + translate[source + 1];
+                newPoints[pointOffset + v + 2] = meshPoints[v + 2] + translate[source + 2];
+            }
+            if (null != endPoints && source + 2 < endPoints.length) {
+                newPoints[pointOffset] += endPoints[source];
+                newPoints[pointOffset + 1] += endPoints[source + 1];
+                newPoints[pointOffset + 2] += endPoints[source + 2];
+            }
+            int fOffset = getF().length + numF * i;
+            Arrays.fill(newF, fOffset, fOffset + numF, f[first + i]);
+            System.arraycopy(meshTexCoords, 0, newTexCoords, getTexCoords().length + numTexCoords * i, numTexCoords);
+            int pointShift = numPoints / 3 * (i + 1);
+            int texShift = numTexCoords / 2 * (i + 1);
+            int faceOffset = getFaces().length + numFaces * i;
+            for (int j = 0; j < numFaces; j++) {
+                newFaces[faceOffset + j] = meshFaces[j] + (j % 2 == 0 ? pointShift : texShift);
+            }
+            System.arraycopy(meshFaceSmoothingGroups, 0, newFaceSmoothingGroups,
+                getFaceSmoothingGroups().length + numFaceSmoothingGroups * i, numFaceSmoothingGroups);
         }
         setPoints(newPoints);
         setF(newF);
@@ -96,25 +115,6 @@ public class DirectedMeshHelper extends MeshHelper {
         setFaceSmoothingGroups(newFaceSmoothingGroups);
     }
 
-
-    private int[] translateFaces(int[] faces, int points, int texCoords) {
-        int[] newFaces = new int[faces.length];
-        for (int i = 0; i < faces.length; i++) {
-            newFaces[i] = faces[i] + (i % 2 == 0 ? points : texCoords);
-        }
-        return newFaces;
-    }
-
-    private float[] transform(float[] points, Point3D p3d) {
-        float[] newPoints = new float[points.length];
-        for (int i = 0; i < points.length / 3; i++) {
-            newPoints[3 * i] = points[3 * i] + p3d.x;
-            newPoints[3 * i + 1] = points[3 * i + 1] + p3d.y;
-            newPoints[3 * i + 2] = points[3 * i + 2] + p3d.z;
-        }
-        return newPoints;
-    }
-
     public class StartAndEnd {
         public Point3D start;
         public Point3D end;
@@ -20,10 +20,13 @@ package edu.jhuapl.trinity.javafx.javafx3d;
  * #L%
  */
 
+import edu.jhuapl.trinity.utils.SpatialGrid;
 import org.fxyz3d.geometry.Point3D;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
 
 /**
  * @author Sean Phillips
@@ -66,6 +69,22 @@ public class DirectedScatterDataModel {
     public Double yShift = 0.0;
     public Double zShift = 0.0;
     public double pointScale = 1.0;
+    //Structure of arrays form of the visible nodes, filled by updateBuffers()
+    //and slideWindow(). Only the first pointCount entries are valid.
+    public float[] coords = new float[0]; //scene x, y, z per visible node
+    public float[] endCoords = new float[0]; //end point offset x, y, z per visible node
+    public float[] hues = new float[0]; //node color hue per visible node
+    public BitSet visibility = new BitSet(); //visible flag per pNodes index
+    public int pointCount = 0;
+    //pNodes index per visible point, rebuilt from visibility when stale
+    private int[] visibleNodes = new int[0];
+    private int visibleNodeCount = -1;
+    //scene positions of the visible points keyed by node id, built on the
+    //first spatial query and then kept up to date by slideWindow()
+    private SpatialGrid pointGrid = null;
+    private int firstNodeId = 0; //node id of pNodes index 0
+    private boolean buffersCurrent = false; //visible points are in coords
+    private List<Point3D> visibleScenePoints = new ArrayList<>(); //else from getVisiblePoints()
 
     public DirectedScatterDataModel() {
         pNodes = new ArrayList<>();
@@ -111,22 +130,209 @@ public class DirectedScatterDataModel {
     }
 
     public int findIndexFromVisibleFacePoint(int visibleFacePoint) {
-        int visibleCounter = 0;
+        if (visibleFacePoint < 1)
+            return -1;
+        rankVisibleNodes();
+        return visibleFacePoint <= visibleNodeCount ? visibleNodes[visibleFacePoint - 1] : -1;
+    }
+
+    /**
+     * @param maxDistance scene distance beyond which nothing is returned
+     * @return pNodes index of the visible node closest to the scene point, -1 if none
+     */
+    public int findNearestVisibleNode(double x, double y, double z, double maxDistance) {
+        int id = pointGrid().nearest(x, y, z, maxDistance);
+        return id < 0 ? -1 : id - firstNodeId;
+    }
+
+    /**
+     * @param node pNodes index of a visible node
+     * @return scene point the node is drawn at, null if it is not visible
+     */
+    public Point3D getVisibleNodePoint(int node) {
+        rankVisibleNodes();
+        int rank = Arrays.binarySearch(visibleNodes, 0, visibleNodeCount, node);
+        if (rank < 0)
+            return null;
+        if (buffersCurrent)
+            return rank < pointCount ? getPoint(rank) : null;
+        return rank < visibleScenePoints.size() ? visibleScenePoints.get(rank) : null;
+    }
+
+    public ArrayList<Point3D> getVisiblePoints(boolean useVisibility, double sceneWidth, double sceneHeight) {
+        visibility.clear();
         for (int index = 0; index < pNodes.size(); index++) {
-            if (pNodes.get(index).visible) {
-                visibleCounter++;
-                if (visibleCounter == visibleFacePoint)
-                    return index;
-            }
+            if (null != pNodes.get(index) && pNodes.get(index).visible)
+                visibility.set(index);
         }
-        return -1;
+        ArrayList<Point3D> scenePoints = getScenePoints(pNodes, sceneWidth, sceneHeight);
+        visibleScenePoints = scenePoints;
+        invalidateIndices(false);
+        return scenePoints;
     }
 
-    public ArrayList<Point3D> getVisiblePoints(boolean useVisibility, double sceneWidth, double sceneHeight) {
+    /**
+     * Fills the coordinate, end point and hue buffers from all visible nodes,
+     * reusing the existing arrays when they are large enough. No Point3D is
+     * created, the buffers can be handed straight to the mesh.
+     *
+     * @param sceneWidth  width of the 3D scene
+     * @param sceneHeight height of the 3D scene
+     * @param directional true to point each end along the node's xDirCoord
+     * @param endSize     fixed end offset, or the direction scale if directional
+     * @return number of visible points written
+     */
+    public int updateBuffers(double sceneWidth, double sceneHeight, boolean directional, float endSize) {
+        pointCount = 0;
+        visibility.clear();
+        appendBuffers(pNodes, 0, sceneWidth, sceneHeight, directional, endSize);
+        invalidateIndices(true);
+        return pointCount;
+    }
+
+    /**
+     * Slides the buffers forward for a FIFO node queue: the oldest nodes are
+     * dropped from the head and the new ones are appended at the tail. Only
+     * the new nodes are transformed.
+     *
+     * @param evictedNodes number of nodes to drop from the head of pNodes
+     * @param addedNodes   nodes to append, visible or not
+     * @param sceneWidth   width of the 3D scene
+     * @param sceneHeight  height of the 3D scene
+     * @param directional  true to point each end along the node's xDirCoord
+     * @param endSize      fixed end offset, or the direction scale if directional
+     * @return number of visible points dropped from the head of the buffers
+     */
+    public int slideWindow(int evictedNodes, List<Perspective3DNode> addedNodes,
+                           double sceneWidth, double sceneHeight, boolean directional, float endSize) {
+        evictedNodes = Math.min(evictedNodes, pNodes.size());
+        int visibleEvicted = visibility.get(0, evictedNodes).cardinality();
+        int kept = pointCount - visibleEvicted;
+        if (!buffersCurrent)
+            pointGrid = null;
+        if (null != pointGrid) {
+            int node = visibility.nextSetBit(0);
+            for (int k = 0; k < visibleEvicted; k++, node = visibility.nextSetBit(node + 1))
+                pointGrid.remove(firstNodeId + node, coords[3 * k], coords[3 * k + 1], coords[3 * k + 2]);
+        }
+        System.arraycopy(coords, visibleEvicted * 3, coords, 0, kept * 3);
+        System.arraycopy(endCoords, visibleEvicted * 3, endCoords, 0, kept * 3);
+        System.arraycopy(hues, visibleEvicted, hues, 0, kept);
+        pointCount = kept;
+        visibility = visibility.get(evictedNodes, Math.max(evictedNodes, pNodes.size()));
+        pNodes.subList(0, evictedNodes).clear();
+        firstNodeId += evictedNodes;
+        int firstNodeIndex = pNodes.size();
+        pNodes.addAll(addedNodes);
+        appendBuffers(addedNodes, firstNodeIndex, sceneWidth, sceneHeight, directional, endSize);
+        if (null != pointGrid) {
+            int node = visibility.nextSetBit(firstNodeIndex);
+            for (int k = kept; k < pointCount; k++, node = visibility.nextSetBit(node + 1))
+                pointGrid.add(firstNodeId + node, coords[3 * k], coords[3 * k + 1], coords[3 * k + 2]);
+        }
+        visibleNodeCount = -1;
+        buffersCurrent = true;
+        return visibleEvicted;
+    }
+
+    /**
+     * Scene point of a visible node from the buffers, with its hue as f.
+     *
+     * @param index index among the visible points
+     * @return a new point
+     */
+    public Point3D getPoint(int index) {
+        return new Point3D(coords[3 * index], coords[3 * index + 1], coords[3 * index + 2], hues[index]);
+    }
+
+    private void appendBuffers(List<Perspective3DNode> nodes, int firstNodeIndex,
+                               double sceneWidth, double sceneHeight, boolean directional, float endSize) {
+        int capacity = pointCount + nodes.size();
+        if (hues.length < capacity) {
+            capacity = Math.max(capacity, hues.length * 3 / 2);
+            coords = Arrays.copyOf(coords, capacity * 3);
+            endCoords = Arrays.copyOf(endCoords, capacity * 3);
+            hues = Arrays.copyOf(hues, capacity);
+        }
+        double[] limits = sceneLimits();
         double halfSceneWidth = sceneWidth / 2.0;
         double halfSceneHeight = sceneHeight / 2.0;
         float quarterSceneWidth = (float) sceneWidth / 4.0f;
+        float ySign = reflectY ? -1f : 1f;
+        for (int i = 0; i < nodes.size(); i++) {
+            Perspective3DNode pNode = nodes.get(i);
+            if (null == pNode || !pNode.visible)
+                continue;
+            visibility.set(firstNodeIndex + i);
+            int c = 3 * pointCount;
+            coords[c] = (limits[1] == 0.0 ? 0.0f : (float) ((((pNode.xCoord - xShift) * pointScale - limits[0]) * halfSceneWidth) / limits[1]))
+                - quarterSceneWidth;
+            coords[c + 1] = ySign * ((limits[3] == 0.0 ? 0.0f : (float) ((((pNode.yCoord - yShift) * pointScale - limits[2]) * halfSceneHeight) / limits[3]))
+                - quarterSceneWidth);
+            coords[c + 2] = (limits[5] == 0.0 ? 0.0f : (float) ((((pNode.zCoord - zShift) * pointScale - limits[4]) * halfSceneWidth) / limits[5]))
+                - quarterSceneWidth;
+            float end = directional ? (float) pNode.xDirCoord * endSize : endSize;
+            endCoords[c] = end;
+            endCoords[c + 1] = end;
+            endCoords[c + 2] = end;
+            hues[pointCount] = null != pNode.nodeColor ? (float) pNode.nodeColor.getHue() : 0f;
+            pointCount++;
+        }
+    }
+
+    private void invalidateIndices(boolean fromBuffers) {
+        visibleNodeCount = -1;
+        pointGrid = null;
+        buffersCurrent = fromBuffers;
+    }
+
+    private void rankVisibleNodes() {
+        if (visibleNodeCount >= 0)
+            return;
+        int count = visibility.cardinality();
+        if (visibleNodes.length < count)
+            visibleNodes = new int[count];
+        int index = -1;
+        for (int k = 0; k < count; k++) {
+            index = visibility.nextSetBit(index + 1);
+            visibleNodes[k] = index;
+        }
+        visibleNodeCount = count;
+    }
+
+    private SpatialGrid pointGrid() {
+        if (null != pointGrid)
+            return pointGrid;
+        rankVisibleNodes();
+        int count = buffersCurrent ? Math.min(visibleNodeCount, pointCount)
+            : Math.min(visibleNodeCount, visibleScenePoints.size());
+        double[] xyz = new double[3 * count];
+        double[] min = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+        double[] max = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (int k = 0; k < count; k++) {
+            if (buffersCurrent) {
+                xyz[3 * k] = coords[3 * k];
+                xyz[3 * k + 1] = coords[3 * k + 1];
+                xyz[3 * k + 2] = coords[3 * k + 2];
+            } else {
+                xyz[3 * k] = visibleScenePoints.get(k).x;
+                xyz[3 * k + 1] = visibleScenePoints.get(k).y;
+                xyz[3 * k + 2] = visibleScenePoints.get(k).z;
+            }
+            for (int axis = 0; axis < 3; axis++) {
+                min[axis] = Math.min(min[axis], xyz[3 * k + axis]);
+                max[axis] = Math.max(max[axis], xyz[3 * k + axis]);
+            }
+        }
+        pointGrid = new SpatialGrid(SpatialGrid.cellSizeFor(count,
+            max[0] - min[0], max[1] - min[1], max[2] - min[2]));
+        for (int k = 0; k < count; k++)
+            pointGrid.add(firstNodeId + visibleNodes[k], xyz[3 * k], xyz[3 * k + 1], xyz[3 * k + 2]);
+        return pointGrid;
+    }
 
+    //min and range per axis: minX, rangeX, minY, rangeY, minZ, rangeZ
+    private double[] sceneLimits() {
         double minX = null != nodeMinX ? nodeMinX : totalMinX;
         double rangeX = null != nodeRangeX ? nodeRangeX : totalRangeX;
         if (useTotalPositioning && null != totalMinX && null != totalMaxX) {
@@ -145,13 +351,38 @@ public class DirectedScatterDataModel {
             minZ = totalMinZ;
             rangeZ = totalRangeZ;
         }
+        return new double[]{minX, rangeX, minY, rangeY, minZ, rangeZ};
+    }
+
+    /**
+     * Transforms the visible nodes of any node list into scene coordinates
+     * using this model's current limits, shifts and scaling. Lets callers
+     * transform only newly arrived nodes.
+     *
+     * @param nodes       nodes to transform, invisible ones are skipped
+     * @param sceneWidth  width of the 3D scene
+     * @param sceneHeight height of the 3D scene
+     * @return scene points for the visible nodes, in order
+     */
+    public ArrayList<Point3D> getScenePoints(List<Perspective3DNode> nodes, double sceneWidth, double sceneHeight) {
+        double halfSceneWidth = sceneWidth / 2.0;
+        double halfSceneHeight = sceneHeight / 2.0;
+        float quarterSceneWidth = (float) sceneWidth / 4.0f;
+
+        double[] limits = sceneLimits();
+        double minX = limits[0];
+        double rangeX = limits[1];
+        double minY = limits[2];
+        double rangeY = limits[3];
+        double minZ = limits[4];
+        double rangeZ = limits[5];
 
-        ArrayList<Point3D> data = new ArrayList<>(pNodes.size());
+        ArrayList<Point3D> data = new ArrayList<>(nodes.size());
         float xCoord;
         float yCoord;
         float zCoord;
         Point3D point3D;
-        for (Perspective3DNode pNode : pNodes) {
+        for (Perspective3DNode pNode : nodes) {
             if (null == pNode) {
                 System.out.println("Null... wtf...");
             } else if (pNode.visible) {
@@ -213,6 +444,11 @@ public class DirectedScatterDataModel {
         pNodes.clear();
         data.clear();
         endPoints.clear();
+        visibility.clear();
+        pointCount = 0;
+        firstNodeId = 0;
+        visibleScenePoints = new ArrayList<>();
+        invalidateIndices(false);
         nodeMaxX = null;
         nodeMinX = null;
         nodeRangeX = null;
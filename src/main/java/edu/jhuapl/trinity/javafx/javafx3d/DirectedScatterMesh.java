@@ -59,13 +59,15 @@ import org.fxyz3d.geometry.Point3D;
 import org.fxyz3d.scene.paint.Palette.ColorPalette;
 import org.fxyz3d.scene.paint.Patterns;
 import org.fxyz3d.shapes.primitives.helper.TextureMode;
+import org.fxyz3d.shapes.primitives.helper.TriangleMeshHelper.TextureType;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
 /**
  * @author José Pereda
@@ -114,6 +116,7 @@ public class DirectedScatterMesh extends Group implements TextureMode {
     private final ObjectProperty<List<Point3D>> scatterData = new SimpleObjectProperty<List<Point3D>>(DEFAULT_SCATTER_DATA) {
         @Override
         protected void invalidated() {
+            scatterCoords = null;
             if (meshes != null && renderOnChange) {
                 updateMesh();
             }
@@ -135,6 +138,7 @@ public class DirectedScatterMesh extends Group implements TextureMode {
     private final ObjectProperty<List<Point3D>> endPoints = new SimpleObjectProperty<List<Point3D>>(DEFAULT_SCATTER_DATA) {
         @Override
         protected void invalidated() {
+            scatterCoords = null;
             if (meshes != null && renderOnChange) {
                 updateMesh();
             }
@@ -161,6 +165,32 @@ public class DirectedScatterMesh extends Group implements TextureMode {
         if (meshes != null) updateMesh();
     }
 
+    //primitive scatter source, replaces the scatterData and endPoints lists
+    //from setScatterBuffers() until one of the lists is set again
+    private float[] scatterCoords = null;
+    private float[] scatterEnds = null;
+    private float[] scatterHues = null;
+    private int scatterCount = 0;
+
+    /**
+     * Sets the scatter points from primitive buffers and rebuilds the mesh
+     * without creating any Point3D. The mesh keeps the arrays for later
+     * rebuilds (height, level or join changes), so pass arrays that are not
+     * written to afterwards.
+     *
+     * @param coords x, y, z per point
+     * @param ends   end point offset x, y, z per point
+     * @param f      function value per point, used by the density map
+     * @param count  number of points in the buffers
+     */
+    public void setScatterBuffers(float[] coords, float[] ends, float[] f, int count) {
+        scatterCoords = coords;
+        scatterEnds = ends;
+        scatterHues = f;
+        scatterCount = count;
+        if (meshes != null) updateMesh();
+    }
+
     private final ObjectProperty<List<Number>> functionData = new SimpleObjectProperty<List<Number>>() {
         @Override
         protected void invalidated() {
@@ -249,6 +279,7 @@ public class DirectedScatterMesh extends Group implements TextureMode {
 
     protected final void updateMesh() {
 //        meshes=FXCollections.<DirectedTexturedMesh>observableArrayList();
+        ringMesh = null;
         meshes.clear();
         createDots();
         getChildren().setAll(meshes);
@@ -256,52 +287,275 @@ public class DirectedScatterMesh extends Group implements TextureMode {
     }
 
     /**
-     * @WIP @EXPERIMENTAL
+     * Appends new points to the joined mesh without rebuilding it.
+     *
+     * @param startPoints new scatter points, oldest first
+     * @param endPoints   matching end points
+     * @return true if the mesh was updated in place
      */
-    public void dirtyUpdate(List<Point3D> startPoints, List<Point3D> endPoints) {
-        renderOnChange = false;  //temporarily disable automatic rendering
-        if (meshes != null) {
-            addToMesh(startPoints, endPoints);
-            updateTransforms();
-        }
-        renderOnChange = true; //re-enable automatic rendering
+    public boolean dirtyUpdate(List<Point3D> startPoints, List<Point3D> endPoints) {
+        return dirtyUpdate(startPoints, endPoints, 0);
     }
 
     /**
-     * @WIP @EXPERIMENTAL
+     * List form of the sliding window update, see
+     * {@link #dirtyUpdate(float[], float[], float[], int, int, int)}.
+     *
+     * @param startPoints new scatter points, oldest first
+     * @param endPoints   matching end points
+     * @param evicted     number of oldest rendered points to remove
+     * @return true if the mesh was updated in place
      */
-    public void addToMesh(List<Point3D> startPoints, List<Point3D> endPoints) {
-        DirectedTexturedMesh originalTexturedMesh = meshes.get(0); //get current mesh
-        DirectedMeshHelper originalMeshHelper = new DirectedMeshHelper((TriangleMesh) originalTexturedMesh.getMesh());
+    public boolean dirtyUpdate(List<Point3D> startPoints, List<Point3D> endPoints, int evicted) {
+        int count = startPoints.size();
+        float[] coords = new float[count * 3];
+        float[] ends = new float[count * 3];
+        float[] f = new float[count];
+        toBuffers(startPoints, endPoints, coords, ends, f);
+        return dirtyUpdate(coords, ends, f, 0, count, evicted);
+    }
+
+    /**
+     * Incrementally updates the joined mesh as a sliding window. The oldest
+     * evicted points are collapsed out of the mesh and their slots are
+     * reused by new points; the mesh only grows when no free slot is left.
+     * Only the changed slices of the points and faces arrays are rewritten.
+     * Returns false, leaving the mesh untouched, when an incremental update is
+     * not possible (separate meshes, or a texture mode other than
+     * COLORED_VERTICES_3D); the caller should then do a full update.
+     *
+     * @param coords  x, y, z per new point, oldest first
+     * @param ends    end point offset x, y, z per new point
+     * @param f       function value per new point
+     * @param first   index of the first new point in the buffers
+     * @param count   number of new points
+     * @param evicted number of oldest rendered points to remove
+     * @return true if the mesh was updated in place
+     */
+    public boolean dirtyUpdate(float[] coords, float[] ends, float[] f, int first, int count, int evicted) {
+        if (!joinSegments.get() || meshes.size() != 1
+            || meshes.get(0).getTextureType() != TextureType.COLORED_VERTICES_3D)
+            return false;
+        if (null == ringMesh && !initRing())
+            return false;
+        for (int i = 0; i < evicted && !liveSlots.isEmpty(); i++) {
+            int slot = liveSlots.pollFirst();
+            collapseSlot(slot);
+            freeSlots.push(slot);
+        }
+        for (int i = first; i < first + count; i++) {
+            int slot = freeSlots.isEmpty() ? appendSlot() : freeSlots.pop();
+            writeSlot(slot, coords, ends, f, i);
+            slotSequence[slot] = nextSequence++;
+            liveSlots.addLast(slot);
+        }
+        return true;
+    }
 
-        DirectedTexturedMesh newTexturedMesh = new DirectedTetrahedraMesh(
-            height.get(), level.get(), null, null);
-        DirectedMeshHelper newTexturedMeshHelper = new DirectedMeshHelper((TriangleMesh) newTexturedMesh.getMesh());
+    /**
+     * Maps a dot index from a pick result to the index of its point in the
+     * current scatter data order. Dot 0 is the fixed origin dot.
+     *
+     * @param dotIndex intersected face divided by the faces per dot
+     * @return data index, or -1 if the dot holds no point
+     */
+    public int getDataIndex(int dotIndex) {
+        if (null == ringMesh)
+            return dotIndex;
+        int slot = dotIndex - 1;
+        if (slot < 0 || slot >= slotCount || !isLiveSlot(slot))
+            return -1;
+        long oldestSequence = nextSequence - liveSlots.size();
+        //the full rebuild skips the first point, so the oldest live slot is point 1
+        return (int) (slotSequence[slot] - oldestSequence) + 1;
+    }
 
-        originalMeshHelper.addMesh(newTexturedMeshHelper,
-            startPoints, endPoints);
-        originalTexturedMesh.updateMesh(originalMeshHelper);
-        meshes.add(originalTexturedMesh);
+    /**
+     * Scene position of the point a dot was built for, for picking.
+     *
+     * @param dotIndex intersected face divided by the faces per dot
+     * @return the point, or null if the dot holds no point
+     */
+    public Point3D getDotPoint(int dotIndex) {
+        if (dotIndex < 0 || dotIndex >= dotCount)
+            return null;
+        if (null != ringMesh && dotIndex > 0 && !isLiveSlot(dotIndex - 1))
+            return null;
+        return new Point3D(dotCoords[3 * dotIndex], dotCoords[3 * dotIndex + 1], dotCoords[3 * dotIndex + 2]);
+    }
+
+    //scene position per dot, dot 0 of the joined mesh is the origin dot
+    private float[] dotCoords = new float[0];
+    private int dotCount = 0;
+
+    //sliding window state, valid until the next full updateMesh()
+    private DirectedTexturedMesh ringMesh = null;
+    private float[] dotPoints;
+    private int[] dotFaces;
+    private int[] dotSmoothingGroups;
+    private int[] slotFaces;
+    private int dotVertexCount;
+    private int dotFaceCount;
+    private int slotCount;
+    private long[] slotSequence;
+    private long nextSequence;
+    private final Deque<Integer> liveSlots = new ArrayDeque<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+    private boolean initRing() {
+        DirectedTexturedMesh dot = new DirectedTetrahedraMesh(height.get(), level.get(), null, null);
+        TriangleMesh template = (TriangleMesh) dot.getMesh();
+        dotPoints = template.getPoints().toArray(null);
+        dotFaces = template.getFaces().toArray(null);
+        dotSmoothingGroups = template.getFaceSmoothingGroups().toArray(null);
+        dotVertexCount = dotPoints.length / 3;
+        dotFaceCount = dotFaces.length / 6;
+        slotFaces = new int[dotFaces.length];
+        DirectedTexturedMesh joined = meshes.get(0);
+        if (!joined.isBufferBacked())
+            return false;
+        int vertices = joined.vertexCount;
+        if (dotVertexCount == 0 || vertices % dotVertexCount != 0
+            || joined.faceCount != vertices / dotVertexCount * dotFaceCount
+            || vertices / dotVertexCount != dotCount)
+            return false;
+        //dot 0 is the origin dot, the rest hold scatter points 1..n
+        slotCount = vertices / dotVertexCount - 1;
+        slotSequence = new long[Math.max(16, slotCount)];
+        liveSlots.clear();
+        freeSlots.clear();
+        for (int slot = 0; slot < slotCount; slot++) {
+            slotSequence[slot] = slot;
+            liveSlots.addLast(slot);
+        }
+        nextSequence = slotCount;
+        ringMesh = joined;
+        return true;
+    }
+
+    private boolean isLiveSlot(int slot) {
+        //eviction always frees the oldest slot, so freed slots carry older sequences
+        return slotSequence[slot] >= nextSequence - liveSlots.size();
+    }
+
+    private int appendSlot() {
+        int slot = slotCount++;
+        if (slot >= slotSequence.length)
+            slotSequence = Arrays.copyOf(slotSequence, slotSequence.length * 2);
+        int dotIndex = slot + 1;
+        int vertexOffset = dotIndex * dotVertexCount;
+        int faceOffset = dotIndex * dotFaceCount;
+        ringMesh.ensureBufferCapacity(vertexOffset + dotVertexCount, faceOffset + dotFaceCount);
+        Arrays.fill(ringMesh.vertexBuffer, vertexOffset * 3, (vertexOffset + dotVertexCount) * 3, 0f);
+        Arrays.fill(ringMesh.vertexFBuffer, vertexOffset, vertexOffset + dotVertexCount, 0f);
+        //every dot has the same texture coordinates, so new dots share dot 0's
+        for (int i = 0; i < dotFaces.length; i += 2) {
+            ringMesh.faceBuffer[faceOffset * 6 + i] = dotFaces[i] + vertexOffset;
+            ringMesh.faceBuffer[faceOffset * 6 + i + 1] = dotFaces[i + 1];
+        }
+        if (null != ringMesh.smoothingGroups)
+            System.arraycopy(dotSmoothingGroups, 0, ringMesh.smoothingGroups, faceOffset, dotFaceCount);
+        ringMesh.vertexCount += dotVertexCount;
+        ringMesh.faceCount += dotFaceCount;
+        TriangleMesh mesh = ringMesh.mesh;
+        mesh.getPoints().addAll(ringMesh.vertexBuffer, vertexOffset * 3, dotPoints.length);
+        mesh.getFaces().addAll(new int[dotFaces.length]);
+        mesh.getFaceSmoothingGroups().addAll(dotSmoothingGroups);
+        if (dotCoords.length < (dotIndex + 1) * 3)
+            dotCoords = Arrays.copyOf(dotCoords, Math.max((dotIndex + 1) * 3, dotCoords.length * 2));
+        dotCount = dotIndex + 1;
+        return slot;
+    }
+
+    private void writeSlot(int slot, float[] coords, float[] ends, float[] f, int point) {
+        int dotIndex = slot + 1;
+        int vertexOffset = dotIndex * dotVertexCount;
+        float[] vertices = ringMesh.vertexBuffer;
+        int base = vertexOffset * 3;
+        for (int v = 0; v < dotPoints.length; v += 3) {
+            vertices[base + v] = dotPoints[v] + coords[3 * point];
+            vertices[base + v + 1] = dotPoints[v + 1] + coords[3 * point + 1];
+            vertices[base + v + 2] = dotPoints[v + 2] + coords[3 * point + 2];
+        }
+        if (null != ends) {
+            vertices[base] += ends[3 * point];
+            vertices[base + 1] += ends[3 * point + 1];
+            vertices[base + 2] += ends[3 * point + 2];
+        }
+        Arrays.fill(ringMesh.vertexFBuffer, vertexOffset, vertexOffset + dotVertexCount, f[point]);
+        //faces carry the palette index of each vertex in COLORED_VERTICES_3D
+        for (int i = 0; i < dotFaces.length; i += 2) {
+            int vertex = dotFaces[i] + vertexOffset;
+            slotFaces[i] = vertex;
+            slotFaces[i + 1] = ringMesh.mapDensity(vertices[3 * vertex], vertices[3 * vertex + 1],
+                vertices[3 * vertex + 2], f[point]);
+        }
+        System.arraycopy(slotFaces, 0, ringMesh.faceBuffer, dotIndex * dotFaces.length, dotFaces.length);
+        for (int i = 1; i < dotFaces.length; i += 2)
+            ringMesh.faceBuffer[dotIndex * dotFaces.length + i] = dotFaces[i];
+        ringMesh.mesh.getPoints().set(base, vertices, base, dotPoints.length);
+        ringMesh.mesh.getFaces().set(dotIndex * dotFaces.length, slotFaces, 0, slotFaces.length);
+        System.arraycopy(coords, 3 * point, dotCoords, 3 * dotIndex, 3);
+    }
+
+    private void collapseSlot(int slot) {
+        int dotIndex = slot + 1;
+        int base = dotIndex * dotVertexCount * 3;
+        //all vertices on one spot gives zero area triangles that never draw
+        Arrays.fill(ringMesh.vertexBuffer, base, base + dotPoints.length, 0f);
+        ringMesh.mesh.getPoints().set(base, ringMesh.vertexBuffer, base, dotPoints.length);
+    }
+
+    private static void toBuffers(List<Point3D> points, List<Point3D> ends,
+                                  float[] coords, float[] endCoords, float[] f) {
+        for (int i = 0; i < points.size(); i++) {
+            Point3D p = points.get(i);
+            coords[3 * i] = p.x;
+            coords[3 * i + 1] = p.y;
+            coords[3 * i + 2] = p.z;
+            f[i] = p.f;
+            //missing end points are plain offsets of zero
+            if (i < ends.size()) {
+                Point3D end = ends.get(i);
+                endCoords[3 * i] = end.x;
+                endCoords[3 * i + 1] = end.y;
+                endCoords[3 * i + 2] = end.z;
+            }
+        }
     }
 
     private AtomicInteger index;
 
     private void createDots() {
+        float[] coords = scatterCoords;
+        float[] ends = scatterEnds;
+        float[] f = scatterHues;
+        int count = scatterCount;
+        if (null == coords) {
+            count = scatterData.get().size();
+            coords = new float[count * 3];
+            ends = new float[count * 3];
+            f = new float[count];
+            toBuffers(scatterData.get(), endPoints.get(), coords, ends, f);
+        }
         if (!joinSegments.get()) {
             List<DirectedTexturedMesh> dots = new ArrayList<>();
             index = new AtomicInteger();
-            scatterData.get().forEach(point3d -> {
+            for (int i = 0; i < count; i++) {
                 index.getAndIncrement();
+                Point3D point3d = new Point3D(coords[3 * i], coords[3 * i + 1], coords[3 * i + 2], f[i]);
                 //Get endpoint
-                Point3D endPoint = endPoints.get().get(index.get() - 1);
+                Point3D endPoint = new Point3D(ends[3 * i], ends[3 * i + 1], ends[3 * i + 2]);
                 DirectedTexturedMesh dot = new DirectedTetrahedraMesh(height.get(), level.get(), point3d, endPoint);
                 dot.setCullFace(CullFace.BACK);
                 dot.setDrawMode(DrawMode.FILL);
                 dot.setDepthTest(DepthTest.ENABLE);
                 dot.setId("" + index);
                 dots.add(dot);
-            });
+            }
             meshes.addAll(dots);
+            dotCoords = Arrays.copyOf(coords, count * 3);
+            dotCount = count;
         } else {
 //            Point3D dotZeroEndPoint = endPoints.get().get(0);
 //            DirectedTexturedMesh dot = new DirectedTetrahedraMesh(
@@ -317,14 +571,15 @@ public class DirectedScatterMesh extends Group implements TextureMode {
             DirectedMeshHelper mh = new DirectedMeshHelper((TriangleMesh) dot.getMesh());
             DirectedTexturedMesh dot1 = new DirectedTetrahedraMesh(height.get(), level.get(), null, null);
             DirectedMeshHelper mh1 = new DirectedMeshHelper((TriangleMesh) dot1.getMesh());
-            mh.addMesh(mh1,
-                scatterData.get().stream().skip(1).collect(Collectors.toList()),
-                endPoints.get().stream().skip(1).collect(Collectors.toList()));
-//            mh.addMesh(mh1,
-//                scatterData.get().subList(1, scatterData.get().size()),
-//                endPoints.get().subList(1, endPoints.get().size()));
+            //straight from the primitive buffers, skipping the first point
+            mh.addMesh(mh1, coords, ends, f, 1, Math.max(0, count - 1));
             dot.updateMesh(mh);
             meshes.add(dot);
+            //dot n holds point n, dot 0 stays at the origin
+            dotCount = Math.max(1, count);
+            dotCoords = new float[dotCount * 3];
+            if (count > 1)
+                System.arraycopy(coords, 3, dotCoords, 3, (count - 1) * 3);
         }
     }
 
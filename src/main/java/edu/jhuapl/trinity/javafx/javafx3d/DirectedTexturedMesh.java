@@ -96,6 +96,15 @@ public abstract class DirectedTexturedMesh extends MeshView implements TextureMo
     protected float[] textureCoords;
     protected int[] smoothingGroups;
 
+    //Primitive store used in place of the lists above by meshes built from a
+    //MeshHelper. Arrays may be larger than needed, only the counts are valid.
+    protected float[] vertexBuffer = null; //x, y, z per vertex
+    protected float[] vertexFBuffer = null; //function value per vertex
+    protected int[] faceBuffer = null; //p0, t0, p1, t1, p2, t2 per face
+    protected int vertexCount = 0;
+    protected int faceCount = 0;
+    private final Point3D densityProbe = new Point3D(0f, 0f, 0f);
+
     protected final Rectangle rectMesh = new Rectangle(0, 0);
     protected final Rectangle areaMesh = new Rectangle(0, 0);
 
@@ -267,6 +276,12 @@ public abstract class DirectedTexturedMesh extends MeshView implements TextureMo
 
     @Override
     public void updateF(List<Number> values) {
+        if (isBufferBacked()) {
+            for (int i = 0; i < values.size() && i < vertexCount; i++)
+                vertexFBuffer[i] = values.get(i).floatValue();
+            updateTextureOnFaces();
+            return;
+        }
         listVertices = IntStream.range(0, values.size()).mapToObj(i -> {
             Point3D p = listVertices.get(i);
             p.f = values.get(i).floatValue();
@@ -476,6 +491,7 @@ public abstract class DirectedTexturedMesh extends MeshView implements TextureMo
     }
 
     public void updateVertices(float factor) {
+        materializeLists();
         if (mesh != null) {
             mesh.getPoints().setAll(helper.updateVertices(listVertices, factor));
         }
@@ -516,6 +532,15 @@ public abstract class DirectedTexturedMesh extends MeshView implements TextureMo
     }
 
     private void updateTextureOnFaces() {
+        if (mesh != null && isBufferBacked()) {
+            int[] faces = createBufferFaces();
+            if (null != faces) {
+                mesh.getFaces().setAll(faces, 0, faceCount * 6);
+                return;
+            }
+            //texture mode that needs the object lists
+            materializeLists();
+        }
         // textures for level
         if (mesh != null) {
             switch (textureType.get()) {
@@ -553,6 +578,24 @@ public abstract class DirectedTexturedMesh extends MeshView implements TextureMo
         }
     }
 
+    /**
+     * Palette index the current density map assigns to a vertex. Only
+     * meaningful once a COLORED_VERTICES_3D texture mode has been applied.
+     *
+     * @param x vertex x
+     * @param y vertex y
+     * @param z vertex z
+     * @param f vertex function value
+     * @return index into the texture palette
+     */
+    int mapDensity(float x, float y, float z, float f) {
+        densityProbe.x = x;
+        densityProbe.y = y;
+        densityProbe.z = z;
+        densityProbe.f = f;
+        return helper.mapDensity(densityProbe);
+    }
+
     protected abstract void updateMesh();
 
     /*
@@ -560,13 +603,130 @@ public abstract class DirectedTexturedMesh extends MeshView implements TextureMo
     being set with MeshHelper.
 
     This allows combining several meshes into one, creating one single node.
+    The arrays of the MeshHelper are kept as they are and fed straight into the
+    TriangleMesh, the object lists are only built if a texture mode or method
+    that needs them is used later.
     */
     protected void updateMesh(MeshHelper meshHelper) {
         setMesh(null);
-        mesh = createMesh(meshHelper);
+        vertexBuffer = meshHelper.getPoints();
+        vertexCount = vertexBuffer.length / 3;
+        vertexFBuffer = meshHelper.getF();
+        if (null == vertexFBuffer || vertexFBuffer.length < vertexCount)
+            vertexFBuffer = new float[vertexCount];
+        faceBuffer = meshHelper.getFaces();
+        faceCount = faceBuffer.length / 6;
+        textureCoords = meshHelper.getTexCoords();
+        smoothingGroups = meshHelper.getFaceSmoothingGroups();
+        listVertices.clear();
+        listFaces.clear();
+        listTextures.clear();
+        mesh = createMesh();
         setMesh(mesh);
     }
 
+    protected boolean isBufferBacked() {
+        return null != vertexBuffer;
+    }
+
+    /**
+     * Grows the primitive buffers so they hold at least the given number of
+     * vertices and faces. Growth is geometric so repeated appends stay cheap.
+     *
+     * @param vertices vertex capacity needed
+     * @param faces    face capacity needed
+     */
+    protected void ensureBufferCapacity(int vertices, int faces) {
+        if (vertexBuffer.length < vertices * 3) {
+            int capacity = Math.max(vertices, vertexBuffer.length / 3 * 3 / 2);
+            vertexBuffer = Arrays.copyOf(vertexBuffer, capacity * 3);
+            vertexFBuffer = Arrays.copyOf(vertexFBuffer, capacity);
+        }
+        if (faceBuffer.length < faces * 6) {
+            int capacity = Math.max(faces, faceBuffer.length / 6 * 3 / 2);
+            faceBuffer = Arrays.copyOf(faceBuffer, capacity * 6);
+            if (null != smoothingGroups)
+                smoothingGroups = Arrays.copyOf(smoothingGroups, capacity);
+        }
+    }
+
+    /*
+    Face array for the current texture mode computed straight from the primitive
+    buffers, or null when the mode is only supported through the object lists.
+    */
+    private int[] createBufferFaces() {
+        int[] faces = new int[faceCount * 6];
+        switch (textureType.get()) {
+            case NONE:
+                for (int i = 0; i < faces.length; i += 2)
+                    faces[i] = faceBuffer[i];
+                return faces;
+            case IMAGE:
+            case PATTERN:
+                System.arraycopy(faceBuffer, 0, faces, 0, faces.length);
+                return faces;
+            case COLORED_VERTICES_3D:
+                if (minGlobal.get() < maxGlobal.get()) {
+                    helper.updateExtremes(minGlobal.get(), maxGlobal.get());
+                } else {
+                    updateBufferExtremes();
+                }
+                int[] colors = new int[vertexCount];
+                for (int v = 0; v < vertexCount; v++)
+                    colors[v] = mapDensity(vertexBuffer[3 * v], vertexBuffer[3 * v + 1],
+                        vertexBuffer[3 * v + 2], vertexFBuffer[v]);
+                for (int i = 0; i < faces.length; i += 2) {
+                    faces[i] = faceBuffer[i];
+                    faces[i + 1] = colors[faceBuffer[i]];
+                }
+                return faces;
+            default:
+                return null;
+        }
+    }
+
+    private void updateBufferExtremes() {
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        Function<Point3D, Number> dens = density.get();
+        for (int v = 0; v < vertexCount; v++) {
+            densityProbe.x = vertexBuffer[3 * v];
+            densityProbe.y = vertexBuffer[3 * v + 1];
+            densityProbe.z = vertexBuffer[3 * v + 2];
+            densityProbe.f = vertexFBuffer[v];
+            double value = dens.apply(densityProbe).doubleValue();
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        helper.updateExtremes(min, max);
+    }
+
+    /*
+    Fills the object lists from the primitive buffers and leaves buffer mode,
+    for the texture modes and methods that work on the lists.
+    */
+    protected void materializeLists() {
+        if (!isBufferBacked())
+            return;
+        listVertices.clear();
+        for (int v = 0; v < vertexCount; v++)
+            listVertices.add(new Point3D(vertexBuffer[3 * v], vertexBuffer[3 * v + 1],
+                vertexBuffer[3 * v + 2], vertexFBuffer[v]));
+        listFaces.clear();
+        listTextures.clear();
+        for (int i = 0; i < faceCount * 6; i += 6) {
+            listFaces.add(new Face3(faceBuffer[i], faceBuffer[i + 2], faceBuffer[i + 4]));
+            listTextures.add(new Face3(faceBuffer[i + 1], faceBuffer[i + 3], faceBuffer[i + 5]));
+        }
+        if (null != smoothingGroups && smoothingGroups.length != faceCount)
+            smoothingGroups = Arrays.copyOf(smoothingGroups, faceCount);
+        vertexBuffer = null;
+        vertexFBuffer = null;
+        faceBuffer = null;
+        vertexCount = 0;
+        faceCount = 0;
+    }
+
     protected void createTexCoords(int width, int height) {
         rectMesh.setWidth(width);
         rectMesh.setHeight(height);
@@ -580,6 +740,7 @@ public abstract class DirectedTexturedMesh extends MeshView implements TextureMo
     }
 
     protected MeshHelper precreateMesh() {
+        materializeLists();
         MeshHelper mh = new MeshHelper();
         mh.setPoints(helper.updateVertices(listVertices));
         switch (textureType.get()) {
@@ -655,11 +816,18 @@ public abstract class DirectedTexturedMesh extends MeshView implements TextureMo
             .collect(Collectors.toList()));
 
         smoothingGroups = mh.getFaceSmoothingGroups();
+        vertexBuffer = null;
 
         return createMesh();
     }
 
     protected TriangleMesh createMesh() {
+        if (isBufferBacked()) {
+            TriangleMesh triangleMesh = createBufferMesh();
+            if (null != triangleMesh)
+                return triangleMesh;
+            materializeLists();
+        }
         TriangleMesh triangleMesh = new TriangleMesh();
         triangleMesh.getPoints().setAll(helper.updateVertices(listVertices));
         switch (textureType.get()) {
@@ -715,6 +883,45 @@ public abstract class DirectedTexturedMesh extends MeshView implements TextureMo
         return triangleMesh;
     }
 
+    private TriangleMesh createBufferMesh() {
+        //a new mesh in NONE mode still carries its texture coordinates
+        int[] faces = textureType.get() == TextureType.NONE
+            ? Arrays.copyOf(faceBuffer, faceCount * 6) : createBufferFaces();
+        if (null == faces)
+            return null;
+        TriangleMesh triangleMesh = new TriangleMesh();
+        triangleMesh.getPoints().setAll(vertexBuffer, 0, vertexCount * 3);
+        switch (textureType.get()) {
+            case PATTERN:
+                if (areaMesh.getHeight() > 0 && areaMesh.getWidth() > 0) {
+                    triangleMesh.getTexCoords().setAll(
+                        helper.updateTexCoordsWithPattern((int) rectMesh.getWidth(),
+                            (int) rectMesh.getHeight(), patternScale.get(),
+                            areaMesh.getHeight() / areaMesh.getWidth()));
+                } else {
+                    triangleMesh.getTexCoords().setAll(
+                        helper.updateTexCoordsWithPattern((int) rectMesh.getWidth(),
+                            (int) rectMesh.getHeight(), patternScale.get()));
+                }
+                break;
+            case COLORED_VERTICES_3D:
+                triangleMesh.getTexCoords().setAll(helper.getTexturePaletteArray());
+                break;
+            default:
+                triangleMesh.getTexCoords().setAll(textureCoords);
+                break;
+        }
+        triangleMesh.getFaces().setAll(faces);
+        if (smoothingGroups != null && smoothingGroups.length >= faceCount) {
+            triangleMesh.getFaceSmoothingGroups().setAll(smoothingGroups, 0, faceCount);
+        } else {
+            int[] faceSmoothingGroups = new int[faceCount];
+            Arrays.fill(faceSmoothingGroups, 1);
+            triangleMesh.getFaceSmoothingGroups().setAll(faceSmoothingGroups);
+        }
+        return triangleMesh;
+    }
+
     protected void updateTransforms() {
         getTransforms().removeAll(rotateX, rotateY, rotateZ, scale);
         Bounds bounds = getBoundsInLocal();
@@ -782,6 +989,9 @@ public abstract class DirectedTexturedMesh extends MeshView implements TextureMo
     }
 
     public Point3D getOrigin() {
+        if (isBufferBacked() && vertexCount > 0) {
+            return new Point3D(vertexBuffer[0], vertexBuffer[1], vertexBuffer[2], vertexFBuffer[0]);
+        }
         if (listVertices.size() > 0) {
             return listVertices.get(0);
         }
@@ -790,6 +1000,7 @@ public abstract class DirectedTexturedMesh extends MeshView implements TextureMo
 
     public int getIntersections(Point3D origin, Point3D direction) {
         setTextureModeFaces(10);
+        materializeLists();
 
         int[] faces = helper.updateFacesWithIntersections(origin, direction, listVertices, listFaces);
         mesh.getFaces().setAll(faces);
@@ -62,10 +62,12 @@ import javafx.scene.shape.DrawMode;
 import javafx.scene.shape.TriangleMesh;
 import org.fxyz3d.geometry.Face3;
 import org.fxyz3d.geometry.Point3D;
+import org.fxyz3d.shapes.primitives.helper.TriangleMeshHelper.TextureType;
 import org.fxyz3d.shapes.polygon.PolygonMesh;
 import org.fxyz3d.shapes.primitives.TexturedMesh;
 
 import java.util.function.Function;
+import java.util.stream.IntStream;
 
 /**
  * @author Sean Phillips
@@ -84,7 +86,27 @@ public class HyperSurfacePlotMesh extends TexturedMesh {
     private static final double DEFAULT_FUNCTION_SCALE = 1.0D;
     private static final double DEFAULT_SURF_SCALE = 1.0D;
 
+    //vertices above which in place height updates are split across the common pool
+    public static int PARALLEL_VERTEX_THRESHOLD = 50000;
+
+    /**
+     * Primitive height lookup for the raw mesh, indexed by grid column and row.
+     * Must be safe to call from several threads at once.
+     */
+    @FunctionalInterface
+    public interface HeightSampler {
+        float sample(int xIndex, int zIndex);
+    }
+
     private PolygonMesh polygonMesh;
+    private HeightSampler heightSampler = null;
+    //x,y,z of the current raw mesh, null when the mesh is not a raw grid
+    private float[] rawPoints = null;
+    private int[] rawFaces = null;
+    private int rawRangeX;
+    private int rawRangeZ;
+    private double rawXScale;
+    private double rawZScale;
 
     public HyperSurfacePlotMesh() {
         this(DEFAULT_FUNCTION, DEFAULT_X_RANGE, DEFAULT_Y_RANGE, DEFAULT_X_DIVISIONS, DEFAULT_Y_DIVISIONS, DEFAULT_FUNCTION_SCALE);
@@ -138,6 +160,7 @@ public class HyperSurfacePlotMesh extends TexturedMesh {
     }
 
     public final void injectMesh(TriangleMesh newMesh) {
+        rawPoints = null;
         setMesh(null);
         mesh = newMesh;
 
@@ -154,14 +177,24 @@ public class HyperSurfacePlotMesh extends TexturedMesh {
         setMesh(mesh);
     }
 
+    /**
+     * Builds the raw grid mesh. When the grid dimensions and spacing match the
+     * current raw mesh only the vertex heights are regenerated, in place, and
+     * the faces and texture coordinates are kept.
+     */
     public final void updateMeshRaw(int rangeX, int rangeY,
                                     double xScale, double yScale, double zScale) {
+        if (isRawTopology(rangeX, rangeY, xScale, zScale)) {
+            updateRawHeights(getFunctionVert3D(), yScale);
+            return;
+        }
         setMesh(null);
         mesh = createRawMesh(getFunctionVert3D(), rangeX, rangeY, xScale, yScale, zScale);
         setMesh(mesh);
     }
 
     protected final void updateMeshSmooth(int rangeX, int rangeY) {
+        rawPoints = null;
         setMesh(null);
         mesh = createSmoothMesh(getFunctionVert3D(),
             rangeX, rangeY,
@@ -172,6 +205,7 @@ public class HyperSurfacePlotMesh extends TexturedMesh {
 
     @Override
     protected final void updateMesh() {
+        rawPoints = null;
         setMesh(null);
         mesh = createPlotMesh(
             getFunction2D(),
@@ -357,6 +391,161 @@ public class HyperSurfacePlotMesh extends TexturedMesh {
         return polygonMesh;
     }
 
+    public HeightSampler getHeightSampler() {
+        return heightSampler;
+    }
+
+    /**
+     * Sets a primitive height source for the raw mesh. When set it replaces the
+     * Vert3D function for raw meshes so no per vertex objects are allocated.
+     *
+     * @param heightSampler sampler or null to go back to the Vert3D function
+     */
+    public void setHeightSampler(HeightSampler heightSampler) {
+        this.heightSampler = heightSampler;
+    }
+
+    private float sampleRaw(Function<Vert3D, Number> vertFunction,
+                            float dx, float dz, int x, int z) {
+        if (null != heightSampler)
+            return heightSampler.sample(x, z);
+        return vertFunction.apply(new Vert3D(dx, dz, x, z)).floatValue();
+    }
+
+    private boolean isRawTopology(int rangeX, int rangeZ, double xScale, double zScale) {
+        return null != mesh && null != rawPoints
+            && rawRangeX == rangeX && rawRangeZ == rangeZ
+            && rawXScale == xScale && rawZScale == zScale
+            && listVertices.size() * 3 == rawPoints.length
+            && mesh.getPoints().size() == rawPoints.length;
+    }
+
+    private void updateRawHeights(Function<Vert3D, Number> vertFunction, double yScale) {
+        sampleRawRows(vertFunction, (float) yScale, 0);
+        mesh.getPoints().set(0, rawPoints, 0, rawPoints.length);
+        refreshFaceTextures();
+    }
+
+    /**
+     * Scrolls the raw mesh for a waterfall display. Every vertex row takes the
+     * heights of the row the given number of rows behind it, face texture
+     * indices are moved along with them, then the vertex rows from fromRow to
+     * the end are sampled again. Faces and texture coordinates are kept.
+     *
+     * @param rows    number of rows the data moved towards z = 0
+     * @param fromRow first vertex row whose data changed after the move
+     * @param yScale  height scale
+     * @return false if the mesh is not a raw grid and must be rebuilt instead
+     */
+    public boolean scrollRaw(int rows, int fromRow, double yScale) {
+        if (!isRawTopology(rawRangeX, rawRangeZ, rawXScale, rawZScale))
+            return false;
+        final int numDivX = rawRangeX + 1;
+        rows = Math.min(Math.max(rows, 0), rawRangeZ + 1);
+        fromRow = Math.min(Math.max(fromRow, 0), rawRangeZ + 1);
+        if (rows > 0) {
+            //ascending so every source is read before it is overwritten
+            int shift = rows * numDivX;
+            int last = listVertices.size() - shift;
+            for (int i = 0; i < last; i++) {
+                float height = rawPoints[3 * (i + shift) + 1];
+                rawPoints[3 * i + 1] = height;
+                listVertices.get(i).y = height;
+            }
+            fromRow = Math.min(fromRow, rawRangeZ + 1 - rows);
+        }
+        sampleRawRows(getFunctionVert3D(), (float) yScale, fromRow);
+        mesh.getPoints().set(0, rawPoints, 0, rawPoints.length);
+        if (!scrollFaceTextures(rows, fromRow))
+            refreshFaceTextures();
+        return true;
+    }
+
+    private void sampleRawRows(Function<Vert3D, Number> vertFunction, float scale, int fromRow) {
+        final int numDivX = rawRangeX + 1;
+        final float[] points = rawPoints;
+        IntStream rows = IntStream.rangeClosed(fromRow, rawRangeZ);
+        //the Vert3D functions in use are not all thread safe, only split primitive samplers
+        if (null != heightSampler
+            && (rawRangeZ + 1 - fromRow) * numDivX >= PARALLEL_VERTEX_THRESHOLD)
+            rows = rows.parallel();
+        rows.forEach(z -> {
+            int i = z * numDivX;
+            for (int x = 0; x < numDivX; x++, i++) {
+                float height = scale * sampleRaw(vertFunction,
+                    points[3 * i], points[3 * i + 2], x, z);
+                points[3 * i + 1] = height;
+                listVertices.get(i).y = height;
+            }
+        });
+    }
+
+    /**
+     * Moves the texture indices of vertex colored faces with their heights and
+     * maps only the faces touching resampled rows, the same way the fxyz
+     * density map does. Only possible when the color range is fixed by
+     * global extremes, otherwise a new row can recolor every face.
+     */
+    private boolean scrollFaceTextures(int rows, int fromRow) {
+        Function<Point3D, Number> density = getDensity();
+        if (getTextureType() != TextureType.COLORED_VERTICES_3D || null == density
+            || getMinGlobal() >= getMaxGlobal())
+            return false;
+        int faceInts = listFaces.size() * 6;
+        if (mesh.getFaces().size() != faceInts)
+            return false;
+        if (null == rawFaces || rawFaces.length != faceInts)
+            rawFaces = new int[faceInts];
+        int[] faces = mesh.getFaces().toArray(rawFaces);
+        //two triangles of six ints per cell
+        int cellRowInts = rawRangeX * 12;
+        if (rows > 0) {
+            int shift = rows * cellRowInts;
+            for (int i = 1; i < faceInts - shift; i += 2) {
+                faces[i] = faces[i + shift];
+            }
+        }
+        final double min = getMinGlobal();
+        final double range = getMaxGlobal() - min;
+        final int colors = getColors();
+        int firstCellRow = Math.max(fromRow - 1, 0);
+        for (int i = firstCellRow * cellRowInts; i < faceInts; i += 2) {
+            int index = (int) ((density.apply(listVertices.get(faces[i])).doubleValue() - min)
+                / range * colors);
+            faces[i + 1] = index < 0 ? 0 : index >= colors ? colors - 1 : index;
+        }
+        mesh.getFaces().set(0, faces, 0, faceInts);
+        return true;
+    }
+
+    /**
+     * Vertex colored texture modes pick each face's texture index from the
+     * vertex positions, so moving vertices needs the faces recomputed.
+     * Setting the density is the public path that triggers this, it is wrapped
+     * so the property sees a new value every time.
+     */
+    private void refreshFaceTextures() {
+        Function<Point3D, Number> density = getDensity();
+        if (null == density)
+            return;
+        if (density instanceof RefreshedDensity)
+            density = ((RefreshedDensity) density).density;
+        setDensity(new RefreshedDensity(density));
+    }
+
+    private static final class RefreshedDensity implements Function<Point3D, Number> {
+        private final Function<Point3D, Number> density;
+
+        RefreshedDensity(Function<Point3D, Number> density) {
+            this.density = density;
+        }
+
+        @Override
+        public Number apply(Point3D p) {
+            return density.apply(p);
+        }
+    }
+
     private TriangleMesh createRawMesh(Function<Vert3D, Number> vertFunction,
                                        int rangeX, int rangeZ, double xScale, double yScale, double zScale) {
         listVertices.clear();
@@ -373,13 +562,18 @@ public class HyperSurfacePlotMesh extends TexturedMesh {
         // Create texture coordinates
         createTexCoords(rangeX, rangeZ);
 
+        float[] points = new float[3 * numDivX * (rangeZ + 1)];
+        int i = 0;
         // Create points
         for (int z = 0; z <= rangeZ; z++) {
             dz = (float) (z * zScale);
             for (int x = 0; x <= rangeX; x++) {
                 dx = (float) (x * xScale);
-                height = (float) yScale * vertFunction.apply(new Vert3D(dx, dz, x, z)).floatValue();
+                height = (float) yScale * sampleRaw(vertFunction, dx, dz, x, z);
                 listVertices.add(new Point3D(dx, height, dz));
+                points[i++] = dx;
+                points[i++] = height;
+                points[i++] = dz;
                 if (z < rangeZ && x < rangeX) {
                     p00 = z * numDivX + x;
                     p01 = p00 + 1;
@@ -392,6 +586,11 @@ public class HyperSurfacePlotMesh extends TexturedMesh {
                 }
             }
         }
+        rawPoints = points;
+        rawRangeX = rangeX;
+        rawRangeZ = rangeZ;
+        rawXScale = xScale;
+        rawZScale = zScale;
         return createMesh();
     }
 
@@ -24,6 +24,7 @@ import edu.jhuapl.trinity.data.CoordinateSet;
 import edu.jhuapl.trinity.data.Dimension;
 import edu.jhuapl.trinity.data.FactorLabel;
 import edu.jhuapl.trinity.data.FeatureLayer;
+import edu.jhuapl.trinity.data.FeatureStore;
 import edu.jhuapl.trinity.data.HyperspaceSeed;
 import edu.jhuapl.trinity.data.Manifold;
 import edu.jhuapl.trinity.data.Trajectory;
@@ -52,6 +53,7 @@ import edu.jhuapl.trinity.javafx.renderers.GaussianMixtureRenderer;
 import edu.jhuapl.trinity.javafx.renderers.ManifoldRenderer;
 import edu.jhuapl.trinity.utils.JavaFX3DUtils;
 import edu.jhuapl.trinity.utils.ResourceUtils;
+import edu.jhuapl.trinity.utils.RunningStatistics;
 import edu.jhuapl.trinity.utils.VisibilityMap;
 import javafx.animation.AnimationTimer;
 import javafx.animation.Timeline;
@@ -94,6 +96,7 @@ import org.fxyz3d.utils.CameraTransformer;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -158,6 +161,11 @@ public class Hyperspace3DPane extends StackPane implements
     boolean isDirty = false;
     boolean heightChanged = false;
     boolean reflectY = true;
+    //streamed points are appended to the mesh instead of rebuilding it
+    public boolean incrementalUpdates = true;
+    //pNodes and layout as of the last full or incremental draw
+    private Perspective3DNode[] drawnNodes = new Perspective3DNode[0];
+    private Object[] drawnLayout = null;
     Sphere highlightedPoint = new Sphere(1, 8);
 
     Callout anchorCallout;
@@ -170,8 +178,6 @@ public class Hyperspace3DPane extends StackPane implements
     double trajectoryScale = 1.0;
     int trajectoryTailSize = 5;
 
-    ArrayList<Point3D> data;
-    ArrayList<Point3D> endPoints;
     //This maps each seed to a Point3D object which represents its transfromed screen coordinates.
     HashMap<Point3D, HyperspaceSeed> seedToDataMap = new HashMap<>();
     //This maps each seed to a Point3D object which represents its end point transfromed to screen coordinates.
@@ -184,6 +190,8 @@ public class Hyperspace3DPane extends StackPane implements
     HashMap<Shape3D, Label> shape3DToLabel = new HashMap<>();
 
     public List<FeatureVector> featureVectors = new ArrayList<>();
+    //columnar backing for featureVectors, their data lists are views of its rows
+    public FeatureStore featureStore = null;
     public boolean meanCentered = true;
     public boolean autoScaling = true;
     public COLOR_MODE colorMode = COLOR_MODE.COLOR_BY_LABEL;
@@ -191,6 +199,8 @@ public class Hyperspace3DPane extends StackPane implements
     public List<Double> meanVector = new ArrayList<>();
     public double maxAbsValue = 1.0;
     public double meanCenteredMaxAbsValue = 1.0;
+    //kept current as vectors are queued and trimmed
+    public RunningStatistics featureStatistics = new RunningStatistics(0);
 
     public ConcurrentLinkedQueue<HyperspaceSeed> hyperspaceSeeds = new ConcurrentLinkedQueue<>();
     public ConcurrentLinkedQueue<Perspective3DNode> pNodes = new ConcurrentLinkedQueue<>();
@@ -564,7 +574,7 @@ public class Hyperspace3DPane extends StackPane implements
             }
             if (keycode == KeyCode.G) {
                 anchorIndex++;
-                if (anchorIndex > scatterModel.data.size()) anchorIndex = scatterModel.data.size();
+                if (anchorIndex > scatterModel.pointCount) anchorIndex = scatterModel.pointCount;
                 setSpheroidAnchor(true, anchorIndex);
             }
 
@@ -891,8 +901,8 @@ public class Hyperspace3DPane extends StackPane implements
             anchorIndex = (int) e.object;
             if (anchorIndex < 0)
                 anchorIndex = 0;
-            else if (anchorIndex > scatterModel.data.size())
-                anchorIndex = scatterModel.data.size();
+            else if (anchorIndex > scatterModel.pointCount)
+                anchorIndex = scatterModel.pointCount;
             setSpheroidAnchor(true, anchorIndex);
         });
 
@@ -908,7 +918,7 @@ public class Hyperspace3DPane extends StackPane implements
                 prevTime = now;
                 if (isDirty) {
                     try {
-                        updateView(false); // isDirty set to false inside.
+                        streamView(); // isDirty set to false inside.
                     } catch (Exception ex) {
                         System.out.println("Hyperspace Animation Timer: " + ex.getMessage());
                     }
@@ -997,13 +1007,12 @@ public class Hyperspace3DPane extends StackPane implements
         shape3DToLabel.put(zSphere, zLabel);
 
         Perspective3DNode[] pNodeArray = pNodes.toArray(Perspective3DNode[]::new);
-        if (useVisiblePoints) {
-            data = getVisiblePoints(pNodeArray);
-        } else {
-            data = getAllPoints(pNodeArray);
-        }
+        //separate model so the rendered buffers stay in step with the mesh
+        DirectedScatterDataModel hullModel = new DirectedScatterDataModel();
+        configureScatterModel(hullModel, pNodeArray, scatterBuffScaling);
+        ArrayList<Point3D> hullPoints = hullModel.getVisiblePoints(useVisiblePoints, sceneWidth, sceneHeight);
         Manifold3D manifold3D = new Manifold3D(
-            data.subList(1, data.size()), true, true, true
+            hullPoints.subList(1, hullPoints.size()), true, true, true
         );
 
         System.out.println("scattermodel Manifold complete");
@@ -1222,18 +1231,84 @@ public class Hyperspace3DPane extends StackPane implements
         if (null != scatterMesh3D) {
             Perspective3DNode[] pNodeArray = pNodes.toArray(Perspective3DNode[]::new);
 
-            data = getVisiblePoints(pNodeArray);
-            //Implementation for directional arrows based on additional dimensions
-            if (directionEnabled)
-                endPoints = getEndPoints(pNodeArray, 5);
-            else //default is equilateral tetrahedra (no direction)
-                endPoints = getFixedEndPoints(pNodeArray, 0f);
-            scatterModel.pointScale = pointScale;
-            Platform.runLater(() -> hardDraw());
+            int count = updateScatterBuffers(pNodeArray);
+            //the mesh keeps its own copy while the model moves on
+            float[] coords = Arrays.copyOf(scatterModel.coords, count * 3);
+            float[] ends = Arrays.copyOf(scatterModel.endCoords, count * 3);
+            float[] hues = Arrays.copyOf(scatterModel.hues, count);
+            drawnNodes = pNodeArray;
+            drawnLayout = layoutKey();
+            Platform.runLater(() -> hardDraw(coords, ends, hues, count));
         }
     }
 
-    private void hardDraw() {
+    /**
+     * Everything besides the nodes themselves that determines where a point
+     * lands in the mesh. Any difference forces a full rebuild.
+     */
+    private Object[] layoutKey() {
+        boolean shifted = meanCentered && !meanVector.isEmpty();
+        return new Object[]{xFactorIndex, yFactorIndex, zFactorIndex,
+            xDirFactorIndex, directionEnabled, reflectY, pointScale, point3dSize,
+            autoScaling, meanCentered, scatterBuffScaling, maxAbsValue, meanCenteredMaxAbsValue,
+            shifted ? meanVector.get(xFactorIndex) : 0.0,
+            shifted ? meanVector.get(yFactorIndex) : 0.0,
+            shifted ? meanVector.get(zFactorIndex) : 0.0};
+    }
+
+    /**
+     * Render path for the animation timer. When only new nodes arrived and
+     * old ones were trimmed from the head of the queue since the last draw,
+     * the new points are appended to the mesh and the evicted ones dropped,
+     * rewriting only their slices of the mesh arrays. Anything else (axis,
+     * scale, size or visibility changes, cleared data) falls back to a full
+     * updateView().
+     */
+    private void streamView() {
+        if (!incrementalUpdates || null == scatterMesh3D || null == scatterModel
+            || heightChanged || !Arrays.equals(drawnLayout, layoutKey())) {
+            updateView(false);
+            return;
+        }
+        Perspective3DNode[] current = pNodes.toArray(Perspective3DNode[]::new);
+        if (current.length == 0 || drawnNodes.length == 0) {
+            updateView(false);
+            return;
+        }
+        //pNodes is FIFO so the drawn nodes still queued are a prefix of current
+        int evicted = 0;
+        while (evicted < drawnNodes.length && drawnNodes[evicted] != current[0])
+            evicted++;
+        int kept = drawnNodes.length - evicted;
+        if (kept == 0 || kept > current.length
+            || current[kept - 1] != drawnNodes[drawnNodes.length - 1]) {
+            updateView(false);
+            return;
+        }
+        int visibleEvicted = 0;
+        for (int i = 0; i < evicted; i++) {
+            if (null != drawnNodes[i] && drawnNodes[i].visible)
+                visibleEvicted++;
+        }
+        //the mesh never draws the first visible point so keep at least one
+        if (visibleEvicted >= scatterModel.pointCount) {
+            updateView(false);
+            return;
+        }
+        //only the new nodes are transformed, straight into the model buffers
+        int first = scatterModel.pointCount - visibleEvicted;
+        scatterModel.slideWindow(evicted, Arrays.asList(current).subList(kept, current.length),
+            sceneWidth, sceneHeight, directionEnabled, directionEnabled ? 5f : 0f);
+        if (!scatterMesh3D.dirtyUpdate(scatterModel.coords, scatterModel.endCoords, scatterModel.hues,
+            first, scatterModel.pointCount - first, visibleEvicted)) {
+            updateView(false);
+            return;
+        }
+        drawnNodes = current;
+        isDirty = false;
+    }
+
+    private void hardDraw(float[] coords, float[] ends, float[] hues, int count) {
         if (heightChanged) { //if it hasn't changed, don't call expensive height change
             scatterMesh3D.setHeight(point3dSize);
             heightChanged = false;
@@ -1242,10 +1317,10 @@ public class Hyperspace3DPane extends StackPane implements
         //if there is data and their end points are bounded
         //set the start and end points of the mesh
         //18 ms for 20k points
-        if (!data.isEmpty() && !endPoints.isEmpty())
-            scatterMesh3D.setScatterDataAndEndPoints(data, endPoints);
+        if (count > 0)
+            scatterMesh3D.setScatterBuffers(coords, ends, hues, count);
         //@DEBUG SMP Rendering timing print
-        //System.out.println("UpdateView setScatterDataAndEndPoints time: "
+        //System.out.println("UpdateView setScatterBuffers time: "
         //    + Utils.totalTimeString(startTime2));
         //Since we changed the mesh unfortunately we have to reset the color mode
         //otherwise the triangles won't have color.
@@ -1254,91 +1329,65 @@ public class Hyperspace3DPane extends StackPane implements
         isDirty = false;
     }
 
-    private ArrayList<Point3D> getAllPoints(Perspective3DNode[] pNodeArray) {
-        //Build scatter model
+    /**
+     * Rebuilds the scatter model from the given nodes and fills its primitive
+     * buffers. Directional mode points each end along the node's xDir value,
+     * otherwise the dots are equilateral tetrahedra.
+     *
+     * @return number of visible points in the model buffers
+     */
+    private int updateScatterBuffers(Perspective3DNode[] pNodeArray) {
         if (null == scatterModel)
             scatterModel = new DirectedScatterDataModel();
-        //clear existing data
-        scatterModel.reset();
-        //synch model reflection status with current boolean value
-        scatterModel.reflectY = reflectY;
-        //Add our nodes to the model's collection
-        Collections.addAll(scatterModel.pNodes, pNodeArray);
-        //Check flag to see if we are auto normalizing
-        double buff = scatterBuffScaling;
-        if (autoScaling)
-            buff = meanCentered ? meanCenteredMaxAbsValue : maxAbsValue;
-        scatterModel.setLimits(-buff, buff, -buff, buff, -buff, buff);
-        //Check flag to see if we are mean centering
-        if (meanCentered && !meanVector.isEmpty()) {
-            double xShift = meanVector.get(xFactorIndex);
-            double yShift = meanVector.get(yFactorIndex);
-            double zShift = meanVector.get(zFactorIndex);
-            scatterModel.setShifts(xShift, yShift, zShift);
-        } else {
-            scatterModel.setShifts(0, 0, 0);
-        }
-        return scatterModel.getVisiblePoints(false, sceneWidth, sceneHeight);
+        configureScatterModel(scatterModel, pNodeArray, scatterBuffScaling);
+        return scatterModel.updateBuffers(sceneWidth, sceneHeight,
+            directionEnabled, directionEnabled ? 5f : 0f);
     }
 
-    private ArrayList<Point3D> getVisiblePoints(Perspective3DNode[] pNodeArray) {
-        //Build scatter model
-        if (null == scatterModel)
-            scatterModel = new DirectedScatterDataModel();
+    private void configureScatterModel(DirectedScatterDataModel model,
+                                       Perspective3DNode[] pNodeArray, double bufferScale) {
         //clear existing data
-        scatterModel.reset();
-        //synch model reflection status with current boolean value
-        scatterModel.reflectY = reflectY;
+        model.reset();
+        //synch model reflection status and scaling with current values
+        model.reflectY = reflectY;
+        model.pointScale = pointScale;
         //Add our nodes to the model's collection
-        Collections.addAll(scatterModel.pNodes, pNodeArray);
-        //True calls updateModel which is where the pain is
-        updateScatterLimits(scatterBuffScaling, true);
-        return scatterModel.data;
-    }
-
-    private ArrayList<Point3D> getEndPoints(Perspective3DNode[] pNodes, float fixedSize) {
-        ArrayList<Point3D> ends = new ArrayList<>(pNodes.length);
-        for (int i = 0; i < pNodes.length; i++) {
-            ends.add(new Point3D(pNodes[i].xDirCoord * fixedSize,
-                pNodes[i].xDirCoord * fixedSize, pNodes[i].xDirCoord * fixedSize));
-        }
-        return ends;
+        Collections.addAll(model.pNodes, pNodeArray);
+        applyScatterLimits(model, bufferScale);
     }
 
-    private ArrayList<Point3D> getFixedEndPoints(Perspective3DNode[] pNodes, float fixedSize) {
-        Point3D[] endArray = new Point3D[pNodes.length];
-        //Fix endpoints so they are just zero adds
-        Arrays.parallelSetAll(endArray, i -> new Point3D(fixedSize, fixedSize, fixedSize));
-        return new ArrayList<>(Arrays.asList(endArray));
+    public void updateScatterLimits(double bufferScale, boolean updateModel) {
+        applyScatterLimits(scatterModel, bufferScale);
+        if (updateModel)
+            scatterModel.updateBuffers(sceneWidth, sceneHeight,
+                directionEnabled, directionEnabled ? 5f : 0f);
     }
 
-    public void updateScatterLimits(double bufferScale, boolean updateModel) {
+    private void applyScatterLimits(DirectedScatterDataModel model, double bufferScale) {
         //Check flag to see if we are auto normalizing
         double buff = bufferScale;
         if (autoScaling)
             buff = meanCentered ? meanCenteredMaxAbsValue : maxAbsValue;
-        scatterModel.setLimits(-buff, buff, -buff, buff, -buff, buff);
+        model.setLimits(-buff, buff, -buff, buff, -buff, buff);
         //Check flag to see if we are mean centering
         if (meanCentered && !meanVector.isEmpty()) {
             double xShift = meanVector.get(xFactorIndex);
             double yShift = meanVector.get(yFactorIndex);
             double zShift = meanVector.get(zFactorIndex);
-            scatterModel.setShifts(xShift, yShift, zShift);
+            model.setShifts(xShift, yShift, zShift);
         } else {
-            scatterModel.setShifts(0, 0, 0);
+            model.setShifts(0, 0, 0);
         }
-        if (updateModel)
-            scatterModel.updateModel(sceneWidth, sceneHeight);
     }
 
     public Perspective3DNode addPNodeFromSeed(HyperspaceSeed seed) {
         //make sure our extra dimensions are within the data vector's width
-        int xDir = seed.xDir >= seed.vector.length ? seed.vector.length - 1 : seed.xDir;
-        int yDir = seed.yDir >= seed.vector.length ? seed.vector.length - 1 : seed.yDir;
-        int zDir = seed.zDir >= seed.vector.length ? seed.vector.length - 1 : seed.zDir;
+        int xDir = seed.xDir >= seed.dimensions() ? seed.dimensions() - 1 : seed.xDir;
+        int yDir = seed.yDir >= seed.dimensions() ? seed.dimensions() - 1 : seed.yDir;
+        int zDir = seed.zDir >= seed.dimensions() ? seed.dimensions() - 1 : seed.zDir;
         Perspective3DNode pNode = new Perspective3DNode(
-            seed.vector[seed.x], seed.vector[seed.y], seed.vector[seed.z],
-            seed.vector[xDir], seed.vector[yDir], seed.vector[zDir],
+            seed.get(seed.x), seed.get(seed.y), seed.get(seed.z),
+            seed.get(xDir), seed.get(yDir), seed.get(zDir),
             seed);
         double minX = -1.0;
         double minY = -1.0;
@@ -1366,9 +1415,9 @@ public class Hyperspace3DPane extends StackPane implements
             seed.x = xFactorIndex;
             seed.y = yFactorIndex;
             seed.z = zFactorIndex;
-            seed.xDir = seed.vector.length > xDirFactorIndex ? xDirFactorIndex : seed.vector.length - 1;
-            seed.yDir = seed.vector.length > yDirFactorIndex ? yDirFactorIndex : seed.vector.length - 1;
-            seed.zDir = seed.vector.length > zDirFactorIndex ? zDirFactorIndex : seed.vector.length - 1;
+            seed.xDir = seed.dimensions() > xDirFactorIndex ? xDirFactorIndex : seed.dimensions() - 1;
+            seed.yDir = seed.dimensions() > yDirFactorIndex ? yDirFactorIndex : seed.dimensions() - 1;
+            seed.zDir = seed.dimensions() > zDirFactorIndex ? zDirFactorIndex : seed.dimensions() - 1;
             seed.visible = FactorLabel.visibilityByLabel(seed.label)
                 && FeatureLayer.visibilityByIndex(seed.layer)
                 && VisibilityMap.visibilityByIndex(i);
@@ -1412,15 +1461,19 @@ public class Hyperspace3DPane extends StackPane implements
         showAll();
         updatePNodes();
         Perspective3DNode[] pNodeArray = pNodes.toArray(Perspective3DNode[]::new);
-        data = getVisiblePoints(pNodeArray);
-        endPoints = getFixedEndPoints(pNodeArray, 0f);
+        int count = updateScatterBuffers(pNodeArray);
+        float[] coords = Arrays.copyOf(scatterModel.coords, count * 3);
+        float[] ends = Arrays.copyOf(scatterModel.endCoords, count * 3);
+        float[] hues = Arrays.copyOf(scatterModel.hues, count);
         //System.out.println("Rendering 3D Mesh...");
         if (null != scatterMesh3D) {
             scatterMesh3D.setDrawMode(DrawMode.FILL);
             scatterMesh3D.setTextureModeVertices3D(TOTAL_COLORS, colorByLabelFunction, 0.0, 360.0);
-            scatterMesh3D.setScatterDataAndEndPoints(data, endPoints);
+            scatterMesh3D.setScatterBuffers(coords, ends, hues, count);
         } else {
-            scatterMesh3D = new DirectedScatterMesh(data, endPoints, true, point3dSize, 0);
+            scatterMesh3D = new DirectedScatterMesh();
+            scatterMesh3D.setHeight(point3dSize);
+            scatterMesh3D.setScatterBuffers(coords, ends, hues, count);
             scatterMesh3D.setDrawMode(DrawMode.FILL);
             scatterMesh3D.setTextureModeVertices3D(TOTAL_COLORS, colorByLabelFunction, 0.0, 360.0);
             highlightedPoint.visibleProperty().bind(scatterMesh3D.visibleProperty());
@@ -1430,16 +1483,17 @@ public class Hyperspace3DPane extends StackPane implements
                 PickResult n = event.getPickResult();
                 int pointId1 = n.getIntersectedFace() / 4;
                 //System.out.println("Intersected Face:  " + n.getIntersectedFace());
-                if (pointId1 < scatterMesh3D.scatterDataProperty().get().size()) {
-                    Point3D pt1 = scatterMesh3D.scatterDataProperty().get().get(pointId1);
+                //find correct feature vector
+                int correctIndex = pickedFeatureIndex(n, pointId1);
+                Point3D pt1 = correctIndex >= 0
+                    ? scatterModel.getVisibleNodePoint(correctIndex) : null;
+                if (null != pt1) {
                     Sphere sphere = new Sphere(1, 1);
                     sphere.setTranslateX(pt1.x);
                     sphere.setTranslateY(pt1.y);
                     sphere.setTranslateZ(pt1.z);
                     nodeGroup.getChildren().add(sphere);
-                    //find correct feature vector
-                    int correctIndex = scatterModel.findIndexFromVisibleFacePoint(pointId1);
-                    if (correctIndex >= 0)
+                    if (correctIndex < featureVectors.size())
                         radialOverlayPane.createCallout(sphere,
                             featureVectors.get(correctIndex), subScene);
                 }
@@ -1448,15 +1502,16 @@ public class Hyperspace3DPane extends StackPane implements
                 PickResult n = event.getPickResult();
                 final int pointId1 = n.getIntersectedFace() / 4;
                 Platform.runLater(() -> {
-                    if (pointId1 < scatterMesh3D.scatterDataProperty().get().size()) {
-                        Point3D pt1 = scatterMesh3D.scatterDataProperty().get().get(pointId1);
+                    int correctIndex = pickedFeatureIndex(n, pointId1);
+                    Point3D pt1 = correctIndex >= 0
+                        ? scatterModel.getVisibleNodePoint(correctIndex) : null;
+                    if (null != pt1) {
                         Translate highlightTranslate = new Translate(pt1.x, pt1.y, pt1.z);
                         highlightedPoint.getTransforms().clear();
                         highlightedPoint.getTransforms().add(highlightTranslate);
                         highlightedPoint.setUserData(pt1);
                         highlightedPoint.setRadius(point3dSize / 2.0);
-                        int correctIndex = scatterModel.findIndexFromVisibleFacePoint(pointId1);
-                        if (correctIndex >= 0 && correctIndex <= featureVectors.size()) {
+                        if (correctIndex < featureVectors.size()) {
                             scene.getRoot().fireEvent(new FeatureVectorEvent(
                                 FeatureVectorEvent.SELECT_FEATURE_VECTOR,
                                 featureVectors.get(correctIndex), featureLabels));
@@ -1481,6 +1536,23 @@ public class Hyperspace3DPane extends StackPane implements
         });
     }
 
+    /**
+     * Resolves a pick on the scatter mesh to the visible node drawn nearest
+     * the hit point, so overlapping dots pick the closest point rather than
+     * whichever face was intersected first.
+     *
+     * @param pick    pick result from the scatter mesh
+     * @param pointId intersected face / 4, used when the hit point is missing
+     * @return pNodes and featureVectors index, -1 if nothing is near
+     */
+    private int pickedFeatureIndex(PickResult pick, int pointId) {
+        javafx.geometry.Point3D hit = pick.getIntersectedPoint();
+        int index = null == hit ? -1 : scatterModel.findNearestVisibleNode(
+            hit.getX(), hit.getY(), hit.getZ(), point3dSize);
+        return index >= 0 ? index : scatterModel.findIndexFromVisibleFacePoint(
+            scatterMesh3D.getDataIndex(pointId));
+    }
+
     private TriaxialSpheroidMesh createEllipsoid(double major, double minor, double gamma, Color color) {
         TriaxialSpheroidMesh triaxialSpheroid = new TriaxialSpheroidMesh(32, major, minor, gamma);
         triaxialSpheroid.setDrawMode(DrawMode.FILL);
@@ -1531,26 +1603,24 @@ public class Hyperspace3DPane extends StackPane implements
 
     @Override
     public void setSpheroidAnchor(boolean animate, int index) {
-        if (index >= scatterModel.data.size()) {
-            //System.out.println("Requested anchor index of " + index + " greater than scatterModel.data size");
+        if (index >= scatterModel.pointCount) {
+            //System.out.println("Requested anchor index of " + index + " greater than scatterModel point count");
             return;
         } else if (index < 0) {
             //System.out.println("Requested anchor index of " + index + " less than zero.");
             return;
         }
-        Point3D p3d = scatterModel.data.get(index);
+        Point3D p3d = scatterModel.getPoint(index);
         anchorTSM.setTranslateX(p3d.x);
         anchorTSM.setTranslateY(p3d.y);
         anchorTSM.setTranslateZ(p3d.z);
 
         //make sure we have the latest states using the latest feature indices
         anchorTrajectory.states.clear();
-        List<Point3D> p3ds = scatterModel.data;
-        if (index < scatterModel.data.size())
-            p3ds = scatterModel.data.subList(0, index + 1);
-        if (!p3ds.isEmpty()) {
-            for (Point3D p : p3ds) {
-                anchorTrajectory.states.add(new double[]{p.x, p.y, p.z});
+        float[] coords = scatterModel.coords;
+        if (index >= 0) {
+            for (int i = 0; i <= index; i++) {
+                anchorTrajectory.states.add(new double[]{coords[3 * i], coords[3 * i + 1], coords[3 * i + 2]});
             }
             //recreate and add to the scene the 3D trajectory
             updateTrajectory3D();
@@ -1765,10 +1835,8 @@ public class Hyperspace3DPane extends StackPane implements
     @Override
     public void addFeatureVector(FeatureVector featureVector) {
         featureVectors.add(featureVector);
-        double[] features = FeatureVector.mapToStateArray.apply(featureVector);
-        HyperspaceSeed seed = new HyperspaceSeed(
-            xFactorIndex, yFactorIndex, zFactorIndex,
-            xDirFactorIndex, yDirFactorIndex, zDirFactorIndex, features);
+        HyperspaceSeed seed = storeFeatureVector(featureVector);
+        accumulateStatistics(featureVector);
         seed.label = featureVector.getLabel();
         seed.layer = featureVector.getLayer();
         seed.score = featureVector.getScore();
@@ -1783,6 +1851,27 @@ public class Hyperspace3DPane extends StackPane implements
         isDirty = true;
     }
 
+    @Override
+    public void addFeatureVectors(List<FeatureVector> newFeatureVectors) {
+        featureVectors.addAll(newFeatureVectors);
+        for (FeatureVector featureVector : newFeatureVectors) {
+            HyperspaceSeed seed = storeFeatureVector(featureVector);
+            accumulateStatistics(featureVector);
+            seed.label = featureVector.getLabel();
+            seed.layer = featureVector.getLayer();
+            seed.score = featureVector.getScore();
+            seed.pfa = featureVector.getPfa();
+            seed.visible = FactorLabel.visibilityByLabel(seed.label)
+                && FeatureLayer.visibilityByIndex(seed.layer);
+            hyperspaceSeeds.add(seed);
+            addPNodeFromSeed(seed);
+        }
+        //one trim and one redraw for the whole batch
+        trimQueueNow();
+        cubeWorld.setDirty(true);
+        isDirty = true;
+    }
+
     @Override
     public void addFeatureCollection(FeatureCollection featureCollection) {
         Platform.runLater(() -> {
@@ -1835,10 +1924,8 @@ public class Hyperspace3DPane extends StackPane implements
                 featureCollection.getFeatures().subList(start, end)
                     .stream().forEach(featureVector -> {
                         featureVectors.add(featureVector);
-                        HyperspaceSeed seed = new HyperspaceSeed(
-                            xFactorIndex, yFactorIndex, zFactorIndex,
-                            xDirFactorIndex, yDirFactorIndex, zDirFactorIndex,
-                            FeatureVector.mapToStateArray.apply(featureVector));
+                        HyperspaceSeed seed = storeFeatureVector(featureVector);
+                        accumulateStatistics(featureVector);
                         seed.label = featureVector.getLabel();
                         seed.layer = featureVector.getLayer();
                         seed.score = featureVector.getScore();
@@ -1866,10 +1953,52 @@ public class Hyperspace3DPane extends StackPane implements
         thread.start();
     }
 
+    /**
+     * Copies the feature vector into the feature store and makes a seed that
+     * reads from its row. Vectors that do not fit the store's dimension get
+     * a seed with their own array, as before.
+     *
+     * @param featureVector vector being added to featureVectors
+     * @return seed for the vector
+     */
+    private HyperspaceSeed storeFeatureVector(FeatureVector featureVector) {
+        int dimensions = featureVector.getData().size();
+        if (null == featureStore
+            || (featureStore.isEmpty() && featureStore.getDimensions() != dimensions))
+            featureStore = new FeatureStore(dimensions);
+        if (featureStore.add(featureVector) >= 0)
+            return new HyperspaceSeed(
+                xFactorIndex, yFactorIndex, zFactorIndex,
+                xDirFactorIndex, yDirFactorIndex, zDirFactorIndex,
+                (FeatureStore.RowView) featureVector.getData());
+        return new HyperspaceSeed(
+            xFactorIndex, yFactorIndex, zFactorIndex,
+            xDirFactorIndex, yDirFactorIndex, zDirFactorIndex,
+            FeatureVector.mapToStateArray.apply(featureVector));
+    }
+
+    /**
+     * Folds a newly queued vector into the running statistics, starting over
+     * when the first vector of a new dimension arrives. Call it after
+     * storeFeatureVector so the statistics add the same stored values that
+     * trimQueueNow later removes.
+     *
+     * @param featureVector vector just added to featureVectors
+     */
+    private void accumulateStatistics(FeatureVector featureVector) {
+        int dimensions = featureVector.getData().size();
+        if (featureStatistics.isEmpty() && featureStatistics.getDimensions() != dimensions)
+            featureStatistics.reset(dimensions);
+        featureStatistics.add(featureVector);
+    }
+
     public void updateMaxAndMeans() {
-        meanVector = FeatureVector.getMeanVector(featureVectors);
-        maxAbsValue = FeatureVector.getMaxAbsValue(featureVectors);
-        meanCenteredMaxAbsValue = FeatureVector.getMeanCenteredMaxAbsValue(featureVectors, meanVector);
+        //O(D) from the running statistics, a full pass only when they drifted
+        if (featureStatistics.getCount() != featureVectors.size())
+            featureStatistics = RunningStatistics.of(featureVectors);
+        meanVector = featureStatistics.getMeanVector();
+        maxAbsValue = featureStatistics.getMaxAbsValue();
+        meanCenteredMaxAbsValue = featureStatistics.getMeanCenteredMaxAbsValue();
 
         String str = "Mean Centered MaxAbsValue: " + meanCenteredMaxAbsValue;
         cubeWorld.meanVector.clear();
@@ -1889,14 +2018,29 @@ public class Hyperspace3DPane extends StackPane implements
     }
 
     public void trimQueueNow() {
-        while (hyperspaceSeeds.size() > queueLimit) {
+        //size() on the concurrent queues is O(n) so only take it once
+        int excess = hyperspaceSeeds.size() - queueLimit;
+        for (int i = 0; i < excess; i++) {
             hyperspaceSeeds.poll();
         }
-        while (pNodes.size() > queueLimit) {
+        excess = pNodes.size() - queueLimit;
+        for (int i = 0; i < excess; i++) {
             pNodes.poll();
         }
-        while (featureVectors.size() > queueLimit) {
-            featureVectors.remove(0);
+        excess = featureVectors.size() - queueLimit;
+        if (excess > 0) {
+            List<FeatureVector> evicted = featureVectors.subList(0, excess);
+            if (null != featureStore) {
+                //rows are added in queue order so the evicted ones are the oldest
+                int stored = 0;
+                for (FeatureVector featureVector : evicted)
+                    if (featureStore.holds(featureVector))
+                        stored++;
+                featureStore.evict(stored);
+            }
+            for (FeatureVector featureVector : evicted)
+                featureStatistics.remove(featureVector);
+            evicted.clear();
         }
     }
 
@@ -1970,6 +2114,11 @@ public class Hyperspace3DPane extends StackPane implements
     @Override
     public void clearFeatureVectors() {
         featureVectors.clear();
+        featureStatistics.reset(0);
+        if (null != featureStore) {
+            featureStore.clear();
+            featureStore = null;
+        }
     }
 
     @Override
@@ -1983,6 +2132,11 @@ public class Hyperspace3DPane extends StackPane implements
         VisibilityMap.visibilityList.set(i, b);
     }
 
+    @Override
+    public void setVisibleByIndices(BitSet indices, boolean b) {
+        VisibilityMap.setVisibilityByIndices(pNodes.toArray(Perspective3DNode[]::new), indices, b);
+    }
+
     @Override
     public void refresh() {
         updatePNodeColorsAndVisibility();
@@ -22,6 +22,7 @@ package edu.jhuapl.trinity.javafx.javafx3d;
 
 import edu.jhuapl.trinity.App;
 import edu.jhuapl.trinity.data.CoordinateSet;
+import edu.jhuapl.trinity.data.SurfaceGrid;
 import edu.jhuapl.trinity.data.messages.FeatureCollection;
 import edu.jhuapl.trinity.data.messages.FeatureVector;
 import edu.jhuapl.trinity.data.messages.SemanticMap;
@@ -115,13 +116,16 @@ import javax.imageio.ImageIO;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Paths;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.function.Function;
 
 import static edu.jhuapl.trinity.javafx.components.radial.HyperspaceMenu.slideInPane;
@@ -177,6 +181,13 @@ public class Hypersurface3DPane extends StackPane
     boolean rawMeshRender = true;
     boolean hoverInteractionsEnabled = false;
     boolean surfaceChartsEnabled = false;
+    //live FeatureVectors scroll onto the surface as new rows
+    public boolean waterfallEnabled = false;
+    boolean waterfallStreaming = false;
+    private final ConcurrentLinkedQueue<FeatureVector> waterfallQueue = new ConcurrentLinkedQueue<>();
+    private WaterfallRows waterfallRows = new WaterfallRows(1);
+    private int pendingScrollRows = 0;
+    private int dirtyFromRow = -1;
 
     WritableImage diffusePaintImage;
     PhongMaterial paintPhong;
@@ -201,7 +212,7 @@ public class Hypersurface3DPane extends StackPane
     Function<Point3D, Number> colorByHeight = p -> p.y; //Color mapping function
     Function<Vert3D, Number> vert3DLookup = p -> vertToHeight(p);
 
-    public List<List<Double>> dataGrid = new ArrayList<>();
+    public SurfaceGrid dataGrid = new SurfaceGrid();
 
     // initial rotation
     private final Rotate rotateX = new Rotate(0, Rotate.X_AXIS);
@@ -232,7 +243,7 @@ public class Hypersurface3DPane extends StackPane
     Text hoverText = new Text("Coordinates: ");
 
     public List<String> featureLabels = new ArrayList<>();
-    Spinner xWidthSpinner, zWidthSpinner;
+    Spinner<Integer> xWidthSpinner, zWidthSpinner;
     public Scene scene;
     HashMap<Shape3D, Callout> shape3DToCalloutMap;
     public String imageryBasePath = "imagery/";
@@ -682,6 +693,17 @@ public class Hypersurface3DPane extends StackPane
             labelGroup.setVisible((boolean) e.object);
         });
         scene.addEventHandler(ApplicationEvent.SET_IMAGERY_BASEPATH, e -> imageryBasePath = (String) e.object);
+        scene.addEventHandler(FeatureVectorEvent.NEW_FEATURE_VECTOR, e -> {
+            if (waterfallEnabled)
+                addFeatureVector((FeatureVector) e.object);
+        });
+        scene.addEventHandler(FeatureVectorEvent.NEW_FEATURE_VECTOR_BATCH, e -> {
+            if (waterfallEnabled) {
+                @SuppressWarnings("unchecked")
+                List<FeatureVector> batch = (List<FeatureVector>) e.object;
+                addFeatureVectors(batch);
+            }
+        });
         Platform.runLater(() -> {
             updateLabels();
             updateView(true);
@@ -698,6 +720,10 @@ public class Hypersurface3DPane extends StackPane
                 if ((now - prevTime) < sleepNs) return;
                 prevTime = now;
                 long startTime;
+                if (!waterfallQueue.isEmpty())
+                    drainWaterfall();
+                if (dirtyFromRow >= 0)
+                    updateDirtyRows();
                 if (computeRandos) {
 //                    startTime = System.nanoTime();
                     generateRandos(xWidth, zWidth, yScale);
@@ -795,8 +821,10 @@ public class Hypersurface3DPane extends StackPane
 
     public void updateTheMesh() {
         if (rawMeshRender) {
+            //same dimensions only regenerates the vertex heights in place
             surfPlot.updateMeshRaw(xWidth, zWidth, surfScale, yScale, surfScale);
         } else {
+            surfPlot.setFunctionScale(yScale);
             surfPlot.updateMeshSmooth(xWidth, zWidth);
         }
         Platform.runLater(() -> {
@@ -1078,57 +1106,44 @@ public class Hypersurface3DPane extends StackPane
     }
 
     private void generateRandos(int xWidth, int zWidth, float yScale) {
-        if (null == dataGrid) {
-            dataGrid = new ArrayList<>(zWidth);
-        } else
-            dataGrid.clear();
-        List<Double> xList;
+        dataGrid.resize(zWidth, xWidth);
         for (int z = 0; z < zWidth; z++) {
-            xList = new ArrayList<>(xWidth);
             for (int x = 0; x < xWidth; x++) {
-                xList.add(rando.nextDouble() * yScale);
+                dataGrid.set(z, x, (float) (rando.nextDouble() * yScale));
             }
-            dataGrid.add(xList);
         }
     }
 
     private Number vertToHeight(Vert3D p) {
-        if (null != dataGrid) {
-            if (rawMeshRender)
-                return lookupPoint(p);
-            else
-                return findBlerpHeight(p);
-        } else
+        if (dataGrid.isEmpty())
             return 0.0;
-    }
-
-    private Number lookupPoint(Vert3D p) {
-        //hacky bounds check
-        if (p.yIndex >= dataGrid.size()
-            || p.xIndex >= dataGrid.get(0).size())
-            return 0.0;
-        return dataGrid.get(p.yIndex).get(p.xIndex);
+        if (rawMeshRender)
+            return dataGrid.lookup(p.yIndex, p.xIndex);
+        else
+            return findBlerpHeight(p);
     }
 
     private Number findBlerpHeight(Vert3D p) {
+        int width = dataGrid.getWidth();
+        int depth = dataGrid.getDepth();
         int x1Index = p.xIndex <= 0 ? 0 : p.xIndex - 1;
-        if (x1Index >= dataGrid.get(0).size() - 1)
-            x1Index = dataGrid.get(0).size() - 1;
+        if (x1Index >= width - 1)
+            x1Index = width - 1;
 
-        int x2Index = p.xIndex >= dataGrid.get(0).size() - 1
-            ? dataGrid.get(0).size() - 1 : p.xIndex + 1;
+        int x2Index = p.xIndex >= width - 1
+            ? width - 1 : p.xIndex + 1;
 
         int y1Index = p.yIndex <= 0 ? 0 : p.yIndex - 1;
-        if (y1Index >= dataGrid.size() - 1)
-            y1Index = dataGrid.size() - 1;
-        int y2Index = p.yIndex >= dataGrid.size() - 1
-            ? dataGrid.size() - 1 : p.yIndex + 1;
+        if (y1Index >= depth - 1)
+            y1Index = depth - 1;
+        int y2Index = p.yIndex >= depth - 1
+            ? depth - 1 : p.yIndex + 1;
         //System.out.println("x1,x2,y1,y2:" + x1Index + ", " + x2Index + ", " + y1Index + ", " + y2Index);
 
-        double c11 = dataGrid.get(y1Index).get(x1Index) * yScale;
-        double c21 = dataGrid.get(y1Index).get(x2Index) * yScale;
-        double c12 = dataGrid.get(y2Index).get(x1Index) * yScale;
-        double c22 = dataGrid.get(y2Index).get(x2Index) * yScale;
+        double c11 = dataGrid.get(y1Index, x1Index) * yScale;
+        double c21 = dataGrid.get(y1Index, x2Index) * yScale;
+        double c12 = dataGrid.get(y2Index, x1Index) * yScale;
+        double c22 = dataGrid.get(y2Index, x2Index) * yScale;
         //System.out.println("x1,x2,y1,y2:" + x1Index + ", " + x2Index + ", " + y1Index + ", " + y2Index);
 
         return quickBlerp(c11, c21, c12, c22, p.getX(), p.getY());
@@ -1151,6 +1166,8 @@ public class Hypersurface3DPane extends StackPane
         generateRandos(xWidth, zWidth, yScale);
         surfPlot = new HyperSurfacePlotMesh(xWidth, zWidth,
             1, 1, yScale, surfScale, vert3DLookup);
+        //raw meshes read the flat grid directly, no Vert3D or boxing per vertex
+        surfPlot.setHeightSampler((x, z) -> dataGrid.lookup(z, x));
         PhongMaterial material = new PhongMaterial(Color.BLUE);
         surfPlot.setTextureModeVertices3D(TOTAL_COLORS, colorByHeight, 0.0, 360.0);
 
@@ -1168,13 +1185,9 @@ public class Hypersurface3DPane extends StackPane
                 int column = Float.valueOf(vertP3D.getX() / surfScale).intValue();
 
                 //get all the values in this row
-                List<Double> xlist = dataGrid.get(row);
-                Double[] xRay = xlist.toArray(Double[]::new);
+                Double[] xRay = dataGrid.getRow(row);
                 //get the column values in time.
-                Double[] zRay = new Double[dataGrid.size()];
-                for (int i = 0; i < dataGrid.size(); i++) {
-                    zRay[i] = dataGrid.get(i).get(column);
-                }
+                Double[] zRay = dataGrid.getColumn(column);
                 if (surfaceChartsEnabled) {
                     scene.getRoot().fireEvent(new FactorAnalysisEvent(
                         FactorAnalysisEvent.SURFACE_XFACTOR_VECTOR, xRay));
@@ -1189,10 +1202,10 @@ public class Hypersurface3DPane extends StackPane
                 highlightedPoint.setTranslateY(vertP3D.y);
                 highlightedPoint.setTranslateZ(vertP3D.z - (zWidth * surfScale) / 2.0);
                 String text = "Coordinates: " + column + ", " + row + System.lineSeparator();
-                text = text.concat("Value: ").concat(String.valueOf(dataGrid.get(row).get(column))).concat(System.lineSeparator());
-                double maxX = xlist.stream().max(Double::compare).get();
+                text = text.concat("Value: ").concat(String.valueOf(dataGrid.get(row, column))).concat(System.lineSeparator());
+                double maxX = Arrays.stream(xRay).max(Double::compare).get();
                 text = text.concat("Max X: ").concat(String.valueOf(maxX)).concat(System.lineSeparator());
-                double minX = xlist.stream().min(Double::compare).get();
+                double minX = Arrays.stream(xRay).min(Double::compare).get();
                 text = text.concat("Min X: ").concat(String.valueOf(minX)).concat(System.lineSeparator());
                 double maxZ = Arrays.stream(zRay).max(Double::compare).get();
                 text = text.concat("Max Z: ").concat(String.valueOf(maxZ)).concat(System.lineSeparator());
@@ -1255,8 +1268,8 @@ public class Hypersurface3DPane extends StackPane
             anchorIndex = (int) e.object;
             if (anchorIndex < 0)
                 anchorIndex = 0;
-            else if (anchorIndex > dataGrid.size())
-                anchorIndex = dataGrid.size();
+            else if (anchorIndex > dataGrid.getDepth())
+                anchorIndex = dataGrid.getDepth();
             //move the glowLineBox based on the step index
             glowLineBox.setTranslateZ((anchorIndex * surfScale) - ((zWidth * surfScale) / 2.0));
             //@TODO SMP this is stubbed but we should update an anchored callout
@@ -1282,7 +1295,6 @@ public class Hypersurface3DPane extends StackPane
         //whenever the spinner value is changed...
         yScaleSpinner.valueProperty().addListener(e -> {
             yScale = ((Double) yScaleSpinner.getValue()).floatValue();
-            surfPlot.setFunctionScale(yScale);
             updateTheMesh();
         });
         yScaleSpinner.setPrefWidth(125);
@@ -1310,7 +1322,7 @@ public class Hypersurface3DPane extends StackPane
 //        });
 //        divisionsSpinner.setPrefWidth(125);
 
-        xWidthSpinner = new Spinner(
+        xWidthSpinner = new Spinner<>(
             new SpinnerValueFactory.IntegerSpinnerValueFactory(1, 512, 200, 4));
         xWidthSpinner.setEditable(true);
         //whenever the spinner value is changed...
@@ -1321,12 +1333,14 @@ public class Hypersurface3DPane extends StackPane
             surfPlot.setTranslateZ(-(zWidth * surfScale) / 2.0);
         });
         xWidthSpinner.setPrefWidth(125);
-        zWidthSpinner = new Spinner(
+        zWidthSpinner = new Spinner<>(
             new SpinnerValueFactory.IntegerSpinnerValueFactory(1, 2000, 200, 10));
         zWidthSpinner.setEditable(true);
         //whenever the spinner value is changed...
         zWidthSpinner.valueProperty().addListener(e -> {
             zWidth = ((int) zWidthSpinner.getValue());
+            if (waterfallStreaming)
+                startWaterfall(dataGrid.getWidth());
             updateTheMesh();
             surfPlot.setTranslateX(-(xWidth * surfScale) / 2.0);
             surfPlot.setTranslateZ(-(zWidth * surfScale) / 2.0);
@@ -1343,6 +1357,13 @@ public class Hypersurface3DPane extends StackPane
             updateTheMesh();
         });
         HBox meshTypeHBox = new HBox(10, rawMesh, smoothMesh);
+        CheckBox waterfallCheckBox = new CheckBox("Waterfall Live Feature Vectors");
+        waterfallCheckBox.setSelected(waterfallEnabled);
+        waterfallCheckBox.setOnAction(e -> {
+            waterfallEnabled = waterfallCheckBox.isSelected();
+            if (!waterfallEnabled)
+                waterfallQueue.clear();
+        });
 
         ToggleGroup drawModeToggle = new ToggleGroup();
         RadioButton drawModeLine = new RadioButton("Line");
@@ -1441,6 +1462,7 @@ public class Hypersurface3DPane extends StackPane
             //new HBox(10, divLabel, divisionsSpinner),
             new HBox(10, xWidthLabel, xWidthSpinner),
             new HBox(10, zWidthLabel, zWidthSpinner),
+            waterfallCheckBox,
             new HBox(10, yScaleLabel, yScaleSpinner),
             new HBox(10, surfScaleLabel, surfScaleSpinner),
             new Label("Draw Mode"),
@@ -1555,14 +1577,10 @@ public class Hypersurface3DPane extends StackPane
             + " entries at " + neuralData.get(0).size() + " frame width.");
         //need to add every other data point in the width dimension (goes in phase/mag pairs)
         long startTime = System.nanoTime();
-        dataGrid.clear();
-        List<Double> justTheMags;
-        for (List<Double> phaseMagPairs : neuralData) {
-            justTheMags = new ArrayList<>(neuralData.get(0).size() / 2);
-            for (int i = 0; i < phaseMagPairs.size(); i += 2) {
-                justTheMags.add(phaseMagPairs.get(i) * yScale);
-            }
-            dataGrid.add(justTheMags);
+        waterfallStreaming = false;
+        dataGrid.resize(neuralData.size(), (neuralData.get(0).size() + 1) / 2);
+        for (int row = 0; row < neuralData.size(); row++) {
+            dataGrid.setRow(row, neuralData.get(row), 0, 2, yScale);
         }
         System.out.println("Mapped Neural Magnitudes to Hypersurface: " + Utils.totalTimeString(startTime));
         zWidth = neuralData.size();
@@ -1618,21 +1636,10 @@ public class Hypersurface3DPane extends StackPane
 
     @Override
     public void addFeatureCollection(FeatureCollection featureCollection) {
-        dataGrid.clear();
-
-        if (null == dataGrid) {
-            dataGrid = new ArrayList<>(featureCollection.getFeatures().size());
-        } else
-            dataGrid.clear();
-
-        List<Double> xList;
-        for (FeatureVector fv : featureCollection.getFeatures()) {
-            xList = new ArrayList<>(fv.getData().size());
-            xList.addAll(fv.getData());
-            dataGrid.add(xList);
-        }
-        zWidth = dataGrid.size();
-        xWidth = dataGrid.get(0).size();
+        waterfallStreaming = false;
+        dataGrid.setFeatureVectors(featureCollection.getFeatures());
+        zWidth = dataGrid.getDepth();
+        xWidth = dataGrid.getWidth();
         zWidthSpinner.getValueFactory().setValue(zWidth);
         xWidthSpinner.getValueFactory().setValue(xWidth);
         updateTheMesh();
@@ -1643,9 +1650,104 @@ public class Hypersurface3DPane extends StackPane
         featureVectors = featureCollection.getFeatures();
     }
 
+    /**
+     * Queues a FeatureVector as the newest row of the waterfall. Safe to call
+     * from the messaging thread, queued rows are applied by the refresh timer.
+     */
     @Override
     public void addFeatureVector(FeatureVector featureVector) {
-        throw new UnsupportedOperationException("Not supported yet.");
+        waterfallQueue.add(featureVector);
+    }
+
+    private void drainWaterfall() {
+        FeatureVector featureVector;
+        while (null != (featureVector = waterfallQueue.poll())) {
+            int width = featureVector.getData().size();
+            if (!waterfallStreaming || width != dataGrid.getWidth())
+                startWaterfall(width);
+            if (dataGrid.pushRow(featureVector.getData(), 1.0)) {
+                //oldest row dropped, everything already dirty moved down one
+                pendingScrollRows++;
+                if (dirtyFromRow > 0)
+                    dirtyFromRow--;
+            }
+            waterfallRows.push(featureVector);
+            markDirtyRow(dataGrid.getDepth() - 1);
+        }
+    }
+
+    /**
+     * Starts an empty waterfall as deep as the current Z length.
+     */
+    private void startWaterfall(int width) {
+        waterfallStreaming = true;
+        dataGrid.allocate(zWidth, width);
+        waterfallRows = new WaterfallRows(zWidth);
+        featureVectors = waterfallRows;
+        pendingScrollRows = 0;
+        dirtyFromRow = -1;
+        xWidth = width;
+        xWidthSpinner.getValueFactory().setValue(xWidth);
+        //same dimensions as before only flattens the heights in place
+        updateTheMesh();
+    }
+
+    /**
+     * Feature vectors behind the waterfall rows, oldest first. A ring like the
+     * SurfaceGrid rows, so dropping the oldest row does not shift the rest.
+     */
+    private static final class WaterfallRows extends AbstractList<FeatureVector> {
+        private final FeatureVector[] rows;
+        private int firstRow = 0; //physical slot holding row 0
+        private int size = 0;
+
+        WaterfallRows(int capacity) {
+            rows = new FeatureVector[Math.max(1, capacity)];
+        }
+
+        //appends a row, overwriting the oldest once full
+        void push(FeatureVector featureVector) {
+            if (size == rows.length) {
+                rows[firstRow] = featureVector;
+                firstRow = firstRow + 1 == rows.length ? 0 : firstRow + 1;
+            } else {
+                rows[physical(size++)] = featureVector;
+            }
+            modCount++;
+        }
+
+        private int physical(int row) {
+            int physical = firstRow + row;
+            return physical >= rows.length ? physical - rows.length : physical;
+        }
+
+        @Override
+        public FeatureVector get(int index) {
+            return rows[physical(Objects.checkIndex(index, size))];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private void markDirtyRow(int row) {
+        dirtyFromRow = dirtyFromRow < 0 ? row : Math.min(dirtyFromRow, row);
+    }
+
+    /**
+     * Scrolls the mesh by the rows pushed since the last update and samples
+     * only the rows that changed. Falls back to a full update when the mesh
+     * is not a raw grid.
+     */
+    private void updateDirtyRows() {
+        if (!rawMeshRender || !surfPlot.scrollRaw(pendingScrollRows, dirtyFromRow, yScale))
+            updateTheMesh();
+        else if (null != paintTriangleMesh)
+            paintTriangleMesh.getPoints().setAll(((TriangleMesh) surfPlot.getMesh()).getPoints());
+        pendingScrollRows = 0;
+        dirtyFromRow = -1;
     }
 
     @Override
@@ -1655,7 +1757,13 @@ public class Hypersurface3DPane extends StackPane
 
     @Override
     public void clearFeatureVectors() {
-        throw new UnsupportedOperationException("Not supported yet.");
+        waterfallQueue.clear();
+        waterfallStreaming = false;
+        featureVectors = new ArrayList<>();
+        dataGrid.allocate(zWidth, xWidth);
+        pendingScrollRows = 0;
+        dirtyFromRow = -1;
+        updateTheMesh();
     }
 
     @Override
@@ -1665,9 +1773,15 @@ public class Hypersurface3DPane extends StackPane
         return featureVectors;
     }
 
+    /**
+     * Hides or shows a row of the surface, hidden rows are drawn flat.
+     */
     @Override
     public void setVisibleByIndex(int i, boolean b) {
-        throw new UnsupportedOperationException("Not supported yet.");
+        if (i < 0 || i >= dataGrid.getDepth())
+            return;
+        dataGrid.setRowVisible(i, b);
+        markDirtyRow(i);
     }
 
     @Override
@@ -25,6 +25,7 @@ import com.github.quickhull3d.QuickHull3D;
 import edu.jhuapl.trinity.data.Manifold;
 import edu.jhuapl.trinity.javafx.events.ApplicationEvent;
 import edu.jhuapl.trinity.javafx.events.ManifoldEvent;
+import edu.jhuapl.trinity.utils.ConcaveHull;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -82,12 +83,22 @@ public class Manifold3D extends Group {
     public static File latestDir = new File(".");
     
     public Manifold3D(List<Point3D> point3DList, boolean triangulate, boolean makeLines, boolean makePoints) {
+        this(point3DList, buildHull(point3DList, triangulate), makeLines, makePoints);
+    }
+
+    /**
+     * Wraps a hull that was already built from the given points, such as a
+     * ConcaveHull computed off the FX thread.
+     */
+    public Manifold3D(List<Point3D> point3DList, QuickHull3D hull, boolean makeLines, boolean makePoints) {
         originalPoint3Ds = point3DList;
-        buildHullMesh(point3DList, triangulate, makeLines, makePoints);
+        this.hull = hull;
+        quickhullTriangleMesh = makeQuickhullMesh(hull, artScale);
         
         List<Point3D> fxyzPoints = new ArrayList<>();
+        Point3d[] hullVertices = hull.getVertices();
         for (int i = 0; i < hull.getNumVertices(); i++) {
-            Point3d p3d = hull.getVertices()[i];
+            Point3d p3d = hullVertices[i];
             fxyzPoints.add(hullPointToPoint3D.apply(p3d));
         }
         List<Face3> faces = new ArrayList<>();
@@ -262,18 +273,24 @@ public class Manifold3D extends Group {
 //    }
     
     public javafx.geometry.Point3D getClosestHullPoint(javafx.geometry.Point3D startingPoint) {
-        javafx.geometry.Point3D shortestPoint = null;
+        if (null == originalPoint3Ds || originalPoint3Ds.isEmpty())
+            return null;
+        //one query per click, a plain scan is cheaper than building an index
+        Point3D shortestPoint = null;
         double distance = 0;
-        for(Point3D point : originalPoint3Ds) {
-            double currentDistance = startingPoint.distance(point.x, point.y, point.z);
-            if(null == shortestPoint || currentDistance < distance) {
-               distance = currentDistance;
-               shortestPoint = new javafx.geometry.Point3D(point.x, point.y, point.z);
+        for (Point3D point : originalPoint3Ds) {
+            double dx = point.x - startingPoint.getX();
+            double dy = point.y - startingPoint.getY();
+            double dz = point.z - startingPoint.getZ();
+            double currentDistance = dx * dx + dy * dy + dz * dz;
+            if (null == shortestPoint || currentDistance < distance) {
+                distance = currentDistance;
+                shortestPoint = point;
             }
         }
-        return shortestPoint;
+        return new javafx.geometry.Point3D(shortestPoint.x, shortestPoint.y, shortestPoint.z);
     }
-    
+
     public void refreshMesh(List<Point3D> point3DList, boolean triangulate, boolean makeLines, boolean makePoints) {
         quickhullLinesTriangleMesh.getPoints().clear();
         quickhullLinesTriangleMesh.getTexCoords().clear();
@@ -290,7 +307,17 @@ public class Manifold3D extends Group {
 //            makeDebugPoints(hull, artScale, false); 
     }
     private void buildHullMesh(List<Point3D> point3DList, boolean triangulate, boolean makeLines, boolean makePoints) {
-        hull = new QuickHull3D();
+        //keep the build mode, a concave manifold is rebuilt at the same detail level
+        if (hull instanceof ConcaveHull)
+            hull = buildConcaveHull(point3DList, ((ConcaveHull) hull).getAlphaScale());
+        else
+            hull = buildHull(point3DList, triangulate);
+        System.out.println("Making Quickhull mesh...");
+        quickhullTriangleMesh = makeQuickhullMesh(hull, artScale);
+    }
+
+    public static QuickHull3D buildHull(List<Point3D> point3DList, boolean triangulate) {
+        QuickHull3D hull = new QuickHull3D();
         //Construct an array of Point3D's
         com.github.quickhull3d.Point3d[] points = point3DList.stream()
             .map(point3DToHullPoint)
@@ -302,8 +329,25 @@ public class Manifold3D extends Group {
         }
         System.out.println("Faces: " + hull.getNumFaces());
         System.out.println("Verts: " + hull.getNumVertices());
-        System.out.println("Making Quickhull mesh...");
-        quickhullTriangleMesh = makeQuickhullMesh(hull, artScale);
+        return hull;
+    }
+
+    /**
+     * Builds an alpha shape concave hull. Safe to call off the FX thread.
+     *
+     * @param alphaScale detail level, see ConcaveHull
+     */
+    public static ConcaveHull buildConcaveHull(List<Point3D> point3DList, double alphaScale) {
+        double[] coords = new double[point3DList.size() * 3];
+        for (int i = 0; i < point3DList.size(); i++) {
+            Point3D p = point3DList.get(i);
+            coords[3 * i] = p.x;
+            coords[3 * i + 1] = p.y;
+            coords[3 * i + 2] = p.z;
+        }
+        ConcaveHull hull = new ConcaveHull(alphaScale);
+        hull.build(coords, point3DList.size());
+        return hull;
     }
 
     public void matrixRotate(double alf, double bet, double gam) {
@@ -329,8 +373,9 @@ public class Manifold3D extends Group {
     public TriangleMesh makeQuickhullMesh(QuickHull3D hull, float scale) {
         TriangleMesh mesh = new TriangleMesh();
 
+        Point3d[] hullVertices = hull.getVertices();
         for (int i = 0; i < hull.getNumVertices(); i++) {
-            Point3d p3d = hull.getVertices()[i];
+            Point3d p3d = hullVertices[i];
             Point3D point3D = hullPointToPoint3D.apply(p3d);
             mesh.getPoints().addAll(point3D.x * scale, point3D.y * scale, point3D.z * scale);
             mesh.getTexCoords().addAll(point3D.x * scale, point3D.z * scale);
@@ -65,16 +65,16 @@ public class Perspective3DNode {
     }
 
     public void setParamsByIndex(int x, int y, int z, int xDir, int yDir, int zDir) {
-        xCoord = factorAnalysisSeed.vector[x];
-        yCoord = factorAnalysisSeed.vector[y];
-        zCoord = factorAnalysisSeed.vector[z];
-        xDirCoord = factorAnalysisSeed.vector.length > xDir ? factorAnalysisSeed.vector[xDir]
-            : factorAnalysisSeed.vector[factorAnalysisSeed.vector.length - 1];
-        yDirCoord = factorAnalysisSeed.vector.length > yDir ? factorAnalysisSeed.vector[yDir]
-            : factorAnalysisSeed.vector[factorAnalysisSeed.vector.length - 1];
+        xCoord = factorAnalysisSeed.get(x);
+        yCoord = factorAnalysisSeed.get(y);
+        zCoord = factorAnalysisSeed.get(z);
+        xDirCoord = factorAnalysisSeed.dimensions() > xDir ? factorAnalysisSeed.get(xDir)
+            : factorAnalysisSeed.get(factorAnalysisSeed.dimensions() - 1);
+        yDirCoord = factorAnalysisSeed.dimensions() > yDir ? factorAnalysisSeed.get(yDir)
+            : factorAnalysisSeed.get(factorAnalysisSeed.dimensions() - 1);
         ;
-        zDirCoord = factorAnalysisSeed.vector.length > zDir ? factorAnalysisSeed.vector[zDir]
-            : factorAnalysisSeed.vector[factorAnalysisSeed.vector.length - 1];
+        zDirCoord = factorAnalysisSeed.dimensions() > zDir ? factorAnalysisSeed.get(zDir)
+            : factorAnalysisSeed.get(factorAnalysisSeed.dimensions() - 1);
     }
 
     public void shiftBy(double xShift, double yShift, double zShift) {
@@ -106,9 +106,9 @@ public class Perspective3DNode {
             }
             case COLOR_BY_GRADIENT -> {
                 return Color.color(
-                    Utils.clamp(0, DataUtils.normalize(seed.vector[seed.x], minX, minX + domainRange), 1),
-                    Utils.clamp(0, DataUtils.normalize(seed.vector[seed.y], minY, minY + domainRange), 1),
-                    Utils.clamp(0, DataUtils.normalize(seed.vector[seed.z], minZ, minZ + domainRange), 1),
+                    Utils.clamp(0, DataUtils.normalize(seed.get(seed.x), minX, minX + domainRange), 1),
+                    Utils.clamp(0, DataUtils.normalize(seed.get(seed.y), minY, minY + domainRange), 1),
+                    Utils.clamp(0, DataUtils.normalize(seed.get(seed.z), minZ, minZ + domainRange), 1),
                     1.0); //full opacity
             }
             case COLOR_BY_SCORE -> {
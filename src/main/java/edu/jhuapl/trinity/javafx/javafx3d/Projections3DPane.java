@@ -20,6 +20,7 @@ package edu.jhuapl.trinity.javafx.javafx3d;
  * #L%
  */
 
+import com.github.quickhull3d.QuickHull3D;
 import edu.jhuapl.trinity.App;
 import edu.jhuapl.trinity.data.CoordinateSet;
 import edu.jhuapl.trinity.data.Dimension;
@@ -56,9 +57,14 @@ import edu.jhuapl.trinity.javafx.renderers.FeatureVectorRenderer;
 import edu.jhuapl.trinity.javafx.renderers.GaussianMixtureRenderer;
 import edu.jhuapl.trinity.javafx.renderers.ManifoldRenderer;
 import edu.jhuapl.trinity.utils.AnalysisUtils;
+import edu.jhuapl.trinity.utils.ConcaveHull;
 import edu.jhuapl.trinity.utils.JavaFX3DUtils;
 import edu.jhuapl.trinity.utils.ResourceUtils;
+import edu.jhuapl.trinity.utils.RunningStatistics;
 import edu.jhuapl.trinity.utils.VisibilityMap;
+import edu.jhuapl.trinity.utils.umap.CancellationToken;
+import edu.jhuapl.trinity.utils.umap.EmbeddingListener;
+import edu.jhuapl.trinity.utils.umap.ProgressState;
 import edu.jhuapl.trinity.utils.umap.Umap;
 import java.io.File;
 import java.io.IOException;
@@ -107,14 +113,23 @@ import javafx.util.Duration;
 import org.fxyz3d.geometry.Point3D;
 import org.fxyz3d.scene.Skybox;
 import org.fxyz3d.utils.CameraTransformer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -207,6 +222,8 @@ public class Projections3DPane extends StackPane implements
     HashMap<Point3D, HyperspaceSeed> seedToEndMap = new HashMap<>();
     //This maps each ellipsoid to a GMM
     HashMap<Sphere, FeatureVector> sphereToFeatureVectorMap = new HashMap<>();
+    //projected spheres in arrival order so the queue limit can evict the oldest
+    ArrayDeque<Sphere> projectedSpheres = new ArrayDeque<>();
     //This maps each ellipsoid to a GMM
     HashMap<TriaxialSpheroidMesh, GaussianMixture> ellipsoidToGMMessageMap = new HashMap<>();
     //This maps each ellipsoid to its specific GaussianMixtureData
@@ -228,8 +245,16 @@ public class Projections3DPane extends StackPane implements
     public List<Double> meanVector = new ArrayList<>();
     public double maxAbsValue = 1.0;
     public double meanCenteredMaxAbsValue = 1.0;
+    //kept current as vectors are queued and trimmed
+    public RunningStatistics featureStatistics = new RunningStatistics(0);
     public boolean pointToPointDistanceMode = false;
     public boolean updatingTrajectories = true;
+    //manifold build mode, concave hulls follow the cluster shape at the given detail level
+    public boolean concaveHulls = false;
+    public double concaveAlphaScale = ConcaveHull.DEFAULT_ALPHA_SCALE;
+    //new UMAP fits start from the current projected positions
+    public boolean umapWarmStart = false;
+    public static final String ALL_LABELS = "ALL";
 
     public ConcurrentLinkedQueue<HyperspaceSeed> hyperspaceSeeds = new ConcurrentLinkedQueue<>();
     public ConcurrentLinkedQueue<Perspective3DNode> pNodes = new ConcurrentLinkedQueue<>();
@@ -260,8 +285,22 @@ public class Projections3DPane extends StackPane implements
     private Label zLabel = new Label("Z Axis");
     public List<String> featureLabels = new ArrayList<>();
     public Scene scene;
-    Umap latestUmap = null;
-    
+    //written on the FX thread, read by feed threads projecting new vectors
+    volatile Umap latestUmap = null;
+    //token of the UMAP fit in progress, if any
+    private CancellationToken umapFitToken = null;
+    //epochs between intermediate layouts while a fit converges
+    public static int UMAP_SNAPSHOT_EPOCHS = 10;
+    //when a UMAP model is available, newly arriving feature vectors are
+    //transformed through it and added to the projection
+    public boolean projectStreamingFeatures = true;
+    //single thread keeps streamed projections in arrival order
+    private final ExecutorService projectionExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "Projection Transform");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     public Projections3DPane(Scene scene) {
         this.scene = scene;
         cubeWorld = new ShadowCubeWorld(cubeSize, 100, true, featureVectors);
@@ -944,6 +983,29 @@ public class Projections3DPane extends StackPane implements
             }
         });
 
+        scene.addEventHandler(ManifoldEvent.STOP_UMAP_FIT, e -> {
+            if (null != umapFitToken)
+                umapFitToken.requestStop();
+        });
+        scene.addEventHandler(ManifoldEvent.CANCEL_UMAP_FIT, e -> {
+            if (null != umapFitToken)
+                umapFitToken.cancel();
+        });
+        scene.addEventHandler(ManifoldEvent.USE_WARM_START, e -> {
+            umapWarmStart = (boolean) e.object1;
+        });
+        scene.addEventHandler(ManifoldEvent.USE_CONCAVE_HULL, e -> {
+            concaveHulls = (boolean) e.object1;
+        });
+        scene.addEventHandler(ManifoldEvent.USE_AUTOMATIC_TOLERANCE, e -> {
+            if ((boolean) e.object1)
+                concaveAlphaScale = ConcaveHull.DEFAULT_ALPHA_SCALE;
+            else if (null != e.object2)
+                concaveAlphaScale = toleranceToAlphaScale((Double) e.object2);
+        });
+        scene.addEventHandler(ManifoldEvent.SET_DISTANCE_TOLERANCE, e -> {
+            concaveAlphaScale = toleranceToAlphaScale((Double) e.object1);
+        });
         scene.addEventHandler(ManifoldEvent.SAVE_PROJECTION_DATA, e -> {
             File file = (File) e.object1;
             FeatureCollection fc = new FeatureCollection();
@@ -957,6 +1019,44 @@ public class Projections3DPane extends StackPane implements
                 Logger.getLogger(Projections3DPane.class.getName()).log(Level.SEVERE, null, ex);
             }                    
         });
+        scene.addEventHandler(ManifoldEvent.SAVE_UMAP_MODEL, e -> {
+            File file = (File) e.object1;
+            Umap umap = latestUmap;
+            if (null == umap || null == umap.getmEmbedding())
+                return;
+            projectionExecutor.submit(() -> {
+                try {
+                    umap.save(file);
+                } catch (IOException | RuntimeException ex) {
+                    //save has already removed any partial file
+                    Logger.getLogger(Projections3DPane.class.getName()).log(Level.SEVERE, null, ex);
+                    Platform.runLater(() -> scene.getRoot().fireEvent(
+                        new CommandTerminalEvent("UMAP Model Save Failed: " + ex.getMessage(),
+                            new Font("Consolas", 20), Color.RED)));
+                }
+            });
+        });
+        scene.addEventHandler(ManifoldEvent.LOAD_UMAP_MODEL, e -> {
+            File file = (File) e.object1;
+            projectionExecutor.submit(() -> {
+                try {
+                    Umap umap = Umap.load(file);
+                    Platform.runLater(() -> latestUmap = umap);
+                } catch (IOException ex) {
+                    Logger.getLogger(Projections3DPane.class.getName()).log(Level.SEVERE, null, ex);
+                    Platform.runLater(() -> scene.getRoot().fireEvent(
+                        new CommandTerminalEvent("UMAP Model Load Failed: " + ex.getMessage(),
+                            new Font("Consolas", 20), Color.RED)));
+                }
+            });
+        });
+        scene.addEventHandler(FeatureVectorEvent.NEW_FEATURE_VECTOR, e ->
+            projectFeatureVectors(Collections.singletonList((FeatureVector) e.object)));
+        scene.addEventHandler(FeatureVectorEvent.NEW_FEATURE_VECTOR_BATCH, e -> {
+            @SuppressWarnings("unchecked")
+            List<FeatureVector> batch = (List<FeatureVector>) e.object;
+            projectFeatureVectors(batch);
+        });
         scene.addEventHandler(ManifoldEvent.CLEAR_DISTANCE_CONNECTORS, e -> {
             connectorsGroup.getChildren().removeIf(n -> n instanceof Trajectory3D);
             //remove label and sphere overlay components
@@ -1111,8 +1211,12 @@ public class Projections3DPane extends StackPane implements
         }             
     }
     public Manifold3D makeHull(List<Point3D> labelMatchedPoints, String label) {
+        return makeHull(labelMatchedPoints, Manifold3D.buildHull(labelMatchedPoints, true), label);
+    }
+
+    public Manifold3D makeHull(List<Point3D> labelMatchedPoints, QuickHull3D hull, String label) {
         Manifold3D manifold3D = new Manifold3D(
-            labelMatchedPoints, true, true, true
+            labelMatchedPoints, hull, true, true
         );
         manifold3D.addEventHandler(MouseEvent.MOUSE_CLICKED, e -> {
             if ((e.getButton() == MouseButton.PRIMARY && e.isControlDown())
@@ -1490,8 +1594,8 @@ public class Projections3DPane extends StackPane implements
 
     public Perspective3DNode addPNodeFromSeed(HyperspaceSeed seed) {
         Perspective3DNode pNode = new Perspective3DNode(
-            seed.vector[seed.x], seed.vector[seed.y], seed.vector[seed.z],
-            seed.vector[seed.xDir], seed.vector[seed.yDir], seed.vector[seed.zDir],
+            seed.get(seed.x), seed.get(seed.y), seed.get(seed.z),
+            seed.get(seed.xDir), seed.get(seed.yDir), seed.get(seed.zDir),
             seed);
 
         if (colorByLabel)
@@ -1578,16 +1682,17 @@ public class Projections3DPane extends StackPane implements
                 PickResult n = event.getPickResult();
                 int pointId1 = n.getIntersectedFace() / 4;
                 //System.out.println("Intersected Face:  " + n.getIntersectedFace());
-                if (pointId1 < scatterMesh3D.scatterDataProperty().get().size()) {
-                    Point3D pt1 = scatterMesh3D.scatterDataProperty().get().get(pointId1);
+                //find correct feature vector
+                int correctIndex = pickedFeatureIndex(n, pointId1);
+                Point3D pt1 = correctIndex >= 0
+                    ? scatterModel.getVisibleNodePoint(correctIndex) : null;
+                if (null != pt1) {
                     Sphere sphere = new Sphere(1, 1);
                     sphere.setTranslateX(pt1.x);
                     sphere.setTranslateY(pt1.y);
                     sphere.setTranslateZ(pt1.z);
                     nodeGroup.getChildren().add(sphere);
-                    //find correct feature vector
-                    int correctIndex = scatterModel.findIndexFromVisibleFacePoint(pointId1);
-                    if (correctIndex >= 0)
+                    if (correctIndex < featureVectors.size())
                         radialOverlayPane.createCallout(sphere,
                             featureVectors.get(correctIndex), subScene);
                 }
@@ -1596,15 +1701,16 @@ public class Projections3DPane extends StackPane implements
                 PickResult n = event.getPickResult();
                 final int pointId1 = n.getIntersectedFace() / 4;
                 Platform.runLater(() -> {
-                    if (pointId1 < scatterMesh3D.scatterDataProperty().get().size()) {
-                        Point3D pt1 = scatterMesh3D.scatterDataProperty().get().get(pointId1);
+                    int correctIndex = pickedFeatureIndex(n, pointId1);
+                    Point3D pt1 = correctIndex >= 0
+                        ? scatterModel.getVisibleNodePoint(correctIndex) : null;
+                    if (null != pt1) {
                         Translate highlightTranslate = new Translate(pt1.x, pt1.y, pt1.z);
                         highlightedPoint.getTransforms().clear();
                         highlightedPoint.getTransforms().add(highlightTranslate);
                         highlightedPoint.setUserData(pt1);
                         highlightedPoint.setRadius(point3dSize / 2.0);
-                        int correctIndex = scatterModel.findIndexFromVisibleFacePoint(pointId1);
-                        if (correctIndex >= 0 && correctIndex <= featureVectors.size()) {
+                        if (correctIndex < featureVectors.size()) {
                             scene.getRoot().fireEvent(new FeatureVectorEvent(
                                 FeatureVectorEvent.SELECT_FEATURE_VECTOR,
                                 featureVectors.get(correctIndex), featureLabels));
@@ -1629,6 +1735,22 @@ public class Projections3DPane extends StackPane implements
         });
     }
 
+    /**
+     * Resolves a pick on the scatter mesh to the visible node drawn nearest
+     * the hit point, so overlapping dots pick the closest point rather than
+     * whichever face was intersected first.
+     *
+     * @param pick    pick result from the scatter mesh
+     * @param pointId intersected face / 4, used when the hit point is missing
+     * @return pNodes and featureVectors index, -1 if nothing is near
+     */
+    private int pickedFeatureIndex(PickResult pick, int pointId) {
+        javafx.geometry.Point3D hit = pick.getIntersectedPoint();
+        int index = null == hit ? -1 : scatterModel.findNearestVisibleNode(
+            hit.getX(), hit.getY(), hit.getZ(), point3dSize);
+        return index >= 0 ? index : scatterModel.findIndexFromVisibleFacePoint(pointId);
+    }
+
     private TriaxialSpheroidMesh createEllipsoid(double major, double minor, double gamma, Color color) {
         TriaxialSpheroidMesh triaxialSpheroid = new TriaxialSpheroidMesh(32, major, minor, gamma);
         triaxialSpheroid.setDrawMode(DrawMode.FILL);
@@ -1650,6 +1772,8 @@ public class Projections3DPane extends StackPane implements
                 new CoordinateSet(xFactorIndex, yFactorIndex, zFactorIndex))));
         notifyIndexChange();
         ellipsoidGroup.getChildren().clear();
+        sphereToFeatureVectorMap.clear();
+        projectedSpheres.clear();
         ellipsoidToGMMessageMap.clear();
         ellipsoidToGMDataMap.clear();
         clearFeatureVectors();
@@ -1891,6 +2015,7 @@ public class Projections3DPane extends StackPane implements
     @Override
     public void addFeatureVector(FeatureVector featureVector) {
         featureVectors.add(featureVector);
+        accumulateStatistics(featureVector);
         double[] features = FeatureVector.mapToStateArray.apply(featureVector);
         HyperspaceSeed seed = new HyperspaceSeed(
             xFactorIndex, yFactorIndex, zFactorIndex,
@@ -1907,6 +2032,28 @@ public class Projections3DPane extends StackPane implements
         isDirty = true;
     }
 
+    @Override
+    public void addFeatureVectors(List<FeatureVector> newFeatureVectors) {
+        featureVectors.addAll(newFeatureVectors);
+        for (FeatureVector featureVector : newFeatureVectors) {
+            accumulateStatistics(featureVector);
+            HyperspaceSeed seed = new HyperspaceSeed(
+                xFactorIndex, yFactorIndex, zFactorIndex,
+                xDirFactorIndex, yDirFactorIndex, zDirFactorIndex,
+                FeatureVector.mapToStateArray.apply(featureVector));
+            seed.label = featureVector.getLabel();
+            seed.layer = featureVector.getLayer();
+            seed.visible = FactorLabel.visibilityByLabel(seed.label)
+                && FeatureLayer.visibilityByIndex(seed.layer);
+            hyperspaceSeeds.add(seed);
+            addPNodeFromSeed(seed);
+        }
+        //one trim and one redraw for the whole batch
+        trimQueueNow();
+        cubeWorld.setDirty(true);
+        isDirty = true;
+    }
+
     @Override
     public void addFeatureCollection(FeatureCollection featureCollection) {
         Platform.runLater(() -> {
@@ -1923,64 +2070,123 @@ public class Projections3DPane extends StackPane implements
 
         ellipsoidGroup.getChildren().clear();
         sphereToFeatureVectorMap.clear();
+        projectedSpheres.clear();
 
         //@TODO SMP Fix projection scalar so it isn't hard coded
         //Make a 3D sphere for each projected feature vector
         for(int i=0;i<featureCollection.getFeatures().size();i++){ 
-            FeatureVector featureVector = featureCollection.getFeatures().get(i);
-            Sphere sphere = new Sphere(point3dSize);
-            PhongMaterial mat = new PhongMaterial(
-                FactorLabel.getColorByLabel(featureVector.getLabel()));
-            mat.setSpecularColor(Color.TRANSPARENT);
-            sphere.setMaterial(mat);
-            sphere.setTranslateX(featureVector.getData().get(0) * projectionScalar);
-            sphere.setTranslateY(featureVector.getData().get(1) * -projectionScalar);
-            sphere.setTranslateZ(featureVector.getData().get(2) * projectionScalar);
-            ellipsoidGroup.getChildren().add(sphere);
-            sphereToFeatureVectorMap.put(sphere, featureVector);
-            //@TODO add Spinning Circle as highlight when mouse hovering
-            int sphereIndex = i;
-            sphere.addEventHandler(MouseEvent.MOUSE_ENTERED, e -> {
-                highlightedPoint = sphere;
-                updateFloatingNodes(); //Will transform location of all floating 2D nodes
-                javafx.geometry.Point3D p1 = new javafx.geometry.Point3D(
-                    sphere.getTranslateX(), sphere.getTranslateY(), sphere.getTranslateZ());
-                scene.getRoot().fireEvent(new ManifoldEvent(
-                    ManifoldEvent.SELECT_PROJECTION_POINT3D, p1));                
-
-                miniCrosshair.size = point3dSize * 4.0;
-                miniCrosshair.setCenter(p1);
-                setCircleRadiusByDistance(highlighterNeonCircle, sphere);
-                //update selection listeners with original hyper dimensions (eg RADAR plot)
-                if(sphereIndex < hyperFeatures.size())
-                    scene.getRoot().fireEvent(new FeatureVectorEvent(
-                        FeatureVectorEvent.SELECT_FEATURE_VECTOR,
-                        hyperFeatures.get(sphereIndex), featureLabels));                
-            });
-
-            //Add click handler to popup callout or point distance measurements
-            sphere.addEventHandler(MouseEvent.MOUSE_CLICKED, e -> {
-                if (e.getButton() == MouseButton.PRIMARY && !e.isControlDown())
-                    radialOverlayPane.createCallout(sphere, featureVector, subScene);
-                else if ((e.getButton() == MouseButton.PRIMARY && e.isControlDown())
-                    || (e.getButton() == MouseButton.PRIMARY && pointToPointDistanceMode)) {
-                    processDistanceClick(sphere);
-                }
-            });
-
-            featureVectors.add(featureVector);
-            HyperspaceSeed seed = new HyperspaceSeed(
-                0, 1, 2, 0, 1, 2,
-                FeatureVector.mapToStateArray.apply(featureVector));
-            seed.label = featureVector.getLabel();
-            seed.layer = featureVector.getLayer();
-            seed.score = featureVector.getScore();
-            seed.pfa = featureVector.getPfa();
-            hyperspaceSeeds.add(seed);
-            addPNodeFromSeed(seed);
+            addProjectedFeatureVector(featureCollection.getFeatures().get(i),
+                i < hyperFeatures.size() ? hyperFeatures.get(i) : null);
         }
         trimQueueNow();
     }
+
+    /**
+     * Adds a sphere and seed for one vector already in UMAP space.
+     *
+     * @param featureVector projected vector
+     * @param original matching high dimensional vector, may be null
+     */
+    private void addProjectedFeatureVector(FeatureVector featureVector, FeatureVector original) {
+        Sphere sphere = new Sphere(point3dSize);
+        PhongMaterial mat = new PhongMaterial(
+            FactorLabel.getColorByLabel(featureVector.getLabel()));
+        mat.setSpecularColor(Color.TRANSPARENT);
+        sphere.setMaterial(mat);
+        sphere.setTranslateX(featureVector.getData().get(0) * projectionScalar);
+        sphere.setTranslateY(featureVector.getData().get(1) * -projectionScalar);
+        sphere.setTranslateZ(featureVector.getData().get(2) * projectionScalar);
+        ellipsoidGroup.getChildren().add(sphere);
+        sphereToFeatureVectorMap.put(sphere, featureVector);
+        projectedSpheres.add(sphere);
+        //@TODO add Spinning Circle as highlight when mouse hovering
+        sphere.addEventHandler(MouseEvent.MOUSE_ENTERED, e -> {
+            highlightedPoint = sphere;
+            updateFloatingNodes(); //Will transform location of all floating 2D nodes
+            javafx.geometry.Point3D p1 = new javafx.geometry.Point3D(
+                sphere.getTranslateX(), sphere.getTranslateY(), sphere.getTranslateZ());
+            scene.getRoot().fireEvent(new ManifoldEvent(
+                ManifoldEvent.SELECT_PROJECTION_POINT3D, p1));                
+
+            miniCrosshair.size = point3dSize * 4.0;
+            miniCrosshair.setCenter(p1);
+            setCircleRadiusByDistance(highlighterNeonCircle, sphere);
+            //update selection listeners with original hyper dimensions (eg RADAR plot)
+            if(null != original)
+                scene.getRoot().fireEvent(new FeatureVectorEvent(
+                    FeatureVectorEvent.SELECT_FEATURE_VECTOR,
+                    original, featureLabels));                
+        });
+
+        //Add click handler to popup callout or point distance measurements
+        sphere.addEventHandler(MouseEvent.MOUSE_CLICKED, e -> {
+            if (e.getButton() == MouseButton.PRIMARY && !e.isControlDown())
+                radialOverlayPane.createCallout(sphere, featureVector, subScene);
+            else if ((e.getButton() == MouseButton.PRIMARY && e.isControlDown())
+                || (e.getButton() == MouseButton.PRIMARY && pointToPointDistanceMode)) {
+                processDistanceClick(sphere);
+            }
+        });
+
+        featureVectors.add(featureVector);
+        accumulateStatistics(featureVector);
+        HyperspaceSeed seed = new HyperspaceSeed(
+            0, 1, 2, 0, 1, 2,
+            FeatureVector.mapToStateArray.apply(featureVector));
+        seed.label = featureVector.getLabel();
+        seed.layer = featureVector.getLayer();
+        seed.score = featureVector.getScore();
+        seed.pfa = featureVector.getPfa();
+        hyperspaceSeeds.add(seed);
+        addPNodeFromSeed(seed);
+    }
+
+    /**
+     * Transforms newly arriving high dimensional vectors through the latest
+     * UMAP model on a background thread, reusing the model's cached search
+     * graph, then adds the results to the projection. Vectors whose width
+     * does not match the model are ignored.
+     *
+     * @param newFeatureVectors original feature vectors
+     */
+    public void projectFeatureVectors(List<FeatureVector> newFeatureVectors) {
+        Umap umap = latestUmap;
+        if (!projectStreamingFeatures || null == umap || null == umap.getmEmbedding()
+            || newFeatureVectors.isEmpty())
+            return;
+        projectionExecutor.submit(() -> {
+            List<FeatureVector> originals = newFeatureVectors.stream()
+                .filter(fv -> fv.getData().size() == umap.getInputDimensions())
+                .collect(Collectors.toList());
+            if (originals.isEmpty())
+                return;
+            try {
+                float[][] transformed = AnalysisUtils.transformUMAP(originals, umap);
+                List<FeatureVector> projected = new ArrayList<>(transformed.length);
+                for (int i = 0; i < transformed.length; i++) {
+                    FeatureVector origFV = originals.get(i);
+                    FeatureVector fv = new FeatureVector();
+                    for (float value : transformed[i])
+                        fv.getData().add((double) value);
+                    fv.setLabel(origFV.getLabel());
+                    fv.setScore(origFV.getScore());
+                    fv.setImageURL(origFV.getImageURL());
+                    fv.setText(origFV.getText());
+                    fv.setMetaData(origFV.getMetaData());
+                    projected.add(fv);
+                }
+                Platform.runLater(() -> {
+                    hyperFeatures.addAll(originals);
+                    for (int i = 0; i < projected.size(); i++)
+                        addProjectedFeatureVector(projected.get(i), originals.get(i));
+                    trimQueueNow();
+                    isDirty = true;
+                });
+            } catch (RuntimeException ex) {
+                Logger.getLogger(Projections3DPane.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        });
+    }
     private void processDistanceClick(Manifold3D manifold3D) {
         System.out.println("Point: " + manifold3D.toString());
         if (null == selectedManifoldA) {
@@ -2148,10 +2354,26 @@ public class Projections3DPane extends StackPane implements
         return midpointSphere;
     }
 
+    /**
+     * Folds a newly queued vector into the running statistics, starting over
+     * when the first vector of a new dimension arrives.
+     *
+     * @param featureVector vector just added to featureVectors
+     */
+    private void accumulateStatistics(FeatureVector featureVector) {
+        int dimensions = featureVector.getData().size();
+        if (featureStatistics.isEmpty() && featureStatistics.getDimensions() != dimensions)
+            featureStatistics.reset(dimensions);
+        featureStatistics.add(featureVector);
+    }
+
     public void updateMaxAndMeans() {
-        meanVector = FeatureVector.getMeanVector(featureVectors);
-        maxAbsValue = FeatureVector.getMaxAbsValue(featureVectors);
-        meanCenteredMaxAbsValue = FeatureVector.getMeanCenteredMaxAbsValue(featureVectors, meanVector);
+        //O(D) from the running statistics, a full pass only when they drifted
+        if (featureStatistics.getCount() != featureVectors.size())
+            featureStatistics = RunningStatistics.of(featureVectors);
+        meanVector = featureStatistics.getMeanVector();
+        maxAbsValue = featureStatistics.getMaxAbsValue();
+        meanCenteredMaxAbsValue = featureStatistics.getMeanCenteredMaxAbsValue();
 
         String str = "Mean Centered MaxAbsValue: " + meanCenteredMaxAbsValue;
         cubeWorld.meanVector.clear();
@@ -2171,14 +2393,36 @@ public class Projections3DPane extends StackPane implements
     }
 
     public void trimQueueNow() {
-        while (hyperspaceSeeds.size() > queueLimit) {
+        //size() on the concurrent queues is O(n) so only take it once
+        int excess = hyperspaceSeeds.size() - queueLimit;
+        for (int i = 0; i < excess; i++) {
             hyperspaceSeeds.poll();
         }
-        while (pNodes.size() > queueLimit) {
+        excess = pNodes.size() - queueLimit;
+        for (int i = 0; i < excess; i++) {
             pNodes.poll();
         }
-        while (featureVectors.size() > queueLimit) {
-            featureVectors.remove(0);
+        excess = featureVectors.size() - queueLimit;
+        if (excess > 0) {
+            List<FeatureVector> evicted = featureVectors.subList(0, excess);
+            for (FeatureVector featureVector : evicted)
+                featureStatistics.remove(featureVector);
+            evicted.clear();
+        }
+        //originals stay aligned with the tail of featureVectors
+        excess = hyperFeatures.size() - queueLimit;
+        if (excess > 0)
+            hyperFeatures.subList(0, excess).clear();
+        excess = projectedSpheres.size() - queueLimit;
+        if (excess > 0) {
+            HashSet<Sphere> evicted = new HashSet<>(excess);
+            for (int i = 0; i < excess; i++) {
+                Sphere sphere = projectedSpheres.poll();
+                sphereToFeatureVectorMap.remove(sphere);
+                evicted.add(sphere);
+            }
+            //one bulk removal rather than a scan of the children per sphere
+            ellipsoidGroup.getChildren().removeAll(evicted);
         }
     }
 
@@ -2202,6 +2446,8 @@ public class Projections3DPane extends StackPane implements
                 return;
             else if (optBT.get().equals(ButtonType.YES)) {
                 ellipsoidGroup.getChildren().clear();
+                sphereToFeatureVectorMap.clear();
+                projectedSpheres.clear();
                 ellipsoidToGMMessageMap.clear();
                 ellipsoidToGMDataMap.clear();
             }
@@ -2244,6 +2490,7 @@ public class Projections3DPane extends StackPane implements
     @Override
     public void clearFeatureVectors() {
         featureVectors.clear();
+        featureStatistics.reset(0);
     }
 
     @Override
@@ -2257,6 +2504,11 @@ public class Projections3DPane extends StackPane implements
         VisibilityMap.visibilityList.set(i, b);
     }
 
+    @Override
+    public void setVisibleByIndices(BitSet indices, boolean b) {
+        VisibilityMap.setVisibilityByIndices(pNodes.toArray(Perspective3DNode[]::new), indices, b);
+    }
+
     @Override
     public void refresh() {
         updatePNodeColorsAndVisibility();
@@ -2310,14 +2562,89 @@ public class Projections3DPane extends StackPane implements
     }
     @Override
     public void makeManifold(boolean useVisiblePoints, String label) {
+        if (concaveHulls || ALL_LABELS.equals(label)) {
+            makeManifolds(useVisiblePoints, label);
+            return;
+        }
         //Create Manifold Object based on points that share the label
         List<Point3D> labelMatchedPoints = getPointsByLabel(useVisiblePoints, label);
+        addGeneratedManifold(labelMatchedPoints,
+            Manifold3D.buildHull(labelMatchedPoints, true), label);
+    }
+
+    /**
+     * Builds the hulls for one label, or for every label when ALL is given, on
+     * a background thread. Labels are hulled in parallel and the resulting
+     * Manifold3D shapes are added on the FX thread.
+     */
+    private void makeManifolds(boolean useVisiblePoints, String label) {
+        List<String> labels = new ArrayList<>();
+        if (ALL_LABELS.equals(label)) {
+            pNodes.stream()
+                .filter(p -> !useVisiblePoints || p.visible)
+                .map(p -> p.factorAnalysisSeed.label)
+                .filter(l -> null != l && !l.isBlank())
+                .distinct()
+                .forEach(labels::add);
+        } else {
+            labels.add(label);
+        }
+        HashMap<String, List<Point3D>> labelPoints = new HashMap<>();
+        for (String l : labels)
+            labelPoints.put(l, getPointsByLabel(useVisiblePoints, l));
+        boolean concave = concaveHulls;
+        double alphaScale = concaveAlphaScale;
+        Task<List<QuickHull3D>> task = new Task<>() {
+            @Override
+            protected List<QuickHull3D> call() throws Exception {
+                return labels.parallelStream()
+                    .map(l -> buildLabelHull(labelPoints.get(l), l, concave, alphaScale))
+                    .collect(Collectors.toList());
+            }
+        };
+        task.setOnSucceeded(e -> {
+            List<QuickHull3D> hulls = task.getValue();
+            for (int i = 0; i < labels.size(); i++) {
+                if (null != hulls.get(i))
+                    addGeneratedManifold(labelPoints.get(labels.get(i)), hulls.get(i), labels.get(i));
+            }
+        });
+        Thread thread = new Thread(task, "Manifold Hulls");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static QuickHull3D buildLabelHull(List<Point3D> points, String label,
+                                              boolean concave, double alphaScale) {
+        if (points.size() < 4)
+            return null;
+        try {
+            QuickHull3D hull = concave
+                ? Manifold3D.buildConcaveHull(points, alphaScale)
+                : Manifold3D.buildHull(points, true);
+            if (hull.getNumFaces() > 0)
+                return hull;
+            Logger.getLogger(Projections3DPane.class.getName()).log(Level.WARNING,
+                "No hull surface for label {0} at this detail level", label);
+        } catch (IllegalArgumentException ex) {
+            Logger.getLogger(Projections3DPane.class.getName()).log(Level.WARNING,
+                "Could not build hull for label " + label, ex);
+        }
+        return null;
+    }
+
+    //maps the 0.1 to 1 distance tolerance onto the alpha scale, 0.5 is the default
+    private static double toleranceToAlphaScale(double tolerance) {
+        return tolerance * 2.0 * ConcaveHull.DEFAULT_ALPHA_SCALE;
+    }
+
+    private void addGeneratedManifold(List<Point3D> labelMatchedPoints, QuickHull3D hull, String label) {
         ArrayList<javafx.geometry.Point3D> fxPoints = labelMatchedPoints.stream()
             .map(p3D -> new javafx.geometry.Point3D(p3D.x,p3D.y, p3D.z))
             .collect(Collectors.toCollection(ArrayList::new));
         Manifold manifold = new Manifold(fxPoints, label, label, sceneColor);
         //Create the 3D manifold shape
-        Manifold3D manifold3D = makeHull(labelMatchedPoints, label);
+        Manifold3D manifold3D = makeHull(labelMatchedPoints, hull, label);
         manifold3D.setManifold(manifold);
         manifold3D.addEventHandler(MouseEvent.MOUSE_CLICKED, e -> {
             getScene().getRoot().fireEvent(
@@ -2355,16 +2682,48 @@ public class Projections3DPane extends StackPane implements
     }
 
     public void setHyperDimensionFeatures(FeatureCollection originalFC) {
-        hyperFeatures = originalFC.getFeatures();
+        //copied so streamed projections can append without touching the caller's collection
+        hyperFeatures = new ArrayList<>(originalFC.getFeatures());
     }
+    /**
+     * Fits UMAP to the collection on a background thread. Intermediate
+     * layouts are shown as the fit converges, and the fit can be stopped early
+     * or cancelled through STOP_UMAP_FIT and CANCEL_UMAP_FIT events.
+     */
     public void projectFeatureCollection(FeatureCollection originalFC, Umap umap) {
+        if (null != umapFitToken)
+            umapFitToken.cancel();
+        if (umapWarmStart && null == umap.getInitialEmbedding())
+            umap.setInitialEmbedding(currentLayout(originalFC, umap.getNumberComponents()));
+        CancellationToken token = new CancellationToken();
+        umapFitToken = token;
+        //the latest snapshot waiting for the FX thread, older ones are dropped
+        AtomicReference<float[][]> pendingLayout = new AtomicReference<>();
+        AtomicBoolean layoutShown = new AtomicBoolean(false);
+        EmbeddingListener embeddingListener = new EmbeddingListener() {
+            @Override
+            public void embeddingUpdated(int epoch, int nEpochs, float[][] embedding) {
+                if (null != pendingLayout.getAndSet(embedding))
+                    return;
+                Platform.runLater(() -> {
+                    float[][] layout = pendingLayout.getAndSet(null);
+                    if (null == layout || token.isCancelled() || umapFitToken != token)
+                        return;
+                    if (layoutShown.getAndSet(true))
+                        updateProjectedLayout(layout);
+                    else {
+                        setHyperDimensionFeatures(originalFC);
+                        addFeatureCollection(toProjectedCollection(originalFC, toDoubles(layout)));
+                    }
+                });
+            }
 
-        Task task = new Task() {
             @Override
-            protected FeatureCollection call() throws Exception {
-                //Scene scene = App.getAppScene();
+            public void progressUpdated(ProgressState state) {
+                double percentComplete = state.getTotal() > 0
+                    ? Double.valueOf(state.getCount()) / Double.valueOf(state.getTotal()) : -1;
                 Platform.runLater(() -> {
-                    ProgressStatus ps = new ProgressStatus("Fitting UMAP Transform...", 0.5);
+                    ProgressStatus ps = new ProgressStatus("Fitting UMAP Transform...", percentComplete);
                     ps.fillStartColor = Color.AZURE;
                     ps.fillEndColor = Color.LIME;
                     ps.innerStrokeColor = Color.AZURE;
@@ -2372,8 +2731,14 @@ public class Projections3DPane extends StackPane implements
                     scene.getRoot().fireEvent(
                         new ApplicationEvent(ApplicationEvent.UPDATE_BUSY_INDICATOR, ps));
                 });
+            }
+        };
 
-                double[][] umapMatrix = AnalysisUtils.fitUMAP(originalFC, umap);
+        Task<FeatureCollection> task = new Task<>() {
+            @Override
+            protected FeatureCollection call() throws Exception {
+                double[][] umapMatrix = AnalysisUtils.fitUMAP(originalFC, umap,
+                    token, embeddingListener, UMAP_SNAPSHOT_EPOCHS);
                 latestUmap = umap;
                 Platform.runLater(() -> {
                     ProgressStatus ps = new ProgressStatus("Converting to FeatureCollection...", 0.5);
@@ -2385,15 +2750,7 @@ public class Projections3DPane extends StackPane implements
                         new ApplicationEvent(ApplicationEvent.UPDATE_BUSY_INDICATOR, ps));
                 });
                 System.out.println("mapping projected UMAP data back to FeatureVectors...");
-                FeatureCollection projectedFC = FeatureCollection.fromData(umapMatrix);
-                for (int i = 0; i < originalFC.getFeatures().size(); i++) {
-                    FeatureVector origFV = originalFC.getFeatures().get(i);
-                    projectedFC.getFeatures().get(i).setLabel(origFV.getLabel());
-                    projectedFC.getFeatures().get(i).setScore(origFV.getScore());
-                    projectedFC.getFeatures().get(i).setImageURL(origFV.getImageURL());
-                    projectedFC.getFeatures().get(i).setText(origFV.getText());
-                    projectedFC.getFeatures().get(i).setMetaData(origFV.getMetaData());
-                }
+                FeatureCollection projectedFC = toProjectedCollection(originalFC, umapMatrix);
                 Platform.runLater(() -> {
                     ProgressStatus ps = new ProgressStatus("", -1);
                     scene.getRoot().fireEvent(
@@ -2405,20 +2762,124 @@ public class Projections3DPane extends StackPane implements
         task.setOnSucceeded(e -> {
             FeatureCollection fc;
             try {
+                pendingLayout.set(null);
                 setHyperDimensionFeatures(originalFC);
-                fc = (FeatureCollection) task.get();
+                fc = task.get();
                 if(null != originalFC.getDimensionLabels()) {
                     setDimensionLabels(originalFC.getDimensionLabels());
                     fc.setDimensionLabels(originalFC.getDimensionLabels());
                 }
                 addFeatureCollection(fc);
                 updateTrajectory3D();
+                if (!Float.isNaN(umap.getNearestNeighborRecall()))
+                    scene.getRoot().fireEvent(new CommandTerminalEvent(
+                        String.format("Nearest neighbor recall: %.3f", umap.getNearestNeighborRecall()),
+                        new Font("Consolas", 20), Color.GREEN));
             } catch (InterruptedException | ExecutionException ex) {
                 Logger.getLogger(Projections3DPane.class.getName()).log(Level.SEVERE, null, ex);
             }
         });
+        task.setOnFailed(e -> {
+            scene.getRoot().fireEvent(new ApplicationEvent(
+                ApplicationEvent.HIDE_BUSY_INDICATOR, new ProgressStatus("", -1)));
+            if (task.getException() instanceof CancellationException)
+                scene.getRoot().fireEvent(new CommandTerminalEvent("UMAP fit cancelled.",
+                    new Font("Consolas", 20), Color.YELLOW));
+            else
+                Logger.getLogger(Projections3DPane.class.getName()).log(
+                    Level.SEVERE, null, task.getException());
+        });
         Thread thread = new Thread(task);
         thread.setDaemon(true);
         thread.start();
     }
+
+    /**
+     * Current projected positions for the rows of a collection about to be
+     * fitted, matched on their feature values so the fit can warm start.
+     * Rows without a current position are NaN and get placed by the fit.
+     *
+     * @return layout in the row order of the collection, or null if no row matches
+     */
+    private float[][] currentLayout(FeatureCollection originalFC, int nComponents) {
+        //the queue limit may have dropped the oldest rows
+        int offset = hyperFeatures.size() - featureVectors.size();
+        if (offset < 0)
+            return null;
+        Map<List<Double>, float[]> positions = new HashMap<>();
+        for (int i = 0; i < featureVectors.size(); i++) {
+            List<Double> projected = featureVectors.get(i).getData();
+            if (projected.size() < nComponents)
+                return null;
+            float[] position = new float[nComponents];
+            for (int d = 0; d < nComponents; d++)
+                position[d] = projected.get(d).floatValue();
+            positions.put(hyperFeatures.get(offset + i).getData(), position);
+        }
+        int matched = 0;
+        float[][] layout = new float[originalFC.getFeatures().size()][];
+        for (int i = 0; i < layout.length; i++) {
+            float[] position = positions.get(originalFC.getFeatures().get(i).getData());
+            if (null != position) {
+                layout[i] = position.clone();
+                matched++;
+            } else {
+                layout[i] = new float[nComponents];
+                Arrays.fill(layout[i], Float.NaN);
+            }
+        }
+        return matched > 0 ? layout : null;
+    }
+
+    private static FeatureCollection toProjectedCollection(FeatureCollection originalFC, double[][] umapMatrix) {
+        FeatureCollection projectedFC = FeatureCollection.fromData(umapMatrix);
+        for (int i = 0; i < originalFC.getFeatures().size(); i++) {
+            FeatureVector origFV = originalFC.getFeatures().get(i);
+            projectedFC.getFeatures().get(i).setLabel(origFV.getLabel());
+            projectedFC.getFeatures().get(i).setScore(origFV.getScore());
+            projectedFC.getFeatures().get(i).setImageURL(origFV.getImageURL());
+            projectedFC.getFeatures().get(i).setText(origFV.getText());
+            projectedFC.getFeatures().get(i).setMetaData(origFV.getMetaData());
+        }
+        return projectedFC;
+    }
+
+    private static double[][] toDoubles(float[][] layout) {
+        double[][] values = new double[layout.length][];
+        for (int i = 0; i < layout.length; i++) {
+            values[i] = new double[layout[i].length];
+            for (int j = 0; j < layout[i].length; j++)
+                values[i][j] = layout[i][j];
+        }
+        return values;
+    }
+
+    /**
+     * Moves the projected points to an intermediate layout of a running fit
+     * in place, rather than rebuilding them as addFeatureCollection does.
+     *
+     * @param layout embedding rows in the order of the fitted collection
+     */
+    private void updateProjectedLayout(float[][] layout) {
+        //the queue limit may have dropped the oldest rows
+        int offset = layout.length - featureVectors.size();
+        HyperspaceSeed[] seeds = hyperspaceSeeds.toArray(HyperspaceSeed[]::new);
+        if (offset < 0 || seeds.length != featureVectors.size())
+            return;
+        for (int i = 0; i < seeds.length; i++) {
+            float[] row = layout[offset + i];
+            List<Double> data = featureVectors.get(i).getData();
+            for (int d = 0; d < row.length && d < data.size(); d++) {
+                data.set(d, (double) row[d]);
+                if (null != seeds[i].vector && d < seeds[i].vector.length)
+                    seeds[i].vector[d] = row[d];
+            }
+        }
+        sphereToFeatureVectorMap.forEach((sphere, featureVector) -> {
+            sphere.setTranslateX(featureVector.getData().get(0) * projectionScalar);
+            sphere.setTranslateY(featureVector.getData().get(1) * -projectionScalar);
+            sphere.setTranslateZ(featureVector.getData().get(2) * projectionScalar);
+        });
+        updateView(true);
+    }
 }
@@ -41,9 +41,7 @@ import javafx.geometry.Point3D;
 import javafx.scene.DepthTest;
 import javafx.scene.Node;
 import javafx.scene.Scene;
-import javafx.scene.SnapshotParameters;
 import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.image.WritableImage;
 import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.paint.Color;
@@ -55,7 +53,9 @@ import javafx.util.Duration;
 import org.fxyz3d.scene.CubeWorld;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.stream.IntStream;
 
 /**
  * @author Sean Phillips
@@ -70,6 +70,7 @@ public class ShadowCubeWorld extends CubeWorld {
     public ShadowPane y2ShadowPane;
     public ShadowPane z1ShadowPane;
     public ShadowPane z2ShadowPane;
+    public ShadowSplatRenderer splatRenderer;
     Crosshair3D crosshair3D;
     public List<FeatureVector> featureVectors;
     public boolean meanCentered = true;
@@ -98,6 +99,7 @@ public class ShadowCubeWorld extends CubeWorld {
     public double pointOpacity = 0.5;
     public boolean renderingEnabled = true;
     public boolean showNearsidePoints = false; //declutters view
+    public boolean densityShading = false; //additive heatmap style projections
     public double panelRectangleOpacity = 0.01;
     PROJECTION_TYPE projectionType = ShadowCubeWorld.PROJECTION_TYPE.FIXED_ORTHOGRAPHIC;
     Affine projectionAffine = new Affine();
@@ -155,6 +157,9 @@ public class ShadowCubeWorld extends CubeWorld {
         z2ShadowPane = new ShadowPane(false, false, z2AxisRectangle);
         z2ShadowPane.setOnMouseClicked(eh -> mouseDrawHandler(eh));
         getChildren().add(z2ShadowPane);
+        splatRenderer = new ShadowSplatRenderer(
+            new ShadowPane[]{x1ShadowPane, y1ShadowPane, z1ShadowPane},
+            new ShadowPane[]{x2ShadowPane, y2ShadowPane, z2ShadowPane});
 
         //hide cube control points by default
         getChildren().filtered((Node t) -> t instanceof Sphere)
@@ -329,6 +334,10 @@ public class ShadowCubeWorld extends CubeWorld {
                 pointOpacity = (double) e.object;
                 redraw(true);
             });
+            activeScene.addEventHandler(ShadowEvent.ENABLE_DENSITY_SHADING, e -> {
+                densityShading = (boolean) e.object;
+                redraw(true);
+            });
             activeScene.addEventHandler(ShadowEvent.OVERRIDE_DOMAIN_TRANSFORM, e -> {
                 overrideDomainTransform = (boolean) e.object;
                 redraw(true);
@@ -490,6 +499,11 @@ public class ShadowCubeWorld extends CubeWorld {
     }
 
     public void clearNow() {
+        clearCanvases();
+        splatRenderer.clear();
+    }
+
+    private void clearCanvases() {
         x1ShadowPane.clearAll();
         x2ShadowPane.clearAll();
         y1ShadowPane.clearAll();
@@ -498,20 +512,6 @@ public class ShadowCubeWorld extends CubeWorld {
         z2ShadowPane.clearAll();
     }
 
-    private boolean visibilityByLabel(String label) {
-        FactorLabel fl = FactorLabel.getFactorLabel(label);
-        if (null == fl)
-            return true;
-        return fl.getVisible();
-    }
-
-    private boolean visibilityByLayer(int layer) {
-        FeatureLayer fl = FeatureLayer.getFeatureLayer(layer);
-        if (null == fl)
-            return true;
-        return fl.getVisible();
-    }
-
     public void rotateByEuler(double yaw, double pitch, double roll) {
         //    Sy1, Cy = math.sin(yaw), math.cos(yaw)
         double sinYaw = Math.sin(yaw);
@@ -593,7 +593,7 @@ public class ShadowCubeWorld extends CubeWorld {
         }
 
         if (clearFirst)
-            clearNow();
+            clearCanvases();
 //@DEBUG SMP useful for debugging translations
 //        Platform.runLater(()-> {
 //        x1ShadowPane.setFill(Color.RED);
@@ -626,180 +626,196 @@ public class ShadowCubeWorld extends CubeWorld {
             minZ = meanCentered ? -meanCenteredMaxAbsValue : -maxAbsValue;
         }
         double totalSize = point3dSize * pointSizeScaling;
-        //pure CPU way using blocking Canvas draws
+        //capture everything here, project and rasterize in the background
         FeatureVector[] fvArray = featureVectors.toArray(FeatureVector[]::new);
-//        //@DEBUG SMP what are the mins and maxs
-//        System.out.println(toString()+" trying to redraw...");
-//        double miniX = fvArray[0].getData().get(xFactorIndex);
-//        double maxiX = miniX;
-//        double miniY = fvArray[1].getData().get(yFactorIndex);
-//        double maxiY = miniY;
-//        double miniZ = fvArray[2].getData().get(zFactorIndex);
-//        double maxiZ = miniZ;
-        for (FeatureVector fv : fvArray) {
-            if (null != fv) {
-//                //@DEBUG SMP
-//                if(fv.getData().get(xFactorIndex)<miniX)
-//                    miniX = fv.getData().get(xFactorIndex);
-//                if(fv.getData().get(xFactorIndex)>maxiX)
-//                    maxiX = fv.getData().get(xFactorIndex);
-//
-//                if(fv.getData().get(yFactorIndex)<miniY)
-//                    miniY = fv.getData().get(yFactorIndex);
-//                if(fv.getData().get(yFactorIndex)>maxiY)
-//                    maxiY = fv.getData().get(yFactorIndex);
-//
-//                if(fv.getData().get(zFactorIndex)<miniZ)
-//                    miniZ = fv.getData().get(zFactorIndex);
-//                if(fv.getData().get(zFactorIndex)>maxiZ)
-//                    maxiZ = fv.getData().get(zFactorIndex);
-
-                if (visibilityByLabel(fv.getLabel())
-                    && visibilityByLayer(fv.getLayer())) {
-                    drawToPanes(fv, totalSize, minX, minY, minZ,
-                        rangeX, rangeY, rangeZ, domainWidth);
-                }
-            }
-        }
-//        System.out.println("Mins/Maxs: "
-//            +  miniX + ", " + maxiX + " "
-//            +  miniY + ", " + maxiY + " "
-//            +  miniZ + ", " + maxiZ
-//        );
-        copyCanvas(x1ShadowPane, x2ShadowPane);
-        copyCanvas(y1ShadowPane, y2ShadowPane);
-        copyCanvas(z1ShadowPane, z2ShadowPane);
+        ShadowFrame frame = new ShadowFrame(totalSize);
+        splatRenderer.densityShading = densityShading;
+        splatRenderer.render((int) rangeX, (int) rangeY, !clearFirst,
+            () -> frame.project(fvArray));
         dirty = false;
     }
 
-    private Color getColorByMode(FeatureVector fv, double minX, double minY, double minZ, double domainRange) {
-        switch (colorMode) {
-            case COLOR_BY_LAYER -> {
-                return FeatureLayer.getColorByIndex(fv.getLayer());
-            }
-            case COLOR_BY_GRADIENT -> {
-                double xCoord = fv.getData().get(xFactorIndex);// - xShift;
-                double yCoord = fv.getData().get(yFactorIndex);// - yShift;
-                double zCoord = fv.getData().get(zFactorIndex);// - zShift;
-                return Color.color(
-                    Utils.clamp(0, DataUtils.normalize(xCoord, minX, minX + domainRange), 1),
-                    Utils.clamp(0, DataUtils.normalize(yCoord, minY, minY + domainRange), 1),
-                    Utils.clamp(0, DataUtils.normalize(zCoord, minZ, minZ + domainRange), 1),
-                    1.0).deriveColor(1, 100, 100, 1); //full saturation/brightness/opacity
+    /**
+     * Everything one background projection pass needs, copied on the FX
+     * thread so later changes to the cube cannot tear a frame.
+     * Field names mirror the cube's so the color logic reads the same.
+     */
+    private class ShadowFrame {
+        final HyperspaceEvent.COLOR_MODE colorMode = ShadowCubeWorld.this.colorMode;
+        final ColorMapEvent.COLOR_MAP colorMap = ShadowCubeWorld.this.colorMap;
+        final int xFactorIndex = ShadowCubeWorld.this.xFactorIndex;
+        final int yFactorIndex = ShadowCubeWorld.this.yFactorIndex;
+        final int zFactorIndex = ShadowCubeWorld.this.zFactorIndex;
+        final double xShift = ShadowCubeWorld.this.xShift;
+        final double yShift = ShadowCubeWorld.this.yShift;
+        final double zShift = ShadowCubeWorld.this.zShift;
+        final double minX = ShadowCubeWorld.this.minX;
+        final double minY = ShadowCubeWorld.this.minY;
+        final double minZ = ShadowCubeWorld.this.minZ;
+        final double rangeX = ShadowCubeWorld.this.rangeX;
+        final double rangeY = ShadowCubeWorld.this.rangeY;
+        final double rangeZ = ShadowCubeWorld.this.rangeZ;
+        final double domainWidth = ShadowCubeWorld.this.domainWidth;
+        final double pointScale = ShadowCubeWorld.this.pointScale;
+        //Should we reflect the Y values so positive is up?
+        final double reflect = reflectY ? -1 : 1;
+        //null for the straight orthographic transform
+        final Affine affine = projectionType == PROJECTION_TYPE.FIXED_ORTHOGRAPHIC
+            ? null : projectionAffine.clone();
+        final HashMap<String, FactorLabel> labels = new HashMap<>(FactorLabel.globalLabelMap);
+        final HashMap<Integer, FeatureLayer> layers = new HashMap<>();
+        final int maxIndex;
+        final float radius;
+
+        ShadowFrame(double totalSize) {
+            radius = (float) totalSize;
+            maxIndex = Math.max(xFactorIndex, Math.max(yFactorIndex, zFactorIndex));
+            for (FeatureLayer featureLayer : FeatureLayer.getFeatureLayers())
+                layers.put(featureLayer.getIndex(), featureLayer);
+        }
+
+        ShadowSplatRenderer.Splats project(FeatureVector[] fvArray) {
+            ShadowSplatRenderer.Splats splats = new ShadowSplatRenderer.Splats(fvArray.length);
+            splats.radius = radius;
+            IntStream.range(0, fvArray.length).parallel()
+                .forEach(i -> project(fvArray[i], i, splats));
+            return splats;
+        }
+
+        //leaves the color at 0 for points that are not drawn
+        void project(FeatureVector fv, int i, ShadowSplatRenderer.Splats splats) {
+            if (null == fv || fv.getData().size() <= maxIndex)
+                return;
+            FactorLabel factorLabel = labels.get(fv.getLabel());
+            if (null != factorLabel && !factorLabel.getVisible())
+                return;
+            FeatureLayer featureLayer = layers.get(fv.getLayer());
+            if (null != featureLayer && !featureLayer.getVisible())
+                return;
+            double x, y, zminus, zplus;
+            double xCoord = fv.getData().get(xFactorIndex) - xShift;
+            double yCoord = fv.getData().get(yFactorIndex) - yShift;
+            double zCoord = fv.getData().get(zFactorIndex) - zShift;
+            //Straight coordinate transform
+            if (null == affine) {
+                x = ((pointScale * xCoord - minX) * rangeX) / domainWidth;
+                y = ((pointScale * reflect * yCoord - minY) * rangeY) / domainWidth;
+                zminus = ((pointScale * -zCoord - minZ) * rangeZ) / domainWidth;
+                zplus = ((pointScale * zCoord - minZ) * rangeZ) / domainWidth;
+            } else { //first apply rotations
+                Point3D affinePoint3D = affine.transform(xCoord, yCoord, zCoord);
+                x = ((pointScale * affinePoint3D.getX() - minX) * rangeX) / domainWidth;
+                y = ((pointScale * reflect * affinePoint3D.getY() - minY) * rangeY) / domainWidth;
+                zminus = ((pointScale * -affinePoint3D.getZ() - minZ) * rangeZ) / domainWidth;
+                zplus = ((pointScale * affinePoint3D.getZ() - minZ) * rangeZ) / domainWidth;
             }
-            case COLOR_BY_SCORE -> {
-                if (null != colorMap) switch (colorMap) {
-                    case HSB_WHEEL_SPECTRUM -> {
-                        return Color.hsb(
-                            DataUtils.normalize(fv.getScore(),
-                                ColorMap.domainMin1, ColorMap.domainMax1) * 360.0,
-                            1, 1);
-                    }
-                    case ONE_COLOR_SPECTRUM -> {
-                        return ColorMap.getInterpolatedColor(fv.getScore(),
-                                ColorMap.domainMin1, ColorMap.domainMax1,
-                                ColorMap.singleColorSpectrum)
-                            .deriveColor(1, 100, 100, 1); //full saturation/brightness/opacity;
-                    }
-                    case TWO_COLOR_SPECTRUM -> {
-                        return ColorMap.twoColorInterpolation(
-                                ColorMap.twoColorSpectrum1, ColorMap.twoColorSpectrum2,
-                                ColorMap.domainMin1, ColorMap.domainMax1,
-                                fv.getScore())
-                            .deriveColor(1, 100, 100, 1); //full saturation/brightness/opacity;
-                    }
-                    case PRESET_COLOR_PALETTE -> {
-                        return ColorMap.currentMap.get(
+            //the transformed coordinate combinations for each panel
+            splats.u[ShadowSplatRenderer.X_PROJECTION][i] = (float) x;
+            splats.v[ShadowSplatRenderer.X_PROJECTION][i] = (float) y;
+            splats.u[ShadowSplatRenderer.Y_PROJECTION][i] = (float) zminus;
+            splats.v[ShadowSplatRenderer.Y_PROJECTION][i] = (float) y;
+            splats.u[ShadowSplatRenderer.Z_PROJECTION][i] = (float) x;
+            splats.v[ShadowSplatRenderer.Z_PROJECTION][i] = (float) zplus;
+            Color pointColor = getColorByMode(fv);
+            if (null != pointColor)
+                splats.colors[i] = ShadowSplatRenderer.premultiplied(pointColor.getRed(),
+                    pointColor.getGreen(), pointColor.getBlue(), pointColor.getOpacity());
+        }
+
+        Color getColorByMode(FeatureVector fv) {
+            switch (colorMode) {
+                case COLOR_BY_LAYER -> {
+                    FeatureLayer layer = layers.get(fv.getLayer());
+                    return null == layer ? Color.ALICEBLUE : layer.getColor();
+                }
+                case COLOR_BY_GRADIENT -> {
+                    List<Double> data = fv.getData();
+                    double xCoord = data.get(xFactorIndex);// - xShift;
+                    double yCoord = data.get(yFactorIndex);// - yShift;
+                    double zCoord = data.get(zFactorIndex);// - zShift;
+                    return Color.color(
+                        Utils.clamp(0, DataUtils.normalize(xCoord, minX, minX + domainWidth), 1),
+                        Utils.clamp(0, DataUtils.normalize(yCoord, minY, minY + domainWidth), 1),
+                        Utils.clamp(0, DataUtils.normalize(zCoord, minZ, minZ + domainWidth), 1),
+                        1.0).deriveColor(1, 100, 100, 1); //full saturation/brightness/opacity
+                }
+                case COLOR_BY_SCORE -> {
+                    if (null != colorMap) switch (colorMap) {
+                        case HSB_WHEEL_SPECTRUM -> {
+                            return Color.hsb(
                                 DataUtils.normalize(fv.getScore(),
-                                    ColorMap.domainMin1, ColorMap.domainMax1))
-                            .deriveColor(1, 100, 100, 1); //full saturation/brightness/opacity;
-                    }
-                    default -> {
-                        return Color.ALICEBLUE;
+                                    ColorMap.domainMin1, ColorMap.domainMax1) * 360.0,
+                                1, 1);
+                        }
+                        case ONE_COLOR_SPECTRUM -> {
+                            return ColorMap.getInterpolatedColor(fv.getScore(),
+                                    ColorMap.domainMin1, ColorMap.domainMax1,
+                                    ColorMap.singleColorSpectrum)
+                                .deriveColor(1, 100, 100, 1); //full saturation/brightness/opacity;
+                        }
+                        case TWO_COLOR_SPECTRUM -> {
+                            return ColorMap.twoColorInterpolation(
+                                    ColorMap.twoColorSpectrum1, ColorMap.twoColorSpectrum2,
+                                    ColorMap.domainMin1, ColorMap.domainMax1,
+                                    fv.getScore())
+                                .deriveColor(1, 100, 100, 1); //full saturation/brightness/opacity;
+                        }
+                        case PRESET_COLOR_PALETTE -> {
+                            return ColorMap.currentMap.get(
+                                    DataUtils.normalize(fv.getScore(),
+                                        ColorMap.domainMin1, ColorMap.domainMax1))
+                                .deriveColor(1, 100, 100, 1); //full saturation/brightness/opacity;
+                        }
+                        default -> {
+                            return Color.ALICEBLUE;
+                        }
                     }
+                    return Color.ALICEBLUE;
                 }
-                return Color.ALICEBLUE;
-            }
-            case COLOR_BY_PFA -> {
-                if (null != colorMap) switch (colorMap) {
-                    case HSB_WHEEL_SPECTRUM -> {
-                        return Color.hsb(
-                            DataUtils.normalize(fv.getPfa(),
-                                ColorMap.domainMin2, ColorMap.domainMax2) * 360.0,
-                            1, 1);
-                    }
-                    case ONE_COLOR_SPECTRUM -> {
-                        return ColorMap.getInterpolatedColor(fv.getPfa(),
-                                ColorMap.domainMin2, ColorMap.domainMax2,
-                                ColorMap.singleColorSpectrum)
-                            .deriveColor(1, 100, 100, 1); //full saturation/brightness/opacity;
-                    }
-                    case TWO_COLOR_SPECTRUM -> {
-                        return ColorMap.twoColorInterpolation(
-                                ColorMap.twoColorSpectrum1, ColorMap.twoColorSpectrum2,
-                                ColorMap.domainMin2, ColorMap.domainMax2,
-                                fv.getPfa())
-                            .deriveColor(1, 100, 100, 1); //full saturation/brightness/opacity    ;
-                    }
-                    case PRESET_COLOR_PALETTE -> {
-                        return ColorMap.currentMap.get(
-                            DataUtils.normalize(fv.getPfa(),
-                                ColorMap.domainMin2, ColorMap.domainMax2)
-                        );
-                    }
-                    default -> {
-                        return Color.ALICEBLUE;
+                case COLOR_BY_PFA -> {
+                    if (null != colorMap) switch (colorMap) {
+                        case HSB_WHEEL_SPECTRUM -> {
+                            return Color.hsb(
+                                DataUtils.normalize(fv.getPfa(),
+                                    ColorMap.domainMin2, ColorMap.domainMax2) * 360.0,
+                                1, 1);
+                        }
+                        case ONE_COLOR_SPECTRUM -> {
+                            return ColorMap.getInterpolatedColor(fv.getPfa(),
+                                    ColorMap.domainMin2, ColorMap.domainMax2,
+                                    ColorMap.singleColorSpectrum)
+                                .deriveColor(1, 100, 100, 1); //full saturation/brightness/opacity;
+                        }
+                        case TWO_COLOR_SPECTRUM -> {
+                            return ColorMap.twoColorInterpolation(
+                                    ColorMap.twoColorSpectrum1, ColorMap.twoColorSpectrum2,
+                                    ColorMap.domainMin2, ColorMap.domainMax2,
+                                    fv.getPfa())
+                                .deriveColor(1, 100, 100, 1); //full saturation/brightness/opacity    ;
+                        }
+                        case PRESET_COLOR_PALETTE -> {
+                            return ColorMap.currentMap.get(
+                                DataUtils.normalize(fv.getPfa(),
+                                    ColorMap.domainMin2, ColorMap.domainMax2)
+                            );
+                        }
+                        default -> {
+                            return Color.ALICEBLUE;
+                        }
                     }
+                    return Color.ALICEBLUE;
+                }
+                case COLOR_BY_LABEL -> {
+                    FactorLabel factorLabel = labels.get(fv.getLabel());
+                    return null == factorLabel ? Color.ALICEBLUE : factorLabel.getColor();
+                }
+                default -> {
+                    return Color.ALICEBLUE;
                 }
-                return Color.ALICEBLUE;
-            }
-            case COLOR_BY_LABEL -> {
-                return FactorLabel.getColorByLabel(fv.getLabel());
-            }
-            default -> {
-                return Color.ALICEBLUE;
             }
         }
     }
 
-    private void drawToPanes(FeatureVector fv, double totalSize, double minX, double minY, double minZ,
-                             double rangeX, double rangeY, double rangeZ, double domainWidth) {
-        double x, y, zminus, zplus;
-        Point3D affinePoint3D = null;
-        double xCoord = fv.getData().get(xFactorIndex) - xShift;
-        double yCoord = fv.getData().get(yFactorIndex) - yShift;
-        double zCoord = fv.getData().get(zFactorIndex) - zShift;
-        Color pointColor = getColorByMode(fv, minX, minY, minZ, domainWidth);
-        //Should we reflect the Y values so positive is up?
-        double reflect = reflectY ? -1 : 1;
-        //Straight coordinate transform
-        if (projectionType == PROJECTION_TYPE.FIXED_ORTHOGRAPHIC) {
-            x = ((pointScale * xCoord - minX) * rangeX) / domainWidth;
-            y = ((pointScale * reflect * yCoord - minY) * rangeY) / domainWidth;
-            zminus = ((pointScale * -zCoord - minZ) * rangeZ) / domainWidth;
-            zplus = ((pointScale * zCoord - minZ) * rangeZ) / domainWidth;
-        } else { //first apply rotations
-            affinePoint3D = projectionAffine.transform(
-                xCoord, yCoord, zCoord);
-            x = ((pointScale * affinePoint3D.getX() - minX) * rangeX) / domainWidth;
-            y = ((pointScale * reflect * affinePoint3D.getY() - minY) * rangeY) / domainWidth;
-            zminus = ((pointScale * -affinePoint3D.getZ() - minZ) * rangeZ) / domainWidth;
-            zplus = ((pointScale * affinePoint3D.getZ() - minZ) * rangeZ) / domainWidth;
-        }
-
-        //draw circles at the transformed coordinate combinations
-        x1ShadowPane.drawPoint(x, y, totalSize, pointColor);
-        y1ShadowPane.drawPoint(zminus, y, totalSize, pointColor);
-        z1ShadowPane.drawPoint(x, zplus, totalSize, pointColor);
-    }
-
-    private void copyCanvas(ShadowPane src, ShadowPane dst) {
-        SnapshotParameters params = new SnapshotParameters();
-        params.setFill(Color.TRANSPARENT);
-        WritableImage image = src.getCanvas().snapshot(params, null);
-        dst.getCanvas().getGraphicsContext2D().drawImage(image, 0, 0);
-    }
-
     private void mouseDrawHandler(MouseEvent me) {
         if (me.getSource() instanceof ShadowPane) {
             ShadowPane shadowPane = (ShadowPane) me.getSource();
@@ -0,0 +1,465 @@
+package edu.jhuapl.trinity.javafx.javafx3d;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import edu.jhuapl.trinity.javafx.components.panes.ShadowPane;
+import javafx.application.Platform;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+/**
+ * Rasterizes the three ShadowCubeWorld projections into int ARGB buffers off
+ * the FX thread and publishes them through PixelBuffer backed images. Each
+ * projection is split into horizontal bands so all bands of all projections
+ * rasterize in parallel without sharing pixels, and points are drawn in list
+ * order within a band so overlap looks the same as sequential drawing.
+ * <p>
+ * The mirrored panel of each projection shows the same image, so nothing is
+ * snapshotted or copied between canvases. Requests coalesce: while one frame
+ * renders only the newest pending request is kept. Finished frames are handed
+ * to the FX thread without waiting on it; if the FX thread falls behind only
+ * the newest finished frame is shown.
+ *
+ * @author Sean Phillips
+ */
+public class ShadowSplatRenderer {
+    public static final int X_PROJECTION = 0;
+    public static final int Y_PROJECTION = 1;
+    public static final int Z_PROJECTION = 2;
+    private static final int PROJECTIONS = 3;
+    private static final int BAND_HEIGHT = 32;
+    private static final int SUBPIXELS = 4; //stamp center offsets per pixel along each axis
+
+    /**
+     * Screen coordinates and colors of the points for one frame. Colors are
+     * premultiplied ARGB, a color of 0 skips the point.
+     */
+    public static class Splats {
+        public final float[][] u = new float[PROJECTIONS][];
+        public final float[][] v = new float[PROJECTIONS][];
+        public final int[] colors;
+        public final int count;
+        public float radius;
+
+        public Splats(int count) {
+            this.count = count;
+            colors = new int[count];
+            for (int p = 0; p < PROJECTIONS; p++) {
+                u[p] = new float[count];
+                v[p] = new float[count];
+            }
+        }
+    }
+
+    //a copy of the back buffers on its way to the FX thread
+    private static final class Frame {
+        final int width;
+        final int height;
+        final int[][] pixels = new int[PROJECTIONS][];
+
+        Frame(int width, int height) {
+            this.width = width;
+            this.height = height;
+            for (int p = 0; p < PROJECTIONS; p++)
+                pixels[p] = new int[width * height];
+        }
+    }
+
+    private final ShadowPane[] panes;
+    private final ShadowPane[] mirrorPanes;
+    private final ThreadPoolExecutor executor;
+    //written only by the render thread
+    private int width = 0;
+    private int height = 0;
+    private final int[][] pixels = new int[PROJECTIONS][];
+    private float[][] density = null;
+    //finished frame waiting for the FX thread, and one it has released for reuse
+    private final AtomicReference<Frame> pendingFrame = new AtomicReference<>();
+    private final AtomicReference<Frame> spareFrame = new AtomicReference<>();
+    //touched only on the FX thread
+    private final List<PixelBuffer<IntBuffer>> pixelBuffers =
+        new ArrayList<>(Collections.nCopies(PROJECTIONS, null));
+    public boolean densityShading = false;
+    //how fast accumulated density saturates to full opacity
+    public double densityGain = 0.35;
+
+    /**
+     * @param panes       x1, y1, z1 panes the projections are drawn on
+     * @param mirrorPanes x2, y2, z2 panes that show the same images
+     */
+    public ShadowSplatRenderer(ShadowPane[] panes, ShadowPane[] mirrorPanes) {
+        this.panes = panes;
+        this.mirrorPanes = mirrorPanes;
+        executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(1), r -> {
+            Thread thread = new Thread(r, "Shadow Splat Renderer");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.DiscardOldestPolicy());
+    }
+
+    /**
+     * Queues a frame. The splats are produced on the render thread so the
+     * caller only captures state.
+     *
+     * @param width      raster width in pixels
+     * @param height     raster height in pixels
+     * @param accumulate draw over the previous frame instead of clearing it
+     * @param splats     produces the frame's points
+     */
+    public void render(int width, int height, boolean accumulate, Supplier<Splats> splats) {
+        if (width < 1 || height < 1)
+            return;
+        boolean density = densityShading;
+        double gain = densityGain;
+        executor.execute(() -> {
+            try {
+                renderFrame(width, height, accumulate, density, gain, splats.get());
+            } catch (Exception ex) {
+                Logger.getLogger(ShadowSplatRenderer.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        });
+    }
+
+    /**
+     * Blanks all projections. Must be called on the FX thread.
+     */
+    public void clear() {
+        for (PixelBuffer<IntBuffer> pixelBuffer : pixelBuffers) {
+            if (null != pixelBuffer) {
+                Arrays.fill(pixelBuffer.getBuffer().array(), 0);
+                pixelBuffer.updateBuffer(b -> null);
+            }
+        }
+    }
+
+    private void renderFrame(int frameWidth, int frameHeight, boolean accumulate,
+                             boolean densityMode, double gain, Splats splats) {
+        rasterize(frameWidth, frameHeight, accumulate, densityMode, gain, splats);
+        publish();
+    }
+
+    /**
+     * Draws a frame into the back buffers without publishing it.
+     */
+    void rasterize(int frameWidth, int frameHeight, boolean accumulate,
+                   boolean densityMode, double gain, Splats splats) {
+        if (frameWidth != width || frameHeight != height) {
+            width = frameWidth;
+            height = frameHeight;
+            for (int p = 0; p < PROJECTIONS; p++)
+                pixels[p] = new int[width * height];
+            density = null;
+            accumulate = false;
+        }
+        if (densityMode && null == density)
+            density = new float[PROJECTIONS][width * height * 4];
+        if (!densityMode)
+            density = null; //release it when shading is switched off
+        Stamps stamps = new Stamps(splats.radius);
+        int bands = (height + BAND_HEIGHT - 1) / BAND_HEIGHT;
+        int[][] bandStarts = new int[PROJECTIONS][];
+        int[][] bandPoints = new int[PROJECTIONS][];
+        IntStream.range(0, PROJECTIONS).parallel().forEach(projection -> {
+            bandStarts[projection] = new int[bands + 1];
+            bandPoints[projection] = bucket(projection, splats, stamps, bands, bandStarts[projection]);
+        });
+        boolean keep = accumulate;
+        IntStream.range(0, PROJECTIONS * bands).parallel().forEach(task -> {
+            int projection = task / bands;
+            int band = task % bands;
+            if (densityMode)
+                accumulateBand(projection, band, keep, gain, splats, stamps,
+                    bandStarts[projection], bandPoints[projection]);
+            else
+                splatBand(projection, band, keep, splats, stamps,
+                    bandStarts[projection], bandPoints[projection]);
+        });
+    }
+
+    int[] getPixels(int projection) {
+        return pixels[projection];
+    }
+
+    /**
+     * Anti aliased disc coverage for one radius, precomputed at SUBPIXELS x
+     * SUBPIXELS center offsets so splatting is table lookups.
+     */
+    static final class Stamps {
+        final int reach; //pixels from the center pixel to the stamp edge
+        final int size;
+        final int[][] coverage; //0-255 per stamp pixel, per offset
+        final int[][] spans; //first and last + 1 covered column per row, per offset
+
+        Stamps(float radius) {
+            reach = (int) Math.ceil(radius + 0.5f);
+            size = 2 * reach + 2;
+            coverage = new int[SUBPIXELS * SUBPIXELS][size * size];
+            spans = new int[SUBPIXELS * SUBPIXELS][size * 2];
+            for (int qy = 0; qy < SUBPIXELS; qy++) {
+                for (int qx = 0; qx < SUBPIXELS; qx++) {
+                    int q = qy * SUBPIXELS + qx;
+                    float centerX = reach + (qx + 0.5f) / SUBPIXELS;
+                    float centerY = reach + (qy + 0.5f) / SUBPIXELS;
+                    for (int row = 0; row < size; row++) {
+                        int first = size;
+                        int last = 0;
+                        float dy = row + 0.5f - centerY;
+                        for (int col = 0; col < size; col++) {
+                            float dx = col + 0.5f - centerX;
+                            float c = radius + 0.5f - (float) Math.sqrt(dx * dx + dy * dy);
+                            int value = Math.round(Math.max(0f, Math.min(1f, c)) * 255f);
+                            coverage[q][row * size + col] = value;
+                            if (value > 0) {
+                                first = Math.min(first, col);
+                                last = col + 1;
+                            }
+                        }
+                        spans[q][row * 2] = first;
+                        spans[q][row * 2 + 1] = last;
+                    }
+                }
+            }
+        }
+
+        //stamp offset index for a center coordinate
+        static int offset(float coordinate) {
+            return Math.min(SUBPIXELS - 1, (int) ((coordinate - (float) Math.floor(coordinate)) * SUBPIXELS));
+        }
+    }
+
+    //lists each drawable point under every band its stamp touches, in point order
+    private int[] bucket(int projection, Splats splats, Stamps stamps, int bands, int[] starts) {
+        float[] us = splats.u[projection];
+        float[] vs = splats.v[projection];
+        int[] firstBand = new int[splats.count];
+        int[] lastBand = new int[splats.count];
+        for (int i = 0; i < splats.count; i++) {
+            firstBand[i] = -1;
+            float u = us[i];
+            float v = vs[i];
+            if (splats.colors[i] == 0 || Float.isNaN(u) || Float.isNaN(v))
+                continue;
+            int ox = (int) Math.floor(u) - stamps.reach;
+            int oy = (int) Math.floor(v) - stamps.reach;
+            if (ox >= width || ox + stamps.size <= 0 || oy >= height || oy + stamps.size <= 0)
+                continue;
+            firstBand[i] = Math.max(0, oy) / BAND_HEIGHT;
+            lastBand[i] = Math.min(height - 1, oy + stamps.size - 1) / BAND_HEIGHT;
+            for (int band = firstBand[i]; band <= lastBand[i]; band++)
+                starts[band + 1]++;
+        }
+        for (int band = 0; band < bands; band++)
+            starts[band + 1] += starts[band];
+        int[] points = new int[starts[bands]];
+        int[] next = Arrays.copyOf(starts, bands);
+        for (int i = 0; i < splats.count; i++)
+            for (int band = firstBand[i]; band >= 0 && band <= lastBand[i]; band++)
+                points[next[band]++] = i;
+        return points;
+    }
+
+    //source over compositing of anti aliased discs within one band of rows
+    private void splatBand(int projection, int band, boolean keep, Splats splats,
+                           Stamps stamps, int[] starts, int[] points) {
+        int rowStart = band * BAND_HEIGHT;
+        int rowEnd = Math.min(height, rowStart + BAND_HEIGHT);
+        int[] target = pixels[projection];
+        if (!keep)
+            Arrays.fill(target, rowStart * width, rowEnd * width, 0);
+        float[] us = splats.u[projection];
+        float[] vs = splats.v[projection];
+        int size = stamps.size;
+        for (int k = starts[band]; k < starts[band + 1]; k++) {
+            int i = points[k];
+            int color = splats.colors[i];
+            boolean opaque = (color >>> 24) == 0xFF;
+            int q = Stamps.offset(vs[i]) * SUBPIXELS + Stamps.offset(us[i]);
+            int[] coverage = stamps.coverage[q];
+            int[] spans = stamps.spans[q];
+            int ox = (int) Math.floor(us[i]) - stamps.reach;
+            int oy = (int) Math.floor(vs[i]) - stamps.reach;
+            int y1 = Math.min(rowEnd, oy + size);
+            for (int y = Math.max(rowStart, oy); y < y1; y++) {
+                int row = y - oy;
+                int col1 = Math.min(spans[row * 2 + 1], width - ox);
+                int pixel = y * width + ox;
+                for (int col = Math.max(spans[row * 2], -ox); col < col1; col++) {
+                    int c = coverage[row * size + col];
+                    if (c == 255 && opaque)
+                        target[pixel + col] = color;
+                    else if (c > 0)
+                        target[pixel + col] = blend(target[pixel + col], color, c);
+                }
+            }
+        }
+    }
+
+    //additive density of straight colors, resolved to premultiplied ARGB per band
+    private void accumulateBand(int projection, int band, boolean keep, double gain, Splats splats,
+                                Stamps stamps, int[] starts, int[] points) {
+        int rowStart = band * BAND_HEIGHT;
+        int rowEnd = Math.min(height, rowStart + BAND_HEIGHT);
+        float[] sums = density[projection];
+        if (!keep)
+            Arrays.fill(sums, rowStart * width * 4, rowEnd * width * 4, 0f);
+        float[] us = splats.u[projection];
+        float[] vs = splats.v[projection];
+        int size = stamps.size;
+        for (int k = starts[band]; k < starts[band + 1]; k++) {
+            int i = points[k];
+            int color = splats.colors[i];
+            float alpha = (color >>> 24) / 255f;
+            //undo the premultiply, density supplies the opacity
+            float scale = alpha > 0f ? 1f / (255f * alpha) : 0f;
+            float red = ((color >> 16) & 0xFF) * scale;
+            float green = ((color >> 8) & 0xFF) * scale;
+            float blue = (color & 0xFF) * scale;
+            int q = Stamps.offset(vs[i]) * SUBPIXELS + Stamps.offset(us[i]);
+            int[] coverage = stamps.coverage[q];
+            int[] spans = stamps.spans[q];
+            int ox = (int) Math.floor(us[i]) - stamps.reach;
+            int oy = (int) Math.floor(vs[i]) - stamps.reach;
+            int y1 = Math.min(rowEnd, oy + size);
+            for (int y = Math.max(rowStart, oy); y < y1; y++) {
+                int row = y - oy;
+                int col1 = Math.min(spans[row * 2 + 1], width - ox);
+                int pixel = y * width + ox;
+                for (int col = Math.max(spans[row * 2], -ox); col < col1; col++) {
+                    int c = coverage[row * size + col];
+                    if (c == 0)
+                        continue;
+                    float weight = c / 255f * alpha;
+                    int index = (pixel + col) * 4;
+                    sums[index] += red * weight;
+                    sums[index + 1] += green * weight;
+                    sums[index + 2] += blue * weight;
+                    sums[index + 3] += weight;
+                }
+            }
+        }
+        int[] target = pixels[projection];
+        for (int pixel = rowStart * width; pixel < rowEnd * width; pixel++) {
+            float weight = sums[pixel * 4 + 3];
+            if (weight <= 0f) {
+                target[pixel] = 0;
+                continue;
+            }
+            float opacity = (float) (1.0 - Math.exp(-weight * gain));
+            float scale = opacity * 255f / weight;
+            target[pixel] = argb(opacity * 255f,
+                sums[pixel * 4] * scale, sums[pixel * 4 + 1] * scale, sums[pixel * 4 + 2] * scale);
+        }
+    }
+
+    /**
+     * Premultiplied source over of a color scaled by coverage.
+     *
+     * @param dst      premultiplied ARGB underneath
+     * @param src      premultiplied ARGB drawn on top
+     * @param coverage 0-255 fraction of the pixel the source covers
+     * @return the composited premultiplied ARGB
+     */
+    static int blend(int dst, int src, int coverage) {
+        int srcA = mul255(src >>> 24, coverage);
+        int keep = 255 - srcA;
+        return ((srcA + mul255(dst >>> 24, keep)) << 24)
+            | ((mul255((src >> 16) & 0xFF, coverage) + mul255((dst >> 16) & 0xFF, keep)) << 16)
+            | ((mul255((src >> 8) & 0xFF, coverage) + mul255((dst >> 8) & 0xFF, keep)) << 8)
+            | (mul255(src & 0xFF, coverage) + mul255(dst & 0xFF, keep));
+    }
+
+    //a * b / 255 rounded, for a and b in 0-255
+    private static int mul255(int a, int b) {
+        int t = a * b + 128;
+        return (t + (t >> 8)) >> 8;
+    }
+
+    static int argb(float a, float r, float g, float b) {
+        return (Math.min(255, Math.round(a)) << 24)
+            | (Math.min(255, Math.round(r)) << 16)
+            | (Math.min(255, Math.round(g)) << 8)
+            | Math.min(255, Math.round(b));
+    }
+
+    /**
+     * @param red     0-1
+     * @param green   0-1
+     * @param blue    0-1
+     * @param opacity 0-1
+     * @return premultiplied ARGB, never 0 for a visible color
+     */
+    public static int premultiplied(double red, double green, double blue, double opacity) {
+        return argb((float) (opacity * 255), (float) (red * opacity * 255),
+            (float) (green * opacity * 255), (float) (blue * opacity * 255));
+    }
+
+    //copies the finished buffers into a frame and hands it to the FX thread
+    private void publish() {
+        Frame frame = spareFrame.getAndSet(null);
+        if (null == frame || frame.width != width || frame.height != height)
+            frame = new Frame(width, height);
+        for (int p = 0; p < PROJECTIONS; p++)
+            System.arraycopy(pixels[p], 0, frame.pixels[p], 0, width * height);
+        //a frame the FX thread has not picked up yet is superseded
+        if (null == pendingFrame.getAndSet(frame))
+            Platform.runLater(this::show);
+    }
+
+    //FX thread: copies the newest frame into the image buffers
+    private void show() {
+        Frame frame = pendingFrame.getAndSet(null);
+        if (null == frame)
+            return;
+        for (int p = 0; p < PROJECTIONS; p++) {
+            PixelBuffer<IntBuffer> pixelBuffer = pixelBuffers.get(p);
+            if (null == pixelBuffer || pixelBuffer.getWidth() != frame.width
+                || pixelBuffer.getHeight() != frame.height) {
+                pixelBuffer = new PixelBuffer<>(frame.width, frame.height,
+                    IntBuffer.allocate(frame.width * frame.height),
+                    PixelFormat.getIntArgbPreInstance());
+                pixelBuffers.set(p, pixelBuffer);
+                WritableImage image = new WritableImage(pixelBuffer);
+                panes[p].setSplatImage(image);
+                mirrorPanes[p].setSplatImage(image);
+            }
+            System.arraycopy(frame.pixels[p], 0, pixelBuffer.getBuffer().array(), 0,
+                frame.width * frame.height);
+            pixelBuffer.updateBuffer(b -> null);
+        }
+        spareFrame.set(frame);
+    }
+}
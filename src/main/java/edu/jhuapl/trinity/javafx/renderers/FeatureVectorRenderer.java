@@ -23,6 +23,7 @@ package edu.jhuapl.trinity.javafx.renderers;
 import edu.jhuapl.trinity.data.messages.FeatureCollection;
 import edu.jhuapl.trinity.data.messages.FeatureVector;
 
+import java.util.BitSet;
 import java.util.List;
 
 /**
@@ -33,6 +34,16 @@ public interface FeatureVectorRenderer {
 
     public void addFeatureVector(FeatureVector featureVector);
 
+    /**
+     * Adds a batch of feature vectors in one pass. Renderers should override
+     * this to apply the whole batch with a single view update.
+     *
+     * @param featureVectors vectors in arrival order
+     */
+    public default void addFeatureVectors(List<FeatureVector> featureVectors) {
+        featureVectors.forEach(this::addFeatureVector);
+    }
+
     public List<FeatureVector> getAllFeatureVectors();
 
     public void locateFeatureVector(FeatureVector featureVector);
@@ -41,6 +52,18 @@ public interface FeatureVectorRenderer {
 
     public void setVisibleByIndex(int i, boolean b);
 
+    /**
+     * Sets the visibility of every index in the set. Renderers should override
+     * this to apply the whole set with a single visibility update.
+     *
+     * @param indices positions in getAllFeatureVectors()
+     * @param b       visibility to apply
+     */
+    public default void setVisibleByIndices(BitSet indices, boolean b) {
+        for (int i = indices.nextSetBit(0); i >= 0; i = indices.nextSetBit(i + 1))
+            setVisibleByIndex(i, b);
+    }
+
     public void refresh();
 
     public void setSpheroidAnchor(boolean animate, int index);
@@ -0,0 +1,127 @@
+package edu.jhuapl.trinity.messages;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import edu.jhuapl.trinity.data.messages.FeatureVector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Collects FeatureVectors arriving from the feed and hands them downstream as
+ * a single list. A batch is emitted when it reaches the max batch size or when
+ * flush() is called after the linger time has elapsed since the first pending
+ * vector arrived.
+ *
+ * @author Sean Phillips
+ */
+public class FeatureVectorBatcher {
+    public static int DEFAULT_MAX_BATCH_SIZE = 1000;
+    public static long DEFAULT_LINGER_MS = 0;
+
+    private final Consumer<List<FeatureVector>> emitter;
+    private List<FeatureVector> pending;
+    private int maxBatchSize;
+    private long lingerNanos;
+    private long firstArrivalNanos;
+
+    public FeatureVectorBatcher(Consumer<List<FeatureVector>> emitter) {
+        this(DEFAULT_MAX_BATCH_SIZE, DEFAULT_LINGER_MS, emitter);
+    }
+
+    public FeatureVectorBatcher(int maxBatchSize, long lingerMS,
+                                Consumer<List<FeatureVector>> emitter) {
+        this.emitter = emitter;
+        setMaxBatchSize(maxBatchSize);
+        setLingerMS(lingerMS);
+        pending = new ArrayList<>(this.maxBatchSize);
+    }
+
+    public void add(FeatureVector featureVector) {
+        List<FeatureVector> batch = null;
+        synchronized (this) {
+            if (pending.isEmpty())
+                firstArrivalNanos = System.nanoTime();
+            pending.add(featureVector);
+            if (pending.size() >= maxBatchSize)
+                batch = take();
+        }
+        if (null != batch)
+            emitter.accept(batch);
+    }
+
+    /**
+     * Emits whatever is pending if the linger time has elapsed.
+     *
+     * @param force emit regardless of the linger time
+     */
+    public void flush(boolean force) {
+        List<FeatureVector> batch = null;
+        synchronized (this) {
+            if (pending.isEmpty())
+                return;
+            if (force || System.nanoTime() - firstArrivalNanos >= lingerNanos)
+                batch = take();
+        }
+        if (null != batch)
+            emitter.accept(batch);
+    }
+
+    private List<FeatureVector> take() {
+        List<FeatureVector> batch = pending;
+        pending = new ArrayList<>(Math.min(maxBatchSize, Math.max(16, batch.size())));
+        return batch;
+    }
+
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * @return the maxBatchSize
+     */
+    public synchronized int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * @param maxBatchSize the maxBatchSize to set
+     */
+    public synchronized void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+    }
+
+    /**
+     * @return the linger time in milliseconds
+     */
+    public synchronized long getLingerMS() {
+        return TimeUnit.NANOSECONDS.toMillis(lingerNanos);
+    }
+
+    /**
+     * @param lingerMS how long a partial batch may wait for more vectors
+     */
+    public synchronized void setLingerMS(long lingerMS) {
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, lingerMS));
+    }
+}
@@ -0,0 +1,315 @@
+package edu.jhuapl.trinity.messages;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import edu.jhuapl.trinity.data.messages.FeatureVector;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary columnar framing for FeatureVector messages sent over ZeroMQ.
+ * All values are little endian.
+ * <pre>
+ * int    magic          'TRFV'
+ * byte   version        FORMAT_VERSION
+ * byte   value width    4 (float32) or 8 (float64)
+ * short  type length    N
+ * byte[] messageType    N bytes UTF-8
+ * int    dimension      D
+ * D x value width       data payload
+ * long   messageId, imageId, frameId
+ * double score, pfa
+ * int    layer
+ * string entityId, label, imageURL, text, component, componentName,
+ *        componentType, topic, version
+ * int    bbox count (-1 for null) followed by doubles
+ * int    metaData count followed by key/value strings
+ * </pre>
+ * Strings are an int byte length (-1 for null) followed by UTF-8 bytes.
+ *
+ * @author Sean Phillips
+ */
+public final class FeatureVectorFrameCodec {
+    /**
+     * 'TRFV' as read from a little endian buffer
+     */
+    public static final int MAGIC = 0x56465254;
+    public static final byte FORMAT_VERSION = 1;
+    public static final byte FLOAT32 = 4;
+    public static final byte FLOAT64 = 8;
+
+    private FeatureVectorFrameCodec() {
+    }
+
+    /**
+     * Cheap check used to tell binary frames apart from JSON text.
+     *
+     * @param frame raw bytes received from the socket
+     * @return true if the frame starts with the binary magic
+     */
+    public static boolean isBinaryFrame(byte[] frame) {
+        return null != frame && frame.length >= 8
+            && wrap(frame).getInt(0) == MAGIC;
+    }
+
+    /**
+     * @param frame binary frame
+     * @return the messageType carried in the header
+     * @throws IllegalArgumentException if the header is malformed
+     */
+    public static String readMessageType(byte[] frame) {
+        ByteBuffer buffer = wrap(frame);
+        try {
+            readHeader(buffer);
+            return readMessageType(buffer);
+        } catch (BufferUnderflowException ex) {
+            throw new IllegalArgumentException("Truncated FeatureVector frame", ex);
+        }
+    }
+
+    /**
+     * Decodes just the data payload into a primitive array, widening float32
+     * values as necessary. Nothing is boxed.
+     *
+     * @param frame binary frame
+     * @return the feature vector data
+     * @throws IllegalArgumentException if the frame is malformed
+     */
+    public static double[] decodeData(byte[] frame) {
+        ByteBuffer buffer = wrap(frame);
+        try {
+            byte width = readHeader(buffer);
+            readMessageType(buffer);
+            return readData(buffer, width);
+        } catch (BufferUnderflowException ex) {
+            throw new IllegalArgumentException("Truncated FeatureVector frame", ex);
+        }
+    }
+
+    /**
+     * Every length and count in the frame is checked against the bytes that
+     * remain before anything is allocated, so a corrupt frame fails fast.
+     *
+     * @param frame binary frame
+     * @return the decoded feature vector
+     * @throws IllegalArgumentException if the frame is malformed
+     */
+    public static FeatureVector decode(byte[] frame) {
+        ByteBuffer buffer = wrap(frame);
+        try {
+            byte width = readHeader(buffer);
+            String messageType = readMessageType(buffer);
+            double[] values = readData(buffer, width);
+
+            FeatureVector fv = new FeatureVector();
+            fv.setMessageType(messageType);
+            List<Double> data = new ArrayList<>(values.length);
+            for (double value : values)
+                data.add(value);
+            fv.setData(data);
+            fv.setMessageId(buffer.getLong());
+            fv.setImageId(buffer.getLong());
+            fv.setFrameId(buffer.getLong());
+            fv.setScore(buffer.getDouble());
+            fv.setPfa(buffer.getDouble());
+            fv.setLayer(buffer.getInt());
+            fv.setEntityId(readString(buffer));
+            fv.setLabel(readString(buffer));
+            fv.setImageURL(readString(buffer));
+            String text = readString(buffer);
+            fv.setText(null == text ? "" : text);
+            fv.setComponent(readString(buffer));
+            fv.setComponentName(readString(buffer));
+            fv.setComponentType(readString(buffer));
+            fv.setTopic(readString(buffer));
+            fv.setVersion(readString(buffer));
+            int bboxCount = buffer.getInt();
+            if (bboxCount < -1)
+                throw new IllegalArgumentException("Invalid bbox count: " + bboxCount);
+            checkRemaining(buffer, bboxCount, 8, "bbox count");
+            if (bboxCount >= 0) {
+                List<Double> bbox = new ArrayList<>(bboxCount);
+                for (int i = 0; i < bboxCount; i++)
+                    bbox.add(buffer.getDouble());
+                fv.setBbox(bbox);
+            }
+            int metaCount = buffer.getInt();
+            if (metaCount < 0)
+                throw new IllegalArgumentException("Invalid metaData count: " + metaCount);
+            //each entry is at least two string lengths
+            checkRemaining(buffer, metaCount, 8, "metaData count");
+            HashMap<String, String> metaData = new HashMap<>(Math.max(16, metaCount * 2));
+            for (int i = 0; i < metaCount; i++)
+                metaData.put(readString(buffer), readString(buffer));
+            fv.setMetaData(metaData);
+            return fv;
+        } catch (BufferUnderflowException ex) {
+            throw new IllegalArgumentException("Truncated FeatureVector frame", ex);
+        }
+    }
+
+    /**
+     * @param fv         the feature vector to encode
+     * @param valueWidth FLOAT32 or FLOAT64
+     * @return binary frame ready to send
+     */
+    public static byte[] encode(FeatureVector fv, byte valueWidth) {
+        if (valueWidth != FLOAT32 && valueWidth != FLOAT64)
+            throw new IllegalArgumentException("Unsupported value width: " + valueWidth);
+        byte[] messageType = bytes(null == fv.getMessageType()
+            ? FeatureVector.TYPESTRING : fv.getMessageType());
+        List<Double> data = fv.getData();
+        byte[][] strings = new byte[][]{
+            bytes(fv.getEntityId()), bytes(fv.getLabel()), bytes(fv.getImageURL()),
+            bytes(fv.getText()), bytes(fv.getComponent()), bytes(fv.getComponentName()),
+            bytes(fv.getComponentType()), bytes(fv.getTopic()), bytes(fv.getVersion())
+        };
+        Map<String, String> metaData = null == fv.getMetaData() ? Map.of() : fv.getMetaData();
+        byte[][] meta = new byte[metaData.size() * 2][];
+        int m = 0;
+        for (Map.Entry<String, String> entry : metaData.entrySet()) {
+            meta[m++] = bytes(entry.getKey());
+            meta[m++] = bytes(entry.getValue());
+        }
+
+        int size = 4 + 1 + 1 + 2 + messageType.length + 4
+            + data.size() * valueWidth
+            + 8 * 3 + 8 * 2 + 4
+            + 4 + (null == fv.getBbox() ? 0 : fv.getBbox().size() * 8)
+            + 4;
+        for (byte[] s : strings)
+            size += 4 + (null == s ? 0 : s.length);
+        for (byte[] s : meta)
+            size += 4 + (null == s ? 0 : s.length);
+
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.put(FORMAT_VERSION);
+        buffer.put(valueWidth);
+        buffer.putShort((short) messageType.length);
+        buffer.put(messageType);
+        buffer.putInt(data.size());
+        if (valueWidth == FLOAT32) {
+            for (Double d : data)
+                buffer.putFloat(d.floatValue());
+        } else {
+            for (Double d : data)
+                buffer.putDouble(d);
+        }
+        buffer.putLong(fv.getMessageId());
+        buffer.putLong(fv.getImageId());
+        buffer.putLong(fv.getFrameId());
+        buffer.putDouble(fv.getScore());
+        buffer.putDouble(fv.getPfa());
+        buffer.putInt(fv.getLayer());
+        for (byte[] s : strings)
+            writeBytes(buffer, s);
+        if (null == fv.getBbox()) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(fv.getBbox().size());
+            for (Double d : fv.getBbox())
+                buffer.putDouble(d);
+        }
+        buffer.putInt(metaData.size());
+        for (byte[] s : meta)
+            writeBytes(buffer, s);
+        return buffer.array();
+    }
+
+    private static ByteBuffer wrap(byte[] frame) {
+        return ByteBuffer.wrap(frame).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static byte readHeader(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC)
+            throw new IllegalArgumentException("Not a binary FeatureVector frame");
+        byte version = buffer.get();
+        if (version != FORMAT_VERSION)
+            throw new IllegalArgumentException("Unsupported frame version: " + version);
+        byte width = buffer.get();
+        if (width != FLOAT32 && width != FLOAT64)
+            throw new IllegalArgumentException("Unsupported value width: " + width);
+        return width;
+    }
+
+    private static String readMessageType(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        checkRemaining(buffer, length, 1, "messageType length");
+        String messageType = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return messageType;
+    }
+
+    private static double[] readData(ByteBuffer buffer, byte width) {
+        int dimension = buffer.getInt();
+        if (dimension < 0)
+            throw new IllegalArgumentException("Invalid dimension: " + dimension);
+        checkRemaining(buffer, dimension, width, "dimension");
+        double[] values = new double[dimension];
+        if (width == FLOAT32) {
+            float[] floats = new float[dimension];
+            buffer.asFloatBuffer().get(floats);
+            for (int i = 0; i < dimension; i++)
+                values[i] = floats[i];
+        } else {
+            buffer.asDoubleBuffer().get(values);
+        }
+        buffer.position(buffer.position() + dimension * width);
+        return values;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0)
+            return null;
+        checkRemaining(buffer, length, 1, "string length");
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static void checkRemaining(ByteBuffer buffer, int count, int width, String field) {
+        if ((long) count * width > buffer.remaining())
+            throw new IllegalArgumentException("Invalid " + field + ": " + count
+                + " exceeds the " + buffer.remaining() + " bytes remaining");
+    }
+
+    private static byte[] bytes(String value) {
+        return null == value ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(ByteBuffer buffer, byte[] value) {
+        if (null == value) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(value.length);
+            buffer.put(value);
+        }
+    }
+}
@@ -20,9 +20,12 @@ package edu.jhuapl.trinity.messages;
  * #L%
  */
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import edu.jhuapl.trinity.data.FactorAnalysisState;
 import edu.jhuapl.trinity.data.messages.ChannelFrame;
 import edu.jhuapl.trinity.data.messages.FeatureVector;
@@ -36,11 +39,24 @@ import javafx.application.Platform;
 import javafx.scene.Scene;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
+ * Routes raw JSON messages to typed handlers. The messageType field is read
+ * with a streaming parser and used to look up a registered route, so the
+ * payload is only scanned once before the per type ObjectReader takes over.
+ *
  * @author Sean Phillips
  */
 public class MessageProcessor {
+    public static final String MESSAGE_TYPE_FIELD = "messageType";
     /**
      * Provides deserializaton support for JSON messages
      */
@@ -49,6 +65,18 @@ public class MessageProcessor {
      * Scene reference that enables the processor to route data to events
      */
     private Scene scene;
+    /**
+     * Registered message routes keyed by messageType value
+     */
+    private final Map<String, MessageRoute<?>> routes = new ConcurrentHashMap<>();
+    /**
+     * Decoders for binary framed messages keyed by messageType value
+     */
+    private final Map<String, Function<byte[], ?>> binaryDecoders = new ConcurrentHashMap<>();
+    /**
+     * Optional batching stage for FeatureVectors. Null means one event per vector.
+     */
+    private volatile FeatureVectorBatcher batcher = null;
 
     public MessageProcessor() {
         this(null);
@@ -62,56 +90,196 @@ public class MessageProcessor {
         // Also used later during conversion from objects by jackson.
 //        mapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
 //        mapper.registerModule(new JavaTimeModule());
+        registerDefaultRoutes();
+        registerBinaryDecoder(FeatureVector.TYPESTRING, FeatureVectorFrameCodec::decode);
     }
 
-    public void process(String message) throws JsonProcessingException, IOException {
-        if (ChannelFrame.isChannelFrame(message)) {
-            ChannelFrame frame = getMapper().readValue(message, ChannelFrame.class);
+    private void registerDefaultRoutes() {
+        register(ChannelFrame.TYPESTRING, ChannelFrame.class, frame -> {
             System.out.println("Frame: " + frame.getFrameId());
             System.out.println("Channel Values: " + frame.getChannelData());
             //@fire event to load data in JavaFX Scene
             Platform.runLater(() -> {
                 scene.getRoot().fireEvent(new ChannelFrameDataEvent(frame));
             });
-        } else if (FactorAnalysisState.isFactorAnalysisState(message)) {
-            FactorAnalysisState fas = getMapper().readValue(message, FactorAnalysisState.class);
+        });
+        register(FactorAnalysisState.TYPESTRING, FactorAnalysisState.class, fas -> {
             System.out.println("Frame ID: " + fas.getFrameId());
             System.out.println("Factor Values: " + fas.getFactors());
             //@fire event to load data in JavaFX Scene
             Platform.runLater(() -> {
                 scene.getRoot().fireEvent(new FactorAnalysisDataEvent(fas));
             });
-        } else if (FeatureVector.isFeatureVector(message)) {
-            FeatureVector featureVector = getMapper().readValue(message, FeatureVector.class);
+        });
+        register(FeatureVector.TYPESTRING, FeatureVector.class, featureVector -> {
             //@DEBUG SMP helpful debug prints
             //System.out.println("Image URL: " + object.getImageURL());
             //System.out.println("Feature Vector: " + object.getData());
+            FeatureVectorBatcher currentBatcher = batcher;
+            if (null != currentBatcher) {
+                currentBatcher.add(featureVector);
+                return;
+            }
             //fire event to load data in JavaFX Scene
-            //Platform.runLater(() -> {
             scene.getRoot().fireEvent(new FeatureVectorEvent(
                 FeatureVectorEvent.NEW_FEATURE_VECTOR, featureVector));
-            //});
-        } else if (GaussianMixture.isGaussianMixture(message)) {
-            GaussianMixture gaussianMixture = getMapper().readValue(message, GaussianMixture.class);
-            //@DEBUG SMP helpful debug prints
-            //System.out.println("GaussianMixture Msg Received: " + gaussianMixture.getCovarianceMode());
+        });
+        register(GaussianMixture.TYPESTRING, GaussianMixture.class, gaussianMixture -> {
             //fire event to load data in JavaFX Scene
             Platform.runLater(() -> {
                 scene.getRoot().fireEvent(new GaussianMixtureEvent(
                     GaussianMixtureEvent.NEW_GAUSSIAN_MIXTURE, gaussianMixture));
             });
-        } else if (LabelConfig.isLabelConfig(message)) {
-            LabelConfig labelConfig = getMapper().readValue(message, LabelConfig.class);
-            //@DEBUG SMP helpful debug prints
-            //System.out.println("GaussianMixture Msg Received: " + gaussianMixture.getCovarianceMode());
+        });
+        register(LabelConfig.TYPESTRING, LabelConfig.class, labelConfig -> {
             //fire event to load data in JavaFX Scene
             Platform.runLater(() -> {
                 scene.getRoot().fireEvent(new FeatureVectorEvent(
                     FeatureVectorEvent.NEW_LABEL_CONFIG, labelConfig));
             });
+        });
+    }
+
+    /**
+     * Registers (or replaces) the handler for a given messageType value.
+     * New message classes plug in here instead of adding another branch
+     * to process().
+     *
+     * @param messageType the exact value of the messageType field
+     * @param type        class the message body is deserialized into
+     * @param handler     consumer invoked with the deserialized message
+     * @param <T>         message class
+     */
+    public <T> void register(String messageType, Class<T> type, Consumer<T> handler) {
+        routes.put(messageType, new MessageRoute<>(type, mapper.readerFor(type), handler));
+    }
+
+    /**
+     * @param messageType the messageType value to remove
+     */
+    public void unregister(String messageType) {
+        routes.remove(messageType);
+    }
+
+    public boolean isRegistered(String messageType) {
+        return routes.containsKey(messageType);
+    }
+
+    /**
+     * Registers a decoder for binary frames of the given messageType. Decoded
+     * objects are handed to the same handler registered for the JSON form.
+     *
+     * @param messageType the messageType value carried in the frame header
+     * @param decoder     converts a raw frame into the registered message class
+     */
+    public void registerBinaryDecoder(String messageType, Function<byte[], ?> decoder) {
+        binaryDecoders.put(messageType, decoder);
+    }
+
+    /**
+     * Processes a raw frame off the wire. Frames carrying the binary magic are
+     * decoded directly; anything else is treated as UTF-8 JSON text.
+     * A binary frame that can not be decoded is logged and dropped.
+     *
+     * @param frame raw message bytes
+     * @throws IOException if a JSON message can not be parsed
+     */
+    public void process(byte[] frame) throws IOException {
+        if (!FeatureVectorFrameCodec.isBinaryFrame(frame)) {
+            process(new String(frame, StandardCharsets.UTF_8));
+            return;
+        }
+        try {
+            String messageType = FeatureVectorFrameCodec.readMessageType(frame);
+            Function<byte[], ?> decoder = binaryDecoders.get(messageType);
+            MessageRoute<?> route = routes.get(messageType);
+            if (null == decoder || null == route) {
+                Logger.getLogger(MessageProcessor.class.getName()).log(Level.WARNING,
+                    "No binary route for messageType: {0}", messageType);
+                return;
+            }
+            route.accept(decoder.apply(frame));
+        } catch (RuntimeException ex) {
+            Logger.getLogger(MessageProcessor.class.getName()).log(Level.WARNING, null, ex);
+        }
+    }
+
+    public void process(String message) throws JsonProcessingException, IOException {
+        String messageType = readMessageType(message);
+        if (null == messageType)
+            return;
+        MessageRoute<?> route = routes.get(messageType);
+        if (null != route)
+            route.dispatch(message);
+    }
+
+    /**
+     * Enables batched FeatureVector delivery. Batches are fired as a single
+     * NEW_FEATURE_VECTOR_BATCH event.
+     *
+     * @param maxBatchSize largest number of vectors in one event
+     * @param lingerMS     how long a partial batch may wait before flush() emits it
+     */
+    public void enableBatching(int maxBatchSize, long lingerMS) {
+        FeatureVectorBatcher currentBatcher = batcher;
+        if (null != currentBatcher) {
+            currentBatcher.setMaxBatchSize(maxBatchSize);
+            currentBatcher.setLingerMS(lingerMS);
+        } else {
+            batcher = new FeatureVectorBatcher(maxBatchSize, lingerMS, this::fireBatch);
         }
     }
 
+    /**
+     * Disables batching, emitting anything still pending first.
+     */
+    public void disableBatching() {
+        FeatureVectorBatcher currentBatcher = batcher;
+        batcher = null;
+        if (null != currentBatcher)
+            currentBatcher.flush(true);
+    }
+
+    /**
+     * Called at the end of each feed tick so partial batches are delivered.
+     *
+     * @param force ignore the linger time
+     */
+    public void flush(boolean force) {
+        FeatureVectorBatcher currentBatcher = batcher;
+        if (null != currentBatcher)
+            currentBatcher.flush(force);
+    }
+
+    private void fireBatch(List<FeatureVector> featureVectors) {
+        scene.getRoot().fireEvent(new FeatureVectorEvent(
+            FeatureVectorEvent.NEW_FEATURE_VECTOR_BATCH, featureVectors));
+    }
+
+    /**
+     * Pulls the top level messageType value out of a JSON message using the
+     * streaming parser. Nested objects and arrays (ie the data payload) are
+     * skipped over without being bound to anything.
+     *
+     * @param message raw JSON text
+     * @return the messageType value or null if the message has none
+     * @throws IOException if the message is not well formed JSON
+     */
+    public String readMessageType(String message) throws IOException {
+        try (JsonParser parser = mapper.getFactory().createParser(message)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT)
+                return null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (MESSAGE_TYPE_FIELD.equals(field) && value == JsonToken.VALUE_STRING)
+                    return parser.getText();
+                parser.skipChildren();
+            }
+        }
+        return null;
+    }
+
     /**
      * @return the mapper
      */
@@ -124,6 +292,8 @@ public class MessageProcessor {
      */
     public void setMapper(ObjectMapper mapper) {
         this.mapper = mapper;
+        //readers are bound to the mapper configuration so rebuild them
+        routes.replaceAll((messageType, route) -> route.rebind(mapper));
     }
 
     /**
@@ -139,4 +309,29 @@ public class MessageProcessor {
     public void setScene(Scene scene) {
         this.scene = scene;
     }
+
+    private static class MessageRoute<T> {
+        private final Class<T> type;
+        private final ObjectReader reader;
+        private final Consumer<T> handler;
+
+        MessageRoute(Class<T> type, ObjectReader reader, Consumer<T> handler) {
+            this.type = type;
+            this.reader = reader;
+            this.handler = handler;
+        }
+
+        void dispatch(String message) throws IOException {
+            T value = reader.readValue(message);
+            handler.accept(value);
+        }
+
+        void accept(Object value) {
+            handler.accept(type.cast(value));
+        }
+
+        MessageRoute<T> rebind(ObjectMapper mapper) {
+            return new MessageRoute<>(type, mapper.readerFor(type), handler);
+        }
+    }
 }
@@ -20,17 +20,21 @@ package edu.jhuapl.trinity.messages;
  * #L%
  */
 
+import edu.jhuapl.trinity.messages.ZeroMQSubscriberConfig.BACKPRESSURE;
 import edu.jhuapl.trinity.messages.ZeroMQSubscriberConfig.CONNECTION;
+import edu.jhuapl.trinity.messages.ZeroMQSubscriberConfig.FORMAT;
+import edu.jhuapl.trinity.utils.BoundedRingBuffer;
 import org.zeromq.SocketType;
 import org.zeromq.ZContext;
 import org.zeromq.ZMQ;
 import org.zeromq.ZMQ.Socket;
 
 import java.io.IOException;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -52,13 +56,24 @@ public class ZeroMQFeedManager extends ScheduledThreadPoolExecutor {
     public static int DEFAULT_QUEUE_LIMIT = 1000;
     private int queueLimit = DEFAULT_QUEUE_LIMIT;
     /**
-     * thread safe collection of BoundingBox objects
+     * lock free bounded buffer of raw message frames between the receive
+     * thread and the processing thread. Sized to queueLimit on startProcessing()
      */
-    private ConcurrentLinkedQueue<String> concurrentMessageQueue;
+    private volatile BoundedRingBuffer<byte[]> messageBuffer;
     /**
-     * When in playback mode limit how many detection data blocks to process
+     * When false the receive thread never drops messages and instead blocks
+     * until there is room in the buffer
      */
     public boolean queueLimitEnabled = true;
+    /**
+     * how long the receive thread waits on the poller before rechecking state
+     */
+    public static long POLL_TIMEOUT_MS = 100;
+    /**
+     * how long the receive thread parks between attempts when the BLOCK
+     * policy is waiting on a full buffer
+     */
+    public static long BLOCK_PARK_NANOS = 100_000;
     /**
      * how often to wake up to poll the queue
      */
@@ -70,19 +85,24 @@ public class ZeroMQFeedManager extends ScheduledThreadPoolExecutor {
     /**
      * starts/stops the scheduled thread from updating the view
      */
-    public boolean enabled = false;
+    public volatile boolean enabled = false;
 
-    private boolean connected = false;
+    private volatile boolean connected = false;
     private String currentHost = null;
     private Socket subscriber;
     private int threadGeneration = 0;
 
+    private final AtomicLong receivedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong processedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
     public ZeroMQFeedManager(int corePoolSize,
                              ZeroMQSubscriberConfig config, MessageProcessor processor) {
         super(corePoolSize);
         this.config = config;
         this.processor = processor;
-        concurrentMessageQueue = new ConcurrentLinkedQueue<>();
+        messageBuffer = new BoundedRingBuffer<>(queueLimit);
         setThreadFactory((Runnable r) -> {
             Thread t = new Thread(r);
             t.setDaemon(true);
@@ -94,6 +114,10 @@ public class ZeroMQFeedManager extends ScheduledThreadPoolExecutor {
     public void startProcessing() {
         enabled = true;
         scheduledFixedRate = config.updateRateMS;
+        if (config.batchFeatureVectors)
+            processor.enableBatching(config.maxBatchSize, config.batchLingerMS);
+        else
+            processor.disableBatching();
         if (null != subscriber) {
             disconnect(false);
         }
@@ -111,39 +135,38 @@ public class ZeroMQFeedManager extends ScheduledThreadPoolExecutor {
             currentHost = config.host;
             connected = true;
             System.out.println("Starting ZeroMQ subscriber scheduled thread " + threadGeneration);
+            if (messageBuffer.getCapacity() != getQueueLimit())
+                messageBuffer = new BoundedRingBuffer<>(getQueueLimit());
             this.scheduleAtFixedRate(() -> {
                 if (enabled) {
+                    //anything escaping here would cancel the fixed rate task for good
                     try {
                         processQueue();
-                    } catch (IOException ex) {
+                    } catch (IOException | RuntimeException ex) {
                         Logger.getLogger(ZeroMQFeedManager.class.getName()).log(Level.SEVERE, null, ex);
                     }
                 }
             }, 0, scheduledFixedRate, TimeUnit.MILLISECONDS);
             threadGeneration++;
+            //block in the poller until messages arrive rather than sleep polling
+            ZMQ.Poller poller = context.createPoller(1);
+            poller.register(subscriber, ZMQ.Poller.POLLIN);
             while (connected && !Thread.currentThread().isInterrupted()) {
-                if (enabled) {
-                    int wdt = 0; //watch dog timer
-                    String contents = ""; //if this is ever null then the zmq buffer is empty
-                    //Poll messages from ZMQ buffer up to a limit of 1000
-                    while (null != contents && wdt < 5000) {
-                        contents = null; //reset contents to null prior to ZMQ recvStr
-                        //@DEBUG SMP Useful debugging print
-                        //System.out.println("Attempting to recvStr from ZeroMQ...");
-                        // Read single message contents.
-                        contents = subscriber.recvStr(ZMQ.DONTWAIT); //Null on no message
-                        if (null != contents) {
-                            //@DEBUG SMP Useful debugging print
-                            //System.out.println("Recieved: " + contents);
-                            concurrentMessageQueue.add(contents);
-                            trimQueueNow();
-                        } else
-                            break; //null from recvStr means nothing in the zmq buffer
-                        wdt++; //keep ticking watch dog timer
-                    }
+                if (!enabled) {
+                    //leave messages in the zmq buffer until processing is enabled
+                    Thread.sleep(scheduledFixedRate);
+                    continue;
+                }
+                if (poller.poll(POLL_TIMEOUT_MS) <= 0 || !poller.pollin(0))
+                    continue;
+                // Read everything currently available. Raw bytes so binary frames skip text decoding
+                byte[] contents;
+                while (connected && null != (contents = subscriber.recv(ZMQ.DONTWAIT))) {
+                    receivedCount.incrementAndGet();
+                    enqueue(contents);
                 }
-                Thread.sleep(scheduledFixedRate);
             }
+            poller.close();
             System.out.println("Ending ZeroMQ subscriber scheduled thread " + threadGeneration);
         } catch (Exception ex) {
             Logger.getLogger(ZeroMQFeedManager.class.getName()).log(Level.SEVERE, null, ex);
@@ -152,6 +175,29 @@ public class ZeroMQFeedManager extends ScheduledThreadPoolExecutor {
         }
     }
 
+    private void enqueue(byte[] contents) {
+        BoundedRingBuffer<byte[]> buffer = messageBuffer;
+        BACKPRESSURE policy = queueLimitEnabled ? config.backpressure : BACKPRESSURE.BLOCK;
+        switch (policy) {
+            case DROP_NEWEST:
+                if (!buffer.offer(contents))
+                    droppedCount.incrementAndGet();
+                break;
+            case BLOCK:
+                while (!buffer.offer(contents)) {
+                    if (!connected || Thread.currentThread().isInterrupted()) {
+                        droppedCount.incrementAndGet();
+                        return;
+                    }
+                    LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                }
+                break;
+            default:
+                droppedCount.addAndGet(buffer.offerEvictOldest(contents));
+                break;
+        }
+    }
+
     public void setEnableProcessing(boolean enabled) {
         this.enabled = enabled;
     }
@@ -161,27 +207,79 @@ public class ZeroMQFeedManager extends ScheduledThreadPoolExecutor {
     }
 
     private void processQueue() throws IOException {
-//        System.out.print("Setting took.... ");
-//        long startTime = System.nanoTime();
-        //retrieve all the messages from the queue
-        String[] messages = concurrentMessageQueue.toArray(new String[0]);
-        concurrentMessageQueue.clear();
-        for (String message : messages) {
-            processor.process(message);
+        BoundedRingBuffer<byte[]> buffer = messageBuffer;
+        boolean binary = config.format == FORMAT.BINARY;
+        //only drain what was present at the start of the tick so a fast feed
+        //can not keep this thread from ever flushing a batch
+        int count = buffer.size();
+        byte[] message;
+        try {
+            for (int i = 0; i < count && null != (message = buffer.poll()); i++) {
+                //one bad message must not cost the rest of the tick
+                try {
+                    if (binary)
+                        processor.process(message);
+                    else
+                        processor.process(new String(message, ZMQ.CHARSET));
+                    processedCount.incrementAndGet();
+                } catch (IOException | RuntimeException ex) {
+                    failedCount.incrementAndGet();
+                    Logger.getLogger(ZeroMQFeedManager.class.getName()).log(Level.WARNING, null, ex);
+                }
+            }
+        } finally {
+            //deliver everything drained this tick as one batch
+            processor.flush(false);
         }
-//        Utils.printTotalTime(startTime);
     }
 
-    public void trimQueueNow() {
-//        long startTime;
-//        System.out.print("Queueing took... ");
-//        startTime = System.nanoTime();
-        int size = concurrentMessageQueue.size();
-        if (queueLimitEnabled && size > getQueueLimit()) {
-            for (int i = 0; i < size - getQueueLimit(); i++)
-                concurrentMessageQueue.poll();
-        }
-//        Utils.printTotalTime(startTime);
+    /**
+     * Discards all buffered messages that have not been processed yet.
+     */
+    public void clearQueue() {
+        messageBuffer.clear();
+    }
+
+    /**
+     * @return number of messages currently buffered awaiting processing
+     */
+    public int getQueuedCount() {
+        return messageBuffer.size();
+    }
+
+    /**
+     * @return total messages read off the socket
+     */
+    public long getReceivedCount() {
+        return receivedCount.get();
+    }
+
+    /**
+     * @return total messages discarded by the backpressure policy
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return total messages handed to the MessageProcessor
+     */
+    public long getProcessedCount() {
+        return processedCount.get();
+    }
+
+    /**
+     * @return total messages the MessageProcessor failed on and discarded
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public void resetCounters() {
+        receivedCount.set(0);
+        droppedCount.set(0);
+        processedCount.set(0);
+        failedCount.set(0);
     }
 
     public void disconnect(boolean shutdown) {
@@ -240,6 +338,8 @@ public class ZeroMQFeedManager extends ScheduledThreadPoolExecutor {
     }
 
     /**
+     * Takes effect the next time startProcessing() is called.
+     *
      * @param queueLimit the queueLimit to set
      */
     public void setQueueLimit(int queueLimit) {
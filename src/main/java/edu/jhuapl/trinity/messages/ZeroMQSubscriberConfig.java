@@ -29,6 +29,23 @@ public class ZeroMQSubscriberConfig {
 
     ;
 
+    /**
+     * JSON expects UTF-8 text messages. BINARY accepts FeatureVectorFrameCodec
+     * frames and falls back to JSON for any message without the binary magic.
+     */
+    public static enum FORMAT {JSON, BINARY}
+
+    ;
+
+    /**
+     * What the receive thread does when the message buffer is full.
+     * DROP_OLDEST evicts the oldest buffered message, DROP_NEWEST discards the
+     * incoming message and BLOCK waits for the processing thread to catch up.
+     */
+    public static enum BACKPRESSURE {DROP_OLDEST, DROP_NEWEST, BLOCK}
+
+    ;
+
     public static final String DEFAULT_NAME = "ZeroMQ";
     public static final String DEFAULT_DESCRIPTION = "Default";
     public static final String DEFAULT_HOST = "tcp://localhost:5563";
@@ -36,6 +53,8 @@ public class ZeroMQSubscriberConfig {
     public static final String DEFAULT_TOPIC = "subcriber";
     public static final String DEFAULT_GROUPID = "ZeroMQGroupId";
     public static final Integer DEFAULT_UPDATE_RATE_MS = 250;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+    public static final long DEFAULT_BATCH_LINGER_MS = 0;
     public String name;
     public String description;
     public String host;
@@ -43,6 +62,15 @@ public class ZeroMQSubscriberConfig {
     public String groupID;
     public Integer updateRateMS;
     public CONNECTION connection = CONNECTION.SUBSCRIBER;
+    public FORMAT format = FORMAT.JSON;
+    public BACKPRESSURE backpressure = BACKPRESSURE.DROP_OLDEST;
+    /**
+     * When true FeatureVectors drained in one tick are delivered as one
+     * NEW_FEATURE_VECTOR_BATCH event instead of one event per vector.
+     */
+    public boolean batchFeatureVectors = true;
+    public int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+    public long batchLingerMS = DEFAULT_BATCH_LINGER_MS;
 
     public ZeroMQSubscriberConfig() {
         this(DEFAULT_NAME, DEFAULT_DESCRIPTION, DEFAULT_HOST,
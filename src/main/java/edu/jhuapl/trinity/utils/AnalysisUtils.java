@@ -21,7 +21,12 @@ package edu.jhuapl.trinity.utils;
  */
 
 import edu.jhuapl.trinity.data.messages.FeatureCollection;
+import edu.jhuapl.trinity.data.messages.FeatureVector;
+import edu.jhuapl.trinity.utils.umap.CancellationToken;
+import edu.jhuapl.trinity.utils.umap.CsrMatrix;
 import edu.jhuapl.trinity.utils.umap.DefaultMatrix;
+import edu.jhuapl.trinity.utils.umap.FlatMatrix;
+import edu.jhuapl.trinity.utils.umap.EmbeddingListener;
 import edu.jhuapl.trinity.utils.umap.Matrix;
 import edu.jhuapl.trinity.utils.umap.Umap;
 import javafx.geometry.Point2D;
@@ -42,6 +47,8 @@ import java.util.List;
 public enum AnalysisUtils {
     INSTANCE;
     public static double EPISILON = 0.0000000001;
+    //Collections with at most this fraction of nonzero values are fit as sparse matrices
+    public static double SPARSE_DENSITY_THRESHOLD = 0.1;
 
     public static double lerp1(double start, double end, double ratio) {
         return start * (1 - ratio) + end * ratio;
@@ -202,13 +209,74 @@ public enum AnalysisUtils {
 
     public static double[][] fitUMAP(FeatureCollection featureCollection, Umap umap) {
         //for each dimension extract transform via UMAP
-        double[][] data = featureCollection.convertFeaturesToArray();
+        FlatMatrix data = featureCollectionToFlat(featureCollection);
         System.out.println("Starting UMAP Fit... ");
         long start = System.nanoTime();
-        double[][] projected = umap.fitTransform(data);
+        double[][] projected = umap.fitTransformFlat(data, null, null, 0);
         Utils.printTotalTime(start);
         return projected;
     }
+    /**
+     * Fit that can be cancelled or stopped early through the token and that
+     * reports intermediate layouts to the listener every snapshotEpochs.
+     */
+    public static double[][] fitUMAP(FeatureCollection featureCollection, Umap umap,
+        CancellationToken token, EmbeddingListener listener, int snapshotEpochs) {
+        if (umap.getMetric().isSparse()
+            && nonZeroFraction(featureCollection) <= SPARSE_DENSITY_THRESHOLD) {
+            CsrMatrix data = featureCollectionToCsr(featureCollection);
+            System.out.println("Starting sparse UMAP Fit... "
+                + data.nnz() + " nonzero values, density " + data.density());
+            long start = System.nanoTime();
+            double[][] projected = umap.fitTransformSparse(data, token, listener, snapshotEpochs);
+            Utils.printTotalTime(start);
+            return projected;
+        }
+        FlatMatrix data = featureCollectionToFlat(featureCollection);
+        System.out.println("Starting UMAP Fit... ");
+        long start = System.nanoTime();
+        double[][] projected = umap.fitTransformFlat(data, token, listener, snapshotEpochs);
+        Utils.printTotalTime(start);
+        return projected;
+    }
+
+    /**
+     * Flat single precision copy of the feature vectors, one row per vector.
+     */
+    public static FlatMatrix featureCollectionToFlat(FeatureCollection featureCollection) {
+        List<List<Double>> rows = new ArrayList<>(featureCollection.getFeatures().size());
+        for (FeatureVector fv : featureCollection.getFeatures()) {
+            rows.add(fv.getData());
+        }
+        return FlatMatrix.fromRows(rows);
+    }
+
+    /**
+     * Compressed sparse row copy of the feature vectors, zero entries are not stored.
+     */
+    public static CsrMatrix featureCollectionToCsr(FeatureCollection featureCollection) {
+        List<List<Double>> rows = new ArrayList<>(featureCollection.getFeatures().size());
+        for (FeatureVector fv : featureCollection.getFeatures()) {
+            rows.add(fv.getData());
+        }
+        return CsrMatrix.fromRows(rows);
+    }
+
+    /**
+     * Fraction of all feature values that are nonzero.
+     */
+    public static double nonZeroFraction(FeatureCollection featureCollection) {
+        long total = 0;
+        long nonZero = 0;
+        for (FeatureVector fv : featureCollection.getFeatures()) {
+            for (Double d : fv.getData()) {
+                if (d != 0) nonZero++;
+            }
+            total += fv.getData().size();
+        }
+        return total == 0 ? 1.0 : nonZero / (double) total;
+    }
+
     public static float[][] transformUMAP(FeatureCollection featureCollection, Umap umap) {
         float[][] data = featureCollection.convertFeaturesToFloatArray();
         System.out.println("Starting UMAP Transform... ");
@@ -217,5 +285,16 @@ public enum AnalysisUtils {
         Utils.printTotalTime(start);
         return projected;
     }
-    
+
+    public static float[][] transformUMAP(List<FeatureVector> featureVectors, Umap umap) {
+        float[][] data = new float[featureVectors.size()][];
+        for (int i = 0; i < data.length; i++) {
+            List<Double> values = featureVectors.get(i).getData();
+            data[i] = new float[values.size()];
+            for (int j = 0; j < data[i].length; j++)
+                data[i][j] = values.get(j).floatValue();
+        }
+        return umap.transform(data);
+    }
+
 }
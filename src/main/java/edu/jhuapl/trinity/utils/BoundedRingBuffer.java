@@ -0,0 +1,157 @@
+package edu.jhuapl.trinity.utils;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Fixed capacity lock-free ring buffer safe for multiple producers and
+ * consumers. Each slot carries a sequence number so producers and consumers
+ * only contend on the head/tail counters, never on a lock. Unlike a
+ * ConcurrentLinkedQueue, size() is O(1) and no nodes are allocated per item.
+ *
+ * @param <E> Item type for the ring buffer
+ * @author Sean Phillips
+ */
+public class BoundedRingBuffer<E> {
+    private final int capacity;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong(0); //next slot to read
+    private final AtomicLong tail = new AtomicLong(0); //next slot to write
+
+    public BoundedRingBuffer(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        this.capacity = capacity;
+        elements = new AtomicReferenceArray<>(capacity);
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++)
+            sequences.set(i, i);
+    }
+
+    /**
+     * @param e item to add
+     * @return false if the buffer is full
+     */
+    public boolean offer(E e) {
+        long pos = tail.get();
+        int index;
+        while (true) {
+            index = (int) (pos % capacity);
+            long dif = sequences.get(index) - pos;
+            if (dif == 0) {
+                if (tail.compareAndSet(pos, pos + 1))
+                    break;
+                pos = tail.get();
+            } else if (dif < 0) {
+                return false; //full
+            } else {
+                pos = tail.get();
+            }
+        }
+        elements.set(index, e);
+        sequences.set(index, pos + 1);
+        return true;
+    }
+
+    /**
+     * @return the oldest item or null if the buffer is empty
+     */
+    public E poll() {
+        long pos = head.get();
+        int index;
+        while (true) {
+            index = (int) (pos % capacity);
+            long dif = sequences.get(index) - (pos + 1);
+            if (dif == 0) {
+                if (head.compareAndSet(pos, pos + 1))
+                    break;
+                pos = head.get();
+            } else if (dif < 0) {
+                return null; //empty
+            } else {
+                pos = head.get();
+            }
+        }
+        E e = elements.get(index);
+        elements.set(index, null);
+        sequences.set(index, pos + capacity);
+        return e;
+    }
+
+    /**
+     * Adds the item, evicting the oldest items until it fits.
+     *
+     * @param e item to add
+     * @return number of items evicted to make room
+     */
+    public int offerEvictOldest(E e) {
+        int evicted = 0;
+        while (!offer(e)) {
+            if (null != poll())
+                evicted++;
+        }
+        return evicted;
+    }
+
+    /**
+     * Polls up to maxItems items and hands them to the consumer in order.
+     *
+     * @param consumer receives each item
+     * @param maxItems upper bound on items drained in this call
+     * @return number of items drained
+     */
+    public int drain(Consumer<? super E> consumer, int maxItems) {
+        int count = 0;
+        E e;
+        while (count < maxItems && null != (e = poll())) {
+            consumer.accept(e);
+            count++;
+        }
+        return count;
+    }
+
+    public void clear() {
+        while (null != poll()) {
+            //discard
+        }
+    }
+
+    /**
+     * @return approximate number of items currently buffered. O(1)
+     */
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(capacity, size));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
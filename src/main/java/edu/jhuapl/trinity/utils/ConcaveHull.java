@@ -0,0 +1,562 @@
+package edu.jhuapl.trinity.utils;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.github.quickhull3d.Point3d;
+import com.github.quickhull3d.QuickHull3D;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Concave hull of a 3D point set as an alpha shape. The points are
+ * tetrahedralized with an incremental Bowyer-Watson Delaunay construction.
+ * Tetrahedra whose circumsphere is no larger than alpha are kept as the solid,
+ * and the hull is the set of triangles between a kept tetrahedron and a
+ * dropped one. Unlike a convex hull this follows dents, tunnels and gaps in a
+ * cluster, and the kept tetrahedra give the enclosed volume.
+ * <p>
+ * The level of detail is given as an alpha scale relative to the median
+ * circumradius of the Delaunay tetrahedra, so the same scale works for any
+ * coordinate range. Small scales follow the points closely and may break a
+ * sparse cluster apart, large scales approach the convex hull.
+ * <p>
+ * Points are taken as a flat x, y, z array. This extends QuickHull3D so it
+ * can stand in for one: after a build the vertex and face accessors describe
+ * the alpha shape, wound counter clockwise seen from outside.
+ *
+ * @author Sean Phillips
+ */
+public class ConcaveHull extends QuickHull3D {
+    public static final double DEFAULT_ALPHA_SCALE = 2.0;
+    private static final double SUPER_SIZE = 50.0;
+
+    private final double alphaScale;
+    private double[] coords;
+    private double scale = 1.0;
+    //results of the last build
+    private boolean built = false;
+    private int[] hullFaces = new int[0];
+    private int[] vertexPointIndices = new int[0];
+    private int[] pointVertices = new int[0];
+    private double volume = 0.0;
+
+    //Delaunay state, points are normalized and the last four are the super tetrahedron
+    private double[] pts;
+    private int[] tetVertices;
+    private int[] tetNeighbors; //neighbor across the face opposite each vertex, -1 for none
+    private boolean[] dead;
+    private int[] cavityMark; //insertion that last pulled each tetrahedron into its cavity
+    private int tetCount;
+    private int[] freeTets;
+    private int freeCount;
+    private int lastTet;
+    private int insertions;
+
+    public ConcaveHull() {
+        this(DEFAULT_ALPHA_SCALE);
+    }
+
+    /**
+     * @param alphaScale alpha as a multiple of the median tetrahedron circumradius
+     */
+    public ConcaveHull(double alphaScale) {
+        this.alphaScale = alphaScale;
+    }
+
+    public double getAlphaScale() {
+        return alphaScale;
+    }
+
+    /**
+     * @return volume enclosed by the alpha shape, in the units of the points
+     */
+    public double getVolume() {
+        return volume;
+    }
+
+    /**
+     * Builds the alpha shape of the first nump points of a flat x, y, z array.
+     */
+    @Override
+    public void build(double[] coords, int nump) throws IllegalArgumentException {
+        if (nump < 4)
+            throw new IllegalArgumentException("Less than four input points specified");
+        built = false;
+        this.coords = coords;
+        int[] inserted = tetrahedralize(nump);
+        extractShape(nump, inserted);
+        //release the tetrahedralization, only the shape is kept
+        pts = null;
+        tetVertices = null;
+        tetNeighbors = null;
+        dead = null;
+        cavityMark = null;
+        freeTets = null;
+        built = true;
+    }
+
+    @Override
+    public void build(Point3d[] points, int nump) throws IllegalArgumentException {
+        double[] flat = new double[3 * nump];
+        for (int i = 0; i < nump && i < points.length; i++) {
+            flat[3 * i] = points[i].x;
+            flat[3 * i + 1] = points[i].y;
+            flat[3 * i + 2] = points[i].z;
+        }
+        build(flat, nump);
+    }
+
+    /**
+     * The shape is made of triangles already.
+     */
+    @Override
+    public void triangulate() {
+        if (!built)
+            super.triangulate();
+    }
+
+    @Override
+    public int getNumVertices() {
+        return built ? vertexPointIndices.length : super.getNumVertices();
+    }
+
+    @Override
+    public Point3d[] getVertices() {
+        if (!built)
+            return super.getVertices();
+        Point3d[] vertices = new Point3d[vertexPointIndices.length];
+        for (int v = 0; v < vertices.length; v++) {
+            int p = vertexPointIndices[v];
+            vertices[v] = new Point3d(coords[3 * p], coords[3 * p + 1], coords[3 * p + 2]);
+        }
+        return vertices;
+    }
+
+    @Override
+    public int getVertices(double[] vertexCoords) {
+        if (!built)
+            return super.getVertices(vertexCoords);
+        for (int v = 0; v < vertexPointIndices.length; v++)
+            System.arraycopy(coords, 3 * vertexPointIndices[v], vertexCoords, 3 * v, 3);
+        return vertexPointIndices.length;
+    }
+
+    @Override
+    public int[] getVertexPointIndices() {
+        return built ? vertexPointIndices.clone() : super.getVertexPointIndices();
+    }
+
+    @Override
+    public int getNumFaces() {
+        return built ? hullFaces.length / 3 : super.getNumFaces();
+    }
+
+    @Override
+    public int[][] getFaces() {
+        return getFaces(0);
+    }
+
+    @Override
+    public int[][] getFaces(int indexFlags) {
+        if (!built)
+            return super.getFaces(indexFlags);
+        boolean clockwise = (indexFlags & CLOCKWISE) != 0;
+        boolean pointRelative = (indexFlags & POINT_RELATIVE) != 0;
+        int offset = (indexFlags & INDEXED_FROM_ONE) != 0 ? 1 : 0;
+        int[][] result = new int[hullFaces.length / 3][3];
+        for (int f = 0; f < result.length; f++) {
+            for (int k = 0; k < 3; k++) {
+                int p = hullFaces[3 * f + (clockwise ? (3 - k) % 3 : k)];
+                result[f][k] = (pointRelative ? p : pointVertices[p]) + offset;
+            }
+        }
+        return result;
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="Delaunay tetrahedralization">
+
+    /**
+     * @return the points that went into the tetrahedralization, duplicates are left out
+     */
+    private int[] tetrahedralize(int nump) {
+        double[] min = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+        double[] max = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (int i = 0; i < 3 * nump; i++) {
+            min[i % 3] = Math.min(min[i % 3], coords[i]);
+            max[i % 3] = Math.max(max[i % 3], coords[i]);
+        }
+        double extent = Math.max(max[0] - min[0], Math.max(max[1] - min[1], max[2] - min[2]));
+        if (!(extent > 0.0))
+            throw new IllegalArgumentException("Input points are coincident");
+        //normalize into [-1, 1] so the predicates work on similar magnitudes
+        scale = extent / 2.0;
+        pts = new double[3 * (nump + 4)];
+        for (int i = 0; i < 3 * nump; i++)
+            pts[i] = (coords[i] - (min[i % 3] + max[i % 3]) / 2.0) / scale;
+        int s = 3 * nump;
+        double[] superTet = {
+            0, 0, 3 * SUPER_SIZE,
+            -2 * SUPER_SIZE, -SUPER_SIZE, -SUPER_SIZE,
+            2 * SUPER_SIZE, -SUPER_SIZE, -SUPER_SIZE,
+            0, 2 * SUPER_SIZE, -SUPER_SIZE};
+        System.arraycopy(superTet, 0, pts, s, 12);
+
+        int capacity = Math.max(64, 8 * nump);
+        tetVertices = new int[4 * capacity];
+        tetNeighbors = new int[4 * capacity];
+        dead = new boolean[capacity];
+        cavityMark = new int[capacity];
+        freeTets = new int[64];
+        freeCount = 0;
+        tetCount = 0;
+        insertions = 0;
+        int first = newTet(nump, nump + 1, nump + 2, nump + 3);
+        if (orient(first) < 0)
+            swap(first, 0, 1);
+        Arrays.fill(tetNeighbors, 0, 4, -1);
+        lastTet = first;
+
+        //spatially coherent insertion keeps the point location walks short
+        int[] order = mortonOrder(nump);
+        SpatialGrid grid = new SpatialGrid(SpatialGrid.cellSizeFor(nump, 2, 2, 2));
+        double duplicate = 1e-12;
+        int[] inserted = new int[nump];
+        int insertedCount = 0;
+        for (int p : order) {
+            if (grid.nearest(pts[3 * p], pts[3 * p + 1], pts[3 * p + 2], duplicate) >= 0)
+                continue;
+            if (insert(p)) {
+                grid.add(p, pts[3 * p], pts[3 * p + 1], pts[3 * p + 2]);
+                inserted[insertedCount++] = p;
+            }
+        }
+        return Arrays.copyOf(inserted, insertedCount);
+    }
+
+    private int[] mortonOrder(int nump) {
+        long[] keys = new long[nump];
+        for (int p = 0; p < nump; p++) {
+            long code = 0;
+            for (int axis = 0; axis < 3; axis++) {
+                long q = (long) Math.min(1023, Math.max(0, (pts[3 * p + axis] + 1.0) * 512.0));
+                for (int bit = 0; bit < 10; bit++)
+                    code |= ((q >> bit) & 1L) << (3 * bit + axis);
+            }
+            keys[p] = (code << 32) | p;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[nump];
+        for (int i = 0; i < nump; i++)
+            order[i] = (int) keys[i];
+        return order;
+    }
+
+    private boolean insert(int p) {
+        int t = locate(p);
+        if (t < 0)
+            return false;
+        //cavity of tetrahedra whose circumsphere holds the point
+        int[] cavity = new int[16];
+        int cavityCount = 0;
+        int mark = ++insertions;
+        cavity[cavityCount++] = t;
+        cavityMark[t] = mark;
+        for (int i = 0; i < cavityCount; i++) {
+            int c = cavity[i];
+            for (int k = 0; k < 4; k++) {
+                int n = tetNeighbors[4 * c + k];
+                if (n < 0 || cavityMark[n] == mark)
+                    continue;
+                //grow into neighbors whose sphere holds the point, or whose
+                //shared face the point can not see so the cavity stays star shaped
+                if (inSphere(n, p) > 0.0 || orientReplaced(c, k, p) <= 0.0) {
+                    if (cavityCount == cavity.length)
+                        cavity = Arrays.copyOf(cavity, cavityCount * 2);
+                    cavity[cavityCount++] = n;
+                    cavityMark[n] = mark;
+                }
+            }
+        }
+        //every boundary face must see the point before the mesh is touched,
+        //otherwise the point is skipped and the cavity stays as it is
+        for (int i = 0; i < cavityCount; i++) {
+            int c = cavity[i];
+            for (int k = 0; k < 4; k++) {
+                int n = tetNeighbors[4 * c + k];
+                if (n >= 0 && cavityMark[n] == mark)
+                    continue;
+                if (orientReplaced(c, k, p) <= 0.0) {
+                    //the hull of the super tetrahedron can not see the point
+                    return false;
+                }
+            }
+        }
+        //one new tetrahedron per boundary face, the cavity vertex swapped for the point
+        int[] created = new int[4 * cavityCount];
+        int createdCount = 0;
+        HashMap<Long, Integer> openFaces = new HashMap<>();
+        for (int i = 0; i < cavityCount; i++) {
+            int c = cavity[i];
+            for (int k = 0; k < 4; k++) {
+                int n = tetNeighbors[4 * c + k];
+                if (n >= 0 && cavityMark[n] == mark)
+                    continue;
+                int v0 = tetVertices[4 * c], v1 = tetVertices[4 * c + 1];
+                int v2 = tetVertices[4 * c + 2], v3 = tetVertices[4 * c + 3];
+                int nt = newTet(k == 0 ? p : v0, k == 1 ? p : v1, k == 2 ? p : v2, k == 3 ? p : v3);
+                tetNeighbors[4 * nt + k] = n;
+                if (n >= 0)
+                    for (int j = 0; j < 4; j++)
+                        if (tetNeighbors[4 * n + j] == c)
+                            tetNeighbors[4 * n + j] = nt;
+                //faces through the point are shared with other new tetrahedra
+                for (int j = 0; j < 4; j++) {
+                    if (j == k)
+                        continue;
+                    int a = -1, b = -1;
+                    for (int m = 0; m < 4; m++) {
+                        if (m == j || m == k)
+                            continue;
+                        if (a < 0) a = tetVertices[4 * nt + m];
+                        else b = tetVertices[4 * nt + m];
+                    }
+                    long edge = a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+                    Integer other = openFaces.remove(edge);
+                    if (null == other) {
+                        openFaces.put(edge, 4 * nt + j);
+                    } else {
+                        tetNeighbors[4 * nt + j] = other / 4;
+                        tetNeighbors[other] = nt;
+                    }
+                }
+                created[createdCount++] = nt;
+            }
+        }
+        for (int i = 0; i < cavityCount; i++) {
+            dead[cavity[i]] = true;
+            if (freeCount == freeTets.length)
+                freeTets = Arrays.copyOf(freeTets, freeCount * 2);
+            freeTets[freeCount++] = cavity[i];
+        }
+        lastTet = created[0];
+        return true;
+    }
+
+    private int locate(int p) {
+        int t = lastTet;
+        int steps = 0;
+        int limit = 4 * tetCount + 16;
+        walk:
+        while (steps++ < limit) {
+            for (int k = 0; k < 4; k++) {
+                if (orientReplaced(t, k, p) < 0.0) {
+                    int n = tetNeighbors[4 * t + k];
+                    if (n < 0)
+                        return -1;
+                    t = n;
+                    continue walk;
+                }
+            }
+            return t;
+        }
+        //the walk cycled on a degenerate configuration, fall back to a scan
+        for (t = 0; t < tetCount; t++) {
+            if (dead[t])
+                continue;
+            boolean inside = true;
+            for (int k = 0; k < 4 && inside; k++)
+                inside = orientReplaced(t, k, p) >= 0.0;
+            if (inside)
+                return t;
+        }
+        return -1;
+    }
+
+    private int newTet(int a, int b, int c, int d) {
+        int t;
+        if (freeCount > 0) {
+            t = freeTets[--freeCount];
+        } else {
+            if (tetCount == dead.length) {
+                int capacity = dead.length * 2;
+                tetVertices = Arrays.copyOf(tetVertices, 4 * capacity);
+                tetNeighbors = Arrays.copyOf(tetNeighbors, 4 * capacity);
+                dead = Arrays.copyOf(dead, capacity);
+                cavityMark = Arrays.copyOf(cavityMark, capacity);
+            }
+            t = tetCount++;
+        }
+        dead[t] = false;
+        tetVertices[4 * t] = a;
+        tetVertices[4 * t + 1] = b;
+        tetVertices[4 * t + 2] = c;
+        tetVertices[4 * t + 3] = d;
+        Arrays.fill(tetNeighbors, 4 * t, 4 * t + 4, -1);
+        return t;
+    }
+
+    private void swap(int t, int i, int j) {
+        int v = tetVertices[4 * t + i];
+        tetVertices[4 * t + i] = tetVertices[4 * t + j];
+        tetVertices[4 * t + j] = v;
+    }
+
+    private double orient(int t) {
+        return orient(tetVertices[4 * t], tetVertices[4 * t + 1], tetVertices[4 * t + 2], tetVertices[4 * t + 3]);
+    }
+
+    //orientation of tetrahedron t with its vertex k replaced by point p
+    private double orientReplaced(int t, int k, int p) {
+        return orient(k == 0 ? p : tetVertices[4 * t], k == 1 ? p : tetVertices[4 * t + 1],
+            k == 2 ? p : tetVertices[4 * t + 2], k == 3 ? p : tetVertices[4 * t + 3]);
+    }
+
+    //positive when d lies below the plane of a, b, c seen counter clockwise (Shewchuk)
+    private double orient(int a, int b, int c, int d) {
+        double adx = pts[3 * a] - pts[3 * d], ady = pts[3 * a + 1] - pts[3 * d + 1], adz = pts[3 * a + 2] - pts[3 * d + 2];
+        double bdx = pts[3 * b] - pts[3 * d], bdy = pts[3 * b + 1] - pts[3 * d + 1], bdz = pts[3 * b + 2] - pts[3 * d + 2];
+        double cdx = pts[3 * c] - pts[3 * d], cdy = pts[3 * c + 1] - pts[3 * d + 1], cdz = pts[3 * c + 2] - pts[3 * d + 2];
+        return adx * (bdy * cdz - bdz * cdy) + bdx * (cdy * adz - cdz * ady) + cdx * (ady * bdz - adz * bdy);
+    }
+
+    //positive when p lies inside the circumsphere of positively oriented t (Shewchuk)
+    private double inSphere(int t, int p) {
+        int a = 3 * tetVertices[4 * t], b = 3 * tetVertices[4 * t + 1];
+        int c = 3 * tetVertices[4 * t + 2], d = 3 * tetVertices[4 * t + 3];
+        double ex = pts[3 * p], ey = pts[3 * p + 1], ez = pts[3 * p + 2];
+        double aex = pts[a] - ex, aey = pts[a + 1] - ey, aez = pts[a + 2] - ez;
+        double bex = pts[b] - ex, bey = pts[b + 1] - ey, bez = pts[b + 2] - ez;
+        double cex = pts[c] - ex, cey = pts[c + 1] - ey, cez = pts[c + 2] - ez;
+        double dex = pts[d] - ex, dey = pts[d + 1] - ey, dez = pts[d + 2] - ez;
+        double ab = aex * bey - bex * aey;
+        double bc = bex * cey - cex * bey;
+        double cd = cex * dey - dex * cey;
+        double da = dex * aey - aex * dey;
+        double ac = aex * cey - cex * aey;
+        double bd = bex * dey - dex * bey;
+        double abc = aez * bc - bez * ac + cez * ab;
+        double bcd = bez * cd - cez * bd + dez * bc;
+        double cda = cez * da + dez * ac + aez * cd;
+        double dab = dez * ab + aez * bd + bez * da;
+        double alift = aex * aex + aey * aey + aez * aez;
+        double blift = bex * bex + bey * bey + bez * bez;
+        double clift = cex * cex + cey * cey + cez * cez;
+        double dlift = dex * dex + dey * dey + dez * dez;
+        return (dlift * abc - clift * dab) + (blift * cda - alift * bcd);
+    }
+    //</editor-fold>
+
+    private void extractShape(int nump, int[] inserted) {
+        //circumradius of every tetrahedron between input points
+        double[] radii = new double[tetCount];
+        double[] finite = new double[tetCount];
+        int finiteCount = 0;
+        for (int t = 0; t < tetCount; t++) {
+            radii[t] = Double.POSITIVE_INFINITY;
+            if (dead[t])
+                continue;
+            boolean real = true;
+            for (int k = 0; k < 4; k++)
+                real &= tetVertices[4 * t + k] < nump;
+            if (real) {
+                radii[t] = circumradius(t);
+                finite[finiteCount++] = radii[t];
+            }
+        }
+        if (finiteCount == 0)
+            throw new IllegalArgumentException("Input points appear to be coplanar");
+        Arrays.sort(finite, 0, finiteCount);
+        double alpha = alphaScale * finite[finiteCount / 2];
+
+        int[] faces = new int[48];
+        int faceCount = 0;
+        volume = 0.0;
+        for (int t = 0; t < tetCount; t++) {
+            if (!(radii[t] <= alpha))
+                continue;
+            volume += orient(t) / 6.0 * scale * scale * scale;
+            for (int k = 0; k < 4; k++) {
+                int n = tetNeighbors[4 * t + k];
+                if (n >= 0 && radii[n] <= alpha)
+                    continue;
+                //face opposite vertex k, wound so its normal points away from it
+                int a = -1, b = -1, c = -1;
+                for (int m = 0; m < 4; m++) {
+                    if (m == k) continue;
+                    int v = tetVertices[4 * t + m];
+                    if (a < 0) a = v;
+                    else if (b < 0) b = v;
+                    else c = v;
+                }
+                if (orient(a, b, c, tetVertices[4 * t + k]) < 0.0) {
+                    int swap = b;
+                    b = c;
+                    c = swap;
+                }
+                if (faceCount + 3 > faces.length)
+                    faces = Arrays.copyOf(faces, faces.length * 2);
+                faces[faceCount++] = a;
+                faces[faceCount++] = b;
+                faces[faceCount++] = c;
+            }
+        }
+        hullFaces = Arrays.copyOf(faces, faceCount);
+        pointVertices = new int[nump];
+        Arrays.fill(pointVertices, -1);
+        int[] vertices = new int[nump];
+        int vertexCount = 0;
+        for (int p : hullFaces) {
+            if (pointVertices[p] < 0) {
+                pointVertices[p] = vertexCount;
+                vertices[vertexCount++] = p;
+            }
+        }
+        vertexPointIndices = Arrays.copyOf(vertices, vertexCount);
+    }
+
+    private double circumradius(int t) {
+        int a = 3 * tetVertices[4 * t];
+        double[] u = new double[9];
+        for (int k = 1; k < 4; k++)
+            for (int i = 0; i < 3; i++)
+                u[3 * (k - 1) + i] = pts[3 * tetVertices[4 * t + k] + i] - pts[a + i];
+        //solve for the circumcenter relative to the first vertex
+        double[] lift = new double[3];
+        for (int k = 0; k < 3; k++)
+            lift[k] = (u[3 * k] * u[3 * k] + u[3 * k + 1] * u[3 * k + 1] + u[3 * k + 2] * u[3 * k + 2]) / 2.0;
+        double det = u[0] * (u[4] * u[8] - u[5] * u[7])
+            - u[1] * (u[3] * u[8] - u[5] * u[6])
+            + u[2] * (u[3] * u[7] - u[4] * u[6]);
+        if (det == 0.0)
+            return Double.POSITIVE_INFINITY;
+        double x = (lift[0] * (u[4] * u[8] - u[5] * u[7])
+            - u[1] * (lift[1] * u[8] - u[5] * lift[2])
+            + u[2] * (lift[1] * u[7] - u[4] * lift[2])) / det;
+        double y = (u[0] * (lift[1] * u[8] - u[5] * lift[2])
+            - lift[0] * (u[3] * u[8] - u[5] * u[6])
+            + u[2] * (u[3] * lift[2] - lift[1] * u[6])) / det;
+        double z = (u[0] * (u[4] * lift[2] - lift[1] * u[7])
+            - u[1] * (u[3] * lift[2] - lift[1] * u[6])
+            + lift[0] * (u[3] * u[7] - u[4] * u[6])) / det;
+        return Math.sqrt(x * x + y * y + z * z);
+    }
+}
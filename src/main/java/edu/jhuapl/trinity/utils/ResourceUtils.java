@@ -20,31 +20,15 @@ package edu.jhuapl.trinity.utils;
  * #L%
  */
 
-import edu.jhuapl.trinity.data.Trajectory;
-import edu.jhuapl.trinity.data.files.CdcCsvFile;
-import edu.jhuapl.trinity.data.files.CdcTissueGenesFile;
-import edu.jhuapl.trinity.data.files.FeatureCollectionFile;
-import edu.jhuapl.trinity.data.files.GaussianMixtureCollectionFile;
-import edu.jhuapl.trinity.data.files.LabelConfigFile;
-import edu.jhuapl.trinity.data.files.ManifoldDataFile;
-import edu.jhuapl.trinity.data.files.McclodSplitDataTsvFile;
-import edu.jhuapl.trinity.data.files.SemanticMapCollectionFile;
-import edu.jhuapl.trinity.data.files.TextEmbeddingCollectionFile;
-import edu.jhuapl.trinity.data.files.ZeroPilotLatentsFile;
-import edu.jhuapl.trinity.data.messages.FeatureCollection;
-import edu.jhuapl.trinity.data.terrain.FireAreaTextFile;
-import edu.jhuapl.trinity.data.terrain.TerrainTextFile;
-import edu.jhuapl.trinity.javafx.events.FeatureVectorEvent;
-import edu.jhuapl.trinity.javafx.events.GaussianMixtureEvent;
+import edu.jhuapl.trinity.data.files.FileTypeSniffer;
+import edu.jhuapl.trinity.data.files.FileTypeSniffer.FileType;
 import edu.jhuapl.trinity.javafx.events.ImageEvent;
-import edu.jhuapl.trinity.javafx.events.ManifoldEvent;
-import edu.jhuapl.trinity.javafx.events.SemanticMapEvent;
-import edu.jhuapl.trinity.javafx.events.TerrainEvent;
-import edu.jhuapl.trinity.javafx.events.TrajectoryEvent;
 import edu.jhuapl.trinity.utils.loaders.CdcTissueGenesLoader;
+import edu.jhuapl.trinity.utils.loaders.DroppedFileLoader;
 import edu.jhuapl.trinity.utils.loaders.McclodSplitDataLoader;
 import edu.jhuapl.trinity.utils.loaders.TextEmbeddingsLoader;
 import edu.jhuapl.trinity.utils.loaders.ZeroPilotLatentsLoader;
+import javafx.concurrent.Task;
 import javafx.embed.swing.SwingFXUtils;
 import javafx.scene.Scene;
 import javafx.scene.image.Image;
@@ -261,71 +245,8 @@ public enum ResourceUtils {
                         Image image = new Image(file.toURI().toURL().toExternalForm());
                         scene.getRoot().fireEvent(
                             new ImageEvent(ImageEvent.NEW_TEXTURE_SURFACE, image));
-                    } else if (LabelConfigFile.isLabelConfigFile(file)) {
-                        LabelConfigFile labelConfigFile = new LabelConfigFile(file.getAbsolutePath(), true);
-                        scene.getRoot().fireEvent(
-                            new FeatureVectorEvent(FeatureVectorEvent.NEW_LABEL_CONFIG, labelConfigFile.labelConfig));
-                    } else if (TerrainTextFile.isTerrainTextFile(file)) {
-                        TerrainTextFile terrainTextFile = new TerrainTextFile(file.getAbsolutePath(), true);
-                        scene.getRoot().fireEvent(
-                            new TerrainEvent(TerrainEvent.NEW_TERRAIN_TEXTFILE, terrainTextFile.dataGrid));
-                    } else if (FireAreaTextFile.isFireAreaTextFile(file)) {
-                        FireAreaTextFile fireAreaTextFile = new FireAreaTextFile(file.getAbsolutePath(), true);
-                        scene.getRoot().fireEvent(
-                            new TerrainEvent(TerrainEvent.NEW_FIREAREA_TEXTFILE, fireAreaTextFile.dataGrid));
-                    } else if (SemanticMapCollectionFile.isSemanticMapCollectionFile(file)) {
-                        SemanticMapCollectionFile smcFile = new SemanticMapCollectionFile(file.getAbsolutePath(), true);
-                        scene.getRoot().fireEvent(
-                            new SemanticMapEvent(SemanticMapEvent.NEW_SEMANTICMAP_COLLECTION, smcFile.semanticMapCollection));
-                        //Trajectory logic handled by SemanticMapEventHandler
-                    } else if (FeatureCollectionFile.isFeatureCollectionFile(file)) {
-                        FeatureCollectionFile fcFile = new FeatureCollectionFile(file.getAbsolutePath(), true);
-                        scene.getRoot().fireEvent(
-                            new FeatureVectorEvent(FeatureVectorEvent.NEW_FEATURE_COLLECTION, fcFile.featureCollection));
-                        Trajectory trajectory = new Trajectory(file.getName());
-                        trajectory.totalStates = fcFile.featureCollection.getFeatures().size();
-                        Trajectory.addTrajectory(trajectory);
-                        Trajectory.globalTrajectoryToFeatureCollectionMap.put(trajectory, fcFile.featureCollection);
-                        scene.getRoot().fireEvent(
-                            new TrajectoryEvent(TrajectoryEvent.NEW_TRAJECTORY_OBJECT,trajectory, fcFile.featureCollection));
-                    } else if (GaussianMixtureCollectionFile.isGaussianMixtureCollectionFile(file)) {
-                        GaussianMixtureCollectionFile gmcFile = new GaussianMixtureCollectionFile(file.getAbsolutePath(), true);
-                        scene.getRoot().fireEvent(
-                            new GaussianMixtureEvent(GaussianMixtureEvent.NEW_GAUSSIAN_COLLECTION, gmcFile.gaussianMixtureCollection));
-                    } else if (TextEmbeddingCollectionFile.isTextEmbeddingCollection(file)) {
-                        TextEmbeddingsLoader task = new TextEmbeddingsLoader(scene, file);
-                        Thread thread = new Thread(task);
-                        thread.setDaemon(true);
-                        thread.start();
-                    } else if (CdcCsvFile.isCdcCsvFile(file)) {
-                        CdcCsvFile cdcCsvFile = new CdcCsvFile(file.getAbsolutePath(), true);
-                        //convert to Feature Vector Collection for the lulz
-                        FeatureCollection fc = DataUtils.convertCdcCsv(cdcCsvFile.cdcCsvList, true);
-                        scene.getRoot().fireEvent(
-                            new FeatureVectorEvent(FeatureVectorEvent.NEW_FEATURE_COLLECTION, fc));
-                        Trajectory trajectory = new Trajectory(file.getName());
-                        trajectory.totalStates = fc.getFeatures().size();
-                        scene.getRoot().fireEvent(
-                            new TrajectoryEvent(TrajectoryEvent.NEW_TRAJECTORY_OBJECT,trajectory, fc));                    
-                    } else if (CdcTissueGenesFile.isCdcTissueGenesFile(file)) {
-                        CdcTissueGenesLoader task = new CdcTissueGenesLoader(scene, file);
-                        Thread thread = new Thread(task);
-                        thread.setDaemon(true);
-                        thread.start();
-                    } else if (McclodSplitDataTsvFile.isMcclodSplitDataTsvFile(file)) {
-                        McclodSplitDataLoader task = new McclodSplitDataLoader(scene, file);
-                        Thread thread = new Thread(task);
-                        thread.setDaemon(true);
-                        thread.start();
-                    } else if (ZeroPilotLatentsFile.isZeroPilotLatentsFile(file)) {
-                        ZeroPilotLatentsLoader task = new ZeroPilotLatentsLoader(scene, file);
-                        Thread thread = new Thread(task);
-                        thread.setDaemon(true);
-                        thread.start();
-                    } else if (ManifoldDataFile.isManifoldDataFile(file)) {
-                        ManifoldDataFile mdFile = new ManifoldDataFile(file.getAbsolutePath(), true);
-                        scene.getRoot().fireEvent(
-                            new ManifoldEvent(ManifoldEvent.NEW_MANIFOLD_DATA, mdFile.manifoldData));
+                    } else {
+                        loadFile(scene, file);
                     }
                 } catch (IOException ex) {
                     Logger.getLogger(ResourceUtils.class.getName()).log(Level.SEVERE, null, ex);
@@ -336,4 +257,42 @@ public enum ResourceUtils {
         event.setDropCompleted(success);
         event.consume();
     }
+
+    /**
+     * Classifies a file from a bounded sample of its content and hands it to
+     * a background loader that parses it exactly once.
+     *
+     * @param scene scene whose root receives the loaded data events
+     * @param file  the File to load
+     * @return true if the file type was recognized
+     * @throws IOException if the file cannot be sampled
+     */
+    public static boolean loadFile(Scene scene, File file) throws IOException {
+        FileType fileType = FileTypeSniffer.sniff(file);
+        Task<?> task = null;
+        switch (fileType) {
+            case TEXT_EMBEDDING_COLLECTION:
+                task = new TextEmbeddingsLoader(scene, file);
+                break;
+            case CDC_TISSUE_GENES:
+                task = new CdcTissueGenesLoader(scene, file);
+                break;
+            case MCCLOD_SPLIT_DATA:
+                task = new McclodSplitDataLoader(scene, file);
+                break;
+            case ZERO_PILOT_LATENTS:
+                task = new ZeroPilotLatentsLoader(scene, file);
+                break;
+            case UNKNOWN:
+                break;
+            default:
+                task = new DroppedFileLoader(scene, file, fileType);
+        }
+        if (null != task) {
+            Thread thread = new Thread(task);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return null != task;
+    }
 }
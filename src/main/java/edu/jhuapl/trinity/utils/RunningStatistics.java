@@ -0,0 +1,373 @@
+package edu.jhuapl.trinity.utils;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import edu.jhuapl.trinity.data.FeatureStore;
+import edu.jhuapl.trinity.data.messages.FeatureVector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per dimension running statistics over a stream of feature vectors. Mean and
+ * variance use Welford's update so each vector costs O(D), vectors can be
+ * removed again when a queue trims them, and two accumulators built on
+ * different threads can be merged (Chan et al.).
+ * <p>
+ * Removal is first in first out, matching the queue trims: remove() takes
+ * back the oldest vector still held. Min and max stay exact over that sliding
+ * window through a monotonic deque per dimension, so every update is
+ * amortised O(D) and no rebuild is ever needed.
+ *
+ * @author Sean Phillips
+ */
+public class RunningStatistics {
+    private int dimensions;
+    private long count = 0;
+    private double[] mean;
+    private double[] m2; //sum of squared differences from the mean
+    private double[] min;
+    private double[] max;
+    //sequence number of the next vector added and of the oldest one held
+    private long added = 0;
+    private long oldest = 0;
+    private MonotonicDeque[] minWindow;
+    private MonotonicDeque[] maxWindow;
+
+    public RunningStatistics(int dimensions) {
+        reset(dimensions);
+    }
+
+    /**
+     * Accumulates every vector of the list, in parallel for large lists.
+     *
+     * @param featureVectors vectors to accumulate, all of the first one's size
+     * @return the statistics, empty if the list is
+     */
+    public static RunningStatistics of(List<FeatureVector> featureVectors) {
+        int dimensions = featureVectors.isEmpty() ? 0
+            : featureVectors.get(0).getData().size();
+        return featureVectors.parallelStream().collect(
+            () -> new RunningStatistics(dimensions),
+            RunningStatistics::add,
+            RunningStatistics::merge);
+    }
+
+    public synchronized void reset(int dimensions) {
+        this.dimensions = dimensions;
+        count = 0;
+        mean = new double[dimensions];
+        m2 = new double[dimensions];
+        min = new double[dimensions];
+        max = new double[dimensions];
+        added = 0;
+        oldest = 0;
+        minWindow = new MonotonicDeque[dimensions];
+        maxWindow = new MonotonicDeque[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            minWindow[i] = new MonotonicDeque(false);
+            maxWindow[i] = new MonotonicDeque(true);
+        }
+    }
+
+    public synchronized int getDimensions() {
+        return dimensions;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * @param featureVector vector to add
+     * @return false if the vector is null or of another dimension
+     */
+    public boolean add(FeatureVector featureVector) {
+        if (null == featureVector)
+            return false;
+        return add(featureVector.getData());
+    }
+
+    public synchronized boolean add(List<Double> data) {
+        if (null == data || data.size() != dimensions)
+            return false;
+        count++;
+        for (int i = 0; i < dimensions; i++)
+            addValue(i, value(data, i));
+        added++;
+        return true;
+    }
+
+    public synchronized boolean add(double[] values) {
+        if (null == values || values.length != dimensions)
+            return false;
+        count++;
+        for (int i = 0; i < dimensions; i++)
+            addValue(i, values[i]);
+        added++;
+        return true;
+    }
+
+    /**
+     * Adds a row stored in a flat float array.
+     *
+     * @param values flat array holding the row
+     * @param offset index of the row's first value
+     */
+    public synchronized void add(float[] values, int offset) {
+        count++;
+        for (int i = 0; i < dimensions; i++)
+            addValue(i, values[offset + i]);
+        added++;
+    }
+
+    //row views of a FeatureStore are read without boxing
+    private static double value(List<Double> data, int i) {
+        return data instanceof FeatureStore.RowView
+            ? ((FeatureStore.RowView) data).getDouble(i) : data.get(i);
+    }
+
+    private void addValue(int i, double x) {
+        double delta = x - mean[i];
+        mean[i] += delta / count;
+        m2[i] += delta * (x - mean[i]);
+        minWindow[i].push(added, x);
+        maxWindow[i].push(added, x);
+        min[i] = minWindow[i].front();
+        max[i] = maxWindow[i].front();
+    }
+
+    /**
+     * Takes the oldest vector still held back out. The values passed must be
+     * those of that vector.
+     *
+     * @param featureVector vector to remove
+     * @return false if the vector is null or of another dimension
+     */
+    public boolean remove(FeatureVector featureVector) {
+        if (null == featureVector)
+            return false;
+        return remove(featureVector.getData());
+    }
+
+    public synchronized boolean remove(List<Double> data) {
+        if (null == data || data.size() != dimensions || count == 0)
+            return false;
+        if (count == 1) {
+            reset(dimensions);
+            return true;
+        }
+        count--;
+        for (int i = 0; i < dimensions; i++) {
+            double x = value(data, i);
+            double delta = x - mean[i];
+            mean[i] -= delta / count;
+            m2[i] = Math.max(0.0, m2[i] - delta * (x - mean[i]));
+            minWindow[i].expire(oldest);
+            maxWindow[i].expire(oldest);
+            min[i] = minWindow[i].front();
+            max[i] = maxWindow[i].front();
+        }
+        oldest++;
+        return true;
+    }
+
+    /**
+     * Folds another accumulator of the same dimension into this one. The
+     * other's vectors are taken to follow this one's in queue order, as in
+     * an ordered parallel collect.
+     *
+     * @param other statistics to merge in, left unchanged
+     */
+    public void merge(RunningStatistics other) {
+        if (other == this)
+            return;
+        long otherCount, otherOldest;
+        double[] otherMean, otherM2;
+        MonotonicDeque[] otherMinWindow, otherMaxWindow;
+        synchronized (other) {
+            if (other.count == 0)
+                return;
+            if (other.dimensions != getDimensions())
+                throw new IllegalArgumentException("Dimension mismatch: "
+                    + other.dimensions + " vs " + getDimensions());
+            otherCount = other.count;
+            otherOldest = other.oldest;
+            otherMean = other.mean.clone();
+            otherM2 = other.m2.clone();
+            otherMinWindow = new MonotonicDeque[other.dimensions];
+            otherMaxWindow = new MonotonicDeque[other.dimensions];
+            for (int i = 0; i < other.dimensions; i++) {
+                otherMinWindow[i] = other.minWindow[i].copy();
+                otherMaxWindow[i] = other.maxWindow[i].copy();
+            }
+        }
+        synchronized (this) {
+            if (count == 0) {
+                reset(dimensions);
+                count = otherCount;
+                mean = otherMean;
+                m2 = otherM2;
+            } else {
+                long total = count + otherCount;
+                for (int i = 0; i < dimensions; i++) {
+                    double delta = otherMean[i] - mean[i];
+                    mean[i] += delta * otherCount / total;
+                    m2[i] += otherM2[i] + delta * delta * count * otherCount / total;
+                }
+                count = total;
+            }
+            //renumber the other's window to continue this one's sequence
+            for (int i = 0; i < dimensions; i++) {
+                minWindow[i].append(otherMinWindow[i], added - otherOldest);
+                maxWindow[i].append(otherMaxWindow[i], added - otherOldest);
+                min[i] = minWindow[i].front();
+                max[i] = maxWindow[i].front();
+            }
+            added += otherCount;
+        }
+    }
+
+    public synchronized List<Double> getMeanVector() {
+        List<Double> meanVector = new ArrayList<>(dimensions);
+        for (int i = 0; i < dimensions; i++)
+            meanVector.add(mean[i]);
+        return meanVector;
+    }
+
+    public synchronized double getMean(int dimension) {
+        return mean[dimension];
+    }
+
+    /**
+     * @param dimension dimension index
+     * @return sample variance, 0 with fewer than two vectors
+     */
+    public synchronized double getVariance(int dimension) {
+        return count < 2 ? 0.0 : m2[dimension] / (count - 1);
+    }
+
+    public synchronized double getMin(int dimension) {
+        return min[dimension];
+    }
+
+    public synchronized double getMax(int dimension) {
+        return max[dimension];
+    }
+
+    /**
+     * @return largest absolute value over all dimensions
+     */
+    public synchronized double getMaxAbsValue() {
+        double maxAbs = 0.0;
+        for (int i = 0; i < dimensions; i++)
+            maxAbs = Math.max(maxAbs, Math.max(Math.abs(min[i]), Math.abs(max[i])));
+        return maxAbs;
+    }
+
+    /**
+     * @return largest absolute distance of any value from its dimension mean
+     */
+    public synchronized double getMeanCenteredMaxAbsValue() {
+        double maxAbs = 0.0;
+        for (int i = 0; i < dimensions; i++)
+            maxAbs = Math.max(maxAbs, Math.max(mean[i] - min[i], max[i] - mean[i]));
+        return maxAbs;
+    }
+
+    /**
+     * Candidates for the extreme of a sliding window, oldest first. Each
+     * entry beats every later one, so the front is the current extreme and a
+     * value is dropped as soon as a newer one at least as extreme arrives.
+     */
+    private static final class MonotonicDeque {
+        private final boolean keepMax;
+        private long[] sequence = new long[8];
+        private double[] values = new double[8];
+        private int head = 0;
+        private int size = 0;
+
+        MonotonicDeque(boolean keepMax) {
+            this.keepMax = keepMax;
+        }
+
+        void push(long seq, double x) {
+            while (size > 0) {
+                double back = values[(head + size - 1) & (values.length - 1)];
+                if (keepMax ? back > x : back < x)
+                    break;
+                size--;
+            }
+            if (size == values.length)
+                grow();
+            int tail = (head + size) & (values.length - 1);
+            sequence[tail] = seq;
+            values[tail] = x;
+            size++;
+        }
+
+        //drops the front if it is the vector leaving the window
+        void expire(long seq) {
+            if (size > 0 && sequence[head] == seq) {
+                head = (head + 1) & (values.length - 1);
+                size--;
+            }
+        }
+
+        double front() {
+            return size == 0 ? 0.0 : values[head];
+        }
+
+        void append(MonotonicDeque later, long shift) {
+            for (int k = 0; k < later.size; k++) {
+                int j = (later.head + k) & (later.values.length - 1);
+                push(later.sequence[j] + shift, later.values[j]);
+            }
+        }
+
+        MonotonicDeque copy() {
+            MonotonicDeque copy = new MonotonicDeque(keepMax);
+            copy.sequence = sequence.clone();
+            copy.values = values.clone();
+            copy.head = head;
+            copy.size = size;
+            return copy;
+        }
+
+        //capacity stays a power of two so indices wrap with a mask
+        private void grow() {
+            long[] newSequence = new long[sequence.length * 2];
+            double[] newValues = new double[values.length * 2];
+            for (int k = 0; k < size; k++) {
+                int j = (head + k) & (values.length - 1);
+                newSequence[k] = sequence[j];
+                newValues[k] = values[j];
+            }
+            sequence = newSequence;
+            values = newValues;
+            head = 0;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package edu.jhuapl.trinity.utils;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Uniform grid over 3D points for nearest neighbor, radius and box queries.
+ * Points are hashed into cubic cells by their coordinates and can be added
+ * and removed one at a time, so the grid can follow a scene as points arrive
+ * and are evicted. Each point is identified by an int id chosen by the caller.
+ * <p>
+ * Queries only visit the cells that can hold an answer. The cell size should
+ * be in the order of the typical spacing between points, see
+ * {@link #cellSizeFor(int, double, double, double)}.
+ *
+ * @author Sean Phillips
+ */
+public class SpatialGrid {
+    private static final int CELL_BITS = 21;
+    private static final int CELL_OFFSET = 1 << (CELL_BITS - 1);
+    private static final long CELL_MASK = (1L << CELL_BITS) - 1;
+
+    private final double cellSize;
+    private final HashMap<Long, Cell> cells = new HashMap<>();
+    private int size = 0;
+    //bounds of the cells that ever held a point, in cell units
+    private int minCellX = Integer.MAX_VALUE, minCellY = Integer.MAX_VALUE, minCellZ = Integer.MAX_VALUE;
+    private int maxCellX = Integer.MIN_VALUE, maxCellY = Integer.MIN_VALUE, maxCellZ = Integer.MIN_VALUE;
+
+    private static final class Cell {
+        int[] ids = new int[4];
+        double[] xyz = new double[12];
+        int size = 0;
+
+        void add(int id, double x, double y, double z) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                xyz = Arrays.copyOf(xyz, size * 6);
+            }
+            ids[size] = id;
+            xyz[3 * size] = x;
+            xyz[3 * size + 1] = y;
+            xyz[3 * size + 2] = z;
+            size++;
+        }
+
+        boolean remove(int id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    size--;
+                    ids[i] = ids[size];
+                    System.arraycopy(xyz, 3 * size, xyz, 3 * i, 3);
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * @param cellSize edge length of a grid cell, in the units of the points
+     */
+    public SpatialGrid(double cellSize) {
+        this.cellSize = cellSize > 0.0 ? cellSize : 1.0;
+    }
+
+    /**
+     * Cell size that puts about one point in each cell of the bounding box.
+     *
+     * @param count   number of points
+     * @param extentX width of the bounding box
+     * @param extentY height of the bounding box
+     * @param extentZ depth of the bounding box
+     * @return cell edge length, 1 for empty or degenerate boxes
+     */
+    public static double cellSizeFor(int count, double extentX, double extentY, double extentZ) {
+        double extent = Math.max(extentX, Math.max(extentY, extentZ));
+        if (count < 1 || !(extent > 0.0))
+            return 1.0;
+        //a cell index has 21 bits per axis
+        return Math.max(extent / Math.cbrt(count), extent / CELL_OFFSET);
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        cells.clear();
+        size = 0;
+        minCellX = minCellY = minCellZ = Integer.MAX_VALUE;
+        maxCellX = maxCellY = maxCellZ = Integer.MIN_VALUE;
+    }
+
+    public void add(int id, double x, double y, double z) {
+        int cx = cell(x), cy = cell(y), cz = cell(z);
+        cells.computeIfAbsent(key(cx, cy, cz), k -> new Cell()).add(id, x, y, z);
+        minCellX = Math.min(minCellX, cx);
+        minCellY = Math.min(minCellY, cy);
+        minCellZ = Math.min(minCellZ, cz);
+        maxCellX = Math.max(maxCellX, cx);
+        maxCellY = Math.max(maxCellY, cy);
+        maxCellZ = Math.max(maxCellZ, cz);
+        size++;
+    }
+
+    /**
+     * Removes a point, the coordinates must be the ones it was added with.
+     *
+     * @return true if the point was found
+     */
+    public boolean remove(int id, double x, double y, double z) {
+        long key = key(cell(x), cell(y), cell(z));
+        Cell c = cells.get(key);
+        if (null == c || !c.remove(id))
+            return false;
+        if (c.size == 0)
+            cells.remove(key);
+        size--;
+        return true;
+    }
+
+    /**
+     * @return id of the closest point, -1 if the grid is empty
+     */
+    public int nearest(double x, double y, double z) {
+        return nearest(x, y, z, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Searches cells in growing shells around the query until no unvisited
+     * cell can be closer than the best point found so far. The search starts
+     * at the first shell that touches an occupied cell, and falls back to a
+     * scan of the occupied cells once a shell would have more cells than that.
+     *
+     * @param maxDistance points further away than this are ignored
+     * @return id of the closest point within maxDistance, -1 if there is none
+     */
+    public int nearest(double x, double y, double z, double maxDistance) {
+        if (size == 0)
+            return -1;
+        int cx = cell(x), cy = cell(y), cz = cell(z);
+        //shells closer than the occupied cells are empty
+        int minShell = Math.max(
+            Math.max(Math.max(minCellX - cx, cx - maxCellX), Math.max(minCellY - cy, cy - maxCellY)),
+            Math.max(Math.max(minCellZ - cz, cz - maxCellZ), 0));
+        //shells beyond the occupied cells can not hold anything
+        int maxShell = Math.max(
+            Math.max(Math.max(cx - minCellX, maxCellX - cx), Math.max(cy - minCellY, maxCellY - cy)),
+            Math.max(cz - minCellZ, maxCellZ - cz));
+        if (maxDistance < Double.POSITIVE_INFINITY)
+            maxShell = Math.min(maxShell, (int) Math.ceil(maxDistance / cellSize));
+        Nearest best = new Nearest(x, y, z, maxDistance);
+        for (int shell = minShell; shell <= maxShell; shell++) {
+            if (24L * shell * shell + 2 > cells.size()) {
+                for (Cell c : cells.values())
+                    best.visit(c);
+                return best.id;
+            }
+            //only the part of the shell inside the occupied cells is visited
+            int fromI = Math.max(cx - shell, minCellX), toI = Math.min(cx + shell, maxCellX);
+            int fromJ = Math.max(cy - shell, minCellY), toJ = Math.min(cy + shell, maxCellY);
+            int fromK = Math.max(cz - shell, minCellZ), toK = Math.min(cz + shell, maxCellZ);
+            for (int i = fromI; i <= toI; i++) {
+                for (int j = fromJ; j <= toJ; j++) {
+                    boolean edge = i == cx - shell || i == cx + shell
+                        || j == cy - shell || j == cy + shell;
+                    if (edge) {
+                        for (int k = fromK; k <= toK; k++)
+                            best.visit(cells.get(key(i, j, k)));
+                    } else {
+                        //inside the shell only the two end caps along z are new
+                        if (cz - shell >= minCellZ)
+                            best.visit(cells.get(key(i, j, cz - shell)));
+                        if (shell > 0 && cz + shell <= maxCellZ)
+                            best.visit(cells.get(key(i, j, cz + shell)));
+                    }
+                }
+            }
+            //every cell in the next shell is at least this far away
+            double reach = shell * cellSize;
+            if (best.id >= 0 && best.squared <= reach * reach)
+                break;
+        }
+        return best.id;
+    }
+
+    private static final class Nearest {
+        final double x, y, z;
+        double squared;
+        int id = -1;
+
+        Nearest(double x, double y, double z, double maxDistance) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.squared = maxDistance * maxDistance;
+        }
+
+        void visit(Cell c) {
+            if (null == c)
+                return;
+            for (int p = 0; p < c.size; p++) {
+                double dx = c.xyz[3 * p] - x;
+                double dy = c.xyz[3 * p + 1] - y;
+                double dz = c.xyz[3 * p + 2] - z;
+                double d = dx * dx + dy * dy + dz * dz;
+                if (d < squared || (id < 0 && d <= squared)) {
+                    squared = d;
+                    id = c.ids[p];
+                }
+            }
+        }
+    }
+
+    /**
+     * @return ids of the points within radius of the query, in no particular order
+     */
+    public int[] withinRadius(double x, double y, double z, double radius) {
+        double squaredRadius = radius * radius;
+        return collect(x - radius, y - radius, z - radius, x + radius, y + radius, z + radius,
+            (px, py, pz) -> {
+                double dx = px - x, dy = py - y, dz = pz - z;
+                return dx * dx + dy * dy + dz * dz <= squaredRadius;
+            });
+    }
+
+    /**
+     * @return ids of the points inside the axis aligned box, in no particular order
+     */
+    public int[] withinBox(double minX, double minY, double minZ,
+                           double maxX, double maxY, double maxZ) {
+        return collect(minX, minY, minZ, maxX, maxY, maxZ,
+            (px, py, pz) -> px >= minX && px <= maxX && py >= minY && py <= maxY
+                && pz >= minZ && pz <= maxZ);
+    }
+
+    private interface PointFilter {
+        boolean accept(double x, double y, double z);
+    }
+
+    private int[] collect(double minX, double minY, double minZ,
+                          double maxX, double maxY, double maxZ, PointFilter filter) {
+        int fromX = Math.max(cell(minX), minCellX), toX = Math.min(cell(maxX), maxCellX);
+        int fromY = Math.max(cell(minY), minCellY), toY = Math.min(cell(maxY), maxCellY);
+        int fromZ = Math.max(cell(minZ), minCellZ), toZ = Math.min(cell(maxZ), maxCellZ);
+        if (size == 0 || fromX > toX || fromY > toY || fromZ > toZ)
+            return new int[0];
+        int[][] found = {new int[16]};
+        int count = 0;
+        //a box spanning more cells than are occupied is cheaper to answer cell by cell
+        long boxCells = (long) (toX - fromX + 1) * (toY - fromY + 1) * (toZ - fromZ + 1);
+        if (boxCells > cells.size()) {
+            for (Cell c : cells.values())
+                count = collect(c, filter, found, count);
+        } else {
+            for (int i = fromX; i <= toX; i++)
+                for (int j = fromY; j <= toY; j++)
+                    for (int k = fromZ; k <= toZ; k++) {
+                        Cell c = cells.get(key(i, j, k));
+                        if (null != c)
+                            count = collect(c, filter, found, count);
+                    }
+        }
+        return Arrays.copyOf(found[0], count);
+    }
+
+    private static int collect(Cell c, PointFilter filter, int[][] found, int count) {
+        for (int p = 0; p < c.size; p++) {
+            if (filter.accept(c.xyz[3 * p], c.xyz[3 * p + 1], c.xyz[3 * p + 2])) {
+                if (count == found[0].length)
+                    found[0] = Arrays.copyOf(found[0], count * 2);
+                found[0][count++] = c.ids[p];
+            }
+        }
+        return count;
+    }
+
+    private int cell(double v) {
+        long c = (long) Math.floor(v / cellSize);
+        return (int) Math.max(-CELL_OFFSET, Math.min(CELL_OFFSET - 1, c));
+    }
+
+    private static long key(int cx, int cy, int cz) {
+        return ((cx + CELL_OFFSET) & CELL_MASK) << (2 * CELL_BITS)
+            | ((cy + CELL_OFFSET) & CELL_MASK) << CELL_BITS
+            | ((cz + CELL_OFFSET) & CELL_MASK);
+    }
+}
@@ -0,0 +1,162 @@
+package edu.jhuapl.trinity.utils.loaders;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import edu.jhuapl.trinity.data.Trajectory;
+import edu.jhuapl.trinity.data.files.CdcCsvFile;
+import edu.jhuapl.trinity.data.files.FeatureCollectionFile;
+import edu.jhuapl.trinity.data.files.FileTypeSniffer.FileType;
+import edu.jhuapl.trinity.data.files.GaussianMixtureCollectionFile;
+import edu.jhuapl.trinity.data.files.LabelConfigFile;
+import edu.jhuapl.trinity.data.files.ManifoldDataFile;
+import edu.jhuapl.trinity.data.files.SemanticMapCollectionFile;
+import edu.jhuapl.trinity.data.messages.FeatureCollection;
+import edu.jhuapl.trinity.data.terrain.FireAreaTextFile;
+import edu.jhuapl.trinity.data.terrain.TerrainTextFile;
+import edu.jhuapl.trinity.javafx.components.ProgressStatus;
+import edu.jhuapl.trinity.javafx.events.ApplicationEvent;
+import edu.jhuapl.trinity.javafx.events.FeatureVectorEvent;
+import edu.jhuapl.trinity.javafx.events.GaussianMixtureEvent;
+import edu.jhuapl.trinity.javafx.events.ManifoldEvent;
+import edu.jhuapl.trinity.javafx.events.SemanticMapEvent;
+import edu.jhuapl.trinity.javafx.events.TerrainEvent;
+import edu.jhuapl.trinity.javafx.events.TrajectoryEvent;
+import edu.jhuapl.trinity.utils.DataUtils;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.scene.Scene;
+
+import java.io.File;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Parses a dropped file of an already sniffed type exactly once on a
+ * background thread, then fires the resulting events on the FX thread.
+ *
+ * @author Sean Phillips
+ */
+public class DroppedFileLoader extends Task<Void> {
+    Scene scene;
+    File file;
+    FileType fileType;
+
+    public DroppedFileLoader(Scene scene, File file, FileType fileType) {
+        this.scene = scene;
+        this.file = file;
+        this.fileType = fileType;
+        setOnSucceeded(e -> hideBusyIndicator());
+        setOnFailed(e -> {
+            Logger.getLogger(DroppedFileLoader.class.getName()).log(
+                Level.SEVERE, "Failed to load " + file.getName(), getException());
+            hideBusyIndicator();
+        });
+        setOnCancelled(e -> hideBusyIndicator());
+    }
+
+    private void hideBusyIndicator() {
+        Platform.runLater(() -> {
+            scene.getRoot().fireEvent(
+                new ApplicationEvent(ApplicationEvent.HIDE_BUSY_INDICATOR));
+        });
+    }
+
+    @Override
+    protected Void call() throws Exception {
+        Platform.runLater(() -> {
+            ProgressStatus ps = new ProgressStatus("Loading " + file.getName() + "...", -1);
+            scene.getRoot().fireEvent(
+                new ApplicationEvent(ApplicationEvent.SHOW_BUSY_INDICATOR, ps));
+        });
+        String path = file.getAbsolutePath();
+        switch (fileType) {
+            case LABEL_CONFIG: {
+                LabelConfigFile labelConfigFile = new LabelConfigFile(path, true);
+                Platform.runLater(() -> scene.getRoot().fireEvent(
+                    new FeatureVectorEvent(FeatureVectorEvent.NEW_LABEL_CONFIG, labelConfigFile.labelConfig)));
+                break;
+            }
+            case TERRAIN_TEXT: {
+                TerrainTextFile terrainTextFile = new TerrainTextFile(path, true);
+                Platform.runLater(() -> scene.getRoot().fireEvent(
+                    new TerrainEvent(TerrainEvent.NEW_TERRAIN_TEXTFILE, terrainTextFile.dataGrid)));
+                break;
+            }
+            case FIRE_AREA_TEXT: {
+                FireAreaTextFile fireAreaTextFile = new FireAreaTextFile(path, true);
+                Platform.runLater(() -> scene.getRoot().fireEvent(
+                    new TerrainEvent(TerrainEvent.NEW_FIREAREA_TEXTFILE, fireAreaTextFile.dataGrid)));
+                break;
+            }
+            case SEMANTIC_MAP_COLLECTION: {
+                SemanticMapCollectionFile smcFile = new SemanticMapCollectionFile(path, true);
+                //Trajectory logic handled by SemanticMapEventHandler
+                Platform.runLater(() -> scene.getRoot().fireEvent(
+                    new SemanticMapEvent(SemanticMapEvent.NEW_SEMANTICMAP_COLLECTION, smcFile.semanticMapCollection)));
+                break;
+            }
+            case FEATURE_COLLECTION: {
+                FeatureCollectionFile fcFile = new FeatureCollectionFile(path, true);
+                Platform.runLater(() -> {
+                    scene.getRoot().fireEvent(
+                        new FeatureVectorEvent(FeatureVectorEvent.NEW_FEATURE_COLLECTION, fcFile.featureCollection));
+                    Trajectory trajectory = new Trajectory(file.getName());
+                    trajectory.totalStates = fcFile.featureCollection.getFeatures().size();
+                    Trajectory.addTrajectory(trajectory);
+                    Trajectory.globalTrajectoryToFeatureCollectionMap.put(trajectory, fcFile.featureCollection);
+                    scene.getRoot().fireEvent(
+                        new TrajectoryEvent(TrajectoryEvent.NEW_TRAJECTORY_OBJECT, trajectory, fcFile.featureCollection));
+                });
+                break;
+            }
+            case GAUSSIAN_MIXTURE_COLLECTION: {
+                GaussianMixtureCollectionFile gmcFile = new GaussianMixtureCollectionFile(path, true);
+                Platform.runLater(() -> scene.getRoot().fireEvent(
+                    new GaussianMixtureEvent(GaussianMixtureEvent.NEW_GAUSSIAN_COLLECTION, gmcFile.gaussianMixtureCollection)));
+                break;
+            }
+            case CDC_CSV: {
+                CdcCsvFile cdcCsvFile = new CdcCsvFile(path, true);
+                //convert to Feature Vector Collection for the lulz
+                FeatureCollection fc = DataUtils.convertCdcCsv(cdcCsvFile.cdcCsvList, true);
+                Platform.runLater(() -> {
+                    scene.getRoot().fireEvent(
+                        new FeatureVectorEvent(FeatureVectorEvent.NEW_FEATURE_COLLECTION, fc));
+                    Trajectory trajectory = new Trajectory(file.getName());
+                    trajectory.totalStates = fc.getFeatures().size();
+                    scene.getRoot().fireEvent(
+                        new TrajectoryEvent(TrajectoryEvent.NEW_TRAJECTORY_OBJECT, trajectory, fc));
+                });
+                break;
+            }
+            case MANIFOLD_DATA: {
+                ManifoldDataFile mdFile = new ManifoldDataFile(path, true);
+                Platform.runLater(() -> scene.getRoot().fireEvent(
+                    new ManifoldEvent(ManifoldEvent.NEW_MANIFOLD_DATA, mdFile.manifoldData)));
+                break;
+            }
+            default:
+                break;
+        }
+        return null;
+    }
+}
@@ -3,7 +3,6 @@
  * Copyright (c) 2017, Leland McInnes, 2019 Tag.bio (Java port).
  * See UMAPLicense.txt.
  */
-
 package edu.jhuapl.trinity.utils.umap;
 
 /*-
@@ -26,6 +25,34 @@ package edu.jhuapl.trinity.utils.umap;
  * #L%
  */
 
-public interface ProgressListener {
-    void updated(ProgressState progressState);
+/**
+ * Cooperative cancellation for a running UMAP fit. The fit polls the token
+ * between stages and after every layout epoch.
+ * <p>
+ * Cancelling abandons the fit, which then throws a
+ * <code>java.util.concurrent.CancellationException</code>. Stopping ends the
+ * layout optimization early but keeps the embedding reached so far as the
+ * result, for when the layout has visibly settled.
+ *
+ * @author Sean Phillips
+ */
+public class CancellationToken {
+    private volatile boolean mCancelled = false;
+    private volatile boolean mStopRequested = false;
+
+    public void cancel() {
+        mCancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    public void requestStop() {
+        mStopRequested = true;
+    }
+
+    public boolean isStopRequested() {
+        return mStopRequested;
+    }
 }
@@ -25,7 +25,10 @@ package edu.jhuapl.trinity.utils.umap;
  * #L%
  */
 
+import edu.jhuapl.trinity.utils.umap.metric.Metric;
+
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * A form of sparse matrix where only non-zero entries are explicitly recorded.
@@ -34,7 +37,7 @@ import java.util.Arrays;
  * @author Sean A. Irvine
  * @author Richard Littin
  */
-class CsrMatrix extends Matrix {
+public class CsrMatrix extends Matrix {
 
     private final int[] mIndptr;  // indptr[row] to indptr[row + 1] locations of cols in indices
     private final int[] mIndices; // positions of actual data
@@ -47,6 +50,61 @@ class CsrMatrix extends Matrix {
         mData = data;
     }
 
+    /**
+     * Build a sparse matrix from dense rows, keeping only the nonzero entries.
+     * Rows shorter than the longest row are treated as zero padded.
+     *
+     * @param rows dense rows
+     * @return sparse matrix with a row per input row
+     */
+    public static CsrMatrix fromRows(final List<? extends List<Double>> rows) {
+        int cols = 0;
+        int nnz = 0;
+        for (final List<Double> row : rows) {
+            cols = Math.max(cols, row.size());
+            for (final Double v : row) {
+                if (v != 0) {
+                    ++nnz;
+                }
+            }
+        }
+        final int[] indptr = new int[rows.size() + 1];
+        final int[] indices = new int[nnz];
+        final float[] data = new float[nnz];
+        int k = 0;
+        for (int r = 0; r < rows.size(); ++r) {
+            indptr[r] = k;
+            final List<Double> row = rows.get(r);
+            for (int c = 0; c < row.size(); ++c) {
+                final double v = row.get(c);
+                if (v != 0) {
+                    indices[k] = c;
+                    data[k++] = (float) v;
+                }
+            }
+        }
+        indptr[rows.size()] = k;
+        return new CsrMatrix(data, indptr, indices, rows.size(), cols);
+    }
+
+    /**
+     * Number of explicitly stored entries.
+     *
+     * @return number of nonzero entries
+     */
+    public int nnz() {
+        return mData.length;
+    }
+
+    /**
+     * Fraction of the entries that are explicitly stored.
+     *
+     * @return density in [0, 1]
+     */
+    public float density() {
+        return rows() == 0 || cols() == 0 ? 0 : mData.length / ((float) rows() * cols());
+    }
+
     @Override
     float get(final int row, final int col) {
         final int colStart = mIndptr[row];
@@ -59,6 +117,34 @@ class CsrMatrix extends Matrix {
         return 0;
     }
 
+    @Override
+    float[] row(final int row) {
+        final float[] res = new float[cols()];
+        for (int p = mIndptr[row]; p < mIndptr[row + 1]; ++p) {
+            res[mIndices[p]] = mData[p];
+        }
+        return res;
+    }
+
+    @Override
+    float[][] toArray() {
+        final float[][] res = new float[rows()][];
+        for (int r = 0; r < res.length; ++r) {
+            res[r] = row(r);
+        }
+        return res;
+    }
+
+    @Override
+    float distance(final Metric metric, final int i, final Matrix other, final int j) {
+        if (other instanceof CsrMatrix) {
+            final CsrMatrix o = (CsrMatrix) other;
+            return metric.sparseDistance(mIndices, mData, mIndptr[i], mIndptr[i + 1],
+                o.mIndices, o.mData, o.mIndptr[j], o.mIndptr[j + 1], cols());
+        }
+        return super.distance(metric, i, other, j);
+    }
+
     @Override
     void set(final int row, final int col, final float val) {
         throw new UnsupportedOperationException();
@@ -25,6 +25,8 @@ package edu.jhuapl.trinity.utils.umap;
  * #L%
  */
 
+import edu.jhuapl.trinity.utils.umap.metric.Metric;
+
 import java.util.Arrays;
 
 /**
@@ -99,6 +101,25 @@ public class DefaultMatrix extends Matrix {
         return mData[row];
     }
 
+    @Override
+    float distance(final Metric metric, final int i, final Matrix other, final int j) {
+        if (other instanceof FlatMatrix) {
+            final FlatMatrix flat = (FlatMatrix) other;
+            return metric.distance(mData[i], 0, flat.data(), flat.offset(j), cols());
+        }
+        return metric.distance(mData[i], other.row(j));
+    }
+
+    @Override
+    float dot(final int row, final float[] v) {
+        final float[] r = mData[row];
+        float sum = 0;
+        for (int d = 0; d < v.length; ++d) {
+            sum += v[d] * r[d];
+        }
+        return sum;
+    }
+
     @Override
     Matrix eliminateZeros() {
         // There is nothing to be done in this implementation (zeros cannot be removed)
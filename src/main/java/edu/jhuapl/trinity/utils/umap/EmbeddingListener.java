@@ -0,0 +1,61 @@
+/*
+ * BSD 3-Clause License
+ * Copyright (c) 2017, Leland McInnes, 2019 Tag.bio (Java port).
+ * See UMAPLicense.txt.
+ */
+package edu.jhuapl.trinity.utils.umap;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Receives progress and intermediate layouts while a UMAP fit optimizes its
+ * embedding. Called on the fitting thread, so implementations that touch a
+ * user interface should hand the snapshot over rather than block.
+ *
+ * @author Sean Phillips
+ */
+public interface EmbeddingListener {
+    /**
+     * Called after every epoch with the progress only.
+     *
+     * @param epoch   completed epoch, counting from one
+     * @param nEpochs total epochs of the optimization
+     */
+    default void epochCompleted(int epoch, int nEpochs) {
+    }
+
+    /**
+     * Called as each stage of the fit advances, at most twice a second.
+     *
+     * @param state work done so far out of the total known so far
+     */
+    default void progressUpdated(ProgressState state) {
+    }
+
+    /**
+     * Called every snapshot interval and once when the optimization ends.
+     *
+     * @param epoch     completed epoch, counting from one
+     * @param nEpochs   total epochs of the optimization
+     * @param embedding copy of the current embedding, owned by the listener
+     */
+    void embeddingUpdated(int epoch, int nEpochs, float[][] embedding);
+}
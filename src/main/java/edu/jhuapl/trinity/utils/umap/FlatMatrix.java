@@ -0,0 +1,205 @@
+/*
+ * BSD 3-Clause License
+ * Copyright (c) 2017, Leland McInnes, 2019 Tag.bio (Java port).
+ * See UMAPLicense.txt.
+ */
+package edu.jhuapl.trinity.utils.umap;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import edu.jhuapl.trinity.utils.umap.metric.Metric;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Dense matrix backed by a single row-major array. Rows are contiguous, so
+ * distance kernels can stream through the data without chasing a separate
+ * array per row, and the whole matrix is a single allocation.
+ * <p>
+ * Note that {@link #row(int)} returns a copy; code that needs to update rows
+ * in place should use {@link DefaultMatrix}.
+ *
+ * @author Sean Phillips
+ */
+public class FlatMatrix extends Matrix {
+
+    private final float[] mData;
+
+    /**
+     * Construct a matrix backed by the given row-major array. The array is NOT
+     * copied.
+     *
+     * @param data row-major values, of length <code>rows * cols</code>
+     * @param rows number of rows
+     * @param cols number of columns
+     */
+    FlatMatrix(final float[] data, final int rows, final int cols) {
+        super(rows, cols);
+        if (data.length != rows * cols) {
+            throw new IllegalArgumentException("Expected " + rows * cols + " values but got " + data.length);
+        }
+        mData = data;
+    }
+
+    /**
+     * Construct a new zero matrix of specified dimensions.
+     *
+     * @param rows number of rows
+     * @param cols number of columns
+     */
+    FlatMatrix(final int rows, final int cols) {
+        this(new float[rows * cols], rows, cols);
+    }
+
+    /**
+     * Construct a flat copy of another matrix.
+     *
+     * @param matrix matrix to copy
+     */
+    FlatMatrix(final Matrix matrix) {
+        this(matrix.rows(), matrix.cols());
+        final int cols = cols();
+        if (matrix instanceof DefaultMatrix) {
+            // rows of a DefaultMatrix are views, so can be copied in bulk
+            for (int r = 0; r < rows(); ++r) {
+                System.arraycopy(matrix.row(r), 0, mData, r * cols, cols);
+            }
+        } else {
+            for (int r = 0; r < rows(); ++r) {
+                for (int c = 0; c < cols; ++c) {
+                    mData[r * cols + c] = matrix.get(r, c);
+                }
+            }
+        }
+    }
+
+    /**
+     * Build a single precision matrix straight from dense rows, without an
+     * intermediate <code>float[][]</code>. Rows shorter than the longest row
+     * are treated as zero padded.
+     *
+     * @param rows dense rows
+     * @return matrix with a row per input row
+     */
+    public static FlatMatrix fromRows(final List<? extends List<Double>> rows) {
+        int cols = 0;
+        for (final List<Double> row : rows) {
+            cols = Math.max(cols, row.size());
+        }
+        final float[] data = new float[Math.multiplyExact(rows.size(), cols)];
+        for (int r = 0; r < rows.size(); ++r) {
+            final List<Double> row = rows.get(r);
+            for (int c = 0; c < row.size(); ++c) {
+                data[r * cols + c] = row.get(c).floatValue();
+            }
+        }
+        return new FlatMatrix(data, rows.size(), cols);
+    }
+
+    /**
+     * Backing row-major array.
+     *
+     * @return the array, not a copy
+     */
+    float[] data() {
+        return mData;
+    }
+
+    /**
+     * Index of the first element of a row in the backing array.
+     *
+     * @param row row number
+     * @return offset of the row
+     */
+    int offset(final int row) {
+        return row * cols();
+    }
+
+    @Override
+    float get(final int row, final int col) {
+        return mData[row * cols() + col];
+    }
+
+    @Override
+    void set(final int row, final int col, final float val) {
+        mData[row * cols() + col] = val;
+    }
+
+    @Override
+    boolean isFinite() {
+        for (final float v : mData) {
+            if (!Float.isFinite(v)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    Matrix copy() {
+        return new FlatMatrix(Arrays.copyOf(mData, mData.length), rows(), cols());
+    }
+
+    @Override
+    float[][] toArray() {
+        final int cols = cols();
+        final float[][] res = new float[rows()][];
+        for (int r = 0; r < res.length; ++r) {
+            res[r] = Arrays.copyOfRange(mData, r * cols, (r + 1) * cols);
+        }
+        return res;
+    }
+
+    @Override
+    float[] row(final int row) {
+        final int offset = row * cols();
+        return Arrays.copyOfRange(mData, offset, offset + cols());
+    }
+
+    @Override
+    float distance(final Metric metric, final int i, final Matrix other, final int j) {
+        final int cols = cols();
+        if (other instanceof FlatMatrix) {
+            return metric.distance(mData, i * cols, ((FlatMatrix) other).mData, j * other.cols(), cols);
+        }
+        if (other instanceof DefaultMatrix) {
+            return metric.distance(mData, i * cols, other.row(j), 0, cols);
+        }
+        return super.distance(metric, i, other, j);
+    }
+
+    @Override
+    float dot(final int row, final float[] v) {
+        final int offset = row * cols();
+        float sum = 0;
+        for (int d = 0; d < v.length; ++d) {
+            sum += v[d] * mData[offset + d];
+        }
+        return sum;
+    }
+
+    @Override
+    Matrix eliminateZeros() {
+        // There is nothing to be done in this implementation (zeros cannot be removed)
+        return this;
+    }
+}
@@ -55,6 +55,18 @@ class FlatTree {
         return mIndices;
     }
 
+    Object getHyperplanes() {
+        return mHyperplanes;
+    }
+
+    float[] getOffsets() {
+        return mOffsets;
+    }
+
+    int[][] getChildren() {
+        return mChildren;
+    }
+
     private static boolean selectSide(final float[] hyperplane, final float offset, final float[] point, final Random random) {
         float margin = offset;
         for (int d = 0; d < point.length; ++d) {
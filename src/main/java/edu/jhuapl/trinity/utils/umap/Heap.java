@@ -99,67 +99,81 @@ class Heap {
      */
     boolean push(final int row, final float weight, final int index, final boolean flag) {
         synchronized (mIndices[row]) {
-            final int[] indices = mIndices[row];
-            final float[] weights = mWeights[row];
-            final boolean[] isNew = mIsNew[row];
+            return checkedHeapPush(row, weight, index, flag);
+        }
+    }
 
-            if (weight >= weights[0]) {
-                return false;
-            }
+    /**
+     * Push as {@link #push(int, float, int, boolean)} without locking the row,
+     * for callers that guarantee only one thread writes to each row.
+     *
+     * @param row    Which actual heap within the heap object to push to
+     * @param weight The priority value of the element to push onto the heap
+     * @param index  The actual value to be pushed
+     * @param flag   Whether to flag the newly added element or not.
+     * @return True iff the pushed element is new.
+     */
+    boolean checkedHeapPush(final int row, final float weight, final int index, final boolean flag) {
+        final int[] indices = mIndices[row];
+        final float[] weights = mWeights[row];
+        final boolean[] isNew = mIsNew[row];
 
-            // break if we already have this element.
-            for (final int value : indices) {
-                if (index == value) {
-                    return false;
-                }
+        if (weight >= weights[0]) {
+            return false;
+        }
+
+        // break if we already have this element.
+        for (final int value : indices) {
+            if (index == value) {
+                return false;
             }
+        }
 
-            // insert val at position zero
-            weights[0] = weight;
-            indices[0] = index;
-            isNew[0] = flag;
+        // insert val at position zero
+        weights[0] = weight;
+        indices[0] = index;
+        isNew[0] = flag;
 
-            // descend the heap, swapping values until the max heap criterion is met
-            int i = 0;
-            while (true) {
-                final int ic1 = 2 * i + 1;
-                final int ic2 = ic1 + 1;
-                final int iSwap;
+        // descend the heap, swapping values until the max heap criterion is met
+        int i = 0;
+        while (true) {
+            final int ic1 = 2 * i + 1;
+            final int ic2 = ic1 + 1;
+            final int iSwap;
 
-                if (ic1 >= mIndices[0].length) {
+            if (ic1 >= mIndices[0].length) {
+                break;
+            } else if (ic2 >= mIndices[0].length) {
+                if (weights[ic1] > weight) {
+                    iSwap = ic1;
+                } else {
                     break;
-                } else if (ic2 >= mIndices[0].length) {
-                    if (weights[ic1] > weight) {
-                        iSwap = ic1;
-                    } else {
-                        break;
-                    }
-                } else if (weights[ic1] >= weights[ic2]) {
-                    if (weight < weights[ic1]) {
-                        iSwap = ic1;
-                    } else {
-                        break;
-                    }
+                }
+            } else if (weights[ic1] >= weights[ic2]) {
+                if (weight < weights[ic1]) {
+                    iSwap = ic1;
                 } else {
-                    if (weight < weights[ic2]) {
-                        iSwap = ic2;
-                    } else {
-                        break;
-                    }
+                    break;
+                }
+            } else {
+                if (weight < weights[ic2]) {
+                    iSwap = ic2;
+                } else {
+                    break;
                 }
-
-                weights[i] = weights[iSwap];
-                indices[i] = indices[iSwap];
-                isNew[i] = isNew[iSwap];
-
-                i = iSwap;
             }
 
-            weights[i] = weight;
-            indices[i] = index;
-            isNew[i] = flag;
-            return true;
+            weights[i] = weights[iSwap];
+            indices[i] = indices[iSwap];
+            isNew[i] = isNew[iSwap];
+
+            i = iSwap;
         }
+
+        weights[i] = weight;
+        indices[i] = index;
+        isNew[i] = flag;
+        return true;
     }
 
     /**
@@ -25,6 +25,8 @@ package edu.jhuapl.trinity.utils.umap;
  * #L%
  */
 
+import edu.jhuapl.trinity.utils.umap.metric.Metric;
+
 import java.util.Arrays;
 
 /**
@@ -327,6 +329,48 @@ public abstract class Matrix {
         return data;
     }
 
+    /**
+     * Distance between two rows of this matrix.
+     *
+     * @param metric distance metric
+     * @param i      first row
+     * @param j      second row
+     * @return distance between the rows
+     */
+    float distance(final Metric metric, final int i, final int j) {
+        return distance(metric, i, this, j);
+    }
+
+    /**
+     * Distance between a row of this matrix and a row of another matrix.
+     * Implementations with contiguous storage override this to avoid
+     * materializing the rows.
+     *
+     * @param metric distance metric
+     * @param i      row of this matrix
+     * @param other  other matrix
+     * @param j      row of the other matrix
+     * @return distance between the rows
+     */
+    float distance(final Metric metric, final int i, final Matrix other, final int j) {
+        return metric.distance(row(i), other.row(j));
+    }
+
+    /**
+     * Dot product of a row of this matrix with a vector.
+     *
+     * @param row row number
+     * @param v   vector of length <code>cols()</code>
+     * @return dot product
+     */
+    float dot(final int row, final float[] v) {
+        float sum = 0;
+        for (int d = 0; d < v.length; ++d) {
+            sum += v[d] * get(row, d);
+        }
+        return sum;
+    }
+
     Matrix max(final Matrix other) {
         if (!isShapeSame(other)) {
             throw new IllegalArgumentException("Incompatible sizes");
@@ -0,0 +1,240 @@
+/*
+ * BSD 3-Clause License
+ * Copyright (c) 2017, Leland McInnes, 2019 Tag.bio (Java port).
+ * See UMAPLicense.txt.
+ */
+package edu.jhuapl.trinity.utils.umap;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Binary read and write helpers for persisting a fitted {@link Umap}.
+ * Float data is moved through a byte buffer in bulk rather than one
+ * value at a time, and uses the same big-endian order as the data streams.
+ * <p>
+ * Lengths read back are validated and arrays grow as data actually arrives,
+ * so a truncated or corrupt file fails with an IOException rather than a
+ * huge allocation.
+ *
+ * @author Sean Phillips
+ */
+final class ModelIO {
+
+    private static final int CHUNK_FLOATS = 16384;
+    /**
+     * Largest array the VM will reliably allocate.
+     */
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    private ModelIO() {
+    }
+
+    static void writeFloats(final DataOutputStream out, final float[] data, final int offset, final int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(Float.BYTES * Math.min(length, CHUNK_FLOATS));
+        for (int start = 0; start < length; start += CHUNK_FLOATS) {
+            final int count = Math.min(CHUNK_FLOATS, length - start);
+            buffer.clear();
+            buffer.asFloatBuffer().put(data, offset + start, count);
+            out.write(buffer.array(), 0, count * Float.BYTES);
+        }
+    }
+
+    static void readFloats(final DataInputStream in, final float[] data, final int offset, final int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(Float.BYTES * Math.min(length, CHUNK_FLOATS));
+        for (int start = 0; start < length; start += CHUNK_FLOATS) {
+            final int count = Math.min(CHUNK_FLOATS, length - start);
+            in.readFully(buffer.array(), 0, count * Float.BYTES);
+            buffer.clear();
+            buffer.asFloatBuffer().get(data, offset + start, count);
+        }
+    }
+
+    static void writeFloatArray(final DataOutputStream out, final float[] data) throws IOException {
+        out.writeInt(data.length);
+        writeFloats(out, data, 0, data.length);
+    }
+
+    /**
+     * Read a length or count header.
+     *
+     * @throws IOException if the value is negative or too large for an array
+     */
+    static int readLength(final DataInputStream in, final String what) throws IOException {
+        return checkLength(in.readInt(), what);
+    }
+
+    private static int checkLength(final long length, final String what) throws IOException {
+        if (length < 0 || length > MAX_ARRAY_LENGTH) {
+            throw new IOException("Invalid " + what + " in model file: " + length);
+        }
+        return (int) length;
+    }
+
+    /**
+     * Read length floats into a new array that grows a chunk at a time, so
+     * the full length is only allocated once the data is known to be there.
+     */
+    static float[] readFloats(final DataInputStream in, final int length) throws IOException {
+        float[] data = new float[Math.min(length, CHUNK_FLOATS)];
+        for (int start = 0; start < length; start += CHUNK_FLOATS) {
+            final int count = Math.min(CHUNK_FLOATS, length - start);
+            if (start + count > data.length) {
+                data = Arrays.copyOf(data, (int) Math.min(length, Math.max(start + count, 2L * data.length)));
+            }
+            readFloats(in, data, start, count);
+        }
+        return data;
+    }
+
+    static float[] readFloatArray(final DataInputStream in) throws IOException {
+        return readFloats(in, readLength(in, "array length"));
+    }
+
+    static void writeIntArray(final DataOutputStream out, final int[] data) throws IOException {
+        out.writeInt(data.length);
+        final ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES * data.length);
+        buffer.asIntBuffer().put(data);
+        out.write(buffer.array());
+    }
+
+    static int[] readIntArray(final DataInputStream in) throws IOException {
+        final int length = readLength(in, "array length");
+        int[] data = new int[Math.min(length, CHUNK_FLOATS)];
+        final ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES * data.length);
+        for (int start = 0; start < length; start += CHUNK_FLOATS) {
+            final int count = Math.min(CHUNK_FLOATS, length - start);
+            if (start + count > data.length) {
+                data = Arrays.copyOf(data, (int) Math.min(length, Math.max(start + count, 2L * data.length)));
+            }
+            in.readFully(buffer.array(), 0, count * Integer.BYTES);
+            buffer.clear();
+            buffer.asIntBuffer().get(data, start, count);
+        }
+        return data;
+    }
+
+    static void writeFloatRows(final DataOutputStream out, final float[][] rows) throws IOException {
+        out.writeInt(rows.length);
+        for (final float[] row : rows) {
+            writeFloatArray(out, row);
+        }
+    }
+
+    static float[][] readFloatRows(final DataInputStream in) throws IOException {
+        final int count = readLength(in, "row count");
+        final List<float[]> rows = new ArrayList<>(Math.min(count, CHUNK_FLOATS));
+        for (int r = 0; r < count; ++r) {
+            rows.add(readFloatArray(in));
+        }
+        return rows.toArray(new float[0][]);
+    }
+
+    static void writeIntRows(final DataOutputStream out, final int[][] rows) throws IOException {
+        out.writeInt(rows.length);
+        for (final int[] row : rows) {
+            writeIntArray(out, row);
+        }
+    }
+
+    static int[][] readIntRows(final DataInputStream in) throws IOException {
+        final int count = readLength(in, "row count");
+        final List<int[]> rows = new ArrayList<>(Math.min(count, CHUNK_FLOATS));
+        for (int r = 0; r < count; ++r) {
+            rows.add(readIntArray(in));
+        }
+        return rows.toArray(new int[0][]);
+    }
+
+    /**
+     * Write a dense matrix as rows, cols and row-major values.
+     */
+    static void writeMatrix(final DataOutputStream out, final Matrix matrix) throws IOException {
+        out.writeInt(matrix.rows());
+        out.writeInt(matrix.cols());
+        if (matrix instanceof FlatMatrix) {
+            writeFloats(out, ((FlatMatrix) matrix).data(), 0, matrix.rows() * matrix.cols());
+        } else {
+            for (int r = 0; r < matrix.rows(); ++r) {
+                writeFloats(out, matrix.row(r), 0, matrix.cols());
+            }
+        }
+    }
+
+    private static int readMatrixSize(final DataInputStream in, final int rows, final int cols) throws IOException {
+        try {
+            return checkLength(Math.multiplyExact(rows, (long) cols), "matrix size");
+        } catch (ArithmeticException ex) {
+            throw new IOException("Invalid matrix size in model file: " + rows + " x " + cols, ex);
+        }
+    }
+
+    static FlatMatrix readFlatMatrix(final DataInputStream in) throws IOException {
+        final int rows = readLength(in, "matrix rows");
+        final int cols = readLength(in, "matrix cols");
+        final float[] data = readFloats(in, readMatrixSize(in, rows, cols));
+        return new FlatMatrix(data, rows, cols);
+    }
+
+    static DefaultMatrix readDefaultMatrix(final DataInputStream in) throws IOException {
+        final int rows = readLength(in, "matrix rows");
+        final int cols = readLength(in, "matrix cols");
+        readMatrixSize(in, rows, cols);
+        final List<float[]> data = new ArrayList<>(Math.min(rows, CHUNK_FLOATS));
+        for (int r = 0; r < rows; ++r) {
+            data.add(readFloats(in, cols));
+        }
+        return new DefaultMatrix(data.toArray(new float[0][]));
+    }
+
+    static void writeForest(final DataOutputStream out, final List<FlatTree> forest) throws IOException {
+        out.writeInt(forest.size());
+        for (final FlatTree tree : forest) {
+            if (!(tree.getHyperplanes() instanceof float[][])) {
+                throw new UnsupportedOperationException("Only dense random projection trees can be saved");
+            }
+            writeFloatRows(out, (float[][]) tree.getHyperplanes());
+            writeFloatArray(out, tree.getOffsets());
+            writeIntRows(out, tree.getChildren());
+            writeIntRows(out, tree.getIndices());
+        }
+    }
+
+    static List<FlatTree> readForest(final DataInputStream in) throws IOException {
+        final int size = readLength(in, "forest size");
+        final List<FlatTree> forest = new ArrayList<>(Math.min(size, CHUNK_FLOATS));
+        for (int t = 0; t < size; ++t) {
+            final float[][] hyperplanes = readFloatRows(in);
+            final float[] offsets = readFloatArray(in);
+            final int[][] children = readIntRows(in);
+            final int[][] indices = readIntRows(in);
+            forest.add(new FlatTree(hyperplanes, offsets, children, indices));
+        }
+        return forest;
+    }
+}
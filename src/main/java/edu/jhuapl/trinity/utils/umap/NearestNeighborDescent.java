@@ -39,8 +39,14 @@ import java.util.Random;
  */
 class NearestNeighborDescent {
 
+    /**
+     * Rows of a descent iteration between polls of the cancellation token.
+     */
+    static final int CANCEL_CHECK_ROWS = 1024;
+
     final Metric mMetric;
     boolean mVerbose;
+    UmapProgress mProgress = new UmapProgress(null, null);
 
     /**
      * Construct a nearest neighbor descent object for the given metric.
@@ -55,6 +61,13 @@ class NearestNeighborDescent {
         mVerbose = flag;
     }
 
+    /**
+     * @param progress progress and cancellation of the fit this descent is part of
+     */
+    void setProgress(final UmapProgress progress) {
+        mProgress = progress;
+    }
+
     Heap descent(final Matrix data, final int nNeighbors, final Random random, final int maxCandidates, final boolean rpTreeInit, final int nIters, final List<FlatTree> forest) {
         return descent(data, nNeighbors, random, maxCandidates, rpTreeInit, nIters, forest, 0.001F, 0.5F);
     }
@@ -63,22 +76,22 @@ class NearestNeighborDescent {
         final int nVertices = data.rows();
         final Heap currentGraph = new Heap(data.rows(), nNeighbors);
         for (int i = 0; i < data.rows(); ++i) {
-            final float[] iRow = data.row(i);
             for (final int index : Utils.rejectionSample(nNeighbors, data.rows(), random)) {
-                final float d = mMetric.distance(iRow, data.row(index));
+                final float d = data.distance(mMetric, i, index);
                 currentGraph.push(i, d, index, true);
                 currentGraph.push(index, d, i, true);
             }
         }
-        UmapProgress.update();
+        mProgress.update();
+        mProgress.checkCancelled();
 
         if (rpTreeInit) {
             for (final FlatTree tree : forest) {
+                mProgress.checkCancelled();
                 for (final int[] leaf : tree.getIndices()) {
                     for (int i = 0; i < leaf.length; ++i) {
-                        final float[] iRow = data.row(leaf[i]);
                         for (int j = i + 1; j < leaf.length; ++j) {
-                            final float d = mMetric.distance(iRow, data.row(leaf[j]));
+                            final float d = data.distance(mMetric, leaf[i], leaf[j]);
                             currentGraph.push(leaf[i], d, leaf[j], true);
                             currentGraph.push(leaf[j], d, leaf[i], true);
                         }
@@ -86,7 +99,7 @@ class NearestNeighborDescent {
                 }
             }
         }
-        UmapProgress.update();
+        mProgress.update();
 
         final boolean[] rejectStatus = new boolean[maxCandidates];
         for (int n = 0; n < nIters; ++n) {
@@ -98,6 +111,9 @@ class NearestNeighborDescent {
 
             int c = 0;
             for (int i = 0; i < nVertices; ++i) {
+                if (i % CANCEL_CHECK_ROWS == 0) {
+                    mProgress.checkCancelled();
+                }
                 for (int j = 0; j < maxCandidates; ++j) {
                     rejectStatus[j] = random.nextFloat() < rho;
                 }
@@ -113,7 +129,7 @@ class NearestNeighborDescent {
                             continue;
                         }
 
-                        final float d = mMetric.distance(data.row(p), data.row(q));
+                        final float d = data.distance(mMetric, p, q);
                         if (currentGraph.push(p, d, q, true)) {
                             ++c;
                         }
@@ -125,10 +141,10 @@ class NearestNeighborDescent {
             }
 
             if (c <= delta * nNeighbors * data.rows()) {
-                UmapProgress.update(nIters - n);
+                mProgress.update(nIters - n);
                 break;
             }
-            UmapProgress.update();
+            mProgress.update();
         }
         return currentGraph.deheapSort();
     }
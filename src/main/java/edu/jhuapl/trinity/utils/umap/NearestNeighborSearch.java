@@ -28,8 +28,6 @@ package edu.jhuapl.trinity.utils.umap;
 import edu.jhuapl.trinity.utils.umap.metric.Metric;
 
 import java.util.Random;
-import java.util.Set;
-import java.util.TreeSet;
 
 /**
  * Nearest neighbor search.
@@ -53,7 +51,7 @@ class NearestNeighborSearch {
                 if (index < 0) {
                     continue;
                 }
-                final float d = mDist.distance(data.row(index), queryPoints.row(i));
+                final float d = data.distance(mDist, index, queryPoints, i);
                 heap.push(i, d, index, true);
             }
         }
@@ -63,18 +61,21 @@ class NearestNeighborSearch {
         for (int i = 0; i < queryPoints.rows(); ++i) {
             final int[] indices = Utils.rejectionSample(nNeighbors, data.rows(), random);
             for (final int index : indices) {
-                final float d = mDist.distance(data.row(index), queryPoints.row(i));
+                final float d = data.distance(mDist, index, queryPoints, i);
                 heap.push(i, d, index, true);
             }
         }
     }
 
     Heap initializedNndSearch(final Matrix data, final SearchGraph searchGraph, Heap initialization, final Matrix queryPoints) {
+        // tried[v] == i + 1 marks vertex v as visited for query i, so one array serves all queries
+        final int[] tried = new int[data.rows()];
         for (int i = 0; i < queryPoints.rows(); ++i) {
-
-            final Set<Integer> tried = new TreeSet<>();
+            final int mark = i + 1;
             for (final int t : initialization.indices()[i]) {
-                tried.add(t);
+                if (t >= 0) {
+                    tried[t] = mark;
+                }
             }
 
             while (true) {
@@ -86,12 +87,12 @@ class NearestNeighborSearch {
                     break;
                 }
                 for (final int candidate : searchGraph.row(vertex)) {
-                    if (candidate == vertex || candidate == -1 || tried.contains(candidate)) {
+                    if (candidate == vertex || candidate == -1 || tried[candidate] == mark) {
                         continue;
                     }
-                    final float d = mDist.distance(data.row(candidate), queryPoints.row(i));
+                    final float d = data.distance(mDist, candidate, queryPoints, i);
                     initialization.uncheckedHeapPush(i, d, candidate, true);
-                    tried.add(candidate);
+                    tried[candidate] = mark;
                 }
             }
         }
@@ -25,82 +25,177 @@ package edu.jhuapl.trinity.utils.umap;
  * #L%
  */
 
-import edu.jhuapl.trinity.App;
-import edu.jhuapl.trinity.javafx.components.ProgressStatus;
-import edu.jhuapl.trinity.javafx.events.ApplicationEvent;
 import edu.jhuapl.trinity.utils.umap.metric.Metric;
 import edu.jhuapl.trinity.utils.umap.metric.PrecomputedMetric;
-import javafx.application.Platform;
-import javafx.scene.Scene;
-import javafx.scene.paint.Color;
 
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
 
 /**
  * Compute pairwise distances between instances using a specified metric.
+ * <p>
+ * The parallel routines split the rows into blocks and only visit tiles on or
+ * above the diagonal, relying on the metric being symmetric. Each tile is small
+ * enough that both of its row blocks stay in cache while it is computed.
+ * <p>
+ * The nearest neighbor routines are exact and never hold more than the
+ * <code>n * k</code> neighbor heaps, so they also serve mid-sized data where a
+ * full distance matrix would not fit in memory.
  *
  * @author Sean A. Irvine
  * @author Richard Littin
  */
 public class PairwiseDistances {
 
-    // replacement for sklearn.pairwise_distances
-    int rowIndex;
-    float[] xkRow;
-    float[] kjDistances;
-    private static int count = 0;
+    /**
+     * Target number of floats in one row block, sized so a pair of blocks fits in L1/L2.
+     */
+    private static final int BLOCK_FLOATS = 8192;
+    private static final int MIN_BLOCK_ROWS = 16;
+    private static final int MAX_BLOCK_ROWS = 256;
 
+    private PairwiseDistances() {
+    }
+
+    static int blockRows(final int cols) {
+        return Math.max(MIN_BLOCK_ROWS, Math.min(MAX_BLOCK_ROWS, BLOCK_FLOATS / Math.max(1, cols)));
+    }
 
-    public PairwiseDistances(int rowIndex, int totalRows, float[] xkRow) {
-        this.rowIndex = rowIndex;
-        this.xkRow = xkRow;
-        kjDistances = new float[totalRows]; //distances matrix will be n x n
+    /**
+     * Upper triangle tiles as {rowBlock, colBlock} pairs, in row major order.
+     */
+    private static int[][] upperTiles(final int blocks) {
+        final int[][] tiles = new int[blocks * (blocks + 1) / 2][];
+        int t = 0;
+        for (int bi = 0; bi < blocks; ++bi) {
+            for (int bj = bi; bj < blocks; ++bj) {
+                tiles[t++] = new int[]{bi, bj};
+            }
+        }
+        return tiles;
     }
 
+    /**
+     * Full symmetric distance matrix computed in parallel over upper triangle tiles.
+     * The result is a single row-major buffer of <code>n * n</code> floats.
+     */
     static Matrix parallelPairwise(final Matrix x, final Metric metric, boolean mVerbose) {
         if (PrecomputedMetric.SINGLETON.equals(metric)) {
             return x;
         }
         final int n = x.rows();
-        final float[][] distances = new float[n][n];
-        ArrayList<PairwiseDistances> pdList = new ArrayList<>(n);
-        for (int k = 0; k < n; ++k) {
-            pdList.add(new PairwiseDistances(k, n, x.row(k)));
+        if ((long) n * n > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many rows for a dense distance matrix: " + n);
         }
-        Scene scene = App.getAppScene();
-        count = 0; //this is the start of the hack
-        int percent = 100;
-        if (n < 100)
-            percent = 10;
-        if (n < 10)
-            percent = 1;
-        int updatePercent = n / percent;
-
-        pdList.parallelStream()
-            .peek(e -> {
-                count++;
-                if (count % updatePercent == 0) {
-                    double percentComplete = Double.valueOf(count) / Double.valueOf(n);
-                    Platform.runLater(() -> {
-                        ProgressStatus ps = new ProgressStatus(
-                            "Computing Pairwise Distances...", percentComplete);
-                        ps.fillStartColor = Color.AZURE;
-                        ps.fillEndColor = Color.LIME;
-                        ps.innerStrokeColor = Color.AZURE;
-                        ps.outerStrokeColor = Color.LIME;
-                        scene.getRoot().fireEvent(
-                            new ApplicationEvent(ApplicationEvent.UPDATE_BUSY_INDICATOR, ps));
-                    });
+        final float[] distances = new float[n * n];
+        final int block = blockRows(x.cols());
+        final int[][] tiles = upperTiles((n + block - 1) / block);
+        final ProgressCounter progress = new ProgressCounter(tiles.length, mVerbose);
+
+        IntStream.range(0, tiles.length).parallel().forEach(t -> {
+            final int iStart = tiles[t][0] * block;
+            final int iEnd = Math.min(iStart + block, n);
+            final int jStart = tiles[t][1] * block;
+            final int jEnd = Math.min(jStart + block, n);
+            for (int i = iStart; i < iEnd; ++i) {
+                // on diagonal tiles only the upper half is visited
+                for (int j = Math.max(i, jStart); j < jEnd; ++j) {
+                    final float d = x.distance(metric, i, j);
+                    distances[i * n + j] = d;
+                    distances[j * n + i] = d;
                 }
-            })
-            .forEach(row -> {
-                for (int j = 0; j < n; ++j) {
-                    row.kjDistances[j] = metric.distance(row.xkRow, x.row(j));
+            }
+            progress.increment();
+        });
+
+        return new FlatMatrix(distances, n, n);
+    }
+
+    /**
+     * Exact k nearest neighbors of every row by brute force, without materializing
+     * the distance matrix. Tiles are streamed into per-row bounded heaps, so memory
+     * is <code>O(n * k)</code>. Each row is its own nearest neighbor, as for
+     * neighbors read from a precomputed distance matrix.
+     *
+     * @param x          instances
+     * @param metric     distance metric
+     * @param nNeighbors number of neighbors per row, including the row itself
+     * @param mVerbose   report progress
+     * @return sorted neighbor indices and distances, with no forest
+     */
+    static IndexedDistances parallelNearestNeighbors(final Matrix x, final Metric metric, final int nNeighbors, boolean mVerbose) {
+        final int n = x.rows();
+        final Heap heap = new Heap(n, nNeighbors);
+        final int block = blockRows(x.cols());
+        final int[][] tiles = upperTiles((n + block - 1) / block);
+        final ProgressCounter progress = new ProgressCounter(tiles.length, mVerbose);
+
+        // Heap roots only ever shrink, so a stale unlocked read can only let
+        // through a candidate that the locked push then rejects
+        final float[][] threshold = heap.weights();
+
+        IntStream.range(0, tiles.length).parallel().forEach(t -> {
+            final int iStart = tiles[t][0] * block;
+            final int iEnd = Math.min(iStart + block, n);
+            final int jStart = tiles[t][1] * block;
+            final int jEnd = Math.min(jStart + block, n);
+            for (int i = iStart; i < iEnd; ++i) {
+                for (int j = Math.max(i, jStart); j < jEnd; ++j) {
+                    final float d = x.distance(metric, i, j);
+                    if (d < threshold[i][0]) {
+                        heap.push(i, d, j, false);
+                    }
+                    if (i != j && d < threshold[j][0]) {
+                        heap.push(j, d, i, false);
+                    }
                 }
-                System.arraycopy(row.kjDistances, 0, distances[row.rowIndex], 0, row.kjDistances.length);
-            });
+            }
+            progress.increment();
+        });
 
-        return new DefaultMatrix(distances);
+        final Heap sorted = heap.deheapSort();
+        return new IndexedDistances(sorted.indices(), sorted.weights(), Collections.emptyList());
+    }
+
+    /**
+     * Exact k nearest neighbors of selected rows among all rows, for example a
+     * sample used to measure the recall of an approximate search. Each block of
+     * query rows belongs to a single task which streams every column block past
+     * it, so the heaps are written without locking.
+     *
+     * @param x          instances
+     * @param queries    rows to find neighbors for
+     * @param metric     distance metric
+     * @param nNeighbors number of neighbors per row, including the row itself
+     * @return sorted neighbor indices and distances, one row per query, with no forest
+     */
+    static IndexedDistances parallelNearestNeighbors(final Matrix x, final int[] queries, final Metric metric, final int nNeighbors) {
+        final int n = x.rows();
+        final Heap heap = new Heap(queries.length, nNeighbors);
+        final float[][] threshold = heap.weights();
+        final int block = blockRows(x.cols());
+        final int queryBlocks = (queries.length + block - 1) / block;
+
+        IntStream.range(0, queryBlocks).parallel().forEach(b -> {
+            final int qStart = b * block;
+            final int qEnd = Math.min(qStart + block, queries.length);
+            for (int jStart = 0; jStart < n; jStart += block) {
+                final int jEnd = Math.min(jStart + block, n);
+                for (int q = qStart; q < qEnd; ++q) {
+                    final int i = queries[q];
+                    for (int j = jStart; j < jEnd; ++j) {
+                        final float d = x.distance(metric, i, j);
+                        if (d < threshold[q][0]) {
+                            heap.checkedHeapPush(q, d, j, false);
+                        }
+                    }
+                }
+            }
+        });
+
+        final Heap sorted = heap.deheapSort();
+        return new IndexedDistances(sorted.indices(), sorted.weights(), Collections.emptyList());
     }
 
     static Matrix pairwiseDistances(final Matrix x, final Metric metric) {
@@ -117,11 +212,11 @@ public class PairwiseDistances {
             Utils.message("computing " + n + " squared pairwise distances");
         }
         for (int k = 0; k < n; ++k) {
-            final float[] xk = x.row(k);
-            for (int j = 0; j < n; ++j) {
-                distances[k][j] = metric.distance(xk, x.row(j));
+            for (int j = k; j < n; ++j) {
+                distances[k][j] = x.distance(metric, k, j);
+                distances[j][k] = distances[k][j];
             }
-            if (mVerbose && k % (n / 100) == 0) {
+            if (mVerbose && k % Math.max(1, n / 100) == 0) {
                 Utils.message(k + " of " + n + " rows computed...");
             }
         }
@@ -136,12 +231,35 @@ public class PairwiseDistances {
         final int yn = y.rows();
         final float[][] distances = new float[xn][yn];
         for (int k = 0; k < xn; ++k) {
-            final float[] xk = x.row(k);
             for (int j = 0; j < yn; ++j) {
-                distances[k][j] = metric.distance(xk, y.row(j));
+                distances[k][j] = x.distance(metric, k, y, j);
             }
         }
         return new DefaultMatrix(distances);
     }
 
+    /**
+     * Counts completed tiles across worker threads and reports each time
+     * another tenth of the work is done.
+     */
+    private static final class ProgressCounter {
+
+        private final AtomicLong mCompleted = new AtomicLong();
+        private final long mTotal;
+        private final long mStep;
+        private final boolean mVerbose;
+
+        ProgressCounter(final long total, final boolean verbose) {
+            mTotal = total;
+            mStep = Math.max(1, total / 10);
+            mVerbose = verbose;
+        }
+
+        void increment() {
+            final long done = mCompleted.incrementAndGet();
+            if (mVerbose && done % mStep == 0) {
+                Utils.message("Computed pairwise distance tiles " + done + "/" + mTotal);
+            }
+        }
+    }
 }
@@ -0,0 +1,332 @@
+/*
+ * BSD 3-Clause License
+ * Copyright (c) 2017, Leland McInnes, 2019 Tag.bio (Java port).
+ * See UMAPLicense.txt.
+ */
+package edu.jhuapl.trinity.utils.umap;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.IntPredicate;
+
+/**
+ * Multi-threaded stochastic gradient descent for the UMAP layout.
+ * <p>
+ * The edge list (<code>head</code>, <code>tail</code>, <code>epochsPerSample</code>)
+ * is partitioned into contiguous chunks which are processed in parallel each
+ * epoch, each chunk drawing negative samples from its own <code>SplittableRandom</code>.
+ * <p>
+ * By default updates are applied Hogwild style: threads write directly into
+ * the shared embedding without locking, accepting occasional lost updates in
+ * exchange for linear scaling. In deterministic mode each chunk accumulates its
+ * updates into a private delta buffer against the embedding as it was at the
+ * start of the epoch, and the buffers are summed in chunk order at the end of
+ * the epoch. Results are then reproducible for a fixed seed and thread count.
+ *
+ * @author Sean Phillips
+ */
+class ParallelLayoutOptimizer {
+
+    private final int mThreads;
+    private final boolean mDeterministic;
+
+    /**
+     * @param threads       number of threads
+     * @param deterministic reproducible updates for a fixed seed and thread count
+     */
+    ParallelLayoutOptimizer(final int threads, final boolean deterministic) {
+        if (threads < 1) {
+            throw new IllegalArgumentException();
+        }
+        mThreads = threads;
+        mDeterministic = deterministic;
+    }
+
+    /**
+     * Parallel counterpart of <code>Umap.optimizeLayout</code>, see there for parameters.
+     *
+     * @param epochListener called on the calling thread after each completed epoch,
+     *                      returning false ends the optimization early
+     * @return the optimized head embedding
+     */
+    Matrix optimize(final Matrix headEmbedding, final Matrix tailEmbedding, final int[] head, final int[] tail, final int nEpochs, final int nVertices, final float[] epochsPerSample, final float a, final float b, final Random random, final float gamma, final float initialAlpha, final float negativeSampleRate, final IntPredicate epochListener) {
+        final int dim = headEmbedding.cols();
+        final boolean moveOther = headEmbedding.rows() == tailEmbedding.rows();
+        final int nEdges = epochsPerSample.length;
+
+        final float[] epochsPerNegativeSample = MathUtils.divide(epochsPerSample, negativeSampleRate);
+        final float[] epochOfNextNegativeSample = Arrays.copyOf(epochsPerNegativeSample, epochsPerNegativeSample.length);
+        final float[] epochOfNextSample = Arrays.copyOf(epochsPerSample, epochsPerSample.length);
+
+        // Hogwild can oversubscribe chunks for load balancing, deterministic mode
+        // needs one delta buffer per chunk so keeps it to the thread count.
+        final int chunks = Math.max(1, Math.min(nEdges, mDeterministic ? mThreads : mThreads * 4));
+        final int chunkSize = (nEdges + chunks - 1) / chunks;
+
+        // Seed from the caller's random so a fixed Umap seed fixes the layout streams
+        final SplittableRandom root = new SplittableRandom(random.nextLong());
+        final SplittableRandom[] randoms = new SplittableRandom[chunks];
+        for (int c = 0; c < chunks; ++c) {
+            randoms[c] = root.split();
+        }
+
+        final float[][] headDeltas = mDeterministic ? new float[chunks][headEmbedding.rows() * dim] : null;
+        final float[][] tailDeltas;
+        if (!mDeterministic || !moveOther) {
+            tailDeltas = null;
+        } else if (tailEmbedding == headEmbedding) {
+            tailDeltas = headDeltas;
+        } else {
+            tailDeltas = new float[chunks][tailEmbedding.rows() * dim];
+        }
+
+        final ForkJoinPool pool = new ForkJoinPool(mThreads);
+        try {
+            float alpha = initialAlpha;
+            final List<Callable<Void>> tasks = new ArrayList<>(chunks);
+            for (int n = 0; n < nEpochs; ++n) {
+                final int epoch = n;
+                final float epochAlpha = alpha;
+                tasks.clear();
+                for (int c = 0; c < chunks; ++c) {
+                    final int chunk = c;
+                    final int lo = c * chunkSize;
+                    final int hi = Math.min(lo + chunkSize, nEdges);
+                    tasks.add(() -> {
+                        if (mDeterministic) {
+                            Arrays.fill(headDeltas[chunk], 0);
+                            if (null != tailDeltas && tailDeltas != headDeltas) {
+                                Arrays.fill(tailDeltas[chunk], 0);
+                            }
+                            deltaChunk(headEmbedding, tailEmbedding, headDeltas[chunk],
+                                null == tailDeltas ? null : tailDeltas[chunk], head, tail, lo, hi,
+                                epoch, nVertices, epochsPerSample, epochOfNextSample,
+                                epochsPerNegativeSample, epochOfNextNegativeSample,
+                                a, b, gamma, epochAlpha, dim, randoms[chunk]);
+                        } else {
+                            hogwildChunk(headEmbedding, tailEmbedding, head, tail, lo, hi,
+                                epoch, nVertices, moveOther, epochsPerSample, epochOfNextSample,
+                                epochsPerNegativeSample, epochOfNextNegativeSample,
+                                a, b, gamma, epochAlpha, dim, randoms[chunk]);
+                        }
+                        return null;
+                    });
+                }
+                waitForAll(pool.invokeAll(tasks));
+
+                if (mDeterministic) {
+                    reduce(pool, headEmbedding, headDeltas, dim);
+                    if (null != tailDeltas && tailDeltas != headDeltas) {
+                        reduce(pool, tailEmbedding, tailDeltas, dim);
+                    }
+                }
+
+                alpha = initialAlpha * (1 - (float) n / (float) nEpochs);
+                if (null != epochListener && !epochListener.test(n)) {
+                    break;
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return headEmbedding;
+    }
+
+    private static void hogwildChunk(final Matrix headEmbedding, final Matrix tailEmbedding, final int[] head, final int[] tail, final int lo, final int hi, final int n, final int nVertices, final boolean moveOther, final float[] epochsPerSample, final float[] epochOfNextSample, final float[] epochsPerNegativeSample, final float[] epochOfNextNegativeSample, final float a, final float b, final float gamma, final float alpha, final int dim, final SplittableRandom random) {
+        for (int i = lo; i < hi; ++i) {
+            if (epochOfNextSample[i] > n) {
+                continue;
+            }
+            final int j = head[i];
+            final int k = tail[i];
+            // rows are views onto the shared embedding, writes race by design
+            final float[] current = headEmbedding.row(j);
+            float[] other = tailEmbedding.row(k);
+
+            float distSquared = squaredDistance(current, other, dim);
+            float gradCoeff = attractiveCoefficient(distSquared, a, b);
+
+            for (int d = 0; d < dim; ++d) {
+                final float gradD = Umap.clip(gradCoeff * (current[d] - other[d]));
+                current[d] += gradD * alpha;
+                if (moveOther) {
+                    other[d] += -gradD * alpha;
+                }
+            }
+
+            epochOfNextSample[i] += epochsPerSample[i];
+
+            final int nNegSamples = (int) ((n - epochOfNextNegativeSample[i]) / epochsPerNegativeSample[i]);
+
+            for (int p = 0; p < nNegSamples; ++p) {
+                final int kr = random.nextInt(nVertices);
+                other = tailEmbedding.row(kr);
+                distSquared = squaredDistance(current, other, dim);
+
+                if (distSquared > 0) {
+                    gradCoeff = repulsiveCoefficient(distSquared, a, b, gamma);
+                } else if (j == kr) {
+                    continue;
+                } else {
+                    gradCoeff = 0;
+                }
+
+                for (int d = 0; d < dim; ++d) {
+                    final float gradD = gradCoeff > 0.0 ? Umap.clip(gradCoeff * (current[d] - other[d])) : 4;
+                    current[d] += gradD * alpha;
+                }
+            }
+
+            epochOfNextNegativeSample[i] += nNegSamples * epochsPerNegativeSample[i];
+        }
+    }
+
+    private static void deltaChunk(final Matrix headEmbedding, final Matrix tailEmbedding, final float[] headDelta, final float[] tailDelta, final int[] head, final int[] tail, final int lo, final int hi, final int n, final int nVertices, final float[] epochsPerSample, final float[] epochOfNextSample, final float[] epochsPerNegativeSample, final float[] epochOfNextNegativeSample, final float a, final float b, final float gamma, final float alpha, final int dim, final SplittableRandom random) {
+        final float[] current = new float[dim];
+        final float[] other = new float[dim];
+        for (int i = lo; i < hi; ++i) {
+            if (epochOfNextSample[i] > n) {
+                continue;
+            }
+            final int j = head[i];
+            final int k = tail[i];
+            final int jOffset = j * dim;
+            final int kOffset = k * dim;
+            // positions as seen by this chunk: epoch start snapshot plus own updates
+            position(headEmbedding.row(j), headDelta, jOffset, current, dim);
+            position(tailEmbedding.row(k), tailDelta, kOffset, other, dim);
+
+            float distSquared = squaredDistance(current, other, dim);
+            float gradCoeff = attractiveCoefficient(distSquared, a, b);
+
+            for (int d = 0; d < dim; ++d) {
+                final float gradD = Umap.clip(gradCoeff * (current[d] - other[d]));
+                current[d] += gradD * alpha;
+                headDelta[jOffset + d] += gradD * alpha;
+                if (null != tailDelta) {
+                    tailDelta[kOffset + d] -= gradD * alpha;
+                }
+            }
+
+            epochOfNextSample[i] += epochsPerSample[i];
+
+            final int nNegSamples = (int) ((n - epochOfNextNegativeSample[i]) / epochsPerNegativeSample[i]);
+
+            for (int p = 0; p < nNegSamples; ++p) {
+                final int kr = random.nextInt(nVertices);
+                position(tailEmbedding.row(kr), tailDelta, kr * dim, other, dim);
+                distSquared = squaredDistance(current, other, dim);
+
+                if (distSquared > 0) {
+                    gradCoeff = repulsiveCoefficient(distSquared, a, b, gamma);
+                } else if (j == kr) {
+                    continue;
+                } else {
+                    gradCoeff = 0;
+                }
+
+                for (int d = 0; d < dim; ++d) {
+                    final float gradD = gradCoeff > 0.0 ? Umap.clip(gradCoeff * (current[d] - other[d])) : 4;
+                    current[d] += gradD * alpha;
+                    headDelta[jOffset + d] += gradD * alpha;
+                }
+            }
+
+            epochOfNextNegativeSample[i] += nNegSamples * epochsPerNegativeSample[i];
+        }
+    }
+
+    /**
+     * Sum the chunk deltas into the embedding. Rows are split across threads
+     * but every element is summed in chunk order, so the result does not
+     * depend on scheduling.
+     */
+    private void reduce(final ForkJoinPool pool, final Matrix embedding, final float[][] deltas, final int dim) {
+        final int rows = embedding.rows();
+        final int blockSize = (rows + mThreads - 1) / mThreads;
+        final List<Callable<Void>> tasks = new ArrayList<>(mThreads);
+        for (int t = 0; t < mThreads; ++t) {
+            final int lo = t * blockSize;
+            final int hi = Math.min(lo + blockSize, rows);
+            tasks.add(() -> {
+                for (int r = lo; r < hi; ++r) {
+                    final float[] row = embedding.row(r);
+                    final int offset = r * dim;
+                    for (final float[] delta : deltas) {
+                        for (int d = 0; d < dim; ++d) {
+                            row[d] += delta[offset + d];
+                        }
+                    }
+                }
+                return null;
+            });
+        }
+        waitForAll(pool.invokeAll(tasks));
+    }
+
+    private static void position(final float[] base, final float[] delta, final int offset, final float[] out, final int dim) {
+        for (int d = 0; d < dim; ++d) {
+            out[d] = null == delta ? base[d] : base[d] + delta[offset + d];
+        }
+    }
+
+    private static float squaredDistance(final float[] x, final float[] y, final int dim) {
+        float result = 0;
+        for (int d = 0; d < dim; ++d) {
+            final float diff = x[d] - y[d];
+            result += diff * diff;
+        }
+        return result;
+    }
+
+    private static float attractiveCoefficient(final float distSquared, final float a, final float b) {
+        if (distSquared > 0.0) {
+            return (float) ((-2.0 * a * b * Math.pow(distSquared, b - 1.0)) / (a * Math.pow(distSquared, b) + 1.0));
+        }
+        return 0;
+    }
+
+    private static float repulsiveCoefficient(final float distSquared, final float a, final float b, final float gamma) {
+        return 2.0F * gamma * b / (float) ((0.001 + distSquared) * (a * Math.pow(distSquared, b) + 1));
+    }
+
+    private static void waitForAll(final List<Future<Void>> futures) {
+        try {
+            for (final Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException(ex.getCause());
+        }
+    }
+}
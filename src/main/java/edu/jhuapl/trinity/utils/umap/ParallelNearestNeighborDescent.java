@@ -28,8 +28,11 @@ package edu.jhuapl.trinity.utils.umap;
 import edu.jhuapl.trinity.utils.umap.metric.Metric;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -37,7 +40,16 @@ import java.util.concurrent.Future;
 
 /**
  * Nearest neighbor descent for a specified distance metric.
- * Nondeterministic parallel version.
+ * Parallel version.
+ * <p>
+ * Each round runs in two phases so no heap row is ever shared between
+ * threads. In the generate phase each job computes candidate distances for
+ * its own vertices, drawing from its own <code>SplittableRandom</code>, and
+ * keeps the ones that could improve a heap in private buffers bucketed by the
+ * block of rows they update. The heaps are only read in this phase. In the
+ * apply phase each job owns one block of rows and pushes every buffered
+ * update for that block, in job order, without locking. Results are
+ * repeatable for a fixed seed and thread count.
  *
  * @author Leland McInnes (Python)
  * @author Sean A. Irvine
@@ -61,6 +73,68 @@ class ParallelNearestNeighborDescent extends NearestNeighborDescent {
         mThreads = threads;
     }
 
+    /**
+     * Growable buffer of pending heap pushes for one block of rows.
+     */
+    private static final class UpdateBuffer {
+        private int[] mRows = new int[64];
+        private int[] mIndices = new int[64];
+        private float[] mDistances = new float[64];
+        private int mSize = 0;
+
+        void add(final int row, final int index, final float distance) {
+            if (mSize == mRows.length) {
+                mRows = Arrays.copyOf(mRows, mSize * 2);
+                mIndices = Arrays.copyOf(mIndices, mSize * 2);
+                mDistances = Arrays.copyOf(mDistances, mSize * 2);
+            }
+            mRows[mSize] = row;
+            mIndices[mSize] = index;
+            mDistances[mSize] = distance;
+            ++mSize;
+        }
+
+        int apply(final Heap heap) {
+            int c = 0;
+            for (int u = 0; u < mSize; ++u) {
+                if (heap.checkedHeapPush(mRows[u], mDistances[u], mIndices[u], true)) {
+                    ++c;
+                }
+            }
+            mSize = 0;
+            return c;
+        }
+    }
+
+    /**
+     * Private update buffers of one generate job, one per block of rows.
+     */
+    private static final class Updates {
+        private final UpdateBuffer[] mBlocks;
+        private final int mBlockSize;
+        private final float[][] mThresholds;
+
+        Updates(final int blocks, final int blockSize, final Heap heap) {
+            mBlocks = new UpdateBuffer[blocks];
+            for (int b = 0; b < blocks; ++b) {
+                mBlocks[b] = new UpdateBuffer();
+            }
+            mBlockSize = blockSize;
+            mThresholds = heap.weights();
+        }
+
+        // Queue the symmetric pair of pushes, skipping sides that can not
+        // enter their heap; the heaps are not written while this runs.
+        void add(final int p, final int q, final float d) {
+            if (d < mThresholds[p][0]) {
+                mBlocks[p / mBlockSize].add(p, q, d);
+            }
+            if (d < mThresholds[q][0]) {
+                mBlocks[q / mBlockSize].add(q, p, d);
+            }
+        }
+    }
+
     @Override
     Heap descent(final Matrix data, final int nNeighbors, final Random random, final int maxCandidates, final boolean rpTreeInit, final int nIters, final List<FlatTree> forest) {
         return descent(data, nNeighbors, random, maxCandidates, rpTreeInit, nIters, forest, 0.001F, 0.5F);
@@ -70,7 +144,7 @@ class ParallelNearestNeighborDescent extends NearestNeighborDescent {
     Heap descent(final Matrix data, final int nNeighbors, final Random random, final int maxCandidates, final boolean rpTreeInit, final int nIters, final List<FlatTree> forest, final float delta, final float rho) {
         final ExecutorService executor = Executors.newFixedThreadPool(mThreads);
         try {
-            UmapProgress.incTotal(nIters);
+            mProgress.incTotal(nIters);
 
             final List<Future<Integer>> futures = new ArrayList<>();
 
@@ -79,39 +153,43 @@ class ParallelNearestNeighborDescent extends NearestNeighborDescent {
 
             final int jobs = (int) (mThreads * (1 + MathUtils.log2(mThreads)));
             final int chunkSize = (nVertices + jobs - 1) / jobs;
+            final int blocks = (nVertices + chunkSize - 1) / chunkSize;
+            final Updates[] updates = new Updates[jobs];
+            for (int t = 0; t < jobs; ++t) {
+                updates[t] = new Updates(blocks, chunkSize, currentGraph);
+            }
+            final SplittableRandom root = new SplittableRandom(random.nextLong());
 
             for (int t = 0; t < jobs; ++t) {
                 final int lo = t * chunkSize;
                 final int hi = Math.min((t + 1) * chunkSize, nVertices);
+                final Updates jobUpdates = updates[t];
+                final SplittableRandom jobRandom = root.split();
                 futures.add(executor.submit(() -> {
                     for (int i = lo; i < hi; ++i) {
-                        final float[] iRow = data.row(i);
-                        for (final int index : Utils.rejectionSample(nNeighbors, data.rows(), random)) {
-                            final float d = mMetric.distance(iRow, data.row(index));
-                            currentGraph.push(i, d, index, true);
-                            currentGraph.push(index, d, i, true);
+                        for (final int index : Utils.rejectionSample(nNeighbors, data.rows(), jobRandom)) {
+                            jobUpdates.add(i, index, data.distance(mMetric, i, index));
                         }
                     }
                     return 0;
                 }));
             }
             waitForFutures(futures);
+            applyUpdates(executor, futures, updates, blocks, currentGraph);
 
             if (rpTreeInit) {
                 final int cs = (forest.size() + jobs - 1) / jobs;
                 for (int t = 0; t < jobs; ++t) {
                     final int lo = t * cs;
                     final int hi = Math.min((t + 1) * cs, forest.size());
+                    final Updates jobUpdates = updates[t];
                     futures.add(executor.submit(() -> {
-                        //System.out.println("T: " + lo + ":" + hi + " : " + leafArray.length);
                         for (int l = lo; l < hi; ++l) {
+                            mProgress.checkCancelled();
                             for (final int[] leaf : forest.get(l).getIndices()) {
                                 for (int i = 0; i < leaf.length; ++i) {
-                                    final float[] iRow = data.row(leaf[i]);
                                     for (int j = i + 1; j < leaf.length; ++j) {
-                                        final float d = mMetric.distance(iRow, data.row(leaf[j]));
-                                        currentGraph.push(leaf[i], d, leaf[j], true);
-                                        currentGraph.push(leaf[j], d, leaf[i], true);
+                                        jobUpdates.add(leaf[i], leaf[j], data.distance(mMetric, leaf[i], leaf[j]));
                                     }
                                 }
                             }
@@ -120,9 +198,11 @@ class ParallelNearestNeighborDescent extends NearestNeighborDescent {
                     }));
                 }
                 waitForFutures(futures);
+                applyUpdates(executor, futures, updates, blocks, currentGraph);
             }
 
             for (int n = 0; n < nIters; ++n) {
+                mProgress.checkCancelled();
                 if (mVerbose) {
                     Utils.message("NearestNeighborDescent: " + (n + 1) + " / " + nIters);
                 }
@@ -132,12 +212,16 @@ class ParallelNearestNeighborDescent extends NearestNeighborDescent {
                 for (int t = 0; t < jobs; ++t) {
                     final int lo = t * chunkSize;
                     final int hi = Math.min((t + 1) * chunkSize, nVertices);
+                    final Updates jobUpdates = updates[t];
+                    final SplittableRandom jobRandom = root.split();
                     futures.add(executor.submit(() -> {
                         final boolean[] rejectStatus = new boolean[maxCandidates];
-                        int c = 0;
                         for (int i = lo; i < hi; ++i) {
+                            if ((i - lo) % CANCEL_CHECK_ROWS == 0) {
+                                mProgress.checkCancelled();
+                            }
                             for (int j = 0; j < maxCandidates; ++j) {
-                                rejectStatus[j] = random.nextFloat() < rho;
+                                rejectStatus[j] = jobRandom.nextDouble() < rho;
                             }
 
                             for (int j = 0; j < maxCandidates; ++j) {
@@ -151,37 +235,51 @@ class ParallelNearestNeighborDescent extends NearestNeighborDescent {
                                     if (q < 0 || (rejectStatus[j] && rejectStatus[k]) || (!candidateNeighbors.isNew(i, j) && !candidateNeighbors.isNew(i, k))) {
                                         continue;
                                     }
-
-                                    final float d = mMetric.distance(data.row(p), data.row(q));
-                                    if (currentGraph.push(p, d, q, true)) {
-                                        ++c;
-                                    }
-                                    if (currentGraph.push(q, d, p, true)) {
-                                        ++c;
-                                    }
+                                    jobUpdates.add(p, q, data.distance(mMetric, p, q));
                                 }
                             }
                         }
-                        return c;
+                        return 0;
                     }));
                 }
-                final int c = waitForFutures(futures);
+                waitForFutures(futures);
+                final int c = applyUpdates(executor, futures, updates, blocks, currentGraph);
 
                 if (c <= delta * nNeighbors * data.rows()) {
-                    UmapProgress.update(nIters - n);
+                    mProgress.update(nIters - n);
                     break;
                 }
-                UmapProgress.update();
+                mProgress.update();
             }
 
             return currentGraph.deheapSort();
-        } catch (InterruptedException | ExecutionException ex) {
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof CancellationException) {
+                throw (CancellationException) ex.getCause();
+            }
+            throw new RuntimeException(ex);
+        } catch (InterruptedException ex) {
             throw new RuntimeException(ex);
         } finally {
             executor.shutdown();
         }
     }
 
+    // Each job owns one block of heap rows, so pushes need no locking.
+    private static int applyUpdates(final ExecutorService executor, final List<Future<Integer>> futures, final Updates[] updates, final int blocks, final Heap heap) throws InterruptedException, ExecutionException {
+        for (int b = 0; b < blocks; ++b) {
+            final int block = b;
+            futures.add(executor.submit(() -> {
+                int c = 0;
+                for (final Updates jobUpdates : updates) {
+                    c += jobUpdates.mBlocks[block].apply(heap);
+                }
+                return c;
+            }));
+        }
+        return waitForFutures(futures);
+    }
+
     private static int waitForFutures(List<Future<Integer>> futures) throws InterruptedException, ExecutionException {
         //System.out.println("WAITING " + futures.size());
         int c = 0;
@@ -28,6 +28,7 @@ package edu.jhuapl.trinity.utils.umap;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -110,10 +111,7 @@ final class RandomProjectionTree {
         int nRight = 0;
         final boolean[] side = new boolean[indices.length];
         for (int i = 0; i < indices.length; ++i) {
-            float margin = 0;
-            for (int d = 0; d < dim; ++d) {
-                margin += hyperplaneVector[d] * data.get(indices[i], d);
-            }
+            final float margin = data.dot(indices[i], hyperplaneVector);
 
             if (Math.abs(margin) < EPS) {
                 side[i] = random.nextBoolean();
@@ -146,7 +144,7 @@ final class RandomProjectionTree {
             }
         }
 
-        return new Object[]{indicesLeft, indicesRight, hyperplaneVector, null};
+        return new Object[]{indicesLeft, indicesRight, hyperplaneVector, 0F};
     }
 
 
@@ -199,10 +197,7 @@ final class RandomProjectionTree {
         int nRight = 0;
         final boolean[] side = new boolean[indices.length];
         for (int i = 0; i < indices.length; ++i) {
-            float margin = hyperplaneOffset;
-            for (int d = 0; d < dim; ++d) {
-                margin += hyperplaneVector[d] * data.get(indices[i], d);
-            }
+            final float margin = hyperplaneOffset + data.dot(indices[i], hyperplaneVector);
             if (margin >= EPS) {
                 //side[i] = false;
                 ++nLeft;
@@ -327,7 +322,7 @@ final class RandomProjectionTree {
 
         final Hyperplane hyperplane = new Hyperplane(sd.getIndices(), sd.getData());
 
-        return new Object[]{indicesLeft, indicesRight, hyperplane, null};
+        return new Object[]{indicesLeft, indicesRight, hyperplane, 0F};
     }
 
     /**
@@ -379,9 +374,9 @@ final class RandomProjectionTree {
             if (Math.abs(margin) < EPS) {
                 side[i] = random.nextBoolean();
                 if (side[i]) {
-                    ++nLeft;
-                } else {
                     ++nRight;
+                } else {
+                    ++nLeft;
                 }
             } else if (margin > 0) {
                 side[i] = false;
@@ -412,16 +407,17 @@ final class RandomProjectionTree {
         return new Object[]{indicesLeft, indicesRight, hyperplane, hyperplaneOffset};
     }
 
-    private static RandomProjectionTreeNode makeEuclideanTree(final Matrix data, final int[] indices, final Random random, final int leafSize) {
+    private static RandomProjectionTreeNode makeEuclideanTree(final Matrix data, final int[] indices, final Random random, final int leafSize, final UmapProgress progress) {
         if (indices.length > leafSize) {
+            progress.checkCancelled();
             final Object[] erps = euclideanRandomProjectionSplit(data, indices, random);
             final int[] leftIndices = (int[]) erps[0];
             final int[] rightIndices = (int[]) erps[1];
             final Hyperplane hyperplane = new Hyperplane((float[]) erps[2]);
             final float offset = (float) erps[3];
 
-            final RandomProjectionTreeNode leftNode = makeEuclideanTree(data, leftIndices, random, leafSize);
-            final RandomProjectionTreeNode rightNode = makeEuclideanTree(data, rightIndices, random, leafSize);
+            final RandomProjectionTreeNode leftNode = makeEuclideanTree(data, leftIndices, random, leafSize, progress);
+            final RandomProjectionTreeNode rightNode = makeEuclideanTree(data, rightIndices, random, leafSize, progress);
 
             return new RandomProjectionTreeNode(null, hyperplane, offset, leftNode, rightNode);
         } else {
@@ -429,16 +425,17 @@ final class RandomProjectionTree {
         }
     }
 
-    private static RandomProjectionTreeNode makeAngularTree(final Matrix data, final int[] indices, final Random random, final int leafSize) {
+    private static RandomProjectionTreeNode makeAngularTree(final Matrix data, final int[] indices, final Random random, final int leafSize, final UmapProgress progress) {
         if (indices.length > leafSize) {
+            progress.checkCancelled();
             final Object[] erps = angularRandomProjectionSplit(data, indices, random);
             final int[] leftIndices = (int[]) erps[0];
             final int[] rightIndices = (int[]) erps[1];
             final Hyperplane hyperplane = new Hyperplane((float[]) erps[2]);
             final float offset = (float) erps[3];
 
-            final RandomProjectionTreeNode leftNode = makeAngularTree(data, leftIndices, random, leafSize);
-            final RandomProjectionTreeNode rightNode = makeAngularTree(data, rightIndices, random, leafSize);
+            final RandomProjectionTreeNode leftNode = makeAngularTree(data, leftIndices, random, leafSize, progress);
+            final RandomProjectionTreeNode rightNode = makeAngularTree(data, rightIndices, random, leafSize, progress);
 
             return new RandomProjectionTreeNode(null, hyperplane, offset, leftNode, rightNode);
         } else {
@@ -446,16 +443,17 @@ final class RandomProjectionTree {
         }
     }
 
-    private static RandomProjectionTreeNode makeSparseEuclideanTree(final CsrMatrix matrix, final int[] indices, final Random random, final int leafSize) {
+    private static RandomProjectionTreeNode makeSparseEuclideanTree(final CsrMatrix matrix, final int[] indices, final Random random, final int leafSize, final UmapProgress progress) {
         if (indices.length > leafSize) {
+            progress.checkCancelled();
             final Object[] erps = sparseEuclideanRandomProjectionSplit(matrix, indices, random);
             final int[] leftIndices = (int[]) erps[0];
             final int[] rightIndices = (int[]) erps[1];
             final Hyperplane hyperplane = (Hyperplane) erps[2];
             final float offset = (float) erps[3];
 
-            final RandomProjectionTreeNode leftNode = makeSparseEuclideanTree(matrix, leftIndices, random, leafSize);
-            final RandomProjectionTreeNode rightNode = makeSparseEuclideanTree(matrix, rightIndices, random, leafSize);
+            final RandomProjectionTreeNode leftNode = makeSparseEuclideanTree(matrix, leftIndices, random, leafSize, progress);
+            final RandomProjectionTreeNode rightNode = makeSparseEuclideanTree(matrix, rightIndices, random, leafSize, progress);
 
             return new RandomProjectionTreeNode(null, hyperplane, offset, leftNode, rightNode);
         } else {
@@ -463,16 +461,17 @@ final class RandomProjectionTree {
         }
     }
 
-    private static RandomProjectionTreeNode makeSparseAngularTree(final CsrMatrix matrix, final int[] indices, final Random random, final int leafSize) {
+    private static RandomProjectionTreeNode makeSparseAngularTree(final CsrMatrix matrix, final int[] indices, final Random random, final int leafSize, final UmapProgress progress) {
         if (indices.length > leafSize) {
+            progress.checkCancelled();
             final Object[] erps = sparseAngularRandomProjectionSplit(matrix, indices, random);
             final int[] leftIndices = (int[]) erps[0];
             final int[] rightIndices = (int[]) erps[1];
             final Hyperplane hyperplane = (Hyperplane) erps[2];
             final float offset = (float) erps[3];
 
-            final RandomProjectionTreeNode leftNode = makeSparseAngularTree(matrix, leftIndices, random, leafSize);
-            final RandomProjectionTreeNode rightNode = makeSparseAngularTree(matrix, rightIndices, random, leafSize);
+            final RandomProjectionTreeNode leftNode = makeSparseAngularTree(matrix, leftIndices, random, leafSize, progress);
+            final RandomProjectionTreeNode rightNode = makeSparseAngularTree(matrix, rightIndices, random, leafSize, progress);
 
             return new RandomProjectionTreeNode(null, hyperplane, offset, leftNode, rightNode);
         } else {
@@ -492,10 +491,11 @@ final class RandomProjectionTree {
      *                 nodes.
      * @param angular  Whether to use cosine/angular distance to create splits in the tree,
      *                 or Euclidean distance
+     * @param progress polled for cancellation at every split
      * @return A random projection tree node which links to its child nodes. This
      * provides the full tree below the returned node.
      */
-    private static RandomProjectionTreeNode makeTree(final Matrix data, final Random random, final int leafSize, final boolean angular) {
+    private static RandomProjectionTreeNode makeTree(final Matrix data, final Random random, final int leafSize, final boolean angular, final UmapProgress progress) {
         final boolean isSparse = data instanceof CsrMatrix;
         final int[] indices = MathUtils.identity(data.rows());
 
@@ -503,15 +503,15 @@ final class RandomProjectionTree {
         if (isSparse) {
             final CsrMatrix csrData = (CsrMatrix) data;
             if (angular) {
-                return makeSparseAngularTree(csrData, indices, random, leafSize);
+                return makeSparseAngularTree(csrData, indices, random, leafSize, progress);
             } else {
-                return makeSparseEuclideanTree(csrData, indices, random, leafSize);
+                return makeSparseEuclideanTree(csrData, indices, random, leafSize, progress);
             }
         } else {
             if (angular) {
-                return makeAngularTree(data, indices, random, leafSize);
+                return makeAngularTree(data, indices, random, leafSize, progress);
             } else {
-                return makeEuclideanTree(data, indices, random, leafSize);
+                return makeEuclideanTree(data, indices, random, leafSize, progress);
             }
         }
     }
@@ -525,18 +525,21 @@ final class RandomProjectionTree {
      * @param nTrees     number of trees
      * @param random     randomness source
      * @param angular    true for cosine metric, otherwise Euclidean
+     * @param progress   progress and cancellation of the fit
      * @return list of random projection trees
      */
-    static List<FlatTree> makeForest(final Matrix data, final int nNeighbors, final int nTrees, final Random random, final boolean angular) {
+    static List<FlatTree> makeForest(final Matrix data, final int nNeighbors, final int nTrees, final Random random, final boolean angular, final UmapProgress progress) {
         final Random[] randoms = Utils.splitRandom(random, nTrees);  // insure same set of random numbers for 1 and multiple threads
 
         final ArrayList<FlatTree> result = new ArrayList<>();
         final int leafSize = Math.max(10, nNeighbors);
         try {
             for (int i = 0; i < nTrees; ++i) {
-                result.add(makeTree(data, randoms[i], leafSize, angular).flatten());
-                UmapProgress.update();
+                result.add(makeTree(data, randoms[i], leafSize, angular, progress).flatten());
+                progress.update();
             }
+        } catch (CancellationException e) {
+            throw e;
         } catch (RuntimeException e) {
             Utils.message("Random Projection forest initialisation failed due to recursion limit being reached. Something is a little strange with your data, and this may take longer than normal to compute.");
             throw e; // Python blindly continued from this point ... we die for now
@@ -544,9 +547,9 @@ final class RandomProjectionTree {
         return result;
     }
 
-    static List<FlatTree> makeForest(final Matrix data, final int nNeighbors, final int nTrees, final Random random, final boolean angular, int threads) {
+    static List<FlatTree> makeForest(final Matrix data, final int nNeighbors, final int nTrees, final Random random, final boolean angular, int threads, final UmapProgress progress) {
         if (threads == 1) {
-            return makeForest(data, nNeighbors, nTrees, random, angular);
+            return makeForest(data, nNeighbors, nTrees, random, angular, progress);
         }
         final Random[] randoms = Utils.splitRandom(random, nTrees);  // insure same set of random numbers for 1 and multiple threads
 
@@ -556,16 +559,22 @@ final class RandomProjectionTree {
 
             final int leafSize = Math.max(10, nNeighbors);
             for (final Random rand : randoms) {  // randoms.length == nTrees
-                futures.add(executor.submit(() -> makeTree(data, rand, leafSize, angular).flatten()));
+                futures.add(executor.submit(() -> makeTree(data, rand, leafSize, angular, progress).flatten()));
             }
 
             final ArrayList<FlatTree> result = new ArrayList<>();
             try {
                 for (final Future<FlatTree> future : futures) {
                     result.add(future.get());
-                    UmapProgress.update();
+                    progress.update();
+                }
+            } catch (final ExecutionException ex) {
+                if (ex.getCause() instanceof CancellationException) {
+                    throw (CancellationException) ex.getCause();
                 }
-            } catch (final InterruptedException | ExecutionException ex) {
+                Utils.message("Random Projection forest initialisation failed due to recursion limit being reached. Something is a little strange with your data, and this may take longer than normal to compute.");
+                throw new RuntimeException(ex); // Python blindly continued from this point ... we die for now
+            } catch (final InterruptedException ex) {
                 Utils.message("Random Projection forest initialisation failed due to recursion limit being reached. Something is a little strange with your data, and this may take longer than normal to compute.");
                 throw new RuntimeException(ex); // Python blindly continued from this point ... we die for now
             }
@@ -25,45 +25,113 @@ package edu.jhuapl.trinity.utils.umap;
  * #L%
  */
 
-import java.util.Set;
-import java.util.TreeSet;
+import java.util.Arrays;
 
 /**
- * Stores unordered pairs.
+ * Stores unordered pairs. Neighbors of each vertex are held as a sorted
+ * <code>int[]</code> so that the graph can be walked without boxing once
+ * it has been built.
  *
  * @author Sean A. Irvine
  * @author Richard Littin
  */
 class SearchGraph {
 
-    private final TreeSet<Integer>[] mRows;
+    private static final int[] EMPTY = new int[0];
+
+    private final int[][] mRows;
+    private final int[] mSizes;
 
-    @SuppressWarnings("unchecked")
     SearchGraph(final int rows) {
-        mRows = (TreeSet<Integer>[]) new TreeSet[rows];
-        for (int k = 0; k < rows; ++k) {
-            mRows[k] = new TreeSet<>();
-        }
+        mRows = new int[rows][];
+        mSizes = new int[rows];
+        Arrays.fill(mRows, EMPTY);
     }
 
     /**
-     * Set the unordered pair of instances.
+     * Build the undirected search graph from a k-nearest neighbor graph,
+     * skipping zero distance (self) entries.
      *
-     * @param x instance index
-     * @param y instance index
+     * @param knnIndices neighbor indices per row
+     * @param knnDists   neighbor distances per row
+     * @return search graph
      */
+    static SearchGraph fromKnn(final int[][] knnIndices, final float[][] knnDists) {
+        final int rows = knnIndices.length;
+        final SearchGraph graph = new SearchGraph(rows);
+        // count first so each row is allocated once at its final size
+        final int[] degree = new int[rows];
+        for (int k = 0; k < rows; ++k) {
+            for (int j = 0; j < knnIndices[k].length; ++j) {
+                if (knnDists[k][j] != 0 && knnIndices[k][j] >= 0) {
+                    ++degree[k];
+                    ++degree[knnIndices[k][j]];
+                }
+            }
+        }
+        for (int k = 0; k < rows; ++k) {
+            graph.mRows[k] = new int[degree[k]];
+        }
+        for (int k = 0; k < rows; ++k) {
+            for (int j = 0; j < knnIndices[k].length; ++j) {
+                final int other = knnIndices[k][j];
+                if (knnDists[k][j] != 0 && other >= 0) {
+                    graph.mRows[k][graph.mSizes[k]++] = other;
+                    graph.mRows[other][graph.mSizes[other]++] = k;
+                }
+            }
+        }
+        for (int k = 0; k < rows; ++k) {
+            graph.compact(k);
+        }
+        return graph;
+    }
+
     void set(final int x, final int y) {
-        mRows[x].add(y);
-        mRows[y].add(x);
+        add(x, y);
+        add(y, x);
+    }
+
+    private void add(final int x, final int y) {
+        final int[] row = mRows[x];
+        if (Arrays.binarySearch(row, 0, mSizes[x], y) >= 0) {
+            return;
+        }
+        if (mSizes[x] == row.length) {
+            mRows[x] = Arrays.copyOf(row, Math.max(4, row.length * 2));
+        }
+        mRows[x][mSizes[x]++] = y;
+        Arrays.sort(mRows[x], 0, mSizes[x]);
+    }
+
+    /**
+     * Sort and drop duplicates, trimming the row to its size.
+     */
+    private void compact(final int x) {
+        final int[] row = mRows[x];
+        Arrays.sort(row, 0, mSizes[x]);
+        int size = 0;
+        for (int i = 0; i < mSizes[x]; ++i) {
+            if (size == 0 || row[size - 1] != row[i]) {
+                row[size++] = row[i];
+            }
+        }
+        mSizes[x] = size;
+        if (size != row.length) {
+            mRows[x] = Arrays.copyOf(row, size);
+        }
     }
 
     /**
-     * Set of indices for an instance.
+     * Neighbors of a vertex in ascending order. The returned array must not be modified.
      *
-     * @param row instance number
-     * @return set of instance numbers
+     * @param row vertex
+     * @return neighbors
      */
-    Set<Integer> row(final int row) {
+    int[] row(final int row) {
+        if (mSizes[row] != mRows[row].length) {
+            mRows[row] = Arrays.copyOf(mRows[row], mSizes[row]);
+        }
         return mRows[row];
     }
 }
@@ -0,0 +1,444 @@
+/*
+ * BSD 3-Clause License
+ * Copyright (c) 2017, Leland McInnes, 2019 Tag.bio (Java port).
+ * See UMAPLicense.txt.
+ */
+package edu.jhuapl.trinity.utils.umap;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Spectral embedding of the fuzzy 1-skeleton, used to initialise the layout.
+ * <p>
+ * Points are placed using the eigenvectors of the symmetric normalized graph
+ * Laplacian <code>L = I - D^-1/2 W D^-1/2</code> with the smallest nonzero
+ * eigenvalues. These are the largest eigenvectors of the normalized adjacency
+ * <code>M = D^-1/2 W D^-1/2</code>, found by LOBPCG with the trivial
+ * eigenvector <code>D^1/2 1</code> projected out. Only matrix vector products
+ * over the graph edges are needed, so memory stays proportional to the number
+ * of edges. The eigenvectors only seed the layout optimization, so the
+ * iteration count is capped rather than run to full precision.
+ * <p>
+ * The graph need not be connected. Each connected component is laid out on
+ * its own and the components are spread over a grid of cells; components too
+ * small for a spectral layout are placed at random within their cell.
+ *
+ * @author Sean Phillips
+ */
+final class Spectral {
+
+    private static final int MAX_ITERATIONS = 300;
+    private static final double TOLERANCE = 1.0e-4;
+
+    private Spectral() {
+    }
+
+    /**
+     * Compute the spectral layout of a symmetric graph.
+     *
+     * @param graph  symmetric weighted adjacency, shape <code>(nVertices, nVertices)</code>
+     * @param dim    dimension of the layout
+     * @param random randomness source
+     * @return array of shape <code>(nVertices, dim)</code> with coordinates in <code>[-1, 1]</code>
+     */
+    static float[][] spectralLayout(final CooMatrix graph, final int dim, final Random random) {
+        final int n = graph.rows();
+        final int[] row = graph.row();
+        final int[] col = graph.col();
+        final float[] data = graph.data();
+
+        // The entries are sorted by row, so the row pointers come straight from a count
+        final int[] indptr = new int[n + 1];
+        for (final int r : row) {
+            ++indptr[r + 1];
+        }
+        for (int i = 0; i < n; ++i) {
+            indptr[i + 1] += indptr[i];
+        }
+        final double[] degree = new double[n];
+        for (int e = 0; e < row.length; ++e) {
+            degree[row[e]] += data[e];
+        }
+
+        final int[] label = new int[n];
+        final int nComponents = components(n, row, col, label);
+        final int[] sizes = new int[nComponents];
+        for (final int l : label) {
+            ++sizes[l];
+        }
+        final int[][] members = new int[nComponents][];
+        for (int c = 0; c < nComponents; ++c) {
+            members[c] = new int[sizes[c]];
+            sizes[c] = 0;
+        }
+        for (int i = 0; i < n; ++i) {
+            members[label[i]][sizes[label[i]]++] = i;
+        }
+
+        final float[][] result = new float[n][dim];
+        // Lay the components out on a grid of cells, each component scaled to half a cell
+        final int perSide = (int) Math.ceil(Math.pow(nComponents, 1.0 / dim) - 1.0e-9);
+        final float cell = 2.0F / perSide;
+        final int[] local = new int[n];
+        for (int c = 0; c < nComponents; ++c) {
+            final int[] m = members[c];
+            final float[][] layout = m.length < 2 * dim
+                ? MathUtils.uniform(random, -1, 1, m.length, dim)
+                : componentLayout(m, local, indptr, col, data, degree, dim, random);
+            float maxAbs = 0;
+            for (final float[] p : layout) {
+                for (final float v : p) {
+                    maxAbs = Math.max(maxAbs, Math.abs(v));
+                }
+            }
+            final float scale = (nComponents == 1 ? 1 : cell / 4) / (maxAbs > 0 ? maxAbs : 1);
+            for (int a = 0; a < m.length; ++a) {
+                for (int d = 0, cellIndex = c; d < dim; ++d, cellIndex /= perSide) {
+                    final float centre = nComponents == 1 ? 0 : -1 + cell * (cellIndex % perSide + 0.5F);
+                    result[m[a]][d] = centre + layout[a][d] * scale;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Label the connected components of a graph.
+     *
+     * @param n     number of vertices
+     * @param row   edge heads
+     * @param col   edge tails
+     * @param label filled with the component of each vertex, numbered from 0
+     * @return number of components
+     */
+    static int components(final int n, final int[] row, final int[] col, final int[] label) {
+        final int[] parent = MathUtils.identity(n);
+        for (int e = 0; e < row.length; ++e) {
+            final int a = find(parent, row[e]);
+            final int b = find(parent, col[e]);
+            if (a != b) {
+                parent[Math.max(a, b)] = Math.min(a, b);
+            }
+        }
+        int count = 0;
+        for (int i = 0; i < n; ++i) {
+            final int root = find(parent, i);
+            // roots are always the smallest member, so they are labelled first
+            label[i] = root == i ? count++ : label[root];
+        }
+        return count;
+    }
+
+    private static int find(final int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static float[][] componentLayout(final int[] members, final int[] local, final int[] indptr, final int[] col, final float[] data, final double[] degree, final int dim, final Random random) {
+        final int m = members.length;
+        for (int a = 0; a < m; ++a) {
+            local[members[a]] = a;
+        }
+        final double[] invSqrtDegree = new double[m];
+        final double[] trivial = new double[m];
+        for (int a = 0; a < m; ++a) {
+            final double d = degree[members[a]];
+            invSqrtDegree[a] = d > 0 ? 1 / Math.sqrt(d) : 0;
+            trivial[a] = Math.sqrt(d);
+        }
+        normalize(trivial);
+        final Operator op = (x, y) -> {
+            for (int a = 0; a < m; ++a) {
+                final int i = members[a];
+                double sum = 0;
+                for (int p = indptr[i]; p < indptr[i + 1]; ++p) {
+                    final int b = local[col[p]];
+                    sum += data[p] * invSqrtDegree[b] * x[b];
+                }
+                y[a] = invSqrtDegree[a] * sum;
+            }
+        };
+
+        final double[][] x = new double[dim][m];
+        for (final double[] v : x) {
+            for (int a = 0; a < m; ++a) {
+                v[a] = random.nextGaussian();
+            }
+        }
+        orthonormalize(x, x.length, trivial, random);
+        final double[][] eigenvectors = lobpcg(op, x, trivial, random);
+
+        final float[][] layout = new float[m][dim];
+        for (int a = 0; a < m; ++a) {
+            for (int k = 0; k < dim; ++k) {
+                layout[a][k] = (float) eigenvectors[k][a];
+            }
+        }
+        return layout;
+    }
+
+    /**
+     * Symmetric linear operator, <code>y = A x</code>.
+     */
+    private interface Operator {
+        void apply(double[] x, double[] y);
+    }
+
+    /**
+     * Locally optimal block preconditioned conjugate gradient (without a
+     * preconditioner) for the largest eigenvalues of a symmetric operator,
+     * restricted to the complement of a known unit eigenvector. Each
+     * iteration does a Rayleigh-Ritz step over the current block, its
+     * residuals and the previous search directions, which converges far
+     * faster than power iteration when the eigenvalues are closely spaced,
+     * as they are for long thin manifolds.
+     *
+     * @param op      operator
+     * @param x       orthonormal starting block, one vector per row
+     * @param trivial unit eigenvector to exclude
+     * @param random  randomness source for replacing degenerate vectors
+     * @return approximate eigenvectors, largest eigenvalue first
+     */
+    private static double[][] lobpcg(final Operator op, double[][] x, final double[] trivial, final Random random) {
+        final int k = x.length;
+        final int m = trivial.length;
+        double[][] ax = new double[k][m];
+        for (int i = 0; i < k; ++i) {
+            op.apply(x[i], ax[i]);
+        }
+        double[][] p = null;
+        for (int iteration = 0; iteration < MAX_ITERATIONS; ++iteration) {
+            // Residuals r = A x - (x.A x) x
+            final double[][] r = new double[k][m];
+            double residual = 0;
+            for (int i = 0; i < k; ++i) {
+                final double lambda = dot(x[i], ax[i]);
+                for (int a = 0; a < m; ++a) {
+                    r[i][a] = ax[i][a] - lambda * x[i][a];
+                }
+                residual = Math.max(residual, Math.sqrt(dot(r[i], r[i])));
+            }
+            if (residual < TOLERANCE) {
+                break;
+            }
+
+            // Orthonormal basis of span(x, r, p), dropping dependent directions
+            final int size = k * (p == null ? 2 : 3);
+            final double[][] basis = new double[size][];
+            int q = 0;
+            for (final double[] v : x) {
+                basis[q++] = v.clone();
+            }
+            for (final double[] v : r) {
+                basis[q++] = v;
+            }
+            if (p != null) {
+                for (final double[] v : p) {
+                    basis[q++] = v;
+                }
+            }
+            q = orthonormalize(basis, k, trivial, null);
+            final double[][] aBasis = new double[q][m];
+            IntStream.range(0, q).parallel().forEach(i -> op.apply(basis[i], aBasis[i]));
+
+            // Rayleigh-Ritz on the small projected problem
+            final double[][] g = new double[q][q];
+            for (int i = 0; i < q; ++i) {
+                for (int j = i; j < q; ++j) {
+                    g[i][j] = 0.5 * (dot(basis[i], aBasis[j]) + dot(basis[j], aBasis[i]));
+                    g[j][i] = g[i][j];
+                }
+            }
+            final double[][] c = largestEigenvectors(g, k);
+
+            final double[][] newX = new double[k][m];
+            final double[][] newAx = new double[k][m];
+            for (int i = 0; i < k; ++i) {
+                for (int j = 0; j < q; ++j) {
+                    final double cij = c[i][j];
+                    for (int a = 0; a < m; ++a) {
+                        newX[i][a] += cij * basis[j][a];
+                        newAx[i][a] += cij * aBasis[j][a];
+                    }
+                }
+            }
+            // Search directions: the part of the update outside the old block
+            p = new double[k][];
+            for (int i = 0; i < k; ++i) {
+                p[i] = newX[i].clone();
+                for (int j = 0; j < k; ++j) {
+                    subtractProjection(p[i], x[j]);
+                }
+            }
+            x = newX;
+            ax = newAx;
+        }
+        return x;
+    }
+
+    /**
+     * Eigenvectors of a small symmetric matrix for its largest eigenvalues, by
+     * cyclic Jacobi rotations.
+     *
+     * @param g symmetric matrix, overwritten
+     * @param k number of eigenvectors
+     * @return k eigenvectors, one per row, largest eigenvalue first
+     */
+    static double[][] largestEigenvectors(final double[][] g, final int k) {
+        final int n = g.length;
+        final double[][] v = new double[n][n];
+        for (int i = 0; i < n; ++i) {
+            v[i][i] = 1;
+        }
+        for (int sweep = 0; sweep < 100; ++sweep) {
+            double off = 0;
+            for (int i = 0; i < n; ++i) {
+                for (int j = i + 1; j < n; ++j) {
+                    off += g[i][j] * g[i][j];
+                }
+            }
+            if (off < 1.0e-30) {
+                break;
+            }
+            for (int i = 0; i < n; ++i) {
+                for (int j = i + 1; j < n; ++j) {
+                    if (Math.abs(g[i][j]) < 1.0e-300) {
+                        continue;
+                    }
+                    final double theta = (g[j][j] - g[i][i]) / (2 * g[i][j]);
+                    final double t = Math.signum(theta == 0 ? 1 : theta) / (Math.abs(theta) + Math.sqrt(theta * theta + 1));
+                    final double cos = 1 / Math.sqrt(t * t + 1);
+                    final double sin = t * cos;
+                    for (int r = 0; r < n; ++r) {
+                        final double gri = g[r][i];
+                        final double grj = g[r][j];
+                        g[r][i] = cos * gri - sin * grj;
+                        g[r][j] = sin * gri + cos * grj;
+                    }
+                    for (int r = 0; r < n; ++r) {
+                        final double gir = g[i][r];
+                        final double gjr = g[j][r];
+                        g[i][r] = cos * gir - sin * gjr;
+                        g[j][r] = sin * gir + cos * gjr;
+                    }
+                    for (int r = 0; r < n; ++r) {
+                        final double vri = v[r][i];
+                        final double vrj = v[r][j];
+                        v[r][i] = cos * vri - sin * vrj;
+                        v[r][j] = sin * vri + cos * vrj;
+                    }
+                }
+            }
+        }
+        final Integer[] order = new Integer[n];
+        for (int i = 0; i < n; ++i) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(g[b][b], g[a][a]));
+        final double[][] result = new double[Math.min(k, n)][n];
+        for (int e = 0; e < result.length; ++e) {
+            for (int r = 0; r < n; ++r) {
+                result[e][r] = v[r][order[e]];
+            }
+        }
+        return result;
+    }
+
+    private static double dot(final double[] x, final double[] y) {
+        double sum = 0;
+        for (int a = 0; a < x.length; ++a) {
+            sum += x[a] * y[a];
+        }
+        return sum;
+    }
+
+    /**
+     * Gram-Schmidt the vectors against the trivial eigenvector and each other,
+     * twice for numerical safety, compacting the independent ones to the front.
+     * The first <code>keep</code> vectors must survive: if one collapses it is
+     * replaced by a random vector when a randomness source is given. Later
+     * vectors that collapse are dropped.
+     *
+     * @return number of vectors kept
+     */
+    private static int orthonormalize(final double[][] vectors, final int keep, final double[] trivial, final Random random) {
+        int count = 0;
+        for (int k = 0; k < vectors.length; ++k) {
+            final double[] v = vectors[k];
+            final double before = Math.sqrt(dot(v, v));
+            for (int attempt = 0; ; ++attempt) {
+                for (int pass = 0; pass < 2; ++pass) {
+                    subtractProjection(v, trivial);
+                    for (int j = 0; j < count; ++j) {
+                        subtractProjection(v, vectors[j]);
+                    }
+                }
+                final double norm = normalize(v);
+                if (norm > 1.0e-8 * Math.max(before, 1.0e-300) && norm > 1.0e-12) {
+                    vectors[count++] = v;
+                    break;
+                }
+                if (k >= keep || random == null || attempt > 2) {
+                    if (k < keep) {
+                        vectors[count++] = v;
+                    }
+                    break;
+                }
+                for (int a = 0; a < v.length; ++a) {
+                    v[a] = random.nextGaussian();
+                }
+            }
+        }
+        return count;
+    }
+
+    private static void subtractProjection(final double[] v, final double[] unit) {
+        double dot = 0;
+        for (int a = 0; a < v.length; ++a) {
+            dot += v[a] * unit[a];
+        }
+        for (int a = 0; a < v.length; ++a) {
+            v[a] -= dot * unit[a];
+        }
+    }
+
+    private static double normalize(final double[] v) {
+        double norm = 0;
+        for (final double x : v) {
+            norm += x * x;
+        }
+        norm = Math.sqrt(norm);
+        if (norm > 0) {
+            for (int a = 0; a < v.length; ++a) {
+                v[a] /= norm;
+            }
+        }
+        return norm;
+    }
+}
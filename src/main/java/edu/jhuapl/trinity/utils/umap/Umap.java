@@ -25,22 +25,25 @@ package edu.jhuapl.trinity.utils.umap;
  * #L%
  */
 
-import edu.jhuapl.trinity.App;
-import edu.jhuapl.trinity.javafx.components.ProgressStatus;
-import edu.jhuapl.trinity.javafx.events.ApplicationEvent;
 import edu.jhuapl.trinity.utils.umap.metric.CategoricalMetric;
 import edu.jhuapl.trinity.utils.umap.metric.EuclideanMetric;
 import edu.jhuapl.trinity.utils.umap.metric.Metric;
 import edu.jhuapl.trinity.utils.umap.metric.PrecomputedMetric;
 import edu.jhuapl.trinity.utils.umap.metric.ReducedEuclideanMetric;
-import javafx.application.Platform;
-import javafx.scene.Scene;
-import javafx.scene.paint.Color;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CancellationException;
 
 /**
  * Uniform Manifold Approximation and Projection.
@@ -173,6 +176,16 @@ public class Umap {
      * The distances to the <code>nNeighbors</code> closest points in the dataset.
      */
     static IndexedDistances nearestNeighbors(final Matrix instances, final int nNeighbors, final Metric metric, boolean angular, final Random random, final int threads, final boolean verbose) {
+        return nearestNeighbors(instances, nNeighbors, metric, angular, random, threads, verbose, new UmapProgress(null, null));
+    }
+
+    /**
+     * Nearest neighbors as part of a fit, see {@link #nearestNeighbors(Matrix, int, Metric, boolean, Random, int, boolean)}.
+     *
+     * @param progress progress of the fit, also polled for cancellation
+     *                 while the forest is built and the descent iterates
+     */
+    static IndexedDistances nearestNeighbors(final Matrix instances, final int nNeighbors, final Metric metric, boolean angular, final Random random, final int threads, final boolean verbose, final UmapProgress progress) {
         if (verbose) {
             Utils.message("Finding nearest neighbors");
         }
@@ -194,64 +207,36 @@ public class Umap {
         } else {
             boolean isAngular = metric.isAngular();
 
-            if (instances instanceof CsrMatrix) {
-//        final CsrMatrix csrInstances = instances.toCsr();
-//        // todo this is nonsense now, since metric cannot be a string at this point
-//        if (Sparse.SPARSE_NAMED_DISTANCES.containsKey(metric)) {
-//          distanceFunc = Sparse.SPARSE_NAMED_DISTANCES.get(metric);
-////          if (Sparse.sparse_need_n_features.contains(metric)) {
-////            metricKwds.put("n_features", instances.cols());
-////          }
-//        } else {
-//          throw new IllegalArgumentException("Metric " + metric + " not supported for sparse data");
-//        }
-                throw new UnsupportedOperationException();
-//        metric_nn_descent = Sparse.make_sparse_nn_descent(distanceFunc, tuple(metricKwds.values()));
-//
-//        int n_trees = 5 + (int) (Math.round(Math.pow(Y.rows(), 0.5) / 20.0));
-//        int n_iters = Math.max(5, (int) (Math.round(MathUtils.log2(Y.rows()))));
-//        if (verbose) {
-//          Utils.message("Building RP forest with " + n_trees + " trees");
-//        }
-//
-//        rpForest = RpTree.make_forest(X, nNeighbors, n_trees, random, angular);
-//        final int[][] leaf_array = RpTree.rptree_leaf_array(rpForest);
-//
-//        if (verbose) {
-//          Utils.message("NN descent for " + n_iters + " iterations");
-//        }
-//        final Object[] nn = NearestNeighborDescent.metric_nn_descent(Y.indices, Y.indptr, Y.data, Y.rows(), nNeighbors, random, /*max_candidates=*/60, /*rp_tree_init=*/true,     /*leaf_array=*/leaf_array,  /*n_iters=*/n_iters, verbose);
-//        knnIndices = (int[][]) nn[0];
-//        knnDists = (float[][]) nn[1];
-            } else {
-                final NearestNeighborDescent metricNearestNeighborsDescent = threads == 1 ? new NearestNeighborDescent(metric) : new ParallelNearestNeighborDescent(metric, threads);
-                final int nTrees = 5 + (int) (Math.round(Math.pow(instances.rows(), 0.5) / 20.0));
-                final int nIters = Math.max(5, (int) (Math.round(MathUtils.log2(instances.rows()))));
-                UmapProgress.incTotal(nIters + nTrees + 2);
+            // Sparse instances take the same route: the forest uses the sparse
+            // splits and CsrMatrix distances run over the nonzero entries only
+            final NearestNeighborDescent metricNearestNeighborsDescent = threads == 1 ? new NearestNeighborDescent(metric) : new ParallelNearestNeighborDescent(metric, threads);
+            final int nTrees = 5 + (int) (Math.round(Math.pow(instances.rows(), 0.5) / 20.0));
+            final int nIters = Math.max(5, (int) (Math.round(MathUtils.log2(instances.rows()))));
+            progress.incTotal(nIters + nTrees + 2);
 
-                if (verbose) {
-                    Utils.message("Building random projection forest with " + nTrees + " trees");
-                }
-                rpForest = RandomProjectionTree.makeForest(instances, nNeighbors, nTrees, random, isAngular, threads);
-                if (verbose) {
-                    long nodeCount = 0;
-                    for (final FlatTree tree : rpForest) {
-                        for (final int[] a : tree.getIndices()) {
-                            for (final int b : a) {
-                                if (b >= 0) {
-                                    ++nodeCount;
-                                }
+            if (verbose) {
+                Utils.message("Building random projection forest with " + nTrees + " trees");
+            }
+            rpForest = RandomProjectionTree.makeForest(instances, nNeighbors, nTrees, random, isAngular, threads, progress);
+            if (verbose) {
+                long nodeCount = 0;
+                for (final FlatTree tree : rpForest) {
+                    for (final int[] a : tree.getIndices()) {
+                        for (final int b : a) {
+                            if (b >= 0) {
+                                ++nodeCount;
                             }
                         }
                     }
-                    Utils.message("Total number of values in forest: " + nodeCount);
-                    Utils.message("NN descent for " + nIters + " iterations");
                 }
-                metricNearestNeighborsDescent.setVerbose(verbose);
-                final Heap nn = metricNearestNeighborsDescent.descent(instances, nNeighbors, random, 60, true, nIters, rpForest);
-                knnIndices = nn.indices();
-                knnDists = nn.weights();
+                Utils.message("Total number of values in forest: " + nodeCount);
+                Utils.message("NN descent for " + nIters + " iterations");
             }
+            metricNearestNeighborsDescent.setVerbose(verbose);
+            metricNearestNeighborsDescent.setProgress(progress);
+            final Heap nn = metricNearestNeighborsDescent.descent(instances, nNeighbors, random, 60, true, nIters, rpForest);
+            knnIndices = nn.indices();
+            knnDists = nn.weights();
 
             if (MathUtils.containsNegative(knnIndices)) {
                 Utils.message("Failed to correctly find nearest neighbors for some samples. Results may be less than ideal. Try re-running with different parameters.");
@@ -263,6 +248,40 @@ public class Umap {
         return new IndexedDistances(knnIndices, knnDists, rpForest);
     }
 
+    /**
+     * Estimate the recall of approximate nearest neighbors, the fraction of
+     * the true <code>k</code> nearest neighbors they contain, by comparing a
+     * sample of rows against exact neighbors. An approximate neighbor no
+     * further away than the exact <code>k</code>-th neighbor counts as found,
+     * so ties at the boundary are not held against the search.
+     *
+     * @param instances   data the neighbors were found for
+     * @param approximate approximate neighbors of every row
+     * @param metric      distance metric
+     * @param sampleSize  number of rows to check
+     * @param random      randomness source for the sample
+     * @return recall in <code>[0, 1]</code>
+     */
+    static float nearestNeighborRecall(final Matrix instances, final IndexedDistances approximate, final Metric metric, final int sampleSize, final Random random) {
+        final int[] sample = sampleSize >= instances.rows()
+            ? MathUtils.identity(instances.rows())
+            : Utils.rejectionSample(sampleSize, instances.rows(), random);
+        final int k = approximate.getIndices()[0].length;
+        final IndexedDistances exact = PairwiseDistances.parallelNearestNeighbors(instances, sample, metric, k);
+        long found = 0;
+        for (int s = 0; s < sample.length; ++s) {
+            final float kth = exact.getDistances()[s][k - 1];
+            final int[] indices = approximate.getIndices()[sample[s]];
+            final float[] distances = approximate.getDistances()[sample[s]];
+            for (int j = 0; j < k; ++j) {
+                if (indices[j] >= 0 && distances[j] <= kth) {
+                    ++found;
+                }
+            }
+        }
+        return found / (float) ((long) sample.length * k);
+    }
+
     /**
      * Construct the membership strength data for the 1-skeleton of each local
      * fuzzy simplicial set -- this is formed as a sparse matrix where each row is
@@ -481,6 +500,10 @@ public class Umap {
             throw new UnsupportedOperationException("Require matrix we can set entries on");
         }
 
+        if (mThreads > 1 && epochsPerSample.length >= PARALLEL_LAYOUT_MIN_EDGES) {
+            return new ParallelLayoutOptimizer(mThreads, mDeterministicLayout).optimize(headEmbedding, tailEmbedding, head, tail, nEpochs, nVertices, epochsPerSample, a, b, random, gamma, initialAlpha, negativeSampleRate, n -> epochCompleted(n, nEpochs, headEmbedding, verbose));
+        }
+
         final int dim = headEmbedding.cols();
         final boolean moveOther = headEmbedding.rows() == tailEmbedding.rows();
         float alpha = initialAlpha;
@@ -544,27 +567,94 @@ public class Umap {
             }
 
             alpha = initialAlpha * (1 - (float) n / (float) nEpochs);
-
-            if (verbose && n % (nEpochs / 100) == 0) {
-                Scene scene = App.getAppScene();
-                Utils.message("Completed " + n + "/" + nEpochs);
-                double percentComplete = Double.valueOf(n) / Double.valueOf(nEpochs);
-                Platform.runLater(() -> {
-                    ProgressStatus ps = new ProgressStatus(
-                        "Optimizing Layout...", percentComplete);
-                    ps.fillStartColor = Color.CYAN;
-                    ps.fillEndColor = Color.NAVY;
-                    ps.innerStrokeColor = Color.CYAN;
-                    ps.outerStrokeColor = Color.NAVY;
-                    scene.getRoot().fireEvent(
-                        new ApplicationEvent(ApplicationEvent.UPDATE_BUSY_INDICATOR, ps));
-                });
+            if (!epochCompleted(n, nEpochs, headEmbedding, verbose)) {
+                break;
             }
-            UmapProgress.update();
         }
         return headEmbedding;
     }
 
+    /**
+     * Reports a finished layout epoch and hands snapshots of the embedding to
+     * the listener of a monitored fit.
+     *
+     * @param n         index of the epoch just completed
+     * @param nEpochs   total number of epochs
+     * @param embedding the embedding being optimized
+     * @param verbose   whether to print progress messages
+     * @return false when the optimization should stop early
+     * @throws CancellationException if the fit has been cancelled
+     */
+    private boolean epochCompleted(final int n, final int nEpochs, final Matrix embedding, final boolean verbose) {
+        if (verbose && n % Math.max(1, nEpochs / 100) == 0) {
+            Utils.message("Completed " + n + "/" + nEpochs);
+        }
+        if (null != mProgress) {
+            mProgress.update();
+        }
+        checkCancelled();
+        final int epoch = n + 1;
+        if (null != mEmbeddingListener) {
+            mEmbeddingListener.epochCompleted(epoch, nEpochs);
+        }
+        boolean stop = null != mCancellation && mCancellation.isStopRequested();
+        final boolean monitored = null != mEmbeddingListener || mStabilityTolerance > 0;
+        if (monitored && mSnapshotEpochs > 0 && (stop || epoch == nEpochs || epoch % mSnapshotEpochs == 0)) {
+            final float[][] snapshot = copyOf(embedding);
+            if (mStabilityTolerance > 0 && isStable(snapshot)) {
+                if (mVerbose) {
+                    Utils.message("Embedding stable after " + epoch + "/" + nEpochs + " epochs");
+                }
+                stop = true;
+            }
+            mLastSnapshot = snapshot;
+            if (null != mEmbeddingListener) {
+                mEmbeddingListener.embeddingUpdated(epoch, nEpochs, snapshot);
+            }
+        }
+        return !stop;
+    }
+
+    private void checkCancelled() {
+        if (null != mCancellation && mCancellation.isCancelled()) {
+            throw new CancellationException("UMAP fit cancelled");
+        }
+    }
+
+    private static float[][] copyOf(final Matrix embedding) {
+        final float[][] copy = new float[embedding.rows()][];
+        for (int i = 0; i < copy.length; ++i) {
+            copy[i] = Arrays.copyOf(embedding.row(i), embedding.cols());
+        }
+        return copy;
+    }
+
+    // Root mean square movement since the last snapshot, relative to the
+    // root mean square spread of the embedding about its centroid.
+    private boolean isStable(final float[][] snapshot) {
+        if (null == mLastSnapshot || mLastSnapshot.length != snapshot.length || snapshot.length == 0) {
+            return false;
+        }
+        final int dim = snapshot[0].length;
+        final double[] mean = new double[dim];
+        for (final float[] row : snapshot) {
+            for (int d = 0; d < dim; ++d) {
+                mean[d] += row[d];
+            }
+        }
+        double moved = 0;
+        double spread = 0;
+        for (int i = 0; i < snapshot.length; ++i) {
+            for (int d = 0; d < dim; ++d) {
+                final double delta = snapshot[i][d] - mLastSnapshot[i][d];
+                final double offset = snapshot[i][d] - mean[d] / snapshot.length;
+                moved += delta * delta;
+                spread += offset * offset;
+            }
+        }
+        return spread > 0 && Math.sqrt(moved / spread) < mStabilityTolerance;
+    }
+
     /**
      * Perform a fuzzy simplicial set embedding, using a specified
      * initialisation method and then minimizing the fuzzy set cross entropy
@@ -592,7 +682,9 @@ public class Umap {
      * @param init               How to initialize the low dimensional embedding. Options are:
      *                           * 'spectral': use a spectral embedding of the fuzzy 1-skeleton
      *                           * 'random': assign initial embedding positions at random.
-     *                           * A numpy array of initial embedding positions.
+     * @param initEmbedding      Initial embedding positions, shape <code>(nSamples, nComponents)</code>,
+     *                           used in place of <code>init</code> when not null. Rows containing NaN
+     *                           are placed from their neighbors in the graph.
      * @param random             random source
      * @param metric             The metric used to measure distance in high dimensional space; used if
      *                           multiple connected components need to be layed out.
@@ -601,7 +693,7 @@ public class Umap {
      * The optimized of <code>graph</code> into an <code>nComponents</code> dimensional
      * Euclidean space.
      */
-    private Matrix simplicialSetEmbedding(Matrix data, Matrix graphIn, int nComponents, float initialAlpha, float a, float b, float gamma, int negativeSampleRate, int nEpochs, String init, Random random, Metric metric, boolean verbose) {
+    private Matrix simplicialSetEmbedding(Matrix data, Matrix graphIn, int nComponents, float initialAlpha, float a, float b, float gamma, int negativeSampleRate, int nEpochs, String init, float[][] initEmbedding, Random random, Metric metric, boolean verbose) {
 
         CooMatrix graph = graphIn.toCoo();
         final int nVertices = graph.cols();
@@ -620,29 +712,31 @@ public class Umap {
         graph = (CooMatrix) graph.eliminateZeros();
 
         final Matrix embedding;
-        if ("random".equals(init)) {
-            //embedding = random.uniform(low = -10.0, high = 10.0, size = (graph.rows(), nComponents)).astype(np.float32);
+        if (initEmbedding != null) {
+            if (initEmbedding.length != graph.rows() || initEmbedding[0].length != nComponents) {
+                throw new IllegalArgumentException("Initial embedding must have shape (" + graph.rows() + ", " + nComponents + ")");
+            }
+            embedding = new DefaultMatrix(warmStart(initEmbedding, graph, random));
+        } else if ("random".equals(init)) {
             embedding = new DefaultMatrix(MathUtils.uniform(random, -10, 10, graph.rows(), nComponents));
         } else if ("spectral".equals(init)) {
-            throw new UnsupportedOperationException();
-//      // We add a little noise to avoid local minima for optimization to come
-//      float[][] initialisation = Spectral.spectral_layout(data, graph, nComponents, random, /*metric=*/metric, /*metric_kwds=*/metric_kwds);
-//      float expansion = 10.0 / Math.abs(initialisation).max();
-//      embedding = (MathUtils.multiply(initialisation, expansion)).astype(np.float32) + random.normal(scale = 0.0001, size =[graph.rows(), nComponents]).astype(np.float32);
+            // We add a little noise to avoid local minima for optimization to come
+            final float[][] initialisation = Spectral.spectralLayout(graph, nComponents, random);
+            float maxAbs = 0;
+            for (final float[] row : initialisation) {
+                for (final float v : row) {
+                    maxAbs = Math.max(maxAbs, Math.abs(v));
+                }
+            }
+            final float expansion = maxAbs > 0 ? 10.0F / maxAbs : 1;
+            for (final float[] row : initialisation) {
+                for (int d = 0; d < row.length; ++d) {
+                    row[d] = row[d] * expansion + (float) (0.0001 * random.nextGaussian());
+                }
+            }
+            embedding = new DefaultMatrix(initialisation);
         } else {
-            // Situation where init contains prepared data
-            throw new UnsupportedOperationException();
-//      init_data = np.array(init);
-//      if (len(init_data.shape) == 2) {
-//        if (np.unique(init_data, /*axis =*/ 0).length < init_data.length) {
-//          tree = KDTree(init_data);
-//          float[][] dist /*, ind*/ = tree.query(init_data, k = 2);
-//          double nndist = MathUtils.mean(dist, 1);
-//          embedding = init_data + random.normal(scale = 0.001 * nndist, size = init_data.shape).astype(np.float32);
-//        } else {
-//          embedding = init_data;
-//        }
-//      }
+            throw new IllegalArgumentException("Unknown initialisation: " + init);
         }
 
         final float[] epochsPerSample = makeEpochsPerSample(graph.data(), nEpochs);
@@ -654,6 +748,90 @@ public class Umap {
         return optimizeLayout(embedding, embedding, head, tail, nEpochs, nVertices, epochsPerSample, a, b, random, gamma, initialAlpha, negativeSampleRate, verbose);
     }
 
+    /**
+     * Copy of a supplied initial embedding ready for optimization. Rows
+     * containing NaN (e.g. points added since the embedding was made) are
+     * placed at the membership weighted mean of their neighbors that already
+     * have positions, repeating so placements spread along the graph; any
+     * still unplaced are put at random. A small jitter, relative to the
+     * typical edge length, separates coincident points, which the
+     * optimization could not otherwise pull apart.
+     */
+    private static float[][] warmStart(final float[][] initEmbedding, final CooMatrix graph, final Random random) {
+        final int n = initEmbedding.length;
+        final int dim = initEmbedding[0].length;
+        final float[][] result = new float[n][];
+        final boolean[] placed = new boolean[n];
+        int unplaced = 0;
+        for (int i = 0; i < n; ++i) {
+            result[i] = Arrays.copyOf(initEmbedding[i], dim);
+            placed[i] = true;
+            for (final float v : result[i]) {
+                if (Float.isNaN(v)) {
+                    placed[i] = false;
+                    ++unplaced;
+                    break;
+                }
+            }
+        }
+        final int[] head = graph.row();
+        final int[] tail = graph.col();
+        final float[] weight = graph.data();
+        while (unplaced > 0) {
+            final float[][] sum = new float[n][];
+            final float[] total = new float[n];
+            for (int e = 0; e < head.length; ++e) {
+                final int i = head[e];
+                final int j = tail[e];
+                if (!placed[i] && placed[j]) {
+                    if (sum[i] == null) {
+                        sum[i] = new float[dim];
+                    }
+                    for (int d = 0; d < dim; ++d) {
+                        sum[i][d] += weight[e] * result[j][d];
+                    }
+                    total[i] += weight[e];
+                }
+            }
+            int newlyPlaced = 0;
+            for (int i = 0; i < n; ++i) {
+                if (sum[i] != null && total[i] > 0) {
+                    for (int d = 0; d < dim; ++d) {
+                        result[i][d] = sum[i][d] / total[i];
+                    }
+                    placed[i] = true;
+                    ++newlyPlaced;
+                }
+            }
+            if (newlyPlaced == 0) {
+                for (int i = 0; i < n; ++i) {
+                    if (!placed[i]) {
+                        result[i] = MathUtils.uniform(random, -10, 10, 1, dim)[0];
+                    }
+                }
+                break;
+            }
+            unplaced -= newlyPlaced;
+        }
+
+        double edgeLength = 0;
+        for (int e = 0; e < head.length; ++e) {
+            double dist = 0;
+            for (int d = 0; d < dim; ++d) {
+                final double delta = result[head[e]][d] - result[tail[e]][d];
+                dist += delta * delta;
+            }
+            edgeLength += Math.sqrt(dist);
+        }
+        final double jitter = head.length > 0 && edgeLength > 0 ? 0.001 * edgeLength / head.length : 0.0001;
+        for (final float[] row : result) {
+            for (int d = 0; d < dim; ++d) {
+                row[d] += (float) (jitter * random.nextGaussian());
+            }
+        }
+        return result;
+    }
+
     /**
      * Given indices and weights and an original embeddings
      * initialize the positions of new points relative to the
@@ -730,6 +908,31 @@ public class Umap {
 //  private final Float mB = null;
     private Random mRandom = new Random(42);
     private int mThreads = 1;
+    private boolean mDeterministicLayout = false;
+    private String mInit = "spectral";
+    private boolean mExactNearestNeighbors = false;
+    private int mRecallSampleSize = 0;
+    private float mNearestNeighborRecall = Float.NaN;
+    // Enough rows to estimate recall to about a percent
+    public static final int DEFAULT_RECALL_SAMPLE_SIZE = 1000;
+    private float[][] mInitEmbedding = null;
+    private float mStabilityTolerance = 0;
+    // The SGD keeps points moving within their clusters until the learning
+    // rate decays, so relative movement rarely falls much below this before
+    // the last few epochs.
+    public static final float DEFAULT_STABILITY_TOLERANCE = 0.1F;
+    // Only set for the duration of a monitored fit
+    private CancellationToken mCancellation = null;
+    //progress of the running fit, reported to mEmbeddingListener
+    private UmapProgress mProgress = null;
+    private EmbeddingListener mEmbeddingListener = null;
+    private int mSnapshotEpochs = 0;
+    private float[][] mLastSnapshot = null;
+    // Below this many edges (e.g. transforming a handful of streamed points)
+    // thread startup costs more than the layout itself.
+    private static final int PARALLEL_LAYOUT_MIN_EDGES = 10000;
+    private static final int MODEL_MAGIC = 0x554D4150; // "UMAP"
+    private static final int MODEL_VERSION = 1;
 
     private float mInitialAlpha;
     private int mRunNNeighbors;
@@ -775,6 +978,10 @@ public class Umap {
         mNComponents = components;
     }
 
+    public int getNumberComponents() {
+        return mNComponents;
+    }
+
     /**
      * Set the number of training epochs to be used in optimizing the
      * low dimensional embedding. Larger values result in more accurate
@@ -791,6 +998,15 @@ public class Umap {
         mNEpochs = epochs;
     }
 
+    /**
+     * Metric used to compute distances in high dimensional space.
+     *
+     * @return metric function
+     */
+    public Metric getMetric() {
+        return mMetric;
+    }
+
     /**
      * Set the metric to use to compute distances in high dimensional space.  If the
      * metric requires additional parameters, then they are assumed to have been
@@ -1062,6 +1278,114 @@ public class Umap {
         mThreads = threads;
     }
 
+    /**
+     * Make the multi-threaded layout optimization reproducible (default false).
+     * When false, threads update the embedding concurrently without locking,
+     * which is fastest but gives slightly different results run to run. When
+     * true, results are repeatable for a given seed and thread count at some
+     * cost in speed and memory. Has no effect with a single thread.
+     *
+     * @param deterministic true for reproducible layouts
+     */
+    public void setDeterministicLayout(final boolean deterministic) {
+        mDeterministicLayout = deterministic;
+    }
+
+    /**
+     * Find exact nearest neighbors for large data too (default false). Above
+     * the small problem size neighbors are normally approximated by nearest
+     * neighbor descent over a random projection forest. The exact search
+     * compares every pair of rows in cache sized tiles across all cores but
+     * only keeps the <code>k</code> best per row, so memory stays proportional
+     * to <code>n * k</code>; time grows with <code>n^2</code>. Transforming new
+     * data after an exact fit starts its search without a forest.
+     *
+     * @param exact true for exact neighbors at any size
+     */
+    public void setExactNearestNeighbors(final boolean exact) {
+        mExactNearestNeighbors = exact;
+    }
+
+    public boolean isExactNearestNeighbors() {
+        return mExactNearestNeighbors;
+    }
+
+    /**
+     * Measure the recall of the approximate nearest neighbor search on this
+     * many randomly chosen rows (default 0, not measured). The recall is
+     * reported as a message and by {@link #getNearestNeighborRecall()}.
+     * Checking <code>s</code> rows costs <code>s * n</code> distance
+     * evaluations, for example <code>DEFAULT_RECALL_SAMPLE_SIZE</code>.
+     *
+     * @param rows number of rows to check
+     */
+    public void setRecallSampleSize(final int rows) {
+        mRecallSampleSize = Math.max(0, rows);
+    }
+
+    /**
+     * Recall of the approximate nearest neighbors of the last fit.
+     *
+     * @return fraction of true neighbors found, or NaN if not measured
+     */
+    public float getNearestNeighborRecall() {
+        return mNearestNeighborRecall;
+    }
+
+    /**
+     * Set how the low dimensional embedding is initialised (default "spectral").
+     * Valid values are:
+     * spectral, a spectral embedding of the fuzzy 1-skeleton,
+     * random, uniformly random positions.
+     * An embedding set with {@link #setInitialEmbedding(float[][])} takes precedence.
+     *
+     * @param init initialisation method
+     */
+    public void setInit(final String init) {
+        if (!"spectral".equals(init) && !"random".equals(init)) {
+            throw new IllegalArgumentException("Unknown initialisation: " + init);
+        }
+        mInit = init;
+    }
+
+    public String getInit() {
+        return mInit;
+    }
+
+    /**
+     * Start the layout from the given positions rather than the initialisation
+     * method, for example the embedding of an earlier fit of similar data. With
+     * a good starting point far fewer epochs are needed and the layout keeps its
+     * overall arrangement. Rows containing NaN, such as points new since the
+     * earlier fit, are placed from their neighbors in the graph.
+     *
+     * @param initEmbedding array of shape <code>(nSamples, nComponents)</code>, or null to clear
+     */
+    public void setInitialEmbedding(final float[][] initEmbedding) {
+        mInitEmbedding = initEmbedding;
+    }
+
+    public float[][] getInitialEmbedding() {
+        return mInitEmbedding;
+    }
+
+    /**
+     * Stop the layout optimization of a monitored fit once the embedding has
+     * settled (default 0, never). At each snapshot the root mean square
+     * movement of the points since the previous snapshot is compared to the
+     * root mean square spread of the embedding; below this fraction the
+     * layout is considered stable.
+     *
+     * @param tolerance relative movement between snapshots, for example
+     *                  <code>DEFAULT_STABILITY_TOLERANCE</code>
+     */
+    public void setStabilityTolerance(final float tolerance) {
+        if (tolerance < 0) {
+            throw new IllegalArgumentException("tolerance must be non-negative");
+        }
+        mStabilityTolerance = tolerance;
+    }
+
     private void validateParameters() {
         if (mMinDist > mSpread) {
             throw new IllegalArgumentException("minDist must be less than or equal to spread");
@@ -1093,14 +1417,27 @@ public class Umap {
         if (!instances.isFinite()) {
             throw new IllegalArgumentException("Supplied matrix of instances contains non-finite elements");
         }
+        if (instances instanceof CsrMatrix && !mMetric.isSparse()) {
+            throw new IllegalArgumentException("Metric " + Metric.getMetricName(mMetric) + " not supported for sparse data");
+        }
 
-        UmapProgress.reset(5);
+        mProgress = new UmapProgress(mEmbeddingListener, mCancellation);
+        try {
+            fit(instances, y, mProgress);
+        } finally {
+            mProgress = null;
+        }
+    }
+
+    private void fit(Matrix instances, final float[] y, final UmapProgress progress) {
+        progress.reset(5);
 
         if (mVerbose) {
             Utils.message("Starting fitting for " + instances.rows() + " instances with " + instances.cols() + " attributes");
         }
 
         mRawData = instances;
+        mNearestNeighborRecall = Float.NaN;
 
         // Handle all the optional arguments, setting default
         //if (mA == null || mB == null) {
@@ -1116,7 +1453,8 @@ public class Umap {
 
         validateParameters();
 
-        UmapProgress.update();
+        progress.update();
+        checkCancelled();
 
         // Error check n_neighbors based on data size
         if (instances.rows() <= mNNeighbors) {
@@ -1134,7 +1472,8 @@ public class Umap {
         if (mVerbose) {
             Utils.message("Construct fuzzy simplicial set: " + instances.rows());
         }
-        UmapProgress.update();
+        progress.update();
+        checkCancelled();
 
         // Handle small cases efficiently by computing all distances
         if (instances.rows() < SMALL_PROBLEM_THRESHOLD) {
@@ -1143,23 +1482,46 @@ public class Umap {
                 Utils.message("Computing pairwise distances.");
             }
             mSmallData = true;
-            Matrix dmat;
-            if (parallelPairwise)
-                dmat = PairwiseDistances.parallelPairwise(instances, mMetric, mVerbose);
-            else
-                dmat = PairwiseDistances.pairwiseDistances(instances, mMetric, mVerbose);
-
-            if (mVerbose) {
-                Utils.message("Computing fuzzy set for mGraph.");
+            if (parallelPairwise && !(mMetric instanceof PrecomputedMetric)) {
+                // Stream distance tiles straight into the neighbor heaps rather than building n x n
+                final IndexedDistances nn = PairwiseDistances.parallelNearestNeighbors(instances, mMetric, mRunNNeighbors, mVerbose);
+                if (mVerbose) {
+                    Utils.message("Computing fuzzy set for mGraph.");
+                }
+                mGraph = fuzzySimplicialSet(instances, mRunNNeighbors, mRandom, mMetric, nn.getIndices(), nn.getDistances(), mAngularRpForest, mSetOpMixRatio, mLocalConnectivity, mThreads, mVerbose);
+            } else {
+                // Full distance matrix from upper triangle tiles, or the input itself when precomputed
+                final Matrix dmat = PairwiseDistances.parallelPairwise(instances, mMetric, mVerbose);
+                if (mVerbose) {
+                    Utils.message("Computing fuzzy set for mGraph.");
+                }
+                mGraph = fuzzySimplicialSet(dmat, mRunNNeighbors, mRandom, PrecomputedMetric.SINGLETON, null, null, mAngularRpForest, mSetOpMixRatio, mLocalConnectivity, mThreads, mVerbose);
             }
-            mGraph = fuzzySimplicialSet(dmat, mRunNNeighbors, mRandom, PrecomputedMetric.SINGLETON, null, null, mAngularRpForest, mSetOpMixRatio, mLocalConnectivity, mThreads, mVerbose);
         } else {
             if (mVerbose) {
                 Utils.message("Computing nearest neighbors for mGraph.");
             }
             mSmallData = false;
-            // Standard case
-            final IndexedDistances nn = nearestNeighbors(instances, mRunNNeighbors, mMetric, mAngularRpForest, mRandom, mThreads, mVerbose);
+            // Standard case, neighbor search streams through rows so keep them contiguous
+            if (instances instanceof DefaultMatrix && !(mMetric instanceof PrecomputedMetric)) {
+                instances = new FlatMatrix(instances);
+                mRawData = instances;
+            }
+            final IndexedDistances nn;
+            if (mExactNearestNeighbors && !(mMetric instanceof PrecomputedMetric)) {
+                if (mVerbose) {
+                    Utils.message("Computing exact nearest neighbors.");
+                }
+                nn = PairwiseDistances.parallelNearestNeighbors(instances, mMetric, mRunNNeighbors, mVerbose);
+            } else {
+                nn = nearestNeighbors(instances, mRunNNeighbors, mMetric, mAngularRpForest, mRandom, mThreads, mVerbose, progress);
+                if (mRecallSampleSize > 0 && !(mMetric instanceof PrecomputedMetric)) {
+                    // own random source so measuring recall does not change the fit
+                    final int sampleSize = Math.min(mRecallSampleSize, instances.rows());
+                    mNearestNeighborRecall = nearestNeighborRecall(instances, nn, mMetric, sampleSize, new Random(instances.rows()));
+                    Utils.message("Nearest neighbor recall " + mNearestNeighborRecall + " against exact neighbors of " + sampleSize + " sampled rows");
+                }
+            }
             mKnnIndices = nn.getIndices();
             mKnnDists = nn.getDistances();
             setmRpForest(nn.getForest());
@@ -1173,7 +1535,8 @@ public class Umap {
                 setmSearch(new NearestNeighborSearch(distanceFunc));
             }
         }
-        UmapProgress.update();
+        progress.update();
+        checkCancelled();
         if (y != null) {
             if (instances.length() != y.length) {
                 throw new IllegalArgumentException("Length of x =  " + instances.length() + ", length of y = " + y.length + ", while it must be equal.");
@@ -1193,7 +1556,7 @@ public class Umap {
                 final Matrix targetGraph;
                 // Handle the small case as precomputed as before
                 if (y.length < SMALL_PROBLEM_THRESHOLD) {
-                    final Matrix ydmat = PairwiseDistances.pairwiseDistances(MathUtils.promoteTranspose(y), mTargetMetric, mVerbose);
+                    final Matrix ydmat = PairwiseDistances.parallelPairwise(MathUtils.promoteTranspose(y), mTargetMetric, mVerbose);
                     targetGraph = fuzzySimplicialSet(ydmat, targetNNeighbors, mRandom, PrecomputedMetric.SINGLETON, null, null, false, 1, 1, mThreads, false);
                 } else {
                     // Standard case
@@ -1203,8 +1566,9 @@ public class Umap {
                 mGraph = resetLocalConnectivity(mGraph);
             }
         }
-        UmapProgress.incTotal(mNEpochs == null ? (mGraph.rows() <= 10000 ? 500 : 200) : mNEpochs);
-        UmapProgress.update();
+        progress.incTotal(mNEpochs == null ? (mGraph.rows() <= 10000 ? 500 : 200) : mNEpochs);
+        progress.update();
+        checkCancelled();
 
         final int nEpochs = mNEpochs == null ? 0 : mNEpochs;
 
@@ -1212,12 +1576,12 @@ public class Umap {
             Utils.message("Construct embedding");
         }
 
-        setmEmbedding(simplicialSetEmbedding(mRawData, mGraph, mNComponents, mInitialAlpha, mRunA, mRunB, mRepulsionStrength, mNegativeSampleRate, nEpochs, "random", mRandom, mMetric, mVerbose));
+        setmEmbedding(simplicialSetEmbedding(mRawData, mGraph, mNComponents, mInitialAlpha, mRunA, mRunB, mRepulsionStrength, mNegativeSampleRate, nEpochs, mInit, mInitEmbedding, mRandom, mMetric, mVerbose));
 
         if (mVerbose) {
             Utils.message("Finished embedding");
         }
-        UmapProgress.finished();
+        progress.finished();
     }
 
     /**
@@ -1284,13 +1648,75 @@ public class Umap {
      * Embedding of the training data in low-dimensional space.
      */
     public double[][] fitTransform(final double[][] instances) {
+        return toDoubles(fitTransform(toFloats(instances), null));
+    }
+
+    /**
+     * Fit instances into an embedded space while reporting intermediate
+     * layouts. The token is polled between fitting stages and after every
+     * layout epoch; cancelling it abandons the fit, requesting a stop ends the
+     * layout early with the embedding reached so far.
+     *
+     * @param instances      array of shape <code>(nSamples, nFeatures)</code> or <code>(nSamples, nSamples)</code>
+     * @param token          cancellation token, may be null
+     * @param listener       receives progress and snapshots of the embedding, may be null
+     * @param snapshotEpochs epochs between snapshots, 0 for only the final layout
+     * @return array of shape <code>(nSamples, nComponents)</code>
+     * Embedding of the training data in low-dimensional space.
+     * @throws CancellationException if the token was cancelled
+     */
+    public Matrix fitTransform(final Matrix instances, final CancellationToken token, final EmbeddingListener listener, final int snapshotEpochs) {
+        mCancellation = token;
+        mEmbeddingListener = listener;
+        mSnapshotEpochs = Math.max(0, snapshotEpochs);
+        mLastSnapshot = null;
+        try {
+            return fitTransform(instances, null);
+        } finally {
+            mCancellation = null;
+            mEmbeddingListener = null;
+            mSnapshotEpochs = 0;
+            mLastSnapshot = null;
+        }
+    }
+
+    /**
+     * Monitored fit of double valued instances, see
+     * {@link #fitTransform(Matrix, CancellationToken, EmbeddingListener, int)}.
+     */
+    public double[][] fitTransform(final double[][] instances, final CancellationToken token, final EmbeddingListener listener, final int snapshotEpochs) {
+        return toDoubles(fitTransform(toFloats(instances), token, listener, snapshotEpochs));
+    }
+
+    /**
+     * Monitored fit of dense instances already in flat single precision form,
+     * see {@link #fitTransform(Matrix, CancellationToken, EmbeddingListener, int)}.
+     * The rows are used as they are, so the fit does not copy them again.
+     */
+    public double[][] fitTransformFlat(final FlatMatrix instances, final CancellationToken token, final EmbeddingListener listener, final int snapshotEpochs) {
+        return toDoubles(fitTransform(instances, token, listener, snapshotEpochs));
+    }
+
+    /**
+     * Monitored fit of sparse instances, see
+     * {@link #fitTransform(Matrix, CancellationToken, EmbeddingListener, int)}.
+     * The metric must have a sparse implementation, see {@link Metric#isSparse()}.
+     */
+    public double[][] fitTransformSparse(final CsrMatrix instances, final CancellationToken token, final EmbeddingListener listener, final int snapshotEpochs) {
+        return toDoubles(fitTransform(instances, token, listener, snapshotEpochs));
+    }
+
+    private static Matrix toFloats(final double[][] instances) {
         final float[][] input = new float[instances.length][instances[0].length];
         for (int k = 0; k < instances.length; ++k) {
             for (int j = 0; j < instances[0].length; ++j) {
                 input[k][j] = (float) instances[k][j];
             }
         }
-        final Matrix result = fitTransform(new DefaultMatrix(input), null);
+        return new DefaultMatrix(input);
+    }
+
+    private static double[][] toDoubles(final Matrix result) {
         final double[][] output = new double[result.rows()][result.cols()];
         for (int k = 0; k < result.rows(); ++k) {
             for (int j = 0; j < result.cols(); ++j) {
@@ -1319,8 +1745,6 @@ public class Umap {
         } else if (mMetric instanceof PrecomputedMetric) {
             throw new IllegalArgumentException("Transform of new data not available for precomputed metric.");
         }
-        UmapProgress.reset(4);
-
         int[][] indices;
         final float[][] dists;
         if (mSmallData) {
@@ -1334,30 +1758,20 @@ public class Umap {
         } else {
             final Heap init = NearestNeighborDescent.initialiseSearch(getmRpForest(), mRawData, instances, (int) (mRunNNeighbors * mTransformQueueSize), getmSearch(), mRandom);
             if (getmSearchGraph() == null) {
-                setmSearchGraph(new SearchGraph(mRawData.rows()));
-                for (int k = 0; k < mKnnIndices.length; ++k) {
-                    for (int j = 0; j < mKnnIndices[k].length; ++j) {
-                        if (mKnnDists[k][j] != 0) {
-                            getmSearchGraph().set(k, mKnnIndices[k][j]);
-                        }
-                    }
-                }
+                // built once and reused by every later transform
+                setmSearchGraph(SearchGraph.fromKnn(mKnnIndices, mKnnDists));
             }
             final Heap result = getmSearch().initializedNndSearch(mRawData, getmSearchGraph(), init, instances).deheapSort();
             indices = MathUtils.subarray(result.indices(), mRunNNeighbors);
             dists = MathUtils.subarray(result.weights(), mRunNNeighbors);
         }
 
-        UmapProgress.update();
-
         final int adjustedLocalConnectivity = Math.max(0, mLocalConnectivity - 1);
         final float[][] sigmasRhos = smoothKnnDist(dists, mRunNNeighbors, adjustedLocalConnectivity);
         final float[] sigmas = sigmasRhos[0];
         final float[] rhos = sigmasRhos[1];
         CooMatrix graph = computeMembershipStrengths(indices, dists, sigmas, rhos, instances.rows(), mRawData.rows());
 
-        UmapProgress.update();
-
         // This was a very specially constructed graph with constant degree.
         // That lets us do fancy unpacking by reshaping the Csr matrix indices
         // and data. Doing so relies on the constant degree assumption!
@@ -1386,11 +1800,10 @@ public class Umap {
         final int[] head = graph.row();
         final int[] tail = graph.col();
 
-        UmapProgress.update();
-        UmapProgress.incTotal(nEpochs);
-        final Matrix matrix = optimizeLayout(embedding, getmEmbedding().copy(), head, tail, nEpochs, graph.cols(), epochsPerSample, mRunA, mRunB, mRandom, mRepulsionStrength, mInitialAlpha, mNegativeSampleRate, mVerbose);
-
-        UmapProgress.finished();
+        // The fitted embedding is only read when the row counts differ, so it only
+        // needs copying in the corner case where optimizeLayout would also move it.
+        final Matrix tailEmbedding = embedding.rows() == getmEmbedding().rows() ? getmEmbedding().copy() : getmEmbedding();
+        final Matrix matrix = optimizeLayout(embedding, tailEmbedding, head, tail, nEpochs, graph.cols(), epochsPerSample, mRunA, mRunB, mRandom, mRepulsionStrength, mInitialAlpha, mNegativeSampleRate, mVerbose);
 
         return matrix;
     }
@@ -1409,6 +1822,142 @@ public class Umap {
         return transform(new DefaultMatrix(instances)).toArray();
     }
 
+    /**
+     * Save the fitted model to a binary file so that it can be restored with
+     * {@link #load(File)} and used to transform new data without refitting.
+     * The file holds the parameters, training data, nearest neighbor graph,
+     * random projection forest and embedding.
+     * <p>
+     * Sparse training data is written as dense rows. The forest of a sparse
+     * fit is not written, because its hyperplanes keep only their values and
+     * not their columns, so transform on the loaded model starts its neighbor
+     * search from random candidates instead of from the trees.
+     *
+     * A write that fails part way deletes the partial file before rethrowing.
+     *
+     * @param file destination
+     * @throws IOException           on write failure
+     * @throws IllegalStateException if the model has not been fit, or was fit
+     *                               with an unnamed metric
+     */
+    public void save(final File file) throws IOException {
+        checkSaveable();
+        final FileOutputStream stream = new FileOutputStream(file);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+            write(out);
+        } catch (IOException | RuntimeException ex) {
+            file.delete();
+            throw ex;
+        }
+    }
+
+    /**
+     * Load a model written by {@link #save(File)}.
+     *
+     * @param file source
+     * @return fitted model, ready to transform
+     * @throws IOException on read failure or if the file is not a saved model
+     */
+    public static Umap load(final File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return read(in);
+        }
+    }
+
+    private void checkSaveable() {
+        if (getmEmbedding() == null || mRawData == null) {
+            throw new IllegalStateException("Model has not been fit");
+        }
+        if (Metric.getMetricName(mMetric) == null) {
+            throw new IllegalStateException("Models fit with an unregistered metric cannot be saved");
+        }
+    }
+
+    void write(final DataOutputStream out) throws IOException {
+        checkSaveable();
+        final String metricName = Metric.getMetricName(mMetric);
+        out.writeInt(MODEL_MAGIC);
+        out.writeInt(MODEL_VERSION);
+
+        out.writeInt(mNNeighbors);
+        out.writeInt(mNComponents);
+        out.writeInt(mNEpochs == null ? -1 : mNEpochs);
+        out.writeUTF(metricName);
+        out.writeFloat(mLearningRate);
+        out.writeFloat(mRepulsionStrength);
+        out.writeFloat(mMinDist);
+        out.writeFloat(mSpread);
+        out.writeFloat(mSetOpMixRatio);
+        out.writeInt(mLocalConnectivity);
+        out.writeInt(mNegativeSampleRate);
+        out.writeFloat(mTransformQueueSize);
+        out.writeBoolean(mAngularRpForest);
+
+        out.writeFloat(mInitialAlpha);
+        out.writeInt(mRunNNeighbors);
+        out.writeFloat(mRunA);
+        out.writeFloat(mRunB);
+        out.writeBoolean(mSmallData);
+
+        ModelIO.writeMatrix(out, mRawData);
+        ModelIO.writeMatrix(out, getmEmbedding());
+        // the neighbor graph and forest only exist for the large data path
+        final boolean hasKnn = !mSmallData && mKnnIndices != null;
+        out.writeBoolean(hasKnn);
+        if (hasKnn) {
+            ModelIO.writeIntRows(out, mKnnIndices);
+            ModelIO.writeFloatRows(out, mKnnDists);
+            final boolean denseForest = getmRpForest() != null && !(mRawData instanceof CsrMatrix);
+            ModelIO.writeForest(out, denseForest ? getmRpForest() : Collections.emptyList());
+        }
+    }
+
+    static Umap read(final DataInputStream in) throws IOException {
+        if (in.readInt() != MODEL_MAGIC) {
+            throw new IOException("Not a saved UMAP model");
+        }
+        final int version = in.readInt();
+        if (version != MODEL_VERSION) {
+            throw new IOException("Unsupported UMAP model version: " + version);
+        }
+        final Umap umap = new Umap();
+        umap.mNNeighbors = in.readInt();
+        umap.mNComponents = in.readInt();
+        final int nEpochs = in.readInt();
+        umap.mNEpochs = nEpochs < 0 ? null : nEpochs;
+        final String metric = in.readUTF();
+        try {
+            umap.mMetric = Metric.getMetric(metric);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Unknown metric in UMAP model: " + metric, ex);
+        }
+        umap.mLearningRate = in.readFloat();
+        umap.mRepulsionStrength = in.readFloat();
+        umap.mMinDist = in.readFloat();
+        umap.mSpread = in.readFloat();
+        umap.mSetOpMixRatio = in.readFloat();
+        umap.mLocalConnectivity = in.readInt();
+        umap.mNegativeSampleRate = in.readInt();
+        umap.mTransformQueueSize = in.readFloat();
+        umap.mAngularRpForest = in.readBoolean();
+
+        umap.mInitialAlpha = in.readFloat();
+        umap.mRunNNeighbors = in.readInt();
+        umap.mRunA = in.readFloat();
+        umap.mRunB = in.readFloat();
+        umap.mSmallData = in.readBoolean();
+
+        umap.mRawData = ModelIO.readFlatMatrix(in);
+        umap.setmEmbedding(ModelIO.readDefaultMatrix(in));
+        if (in.readBoolean()) {
+            umap.mKnnIndices = ModelIO.readIntRows(in);
+            umap.mKnnDists = ModelIO.readFloatRows(in);
+            umap.setmRpForest(ModelIO.readForest(in));
+            umap.setmSearch(new NearestNeighborSearch(umap.mMetric));
+        }
+        return umap;
+    }
+
     /**
      * @return the mSearchGraph
      */
@@ -1451,6 +2000,13 @@ public class Umap {
         this.mSearch = mSearch;
     }
 
+    /**
+     * @return width of the data the model was fit on, or -1 if not yet fit
+     */
+    public int getInputDimensions() {
+        return mRawData == null ? -1 : mRawData.cols();
+    }
+
     /**
      * @return the mEmbedding
      */
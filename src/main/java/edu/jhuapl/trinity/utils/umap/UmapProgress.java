@@ -25,74 +25,81 @@ package edu.jhuapl.trinity.utils.umap;
  * #L%
  */
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.CancellationException;
 
-
-public final class UmapProgress {
-    private static final UmapProgress PROGRESS = new UmapProgress();
+/**
+ * Progress of a single fit, reported to that fit's {@link EmbeddingListener}.
+ * Also carries the fit's {@link CancellationToken} so the long running stages,
+ * forest construction and nearest neighbor descent, can poll it as they go.
+ * Each fit makes its own instance and hands it down to the stages it runs.
+ */
+final class UmapProgress {
     private static final long MIN_UPDATE_PERIOD = 500; // milliseconds
 
-    private final List<ProgressListener> mProgressListeners = new ArrayList<>();
+    private final EmbeddingListener mListener;
+    private final CancellationToken mToken;
     private int mTotal = 0;
     private int mCounter = 0;
     private long mLastNotificationTime = 0L;
 
-    private UmapProgress() {
-    }
-
-    public static synchronized void addProgressListener(final ProgressListener listener) {
-        if (!PROGRESS.mProgressListeners.contains(listener)) {
-            PROGRESS.mProgressListeners.add(listener);
-        }
-    }
-
-    public static synchronized boolean removeProgressListener(final ProgressListener listener) {
-        return PROGRESS.mProgressListeners.remove(listener);
+    /**
+     * @param listener receives progress updates, may be null
+     * @param token    polled by {@link #checkCancelled()}, may be null
+     */
+    UmapProgress(final EmbeddingListener listener, final CancellationToken token) {
+        mListener = listener;
+        mToken = token;
     }
 
-    protected void notifyListeners(ProgressState state) {
+    private void notifyListener() {
         // limit calls to notify if occurring too often
         final long now = System.currentTimeMillis();
-        if (now - mLastNotificationTime > MIN_UPDATE_PERIOD) {
-            for (final ProgressListener listener : mProgressListeners) {
-                listener.updated(state);
-            }
+        if (null != mListener && now - mLastNotificationTime > MIN_UPDATE_PERIOD) {
+            mListener.progressUpdated(getProgress());
             mLastNotificationTime = now;
         }
     }
 
-    public static synchronized void reset(final int total) {
-        PROGRESS.mTotal = total;
-        PROGRESS.mCounter = 0;
-        PROGRESS.mLastNotificationTime = 0L;
+    synchronized void reset(final int total) {
+        mTotal = total;
+        mCounter = 0;
+        mLastNotificationTime = 0L;
         update(0);
     }
 
-    public static synchronized void incTotal(final int inc) {
-        PROGRESS.mTotal += inc;
+    synchronized void incTotal(final int inc) {
+        mTotal += inc;
         update(0);
     }
 
-    public static synchronized void finished() {
-        PROGRESS.mCounter = PROGRESS.mTotal;
-        PROGRESS.mLastNotificationTime = 0L;
+    synchronized void finished() {
+        mCounter = mTotal;
+        mLastNotificationTime = 0L;
         update(0);
     }
 
-    public static void update() {
+    void update() {
         update(1);
     }
 
-    public static synchronized void update(int n) {
-        PROGRESS.mCounter += n;
-        if (PROGRESS.mCounter > PROGRESS.mTotal) {
-            Utils.message("Update counter exceeded total: " + PROGRESS.mCounter + " : " + PROGRESS.mTotal);
+    synchronized void update(int n) {
+        mCounter += n;
+        if (mCounter > mTotal) {
+            Utils.message("Update counter exceeded total: " + mCounter + " : " + mTotal);
         }
-        PROGRESS.notifyListeners(getProgress());
+        notifyListener();
     }
 
-    public static ProgressState getProgress() {
-        return new ProgressState(PROGRESS.mTotal, PROGRESS.mCounter);
+    synchronized ProgressState getProgress() {
+        return new ProgressState(mTotal, mCounter);
+    }
+
+    /**
+     * @throws CancellationException if the fit has been cancelled
+     */
+    void checkCancelled() {
+        if (null != mToken && mToken.isCancelled()) {
+            throw new CancellationException("UMAP fit cancelled");
+        }
     }
 }
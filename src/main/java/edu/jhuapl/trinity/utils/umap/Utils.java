@@ -29,6 +29,7 @@ import java.util.Arrays;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * Utility functions.
@@ -153,6 +154,32 @@ final class Utils {
         return result;
     }
 
+    /**
+     * As {@link #rejectionSample(int, int, Random)}, drawing from a per-thread stream.
+     */
+    static int[] rejectionSample(final int nSamples, final int poolSize, final SplittableRandom random) {
+        if (nSamples > poolSize) {
+            throw new IllegalArgumentException();
+        }
+        final int[] result = new int[nSamples];
+        for (int i = 0; i < result.length; ++i) {
+            int j;
+            boolean ok;
+            do {
+                j = random.nextInt(poolSize);
+                ok = true;
+                for (int k = 0; k < i; ++k) {
+                    if (j == result[k]) {
+                        ok = false;
+                        break;
+                    }
+                }
+            } while (!ok);
+            result[i] = j;
+        }
+        return result;
+    }
+
 
 // @numba.njit(parallel=true)
 // def new_build_candidates(
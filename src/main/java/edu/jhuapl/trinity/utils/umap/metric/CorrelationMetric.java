@@ -41,23 +41,28 @@ public final class CorrelationMetric extends Metric {
 
     @Override
     public float distance(final float[] x, final float[] y) {
+        return distance(x, 0, y, 0, x.length);
+    }
+
+    @Override
+    public float distance(final float[] x, final int xOffset, final float[] y, final int yOffset, final int length) {
         float muX = 0.0F;
         float muY = 0.0F;
         float normX = 0.0F;
         float normY = 0.0F;
         float dotProduct = 0.0F;
 
-        for (int i = 0; i < x.length; ++i) {
-            muX += x[i];
-            muY += y[i];
+        for (int i = 0; i < length; ++i) {
+            muX += x[xOffset + i];
+            muY += y[yOffset + i];
         }
 
-        muX /= x.length;
-        muY /= x.length;
+        muX /= length;
+        muY /= length;
 
-        for (int i = 0; i < x.length; ++i) {
-            final float shiftedX = x[i] - muX;
-            final float shiftedY = y[i] - muY;
+        for (int i = 0; i < length; ++i) {
+            final float shiftedX = x[xOffset + i] - muX;
+            final float shiftedY = y[yOffset + i] - muY;
             normX += shiftedX * shiftedX;
             normY += shiftedY * shiftedY;
             dotProduct += shiftedX * shiftedY;
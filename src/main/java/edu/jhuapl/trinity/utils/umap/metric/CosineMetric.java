@@ -43,21 +43,22 @@ public final class CosineMetric extends Metric {
 
     @Override
     public float distance(final float[] x, final float[] y) {
-        double result = 0.0;
-        double normX = 0.0;
-        double normY = 0.0;
-
-        for (int i = 0; i < x.length; ++i) {
-            result += x[i] * y[i];
-            normX += x[i] * x[i];
-            normY += y[i] * y[i];
-        }
-        if (normX == 0.0 && normY == 0.0) {
-            return 0;
-        } else if (normX == 0.0 || normY == 0.0) {
-            return 1;
-        } else {
-            return (float) (1 - (result / Math.sqrt(normX * normY)));
-        }
+        return distance(x, 0, y, 0, x.length);
+    }
+
+    @Override
+    public float distance(final float[] x, final int xOffset, final float[] y, final int yOffset, final int length) {
+        return DistanceKernels.cosine(x, xOffset, y, yOffset, length);
+    }
+
+    @Override
+    public float sparseDistance(final int[] xInd, final float[] xData, final int xFrom, final int xTo,
+                                final int[] yInd, final float[] yData, final int yFrom, final int yTo, final int nFeatures) {
+        return SparseKernels.cosine(xInd, xData, xFrom, xTo, yInd, yData, yFrom, yTo);
+    }
+
+    @Override
+    public boolean isSparse() {
+        return true;
     }
 }
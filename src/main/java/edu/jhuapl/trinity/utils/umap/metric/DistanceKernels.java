@@ -0,0 +1,217 @@
+/*
+ * BSD 3-Clause License
+ * Copyright (c) 2017, Leland McInnes, 2019 Tag.bio (Java port).
+ * See UMAPLicense.txt.
+ */
+package edu.jhuapl.trinity.utils.umap.metric;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Inner loops shared by the hot metrics, in two flavours: a plain scalar loop
+ * and a four-way unrolled loop with independent accumulators. The unrolled
+ * form breaks the serial dependency on a single running sum so the JIT can
+ * keep several multiply-adds in flight, which pays off once points have more
+ * than a handful of coordinates. Low dimensional points (e.g. the layout
+ * embedding) use the scalar loop.
+ * <p>
+ * The unrolled kernels can be switched off with the system property
+ * <code>trinity.umap.scalarKernels=true</code>.
+ *
+ * @author Sean Phillips
+ */
+final class DistanceKernels {
+
+    /**
+     * Points shorter than this always use the scalar loops.
+     */
+    static final int UNROLL_THRESHOLD = 16;
+
+    static final boolean UNROLLED = !Boolean.getBoolean("trinity.umap.scalarKernels");
+
+    private DistanceKernels() {
+    }
+
+    private static boolean unrolled(final int length) {
+        return UNROLLED && length >= UNROLL_THRESHOLD;
+    }
+
+    /**
+     * Sum of squared differences.
+     */
+    static float squaredEuclidean(final float[] x, final int xOffset, final float[] y, final int yOffset, final int length) {
+        return unrolled(length)
+            ? squaredEuclideanUnrolled(x, xOffset, y, yOffset, length)
+            : squaredEuclideanScalar(x, xOffset, y, yOffset, length);
+    }
+
+    static float squaredEuclideanScalar(final float[] x, final int xOffset, final float[] y, final int yOffset, final int length) {
+        float result = 0;
+        for (int i = 0; i < length; ++i) {
+            final float d = x[xOffset + i] - y[yOffset + i];
+            result += d * d;
+        }
+        return result;
+    }
+
+    static float squaredEuclideanUnrolled(final float[] x, final int xOffset, final float[] y, final int yOffset, final int length) {
+        float s0 = 0;
+        float s1 = 0;
+        float s2 = 0;
+        float s3 = 0;
+        final int bound = length & ~3;
+        int i = 0;
+        for (; i < bound; i += 4) {
+            final float d0 = x[xOffset + i] - y[yOffset + i];
+            final float d1 = x[xOffset + i + 1] - y[yOffset + i + 1];
+            final float d2 = x[xOffset + i + 2] - y[yOffset + i + 2];
+            final float d3 = x[xOffset + i + 3] - y[yOffset + i + 3];
+            s0 += d0 * d0;
+            s1 += d1 * d1;
+            s2 += d2 * d2;
+            s3 += d3 * d3;
+        }
+        for (; i < length; ++i) {
+            final float d = x[xOffset + i] - y[yOffset + i];
+            s0 += d * d;
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * Sum of absolute differences.
+     */
+    static float manhattan(final float[] x, final int xOffset, final float[] y, final int yOffset, final int length) {
+        return unrolled(length)
+            ? manhattanUnrolled(x, xOffset, y, yOffset, length)
+            : manhattanScalar(x, xOffset, y, yOffset, length);
+    }
+
+    static float manhattanScalar(final float[] x, final int xOffset, final float[] y, final int yOffset, final int length) {
+        float result = 0;
+        for (int i = 0; i < length; ++i) {
+            result += Math.abs(x[xOffset + i] - y[yOffset + i]);
+        }
+        return result;
+    }
+
+    static float manhattanUnrolled(final float[] x, final int xOffset, final float[] y, final int yOffset, final int length) {
+        float s0 = 0;
+        float s1 = 0;
+        float s2 = 0;
+        float s3 = 0;
+        final int bound = length & ~3;
+        int i = 0;
+        for (; i < bound; i += 4) {
+            s0 += Math.abs(x[xOffset + i] - y[yOffset + i]);
+            s1 += Math.abs(x[xOffset + i + 1] - y[yOffset + i + 1]);
+            s2 += Math.abs(x[xOffset + i + 2] - y[yOffset + i + 2]);
+            s3 += Math.abs(x[xOffset + i + 3] - y[yOffset + i + 3]);
+        }
+        for (; i < length; ++i) {
+            s0 += Math.abs(x[xOffset + i] - y[yOffset + i]);
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * Cosine distance, one minus the cosine of the angle between the points.
+     */
+    static float cosine(final float[] x, final int xOffset, final float[] y, final int yOffset, final int length) {
+        return unrolled(length)
+            ? cosineUnrolled(x, xOffset, y, yOffset, length)
+            : cosineScalar(x, xOffset, y, yOffset, length);
+    }
+
+    static float cosineScalar(final float[] x, final int xOffset, final float[] y, final int yOffset, final int length) {
+        double dot = 0.0;
+        double normX = 0.0;
+        double normY = 0.0;
+        for (int i = 0; i < length; ++i) {
+            final float xi = x[xOffset + i];
+            final float yi = y[yOffset + i];
+            dot += xi * yi;
+            normX += xi * xi;
+            normY += yi * yi;
+        }
+        return cosine(dot, normX, normY);
+    }
+
+    static float cosineUnrolled(final float[] x, final int xOffset, final float[] y, final int yOffset, final int length) {
+        // Sums are kept in double as in the scalar loop; near duplicate
+        // points otherwise lose the small difference to rounding and can
+        // come out with a negative distance.
+        double dot0 = 0.0;
+        double dot1 = 0.0;
+        double dot2 = 0.0;
+        double dot3 = 0.0;
+        double nx0 = 0.0;
+        double nx1 = 0.0;
+        double nx2 = 0.0;
+        double nx3 = 0.0;
+        double ny0 = 0.0;
+        double ny1 = 0.0;
+        double ny2 = 0.0;
+        double ny3 = 0.0;
+        final int bound = length & ~3;
+        int i = 0;
+        for (; i < bound; i += 4) {
+            final float x0 = x[xOffset + i];
+            final float x1 = x[xOffset + i + 1];
+            final float x2 = x[xOffset + i + 2];
+            final float x3 = x[xOffset + i + 3];
+            final float y0 = y[yOffset + i];
+            final float y1 = y[yOffset + i + 1];
+            final float y2 = y[yOffset + i + 2];
+            final float y3 = y[yOffset + i + 3];
+            dot0 += x0 * y0;
+            dot1 += x1 * y1;
+            dot2 += x2 * y2;
+            dot3 += x3 * y3;
+            nx0 += x0 * x0;
+            nx1 += x1 * x1;
+            nx2 += x2 * x2;
+            nx3 += x3 * x3;
+            ny0 += y0 * y0;
+            ny1 += y1 * y1;
+            ny2 += y2 * y2;
+            ny3 += y3 * y3;
+        }
+        for (; i < length; ++i) {
+            final float xi = x[xOffset + i];
+            final float yi = y[yOffset + i];
+            dot0 += xi * yi;
+            nx0 += xi * xi;
+            ny0 += yi * yi;
+        }
+        return cosine((dot0 + dot1) + (dot2 + dot3), (nx0 + nx1) + (nx2 + nx3), (ny0 + ny1) + (ny2 + ny3));
+    }
+
+    private static float cosine(final double dot, final double normX, final double normY) {
+        if (normX == 0.0 && normY == 0.0) {
+            return 0;
+        } else if (normX == 0.0 || normY == 0.0) {
+            return 1;
+        } else {
+            return (float) (1 - (dot / Math.sqrt(normX * normY)));
+        }
+    }
+}
@@ -41,12 +41,23 @@ public final class EuclideanMetric extends Metric {
 
     @Override
     public float distance(final float[] x, final float[] y) {
+        return distance(x, 0, y, 0, x.length);
+    }
+
+    @Override
+    public float distance(final float[] x, final int xOffset, final float[] y, final int yOffset, final int length) {
         //  D(x, y) = \sqrt{\sum_i (x_i - y_i)^2}
-        float result = 0;
-        for (int i = 0; i < x.length; ++i) {
-            final float d = x[i] - y[i];
-            result += d * d;
-        }
-        return (float) Math.sqrt(result);
+        return (float) Math.sqrt(DistanceKernels.squaredEuclidean(x, xOffset, y, yOffset, length));
+    }
+
+    @Override
+    public float sparseDistance(final int[] xInd, final float[] xData, final int xFrom, final int xTo,
+                                final int[] yInd, final float[] yData, final int yFrom, final int yTo, final int nFeatures) {
+        return (float) Math.sqrt(SparseKernels.squaredEuclidean(xInd, xData, xFrom, xTo, yInd, yData, yFrom, yTo));
+    }
+
+    @Override
+    public boolean isSparse() {
+        return true;
     }
 }
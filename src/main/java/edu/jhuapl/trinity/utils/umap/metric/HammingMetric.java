@@ -49,4 +49,15 @@ public final class HammingMetric extends Metric {
         }
         return result / x.length;
     }
+
+    @Override
+    public float sparseDistance(final int[] xInd, final float[] xData, final int xFrom, final int xTo,
+                                final int[] yInd, final float[] yData, final int yFrom, final int yTo, final int nFeatures) {
+        return SparseKernels.hamming(xInd, xData, xFrom, xTo, yInd, yData, yFrom, yTo, nFeatures);
+    }
+
+    @Override
+    public boolean isSparse() {
+        return true;
+    }
 }
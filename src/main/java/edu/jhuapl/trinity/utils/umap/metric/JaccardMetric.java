@@ -58,4 +58,15 @@ public final class JaccardMetric extends Metric {
             return (numNonZero - numEqual) / (float) numNonZero;
         }
     }
+
+    @Override
+    public float sparseDistance(final int[] xInd, final float[] xData, final int xFrom, final int xTo,
+                                final int[] yInd, final float[] yData, final int yFrom, final int yTo, final int nFeatures) {
+        return SparseKernels.jaccard(xInd, xData, xFrom, xTo, yInd, yData, yFrom, yTo);
+    }
+
+    @Override
+    public boolean isSparse() {
+        return true;
+    }
 }
@@ -41,11 +41,23 @@ public final class ManhattanMetric extends Metric {
 
     @Override
     public float distance(final float[] x, final float[] y) {
+        return distance(x, 0, y, 0, x.length);
+    }
+
+    @Override
+    public float distance(final float[] x, final int xOffset, final float[] y, final int yOffset, final int length) {
         //  D(x, y) = \sum_i |x_i - y_i|
-        float result = 0;
-        for (int i = 0; i < x.length; ++i) {
-            result += Math.abs(x[i] - y[i]);
-        }
-        return result;
+        return DistanceKernels.manhattan(x, xOffset, y, yOffset, length);
+    }
+
+    @Override
+    public float sparseDistance(final int[] xInd, final float[] xData, final int xFrom, final int xTo,
+                                final int[] yInd, final float[] yData, final int yFrom, final int yTo, final int nFeatures) {
+        return SparseKernels.manhattan(xInd, xData, xFrom, xTo, yInd, yData, yFrom, yTo);
+    }
+
+    @Override
+    public boolean isSparse() {
+        return true;
     }
 }
@@ -26,6 +26,7 @@ package edu.jhuapl.trinity.utils.umap.metric;
  */
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -57,6 +58,63 @@ public abstract class Metric {
      */
     public abstract float distance(final float[] x, final float[] y);
 
+    /**
+     * Distance metric over points stored at an offset within larger arrays,
+     * such as the rows of a row-major matrix. The default implementation
+     * copies the points out; metrics on the hot path override it to read
+     * the arrays in place.
+     *
+     * @param x       array holding the first point
+     * @param xOffset index of the first coordinate of the first point
+     * @param y       array holding the second point
+     * @param yOffset index of the first coordinate of the second point
+     * @param length  number of coordinates
+     * @return distance between the points
+     */
+    public float distance(final float[] x, final int xOffset, final float[] y, final int yOffset, final int length) {
+        return distance(Arrays.copyOfRange(x, xOffset, xOffset + length), Arrays.copyOfRange(y, yOffset, yOffset + length));
+    }
+
+    /**
+     * Distance metric over sparse points, each stored as a slice of the column
+     * index and value arrays of a compressed sparse row matrix, with indices
+     * ascending within the slice. The default implementation expands the points
+     * to dense arrays; metrics with {@link #isSparse()} true override it to
+     * work on the nonzero entries only.
+     *
+     * @param xInd      column indices holding the first point
+     * @param xData     values holding the first point
+     * @param xFrom     start of the first point in the arrays
+     * @param xTo       end (exclusive) of the first point in the arrays
+     * @param yInd      column indices holding the second point
+     * @param yData     values holding the second point
+     * @param yFrom     start of the second point in the arrays
+     * @param yTo       end (exclusive) of the second point in the arrays
+     * @param nFeatures number of coordinates of a dense point
+     * @return distance between the points
+     */
+    public float sparseDistance(final int[] xInd, final float[] xData, final int xFrom, final int xTo,
+                                final int[] yInd, final float[] yData, final int yFrom, final int yTo, final int nFeatures) {
+        final float[] x = new float[nFeatures];
+        for (int i = xFrom; i < xTo; ++i) {
+            x[xInd[i]] = xData[i];
+        }
+        final float[] y = new float[nFeatures];
+        for (int j = yFrom; j < yTo; ++j) {
+            y[yInd[j]] = yData[j];
+        }
+        return distance(x, y);
+    }
+
+    /**
+     * Does this metric have a native sparse implementation.
+     *
+     * @return true iff {@link #sparseDistance} only visits nonzero entries.
+     */
+    public boolean isSparse() {
+        return false;
+    }
+
     /**
      * Is this an angular metric.
      *
@@ -110,6 +168,22 @@ public abstract class Metric {
         }
     }
 
+    /**
+     * Name under which a metric is registered, the inverse of {@link #getMetric(String)}.
+     *
+     * @param metric metric
+     * @return name of metric, or null if it is not registered
+     */
+    public static String getMetricName(final Metric metric) {
+        if (sMETRICS == null) generateDefaultMetrics();
+        for (final Map.Entry<String, Metric> entry : sMETRICS.entrySet()) {
+            if (entry.getValue() == metric) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
     public static Metric getMetric(final String name) {
         if (sMETRICS == null) generateDefaultMetrics();
 
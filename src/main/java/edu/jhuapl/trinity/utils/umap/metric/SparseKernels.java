@@ -0,0 +1,190 @@
+/*
+ * BSD 3-Clause License
+ * Copyright (c) 2017, Leland McInnes, 2019 Tag.bio (Java port).
+ * See UMAPLicense.txt.
+ */
+package edu.jhuapl.trinity.utils.umap.metric;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Distance loops over sparse points, each given as a slice of the index and
+ * value arrays of a compressed sparse row matrix. Indices within a slice are
+ * ascending, so two points are combined with a single merge pass that only
+ * touches their nonzero coordinates. Coordinates that are zero in both points
+ * never contribute and are skipped entirely.
+ *
+ * @author Sean Phillips
+ */
+final class SparseKernels {
+
+    private SparseKernels() {
+    }
+
+    /**
+     * Sum of squared differences.
+     */
+    static float squaredEuclidean(final int[] xInd, final float[] xData, final int xFrom, final int xTo,
+                                  final int[] yInd, final float[] yData, final int yFrom, final int yTo) {
+        float sum = 0;
+        int i = xFrom;
+        int j = yFrom;
+        while (i < xTo && j < yTo) {
+            final float d;
+            if (xInd[i] == yInd[j]) {
+                d = xData[i++] - yData[j++];
+            } else if (xInd[i] < yInd[j]) {
+                d = xData[i++];
+            } else {
+                d = yData[j++];
+            }
+            sum += d * d;
+        }
+        for (; i < xTo; ++i) {
+            sum += xData[i] * xData[i];
+        }
+        for (; j < yTo; ++j) {
+            sum += yData[j] * yData[j];
+        }
+        return sum;
+    }
+
+    /**
+     * Sum of absolute differences.
+     */
+    static float manhattan(final int[] xInd, final float[] xData, final int xFrom, final int xTo,
+                           final int[] yInd, final float[] yData, final int yFrom, final int yTo) {
+        float sum = 0;
+        int i = xFrom;
+        int j = yFrom;
+        while (i < xTo && j < yTo) {
+            if (xInd[i] == yInd[j]) {
+                sum += Math.abs(xData[i++] - yData[j++]);
+            } else if (xInd[i] < yInd[j]) {
+                sum += Math.abs(xData[i++]);
+            } else {
+                sum += Math.abs(yData[j++]);
+            }
+        }
+        for (; i < xTo; ++i) {
+            sum += Math.abs(xData[i]);
+        }
+        for (; j < yTo; ++j) {
+            sum += Math.abs(yData[j]);
+        }
+        return sum;
+    }
+
+    /**
+     * Cosine distance, one minus the cosine of the angle between the points.
+     * The norms only need each point's own values, the dot product only the
+     * coordinates present in both.
+     */
+    static float cosine(final int[] xInd, final float[] xData, final int xFrom, final int xTo,
+                        final int[] yInd, final float[] yData, final int yFrom, final int yTo) {
+        double normX = 0.0;
+        for (int i = xFrom; i < xTo; ++i) {
+            normX += xData[i] * xData[i];
+        }
+        double normY = 0.0;
+        for (int j = yFrom; j < yTo; ++j) {
+            normY += yData[j] * yData[j];
+        }
+        if (normX == 0.0 && normY == 0.0) {
+            return 0;
+        } else if (normX == 0.0 || normY == 0.0) {
+            return 1;
+        }
+        double dot = 0.0;
+        int i = xFrom;
+        int j = yFrom;
+        while (i < xTo && j < yTo) {
+            if (xInd[i] == yInd[j]) {
+                dot += xData[i++] * yData[j++];
+            } else if (xInd[i] < yInd[j]) {
+                ++i;
+            } else {
+                ++j;
+            }
+        }
+        return (float) (1 - (dot / Math.sqrt(normX * normY)));
+    }
+
+    /**
+     * Jaccard distance between the sets of nonzero coordinates.
+     */
+    static float jaccard(final int[] xInd, final float[] xData, final int xFrom, final int xTo,
+                         final int[] yInd, final float[] yData, final int yFrom, final int yTo) {
+        int numNonZero = 0;
+        int numEqual = 0;
+        int i = xFrom;
+        int j = yFrom;
+        while (i < xTo && j < yTo) {
+            if (xInd[i] == yInd[j]) {
+                final boolean xTrue = xData[i++] != 0;
+                final boolean yTrue = yData[j++] != 0;
+                numNonZero += xTrue || yTrue ? 1 : 0;
+                numEqual += xTrue && yTrue ? 1 : 0;
+            } else if (xInd[i] < yInd[j]) {
+                numNonZero += xData[i++] != 0 ? 1 : 0;
+            } else {
+                numNonZero += yData[j++] != 0 ? 1 : 0;
+            }
+        }
+        for (; i < xTo; ++i) {
+            numNonZero += xData[i] != 0 ? 1 : 0;
+        }
+        for (; j < yTo; ++j) {
+            numNonZero += yData[j] != 0 ? 1 : 0;
+        }
+        if (numNonZero == 0) {
+            return 0;
+        } else {
+            return (numNonZero - numEqual) / (float) numNonZero;
+        }
+    }
+
+    /**
+     * Fraction of the <code>nFeatures</code> coordinates on which the points differ.
+     */
+    static float hamming(final int[] xInd, final float[] xData, final int xFrom, final int xTo,
+                         final int[] yInd, final float[] yData, final int yFrom, final int yTo, final int nFeatures) {
+        int numDiffer = 0;
+        int i = xFrom;
+        int j = yFrom;
+        while (i < xTo && j < yTo) {
+            if (xInd[i] == yInd[j]) {
+                numDiffer += xData[i++] != yData[j++] ? 1 : 0;
+            } else if (xInd[i] < yInd[j]) {
+                numDiffer += xData[i++] != 0 ? 1 : 0;
+            } else {
+                numDiffer += yData[j++] != 0 ? 1 : 0;
+            }
+        }
+        for (; i < xTo; ++i) {
+            numDiffer += xData[i] != 0 ? 1 : 0;
+        }
+        for (; j < yTo; ++j) {
+            numDiffer += yData[j] != 0 ? 1 : 0;
+        }
+        return numDiffer / (float) nFeatures;
+    }
+}
@@ -0,0 +1,126 @@
+package edu.jhuapl.trinity.data;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import edu.jhuapl.trinity.data.messages.FeatureVector;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Sean Phillips
+ */
+public class FeatureSearchIndexTest {
+
+    public FeatureSearchIndexTest() {
+    }
+
+    private static FeatureVector vector(String key, String value, String text, double score) {
+        FeatureVector fv = new FeatureVector();
+        fv.getMetaData().put(key, value);
+        fv.setText(text);
+        fv.setScore(score);
+        fv.setPfa(score / 10.0);
+        return fv;
+    }
+
+    private static BitSet bits(int... indices) {
+        BitSet bits = new BitSet();
+        for (int i : indices)
+            bits.set(i);
+        return bits;
+    }
+
+    /**
+     * Test of searchTerm method, of class FeatureSearchIndex.
+     */
+    @Test
+    public void testSearchTerm() {
+        System.out.println("searchTerm");
+        List<FeatureVector> list = new ArrayList<>();
+        list.add(vector("source", "camera-north", null, 0.1));
+        list.add(vector("source", "radar", "a cameraman waves", 0.5));
+        list.add(vector("camera", "x", null, 0.9));
+        list.add(vector("source", "lidar", "nothing here", 0.3));
+        FeatureSearchIndex index = new FeatureSearchIndex();
+        index.sync(list);
+        assertEquals(bits(0, 1, 2), index.searchTerm("camera"));
+        assertEquals(bits(0), index.searchTerm("north"));
+        //trigrams all present but not as one substring
+        assertEquals(bits(), index.searchTerm("camnorth"));
+        //short terms fall back to a scan
+        assertEquals(bits(1, 3), index.searchTerm("ar"));
+        for (int i = 0; i < list.size(); i++)
+            assertEquals(FeatureSearchIndex.containsTerm(list.get(i), "dar"),
+                index.searchTerm("dar").get(i));
+    }
+
+    /**
+     * Test of searchScore and searchPfa methods, of class FeatureSearchIndex.
+     */
+    @Test
+    public void testSearchRange() {
+        System.out.println("searchScore searchPfa");
+        List<FeatureVector> list = new ArrayList<>();
+        list.add(vector("k", "v", null, 0.1));
+        list.add(vector("k", "v", null, 0.5));
+        list.add(vector("k", "v", null, Double.NaN));
+        list.add(vector("k", "v", null, 0.9));
+        FeatureSearchIndex index = new FeatureSearchIndex();
+        index.sync(list);
+        assertEquals(bits(1, 2, 3), index.searchScore(0.5, 1.0));
+        assertEquals(bits(0, 2), index.searchPfa(0.0, 0.02));
+    }
+
+    /**
+     * Test of sync method, of class FeatureSearchIndex.
+     */
+    @Test
+    public void testSyncAppendAndEvict() {
+        System.out.println("sync");
+        List<FeatureVector> list = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+            list.add(vector("id", "row" + i, null, i));
+        FeatureSearchIndex index = new FeatureSearchIndex();
+        index.sync(list);
+        //evict two from the head and append three at the tail
+        list.remove(0);
+        list.remove(0);
+        for (int i = 5; i < 8; i++)
+            list.add(vector("id", "row" + i, null, i));
+        index.sync(list);
+        assertEquals(6, index.size());
+        assertEquals(bits(0), index.searchTerm("row2"));
+        assertEquals(bits(5), index.searchTerm("row7"));
+        assertEquals(bits(), index.searchTerm("row1"));
+        assertEquals(bits(0, 1, 2), index.searchScore(2.0, 4.0));
+        //a tail that no longer matches rebuilds
+        list.set(5, vector("id", "replaced", null, 100.0));
+        index.sync(list);
+        assertEquals(bits(5), index.searchTerm("replaced"));
+        assertEquals(bits(5), index.searchScore(50.0, 150.0));
+        assertEquals(bits(), index.searchTerm("row7"));
+    }
+}
@@ -0,0 +1,117 @@
+package edu.jhuapl.trinity.data;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import edu.jhuapl.trinity.data.messages.FeatureVector;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Sean Phillips
+ */
+public class FeatureStoreTest {
+
+    public FeatureStoreTest() {
+    }
+
+    private static FeatureVector vector(String label, double... values) {
+        FeatureVector fv = new FeatureVector();
+        List<Double> data = new ArrayList<>();
+        for (double value : values)
+            data.add(value);
+        fv.setData(data);
+        fv.setLabel(label);
+        return fv;
+    }
+
+    /**
+     * Test of add and get methods, of class FeatureStore.
+     */
+    @Test
+    public void testAddAndRowViews() {
+        System.out.println("add and row views");
+        FeatureStore store = new FeatureStore(3);
+        FeatureVector fv = vector("a", 1.0, -2.5, 3.0);
+        assertEquals(0, store.add(fv));
+        assertTrue(store.holds(fv));
+        assertEquals(3, fv.getData().size());
+        assertEquals(-2.5, fv.getData().get(1), 0.0);
+        assertEquals(3.0f, store.get(0, 2), 0.0f);
+        fv.getData().set(0, 4.0);
+        assertEquals(4.0f, store.get(0, 0), 0.0f);
+        //wrong dimension is left alone
+        FeatureVector other = vector("b", 1.0, 2.0);
+        assertEquals(-1, store.add(other));
+        assertFalse(store.holds(other));
+        assertEquals(1, store.size());
+    }
+
+    /**
+     * Test of evict method, of class FeatureStore.
+     */
+    @Test
+    public void testEvictDetachesAndCompacts() {
+        System.out.println("evict detaches and compacts");
+        FeatureStore store = new FeatureStore(2);
+        List<FeatureVector> vectors = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            FeatureVector fv = vector("l" + (i % 3), i, -i);
+            assertEquals(i, store.add(fv));
+            vectors.add(fv);
+            if (store.size() > 700)
+                store.evict(store.size() - 700);
+        }
+        assertEquals(700, store.size());
+        //evicted vectors keep their values
+        FeatureVector first = vectors.get(0);
+        assertFalse(store.holds(first));
+        assertEquals(0.0, first.getData().get(0), 0.0);
+        assertEquals(-1234.0, vectors.get(1234).getData().get(1), 0.0);
+        //live rows keep their ids after compaction
+        assertTrue(store.holds(vectors.get(4999)));
+        assertEquals(4999.0f, store.get(4999, 0), 0.0f);
+        assertEquals(-4300.0, store.getRow(4300)[1], 0.0);
+        store.clear();
+        assertTrue(store.isEmpty());
+        assertEquals(4999.0, vectors.get(4999).getData().get(0), 0.0);
+    }
+
+    /**
+     * Test of getLabel method, of class FeatureStore.
+     */
+    @Test
+    public void testInternedLabels() {
+        System.out.println("interned labels");
+        FeatureStore store = new FeatureStore(2);
+        store.add(vector(new String("x"), 1.0, 2.0));
+        store.add(vector(new String("x"), 3.0, -6.0));
+        store.add(vector("y", 5.0, 1.0));
+        assertSame(store.getLabel(0), store.getLabel(1));
+        assertEquals("y", store.getLabel(2));
+    }
+}
@@ -0,0 +1,107 @@
+package edu.jhuapl.trinity.data;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import edu.jhuapl.trinity.data.messages.FeatureVector;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Sean Phillips
+ */
+public class SurfaceGridTest {
+
+    public SurfaceGridTest() {
+    }
+
+    private static FeatureVector vector(Double... values) {
+        FeatureVector fv = new FeatureVector();
+        fv.setData(List.of(values));
+        return fv;
+    }
+
+    /**
+     * Test of setFeatureVectors method, of class SurfaceGrid.
+     */
+    @Test
+    public void testSetFeatureVectors() {
+        System.out.println("setFeatureVectors");
+        SurfaceGrid grid = new SurfaceGrid();
+        grid.setFeatureVectors(List.of(
+            vector(1.0, 2.0, 3.0),
+            vector(4.0, 5.0)));
+        assertEquals(2, grid.getDepth());
+        assertEquals(3, grid.getWidth());
+        assertEquals(2.0f, grid.get(0, 1));
+        assertEquals(4.0f, grid.get(1, 0));
+        //short rows are padded with zero
+        assertEquals(0.0f, grid.get(1, 2));
+        assertEquals(3.0, grid.getRow(0)[2].doubleValue());
+        assertEquals(5.0, grid.getColumn(1)[1].doubleValue());
+        assertEquals(5.0, grid.toArray()[1][1]);
+    }
+
+    /**
+     * Test of setRow and lookup methods, of class SurfaceGrid.
+     */
+    @Test
+    public void testStrideAndLookup() {
+        System.out.println("setRow stride and lookup");
+        SurfaceGrid grid = new SurfaceGrid(1, 2);
+        //phase/magnitude pairs, keep every other value
+        grid.setRow(0, List.of(1.0, 9.0, 2.0, 9.0), 0, 2, 2.0);
+        assertEquals(2.0f, grid.lookup(0, 0));
+        assertEquals(4.0f, grid.lookup(0, 1));
+        assertEquals(0.0f, grid.lookup(0, 2));
+        assertEquals(0.0f, grid.lookup(1, 0));
+        //shrinking reuses the array but clears the values
+        grid.resize(1, 1);
+        assertEquals(0.0f, grid.get(0, 0));
+    }
+
+    /**
+     * Test of pushRow method, of class SurfaceGrid.
+     */
+    @Test
+    public void testPushRowScrolls() {
+        System.out.println("pushRow");
+        SurfaceGrid grid = new SurfaceGrid();
+        grid.allocate(2, 2);
+        assertFalse(grid.pushRow(List.of(1.0, 1.0), 1.0));
+        assertFalse(grid.pushRow(List.of(2.0, 2.0), 1.0));
+        grid.setRowVisible(0, false);
+        assertEquals(0.0f, grid.lookup(0, 0));
+        //full, the oldest row is dropped and the rest move down
+        assertTrue(grid.pushRow(List.of(3.0), 1.0));
+        assertEquals(2, grid.getDepth());
+        assertEquals(2.0f, grid.lookup(0, 1));
+        assertEquals(3.0f, grid.lookup(1, 0));
+        assertEquals(0.0f, grid.lookup(1, 1));
+        //the reused row is visible again
+        assertTrue(grid.isRowVisible(1));
+        assertEquals(3.0, grid.toArray()[1][0]);
+    }
+}
@@ -0,0 +1,80 @@
+package edu.jhuapl.trinity.data.files;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import edu.jhuapl.trinity.data.files.FileTypeSniffer.FileType;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Sean Phillips
+ */
+public class FileTypeSnifferTest {
+
+    public FileTypeSnifferTest() {
+    }
+
+    private static FileType sniff(String content) throws IOException {
+        File file = File.createTempFile("sniff", ".txt");
+        try {
+            Files.writeString(file.toPath(), content);
+            return FileTypeSniffer.sniff(file);
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Test of sniff method, of class FileTypeSniffer.
+     */
+    @Test
+    public void testSniffHeaders() throws IOException {
+        System.out.println("sniff headers");
+        assertEquals(FileType.FEATURE_COLLECTION,
+            sniff("{\"type\": \"FeatureCollection\", \"features\": []}"));
+        assertEquals(FileType.LABEL_CONFIG,
+            sniff("{\"messageType\": \"label_config\", \"labels\": {}}"));
+        assertEquals(FileType.ZERO_PILOT_LATENTS,
+            sniff("labels,traj_num,number\r\n1,2,3\r\n"));
+        assertEquals(FileType.SEMANTIC_MAP_COLLECTION,
+            sniff("{\n\"type\": \"SemanticMapCollection\",\n\"semantic_maps\": []}"));
+        assertEquals(FileType.UNKNOWN, sniff("just,some,text\n"));
+        assertEquals(FileType.UNKNOWN, sniff(""));
+    }
+
+    /**
+     * Test of sniff method, of class FileTypeSniffer.
+     */
+    @Test
+    public void testSniffTrailingType() throws IOException {
+        System.out.println("sniff trailing type");
+        StringBuilder sb = new StringBuilder("{\"features\": [");
+        while (sb.length() < FileTypeSniffer.HEAD_BYTES * 2)
+            sb.append("{\"data\": [0.1, 0.2, 0.3]},");
+        sb.append("{}], \"type\": \"FeatureCollection\"}");
+        assertEquals(FileType.FEATURE_COLLECTION, sniff(sb.toString()));
+    }
+}
@@ -0,0 +1,156 @@
+package edu.jhuapl.trinity.javafx.javafx3d;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import javafx.scene.paint.Color;
+import org.fxyz3d.geometry.Point3D;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Sean Phillips
+ */
+public class DirectedScatterDataModelTest {
+    private static final double SCENE_WIDTH = 800;
+    private static final double SCENE_HEIGHT = 600;
+
+    public DirectedScatterDataModelTest() {
+    }
+
+    private static List<Perspective3DNode> randomNodes(int count, long seed) {
+        Random random = new Random(seed);
+        List<Perspective3DNode> nodes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Perspective3DNode pNode = new Perspective3DNode(
+                random.nextGaussian() * 3, random.nextGaussian() * 3, random.nextGaussian() * 3,
+                random.nextDouble(), random.nextDouble(), random.nextDouble());
+            pNode.nodeColor = Color.hsb(random.nextDouble() * 360, 1.0, 1.0);
+            pNode.visible = i % 5 != 3;
+            nodes.add(pNode);
+        }
+        return nodes;
+    }
+
+    private static DirectedScatterDataModel newModel(List<Perspective3DNode> window) {
+        DirectedScatterDataModel model = new DirectedScatterDataModel();
+        model.setLimits(-10, 10, -10, 10, -10, 10);
+        model.pNodes.addAll(window);
+        return model;
+    }
+
+    /**
+     * Test of slideWindow method, of class DirectedScatterDataModel. Sliding
+     * past the initial buffer capacity must leave the same buffers, pick
+     * mapping and spatial index as a full updateBuffers of the window.
+     */
+    @Test
+    public void testSlideWindowMatchesUpdateBuffers() {
+        System.out.println("slideWindow updateBuffers");
+        List<Perspective3DNode> source = randomNodes(1000, 42L);
+        int start = 0;
+        int end = 40;
+        DirectedScatterDataModel model = newModel(source.subList(start, end));
+        model.updateBuffers(SCENE_WIDTH, SCENE_HEIGHT, true, 5f);
+        int initialCapacity = model.hues.length;
+        //build the spatial index so slideWindow has to keep it current
+        assertTrue(model.findNearestVisibleNode(0, 0, 0, Double.POSITIVE_INFINITY) >= 0);
+        Random random = new Random(7L);
+        while (end + 30 <= source.size()) {
+            int evicted = Math.min(end - start, random.nextInt(30));
+            int added = random.nextInt(30) + 1;
+            model.slideWindow(evicted, source.subList(end, end + added),
+                SCENE_WIDTH, SCENE_HEIGHT, true, 5f);
+            start += evicted;
+            end += added;
+            assertMatchesFullUpdate(model, source.subList(start, end));
+        }
+        assertTrue(model.hues.length > initialCapacity);
+    }
+
+    private static void assertMatchesFullUpdate(DirectedScatterDataModel model,
+                                                List<Perspective3DNode> window) {
+        DirectedScatterDataModel expected = newModel(window);
+        int count = expected.updateBuffers(SCENE_WIDTH, SCENE_HEIGHT, true, 5f);
+        assertEquals(count, model.pointCount);
+        assertEquals(window.size(), model.pNodes.size());
+        assertEquals(expected.visibility, model.visibility);
+        assertArrayEquals(Arrays.copyOf(expected.coords, 3 * count), Arrays.copyOf(model.coords, 3 * count));
+        assertArrayEquals(Arrays.copyOf(expected.endCoords, 3 * count), Arrays.copyOf(model.endCoords, 3 * count));
+        assertArrayEquals(Arrays.copyOf(expected.hues, count), Arrays.copyOf(model.hues, count));
+        int rank = 0;
+        for (int node = 0; node < window.size(); node++) {
+            Point3D point = model.getVisibleNodePoint(node);
+            if (!window.get(node).visible) {
+                assertNull(point);
+                continue;
+            }
+            assertNotNull(point);
+            Point3D fromBuffers = expected.getPoint(rank);
+            assertEquals(fromBuffers.x, point.x, 0.0);
+            assertEquals(fromBuffers.y, point.y, 0.0);
+            assertEquals(fromBuffers.z, point.z, 0.0);
+            assertEquals(rank + 1, indexOfFacePoint(model, node));
+            assertEquals(node, model.findNearestVisibleNode(point.x, point.y, point.z, 1e-3));
+            rank++;
+        }
+    }
+
+    private static int indexOfFacePoint(DirectedScatterDataModel model, int node) {
+        for (int facePoint = 1; facePoint <= model.pointCount; facePoint++)
+            if (model.findIndexFromVisibleFacePoint(facePoint) == node)
+                return facePoint;
+        return -1;
+    }
+
+    /**
+     * Test of getDotPoint method, of class DirectedScatterMesh, fed straight
+     * from the model buffers after sliding past capacity.
+     */
+    @Test
+    public void testDotPointsFromBuffers() {
+        System.out.println("getDotPoint setScatterBuffers");
+        List<Perspective3DNode> source = randomNodes(300, 11L);
+        DirectedScatterDataModel model = newModel(source.subList(0, 20));
+        model.updateBuffers(SCENE_WIDTH, SCENE_HEIGHT, false, 2f);
+        model.slideWindow(5, source.subList(20, 300), SCENE_WIDTH, SCENE_HEIGHT, false, 2f);
+        DirectedScatterMesh mesh = new DirectedScatterMesh(new ArrayList<>(), new ArrayList<>(), true, 2.0, 0);
+        mesh.setScatterBuffers(model.coords, model.endCoords, model.hues, model.pointCount);
+        //dot 0 is the origin dot, dot n holds point n
+        for (int dot = 1; dot < model.pointCount; dot++) {
+            Point3D dotPoint = mesh.getDotPoint(dot);
+            Point3D point = model.getPoint(dot);
+            assertEquals(point.x, dotPoint.x, 0.0);
+            assertEquals(point.y, dotPoint.y, 0.0);
+            assertEquals(point.z, dotPoint.z, 0.0);
+        }
+        assertNull(mesh.getDotPoint(model.pointCount));
+    }
+}
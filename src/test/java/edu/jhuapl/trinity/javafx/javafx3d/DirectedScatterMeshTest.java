@@ -0,0 +1,130 @@
+package edu.jhuapl.trinity.javafx.javafx3d;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import javafx.scene.shape.MeshView;
+import javafx.scene.shape.TriangleMesh;
+import org.fxyz3d.geometry.Point3D;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Sean Phillips
+ */
+public class DirectedScatterMeshTest {
+    private int nextPoint = 0;
+
+    public DirectedScatterMeshTest() {
+    }
+
+    private List<Point3D> newPoints(int count) {
+        List<Point3D> points = new ArrayList<>(count);
+        for (int i = 0; i < count; i++, nextPoint++)
+            points.add(new Point3D(nextPoint * 10f, nextPoint * -3f, nextPoint + 0.5f, nextPoint));
+        return points;
+    }
+
+    private static List<Point3D> zeroEnds(int count) {
+        List<Point3D> ends = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            ends.add(new Point3D(0, 0, 0));
+        return ends;
+    }
+
+    private static int meshPoints(DirectedScatterMesh mesh) {
+        return ((TriangleMesh) ((MeshView) mesh.getChildren().get(0)).getMesh()).getPoints().size();
+    }
+
+    /**
+     * Every dot either maps to its point's position in the rendered window,
+     * counting from 1 because the full rebuild skips the first point, or
+     * holds nothing.
+     */
+    private static void assertMapping(DirectedScatterMesh mesh, List<Point3D> rendered, int dots) {
+        int mapped = 0;
+        boolean[] seen = new boolean[rendered.size() + 1];
+        for (int dot = 1; dot < dots; dot++) {
+            int dataIndex = mesh.getDataIndex(dot);
+            Point3D dotPoint = mesh.getDotPoint(dot);
+            if (dataIndex < 0) {
+                assertNull(dotPoint);
+                continue;
+            }
+            assertTrue(dataIndex >= 1 && dataIndex <= rendered.size());
+            assertTrue(!seen[dataIndex]);
+            seen[dataIndex] = true;
+            mapped++;
+            Point3D expected = rendered.get(dataIndex - 1);
+            assertNotNull(dotPoint);
+            assertEquals(expected.x, dotPoint.x, 0.0);
+            assertEquals(expected.y, dotPoint.y, 0.0);
+            assertEquals(expected.z, dotPoint.z, 0.0);
+        }
+        assertEquals(rendered.size(), mapped);
+    }
+
+    /**
+     * Test of dirtyUpdate and getDataIndex methods, of class DirectedScatterMesh.
+     */
+    @Test
+    public void testDirtyUpdateReusesSlots() {
+        System.out.println("dirtyUpdate getDataIndex");
+        List<Point3D> initial = newPoints(10);
+        DirectedScatterMesh mesh = new DirectedScatterMesh(initial, zeroEnds(10), true, 2.0, 0);
+        mesh.setTextureModeVertices3D(1530, p -> p.f, 0.0, 360.0);
+        //dot 0 is the origin dot, the first point is not rendered
+        List<Point3D> rendered = new ArrayList<>(initial.subList(1, initial.size()));
+        int pointsPerDot = meshPoints(mesh) / 10;
+        assertTrue(pointsPerDot > 0);
+        assertNull(mesh.getDotPoint(10));
+        assertMapping(mesh, rendered, 10);
+
+        //three evicted, two added: both reuse freed slots and one stays empty
+        List<Point3D> added = newPoints(2);
+        assertTrue(mesh.dirtyUpdate(added, zeroEnds(2), 3));
+        rendered.subList(0, 3).clear();
+        rendered.addAll(added);
+        assertEquals(10 * pointsPerDot, meshPoints(mesh));
+        assertEquals(-1, mesh.getDataIndex(0));
+        assertMapping(mesh, rendered, 10);
+
+        //one more evicted, four added: two reuse slots and two grow the mesh
+        added = newPoints(4);
+        assertTrue(mesh.dirtyUpdate(added, zeroEnds(4), 1));
+        rendered.subList(0, 1).clear();
+        rendered.addAll(added);
+        assertEquals(12 * pointsPerDot, meshPoints(mesh));
+        assertMapping(mesh, rendered, 12);
+        assertEquals(-1, mesh.getDataIndex(12));
+
+        //evicting everything leaves no live dots
+        assertTrue(mesh.dirtyUpdate(newPoints(0), zeroEnds(0), rendered.size()));
+        rendered.clear();
+        assertMapping(mesh, rendered, 12);
+    }
+}
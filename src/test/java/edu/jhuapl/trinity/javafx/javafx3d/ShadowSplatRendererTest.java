@@ -0,0 +1,189 @@
+package edu.jhuapl.trinity.javafx.javafx3d;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Sean Phillips
+ */
+public class ShadowSplatRendererTest {
+    private static final int WIDTH = 203;
+    private static final int HEIGHT = 151;
+
+    public ShadowSplatRendererTest() {
+    }
+
+    private static ShadowSplatRenderer.Splats randomSplats(int count, float radius, long seed) {
+        Random random = new Random(seed);
+        ShadowSplatRenderer.Splats splats = new ShadowSplatRenderer.Splats(count);
+        splats.radius = radius;
+        for (int i = 0; i < count; i++) {
+            for (int p = 0; p < 3; p++) {
+                //reach a little past every edge so clipping is covered
+                splats.u[p][i] = (float) (random.nextDouble() * (WIDTH + 20) - 10);
+                splats.v[p][i] = (float) (random.nextDouble() * (HEIGHT + 20) - 10);
+            }
+            if (i % 97 == 0)
+                splats.u[i % 3][i] = Float.NaN;
+            double opacity = i % 3 == 0 ? 1.0 : random.nextDouble();
+            splats.colors[i] = i % 53 == 0 ? 0 : ShadowSplatRenderer.premultiplied(
+                random.nextDouble(), random.nextDouble(), random.nextDouble(), opacity);
+        }
+        return splats;
+    }
+
+    //draws every point over the whole raster in list order, no bands
+    private static int[] sequentialSplat(int[] previous, int projection,
+                                         ShadowSplatRenderer.Splats splats) {
+        int[] target = null != previous ? previous.clone() : new int[WIDTH * HEIGHT];
+        ShadowSplatRenderer.Stamps stamps = new ShadowSplatRenderer.Stamps(splats.radius);
+        for (int i = 0; i < splats.count; i++) {
+            int color = splats.colors[i];
+            float u = splats.u[projection][i];
+            float v = splats.v[projection][i];
+            if (color == 0 || Float.isNaN(u) || Float.isNaN(v))
+                continue;
+            int q = ShadowSplatRenderer.Stamps.offset(v) * 4 + ShadowSplatRenderer.Stamps.offset(u);
+            int ox = (int) Math.floor(u) - stamps.reach;
+            int oy = (int) Math.floor(v) - stamps.reach;
+            for (int row = 0; row < stamps.size; row++) {
+                for (int col = 0; col < stamps.size; col++) {
+                    int x = ox + col;
+                    int y = oy + row;
+                    int c = stamps.coverage[q][row * stamps.size + col];
+                    if (x < 0 || x >= WIDTH || y < 0 || y >= HEIGHT || c == 0)
+                        continue;
+                    if (c == 255 && (color >>> 24) == 0xFF)
+                        target[y * WIDTH + x] = color;
+                    else
+                        target[y * WIDTH + x] = ShadowSplatRenderer.blend(target[y * WIDTH + x], color, c);
+                }
+            }
+        }
+        return target;
+    }
+
+    //accumulates every point over the whole raster in list order, then resolves
+    private static int[] sequentialDensity(float[] sums, int projection, double gain,
+                                           ShadowSplatRenderer.Splats splats) {
+        ShadowSplatRenderer.Stamps stamps = new ShadowSplatRenderer.Stamps(splats.radius);
+        for (int i = 0; i < splats.count; i++) {
+            int color = splats.colors[i];
+            float u = splats.u[projection][i];
+            float v = splats.v[projection][i];
+            if (color == 0 || Float.isNaN(u) || Float.isNaN(v))
+                continue;
+            float alpha = (color >>> 24) / 255f;
+            float scale = alpha > 0f ? 1f / (255f * alpha) : 0f;
+            float red = ((color >> 16) & 0xFF) * scale;
+            float green = ((color >> 8) & 0xFF) * scale;
+            float blue = (color & 0xFF) * scale;
+            int q = ShadowSplatRenderer.Stamps.offset(v) * 4 + ShadowSplatRenderer.Stamps.offset(u);
+            int ox = (int) Math.floor(u) - stamps.reach;
+            int oy = (int) Math.floor(v) - stamps.reach;
+            for (int row = 0; row < stamps.size; row++) {
+                for (int col = 0; col < stamps.size; col++) {
+                    int x = ox + col;
+                    int y = oy + row;
+                    int c = stamps.coverage[q][row * stamps.size + col];
+                    if (x < 0 || x >= WIDTH || y < 0 || y >= HEIGHT || c == 0)
+                        continue;
+                    float weight = c / 255f * alpha;
+                    int index = (y * WIDTH + x) * 4;
+                    sums[index] += red * weight;
+                    sums[index + 1] += green * weight;
+                    sums[index + 2] += blue * weight;
+                    sums[index + 3] += weight;
+                }
+            }
+        }
+        int[] target = new int[WIDTH * HEIGHT];
+        for (int pixel = 0; pixel < target.length; pixel++) {
+            float weight = sums[pixel * 4 + 3];
+            if (weight <= 0f)
+                continue;
+            float opacity = (float) (1.0 - Math.exp(-weight * gain));
+            float scale = opacity * 255f / weight;
+            target[pixel] = ShadowSplatRenderer.argb(opacity * 255f,
+                sums[pixel * 4] * scale, sums[pixel * 4 + 1] * scale, sums[pixel * 4 + 2] * scale);
+        }
+        return target;
+    }
+
+    /**
+     * Test of rasterize method, of class ShadowSplatRenderer. Banded parallel
+     * splatting must match drawing the points one at a time in list order.
+     */
+    @Test
+    public void testRasterizeMatchesSequential() {
+        System.out.println("rasterize");
+        ShadowSplatRenderer renderer = new ShadowSplatRenderer(null, null);
+        ShadowSplatRenderer.Splats first = randomSplats(4000, 2.7f, 42L);
+        ShadowSplatRenderer.Splats second = randomSplats(1500, 4.2f, 7L);
+        renderer.rasterize(WIDTH, HEIGHT, false, false, 0.35, first);
+        int[][] expected = new int[3][];
+        for (int p = 0; p < 3; p++) {
+            expected[p] = sequentialSplat(null, p, first);
+            assertTrue(countDrawn(expected[p]) > WIDTH * HEIGHT / 4);
+            assertArrayEquals(expected[p], renderer.getPixels(p));
+        }
+        //accumulate draws the second frame over the first
+        renderer.rasterize(WIDTH, HEIGHT, true, false, 0.35, second);
+        for (int p = 0; p < 3; p++)
+            assertArrayEquals(sequentialSplat(expected[p], p, second), renderer.getPixels(p));
+        //without accumulate the first frame is cleared
+        renderer.rasterize(WIDTH, HEIGHT, false, false, 0.35, second);
+        for (int p = 0; p < 3; p++)
+            assertArrayEquals(sequentialSplat(null, p, second), renderer.getPixels(p));
+    }
+
+    /**
+     * Test of rasterize method with density shading, of class ShadowSplatRenderer.
+     */
+    @Test
+    public void testDensityMatchesSequential() {
+        System.out.println("rasterize density");
+        ShadowSplatRenderer renderer = new ShadowSplatRenderer(null, null);
+        ShadowSplatRenderer.Splats first = randomSplats(4000, 2.7f, 11L);
+        ShadowSplatRenderer.Splats second = randomSplats(2500, 1.3f, 12L);
+        float[][] sums = new float[3][WIDTH * HEIGHT * 4];
+        renderer.rasterize(WIDTH, HEIGHT, false, true, 0.35, first);
+        for (int p = 0; p < 3; p++)
+            assertArrayEquals(sequentialDensity(sums[p], p, 0.35, first), renderer.getPixels(p));
+        renderer.rasterize(WIDTH, HEIGHT, true, true, 0.35, second);
+        for (int p = 0; p < 3; p++)
+            assertArrayEquals(sequentialDensity(sums[p], p, 0.35, second), renderer.getPixels(p));
+    }
+
+    private static int countDrawn(int[] pixels) {
+        int drawn = 0;
+        for (int pixel : pixels)
+            if (pixel != 0)
+                drawn++;
+        return drawn;
+    }
+}
@@ -0,0 +1,161 @@
+package edu.jhuapl.trinity.messages;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import edu.jhuapl.trinity.data.messages.FeatureVector;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Sean Phillips
+ */
+public class FeatureVectorFrameCodecTest {
+
+    public FeatureVectorFrameCodecTest() {
+    }
+
+    private static FeatureVector buildFeatureVector() {
+        FeatureVector fv = new FeatureVector();
+        List<Double> data = new ArrayList<>();
+        for (int i = 0; i < 768; i++)
+            data.add(Math.sin(i) * 0.5);
+        fv.setData(data);
+        fv.setLabel("dog");
+        fv.setEntityId("EntityID001");
+        fv.setFrameId(42);
+        fv.setImageId(3101);
+        fv.setScore(-2.75);
+        fv.setPfa(0.0008);
+        fv.setLayer(3);
+        fv.setText("über text");
+        fv.setBbox(List.of(252.0, 447.75, 9.0, 9.0));
+        fv.getMetaData().put("source", "camera_1");
+        return fv;
+    }
+
+    /**
+     * Test of encode and decode methods, of class FeatureVectorFrameCodec.
+     */
+    @Test
+    public void testFloat64RoundTrip() {
+        System.out.println("float64 round trip");
+        FeatureVector fv = buildFeatureVector();
+        byte[] frame = FeatureVectorFrameCodec.encode(fv, FeatureVectorFrameCodec.FLOAT64);
+        assertTrue(FeatureVectorFrameCodec.isBinaryFrame(frame));
+        assertEquals(FeatureVector.TYPESTRING, FeatureVectorFrameCodec.readMessageType(frame));
+
+        FeatureVector result = FeatureVectorFrameCodec.decode(frame);
+        assertEquals(fv.getData(), result.getData());
+        assertEquals(fv.getLabel(), result.getLabel());
+        assertEquals(fv.getEntityId(), result.getEntityId());
+        assertEquals(fv.getFrameId(), result.getFrameId());
+        assertEquals(fv.getImageId(), result.getImageId());
+        assertEquals(fv.getScore(), result.getScore());
+        assertEquals(fv.getPfa(), result.getPfa());
+        assertEquals(fv.getLayer(), result.getLayer());
+        assertEquals(fv.getText(), result.getText());
+        assertEquals(fv.getBbox(), result.getBbox());
+        assertEquals(fv.getMetaData(), result.getMetaData());
+        assertNull(result.getImageURL());
+    }
+
+    /**
+     * Test of decodeData method, of class FeatureVectorFrameCodec.
+     */
+    @Test
+    public void testFloat32Data() {
+        System.out.println("float32 data");
+        FeatureVector fv = buildFeatureVector();
+        byte[] frame = FeatureVectorFrameCodec.encode(fv, FeatureVectorFrameCodec.FLOAT32);
+        double[] expected = FeatureVector.mapToStateArray.apply(fv);
+        assertArrayEquals(expected, FeatureVectorFrameCodec.decodeData(frame), 1e-6);
+    }
+
+    @Test
+    public void testJsonIsNotBinary() {
+        System.out.println("json is not binary");
+        byte[] json = "{\"messageType\":\"feature_vector\"}".getBytes(StandardCharsets.UTF_8);
+        assertFalse(FeatureVectorFrameCodec.isBinaryFrame(json));
+    }
+
+    private static void assertRejected(byte[] frame) {
+        try {
+            FeatureVectorFrameCodec.decode(frame);
+        } catch (IllegalArgumentException ex) {
+            return;
+        }
+        throw new AssertionError("malformed frame was decoded");
+    }
+
+    /**
+     * Test of decode method on malformed frames, of class FeatureVectorFrameCodec.
+     */
+    @Test
+    public void testMalformedFrames() throws IOException {
+        System.out.println("malformed frames");
+        FeatureVector fv = buildFeatureVector();
+        fv.getMetaData().clear();
+        byte[] frame = FeatureVectorFrameCodec.encode(fv, FeatureVectorFrameCodec.FLOAT32);
+
+        //every truncation fails cleanly
+        for (int length = 8; length < frame.length; length++)
+            assertRejected(Arrays.copyOf(frame, length));
+
+        byte[] version = frame.clone();
+        version[4] = FeatureVectorFrameCodec.FORMAT_VERSION + 1;
+        assertRejected(version);
+
+        byte[] width = frame.clone();
+        width[5] = 3;
+        assertRejected(width);
+
+        //entityId length just after the fixed width fields
+        int entityId = 4 + 1 + 1 + 2 + FeatureVector.TYPESTRING.length() + 4
+            + fv.getData().size() * FeatureVectorFrameCodec.FLOAT32 + 8 * 3 + 8 * 2 + 4;
+        byte[] string = frame.clone();
+        ByteBuffer.wrap(string).order(ByteOrder.LITTLE_ENDIAN).putInt(entityId, Integer.MAX_VALUE);
+        assertRejected(string);
+
+        //metaData count is the final int of a frame with no metaData
+        byte[] meta = frame.clone();
+        ByteBuffer.wrap(meta).order(ByteOrder.LITTLE_ENDIAN).putInt(meta.length - 4, Integer.MAX_VALUE);
+        assertRejected(meta);
+
+        //the processor logs and drops rather than throwing
+        MessageProcessor processor = new MessageProcessor();
+        processor.process(version);
+        processor.process(string);
+        processor.process(Arrays.copyOf(frame, 9));
+    }
+}
@@ -42,10 +42,15 @@ public class ZeroMQFeatureVectorTestApp {
     public static final String TOPIC = "ZeroMQ Test Topic";
     public static String PUB_BIND = "tcp://*:5563";
     public static final String TEST_IMAGE_URL = "c:/dev/enceladus-1080p.jpg";
+    /**
+     * Pass "binary" as the first argument to publish FeatureVectorFrameCodec frames
+     */
+    public static boolean BINARY = false;
 
     public static enum LABELS {dog, cat, horse, panda}
 
     public static void main(String[] args) throws Exception {
+        BINARY = args.length > 0 && args[0].equalsIgnoreCase("binary");
         /** Provides serialization support for JSON messages */
         ObjectMapper mapper = new ObjectMapper();
 
@@ -87,8 +92,13 @@ public class ZeroMQFeatureVectorTestApp {
                     featureVector.setTopic("some_topic");
                     featureVector.setVersion("0.1");
                     try {
-                        String fvAsString = mapper.writeValueAsString(featureVector);
-                        publisher.send(fvAsString);
+                        if (BINARY) {
+                            publisher.send(FeatureVectorFrameCodec.encode(
+                                featureVector, FeatureVectorFrameCodec.FLOAT32));
+                        } else {
+                            String fvAsString = mapper.writeValueAsString(featureVector);
+                            publisher.send(fvAsString);
+                        }
                     } catch (JsonProcessingException ex) {
                         Logger.getLogger(ZeroMQFeatureVectorTestApp.class.getName()).log(Level.SEVERE, null, ex);
                     }
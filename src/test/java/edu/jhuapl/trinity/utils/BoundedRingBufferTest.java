@@ -0,0 +1,114 @@
+package edu.jhuapl.trinity.utils;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Sean Phillips
+ */
+public class BoundedRingBufferTest {
+
+    public BoundedRingBufferTest() {
+    }
+
+    /**
+     * Test of offer and poll methods, of class BoundedRingBuffer.
+     */
+    @Test
+    public void testOfferPollWrapAround() {
+        System.out.println("offer/poll wrap around");
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(3);
+        for (int round = 0; round < 5; round++) {
+            assertTrue(buffer.offer(round));
+            assertTrue(buffer.offer(round + 100));
+            assertTrue(buffer.offer(round + 200));
+            assertFalse(buffer.offer(-1));
+            assertEquals(3, buffer.size());
+            assertEquals(Integer.valueOf(round), buffer.poll());
+            assertEquals(Integer.valueOf(round + 100), buffer.poll());
+            assertEquals(Integer.valueOf(round + 200), buffer.poll());
+            assertNull(buffer.poll());
+        }
+    }
+
+    /**
+     * Test of offerEvictOldest method, of class BoundedRingBuffer.
+     */
+    @Test
+    public void testOfferEvictOldest() {
+        System.out.println("offerEvictOldest");
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(4);
+        int evicted = 0;
+        for (int i = 0; i < 10; i++)
+            evicted += buffer.offerEvictOldest(i);
+        assertEquals(6, evicted);
+        List<Integer> remaining = new ArrayList<>();
+        buffer.drain(remaining::add, Integer.MAX_VALUE);
+        assertEquals(List.of(6, 7, 8, 9), remaining);
+    }
+
+    /**
+     * Concurrent producers and a consumer should neither lose nor duplicate items.
+     */
+    @Test
+    public void testConcurrentProducers() throws InterruptedException {
+        System.out.println("concurrent producers");
+        BoundedRingBuffer<Long> buffer = new BoundedRingBuffer<>(64);
+        int producers = 4;
+        int perProducer = 20000;
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            threads[p] = new Thread(() -> {
+                for (long i = 1; i <= perProducer; i++) {
+                    while (!buffer.offer(i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+            threads[p].start();
+        }
+        AtomicLong sum = new AtomicLong();
+        long count = 0;
+        long expectedCount = (long) producers * perProducer;
+        while (count < expectedCount) {
+            Long value = buffer.poll();
+            if (null != value) {
+                sum.addAndGet(value);
+                count++;
+            }
+        }
+        for (Thread thread : threads)
+            thread.join();
+        long expectedSum = producers * ((long) perProducer * (perProducer + 1) / 2);
+        assertEquals(expectedSum, sum.get());
+        assertTrue(buffer.isEmpty());
+    }
+}
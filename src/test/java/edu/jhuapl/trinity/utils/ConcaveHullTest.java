@@ -0,0 +1,114 @@
+package edu.jhuapl.trinity.utils;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.github.quickhull3d.Point3d;
+import com.github.quickhull3d.QuickHull3D;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Sean Phillips
+ */
+public class ConcaveHullTest {
+
+    public ConcaveHullTest() {
+    }
+
+    //points filling a torus with a tube radius of 1 around a ring of radius 4
+    private static double[] torus(int count) {
+        Random random = new Random(5);
+        double[] coords = new double[3 * count];
+        for (int i = 0; i < count; i++) {
+            double u = random.nextDouble() * 2 * Math.PI;
+            double v = random.nextDouble() * 2 * Math.PI;
+            double r = Math.sqrt(random.nextDouble());
+            coords[3 * i] = (4 + r * Math.cos(v)) * Math.cos(u);
+            coords[3 * i + 1] = (4 + r * Math.cos(v)) * Math.sin(u);
+            coords[3 * i + 2] = r * Math.sin(v);
+        }
+        return coords;
+    }
+
+    private static double surfaceVolume(QuickHull3D hull) {
+        Point3d[] v = hull.getVertices();
+        double volume = 0.0;
+        for (int[] f : hull.getFaces()) {
+            Point3d a = v[f[0]], b = v[f[1]], c = v[f[2]];
+            volume += a.x * (b.y * c.z - b.z * c.y) - a.y * (b.x * c.z - b.z * c.x) + a.z * (b.x * c.y - b.y * c.x);
+        }
+        return volume / 6.0;
+    }
+
+    /**
+     * Test of build method, of class ConcaveHull.
+     */
+    @Test
+    public void testBuildClosedSurface() {
+        System.out.println("build");
+        double[] coords = torus(3000);
+        ConcaveHull instance = new ConcaveHull();
+        instance.build(coords, 3000);
+        assertTrue(instance.getNumFaces() > 0);
+        //every directed edge is matched by its reverse exactly once
+        HashMap<Long, Integer> edges = new HashMap<>();
+        for (int[] f : instance.getFaces())
+            for (int k = 0; k < 3; k++)
+                edges.merge(((long) f[k] << 32) | f[(k + 1) % 3], 1, Integer::sum);
+        for (Long edge : edges.keySet()) {
+            assertEquals(1, edges.get(edge).intValue());
+            assertTrue(edges.containsKey(((edge & 0xffffffffL) << 32) | (edge >>> 32)));
+        }
+        //outward winding encloses the same volume as the kept tetrahedra
+        assertEquals(instance.getVolume(), surfaceVolume(instance), 1e-6);
+        int[] pointIndices = instance.getVertexPointIndices();
+        Point3d[] vertices = instance.getVertices();
+        assertEquals(coords[3 * pointIndices[0]], vertices[0].x, 0.0);
+    }
+
+    /**
+     * Test of getVolume method, of class ConcaveHull.
+     */
+    @Test
+    public void testVolumeBelowConvexHull() {
+        System.out.println("getVolume");
+        double[] coords = torus(3000);
+        QuickHull3D convex = new QuickHull3D();
+        convex.build(coords, 3000);
+        convex.triangulate();
+        double convexVolume = surfaceVolume(convex);
+        double torusVolume = 2 * Math.PI * Math.PI * 4;
+        ConcaveHull tight = new ConcaveHull(1.5);
+        tight.build(coords, 3000);
+        ConcaveHull loose = new ConcaveHull(4.0);
+        loose.build(coords, 3000);
+        //the hole in the middle is left out
+        assertTrue(loose.getVolume() < torusVolume);
+        assertTrue(loose.getVolume() < 0.6 * convexVolume);
+        assertTrue(tight.getVolume() <= loose.getVolume());
+        assertTrue(loose.getNumVertices() <= tight.getNumVertices());
+    }
+}
@@ -0,0 +1,162 @@
+package edu.jhuapl.trinity.utils;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import edu.jhuapl.trinity.data.messages.FeatureVector;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Sean Phillips
+ */
+public class RunningStatisticsTest {
+
+    public RunningStatisticsTest() {
+    }
+
+    private static List<FeatureVector> randomVectors(int count, int dimensions, long seed) {
+        Random random = new Random(seed);
+        List<FeatureVector> vectors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            FeatureVector fv = new FeatureVector();
+            for (int d = 0; d < dimensions; d++)
+                fv.getData().add(random.nextGaussian() * (d + 1) + d);
+            vectors.add(fv);
+        }
+        return vectors;
+    }
+
+    private static void assertMatchesTwoPass(List<FeatureVector> vectors, RunningStatistics stats) {
+        List<Double> mean = FeatureVector.getMeanVector(vectors);
+        for (int d = 0; d < stats.getDimensions(); d++) {
+            assertEquals(mean.get(d), stats.getMean(d), 1e-9);
+            double sum = 0.0;
+            for (FeatureVector fv : vectors) {
+                double diff = fv.getData().get(d) - mean.get(d);
+                sum += diff * diff;
+            }
+            assertEquals(sum / (vectors.size() - 1), stats.getVariance(d), 1e-9);
+        }
+        assertEquals(FeatureVector.getMaxAbsValue(vectors), stats.getMaxAbsValue(), 1e-12);
+        assertEquals(FeatureVector.getMeanCenteredMaxAbsValue(vectors, mean),
+            stats.getMeanCenteredMaxAbsValue(), 1e-9);
+    }
+
+    /**
+     * Test of add method, of class RunningStatistics.
+     */
+    @Test
+    public void testAdd() {
+        System.out.println("add");
+        List<FeatureVector> vectors = randomVectors(500, 6, 1L);
+        RunningStatistics stats = new RunningStatistics(6);
+        for (FeatureVector fv : vectors)
+            assertTrue(stats.add(fv));
+        assertEquals(500, stats.getCount());
+        assertMatchesTwoPass(vectors, stats);
+        FeatureVector wrongSize = new FeatureVector();
+        wrongSize.getData().add(1.0);
+        assertFalse(stats.add(wrongSize));
+        assertEquals(500, stats.getCount());
+    }
+
+    /**
+     * Test of merge method, of class RunningStatistics.
+     */
+    @Test
+    public void testMerge() {
+        System.out.println("merge");
+        List<FeatureVector> vectors = randomVectors(20000, 4, 2L);
+        //parallel collect merges per thread accumulators
+        RunningStatistics stats = RunningStatistics.of(vectors);
+        assertEquals(20000, stats.getCount());
+        assertMatchesTwoPass(vectors, stats);
+    }
+
+    /**
+     * Test of remove method, of class RunningStatistics.
+     */
+    @Test
+    public void testRemove() {
+        System.out.println("remove");
+        List<FeatureVector> vectors = randomVectors(1000, 3, 3L);
+        RunningStatistics stats = RunningStatistics.of(vectors);
+        List<FeatureVector> evicted = vectors.subList(0, 400);
+        for (FeatureVector fv : evicted)
+            assertTrue(stats.remove(fv));
+        List<FeatureVector> remaining = new ArrayList<>(vectors.subList(400, 1000));
+        assertEquals(600, stats.getCount());
+        List<Double> mean = FeatureVector.getMeanVector(remaining);
+        for (int d = 0; d < 3; d++)
+            assertEquals(mean.get(d), stats.getMean(d), 1e-9);
+        assertMatchesTwoPass(remaining, stats);
+    }
+
+    /**
+     * Test of interleaved add and first in first out remove, of class RunningStatistics.
+     */
+    @Test
+    public void testSlidingWindow() {
+        System.out.println("sliding window");
+        int dimensions = 5;
+        List<FeatureVector> vectors = randomVectors(3000, dimensions, 4L);
+        //repeated values exercise ties on the extremes
+        for (int i = 0; i < vectors.size(); i += 7)
+            vectors.set(i, vectors.get(i / 2));
+        Random random = new Random(5L);
+        RunningStatistics stats = new RunningStatistics(dimensions);
+        ArrayDeque<FeatureVector> window = new ArrayDeque<>();
+        for (FeatureVector fv : vectors) {
+            stats.add(fv);
+            window.add(fv);
+            //sometimes grow, sometimes shrink the window
+            int removals = random.nextInt(3);
+            for (int r = 0; r < removals && window.size() > 1; r++)
+                assertTrue(stats.remove(window.poll()));
+            for (int d = 0; d < dimensions; d++) {
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                for (FeatureVector w : window) {
+                    min = Math.min(min, w.getData().get(d));
+                    max = Math.max(max, w.getData().get(d));
+                }
+                assertEquals(min, stats.getMin(d), 0.0);
+                assertEquals(max, stats.getMax(d), 0.0);
+            }
+        }
+        assertMatchesTwoPass(new ArrayList<>(window), stats);
+
+        //a parallel build continues the same window
+        List<FeatureVector> remaining = new ArrayList<>(window);
+        RunningStatistics rebuilt = RunningStatistics.of(remaining);
+        for (int i = 0; i < remaining.size() / 2; i++)
+            rebuilt.remove(remaining.get(i));
+        assertMatchesTwoPass(remaining.subList(remaining.size() / 2, remaining.size()), rebuilt);
+    }
+}
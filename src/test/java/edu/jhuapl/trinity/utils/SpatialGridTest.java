@@ -0,0 +1,114 @@
+package edu.jhuapl.trinity.utils;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Sean Phillips
+ */
+public class SpatialGridTest {
+
+    public SpatialGridTest() {
+    }
+
+    private static double squaredDistance(double[][] points, int i, double[] q) {
+        double dx = points[i][0] - q[0], dy = points[i][1] - q[1], dz = points[i][2] - q[2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Test of nearest, withinRadius and withinBox methods, of class SpatialGrid.
+     */
+    @Test
+    public void testQueriesMatchBruteForce() {
+        System.out.println("nearest withinRadius withinBox");
+        Random random = new Random(7);
+        double[][] points = new double[2000][];
+        for (int i = 0; i < points.length; i++)
+            points[i] = new double[]{random.nextGaussian() * 100, random.nextGaussian() * 50, random.nextDouble() * 10};
+        SpatialGrid grid = new SpatialGrid(SpatialGrid.cellSizeFor(points.length, 600, 300, 10));
+        for (int i = 0; i < points.length; i++)
+            grid.add(i, points[i][0], points[i][1], points[i][2]);
+        //evict the first quarter like a FIFO queue would
+        for (int i = 0; i < 500; i++)
+            assertTrue(grid.remove(i, points[i][0], points[i][1], points[i][2]));
+        assertEquals(1500, grid.size());
+
+        for (int t = 0; t < 200; t++) {
+            //include queries well outside the cloud
+            double[] q = {random.nextGaussian() * 300, random.nextGaussian() * 150, random.nextGaussian() * 20};
+            double best = Double.POSITIVE_INFINITY;
+            for (int i = 500; i < points.length; i++)
+                best = Math.min(best, squaredDistance(points, i, q));
+            int nearest = grid.nearest(q[0], q[1], q[2]);
+            assertEquals(best, squaredDistance(points, nearest, q), 1e-9);
+
+            double radius = 20.0;
+            int[] expected = IntStream.range(500, points.length)
+                .filter(i -> squaredDistance(points, i, q) <= radius * radius).toArray();
+            int[] found = grid.withinRadius(q[0], q[1], q[2], radius);
+            Arrays.sort(found);
+            assertArrayEquals(expected, found);
+            int within = grid.nearest(q[0], q[1], q[2], radius);
+            assertEquals(expected.length == 0, within < 0);
+        }
+
+        int[] expected = IntStream.range(500, points.length)
+            .filter(i -> points[i][0] >= -50 && points[i][0] <= 50 && points[i][1] >= 0
+                && points[i][1] <= 40 && points[i][2] >= 2 && points[i][2] <= 8).toArray();
+        int[] found = grid.withinBox(-50, 0, 2, 50, 40, 8);
+        Arrays.sort(found);
+        assertArrayEquals(expected, found);
+    }
+
+    /**
+     * Test of nearest for queries far outside the occupied cells, of class SpatialGrid.
+     */
+    @Test
+    public void testNearestFarFromPoints() {
+        System.out.println("nearest far from points");
+        Random random = new Random(11);
+        double[][] points = new double[500][];
+        for (int i = 0; i < points.length; i++)
+            points[i] = new double[]{random.nextDouble() * 50, random.nextDouble() * 50, random.nextDouble() * 50};
+        SpatialGrid grid = new SpatialGrid(SpatialGrid.cellSizeFor(points.length, 50, 50, 50));
+        for (int i = 0; i < points.length; i++)
+            grid.add(i, points[i][0], points[i][1], points[i][2]);
+        for (double far : new double[]{100, 800, 1600, 1e6}) {
+            for (int t = 0; t < 20; t++) {
+                double[] q = {25 + far * random.nextGaussian(), 25 + far * random.nextGaussian(), 25 + far * random.nextGaussian()};
+                double best = Double.POSITIVE_INFINITY;
+                for (int i = 0; i < points.length; i++)
+                    best = Math.min(best, squaredDistance(points, i, q));
+                assertEquals(best, squaredDistance(points, grid.nearest(q[0], q[1], q[2]), q), 1e-9 * best);
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package edu.jhuapl.trinity.utils.umap;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import edu.jhuapl.trinity.utils.umap.metric.CosineMetric;
+import edu.jhuapl.trinity.utils.umap.metric.EuclideanMetric;
+import edu.jhuapl.trinity.utils.umap.metric.HammingMetric;
+import edu.jhuapl.trinity.utils.umap.metric.JaccardMetric;
+import edu.jhuapl.trinity.utils.umap.metric.ManhattanMetric;
+import edu.jhuapl.trinity.utils.umap.metric.Metric;
+import edu.jhuapl.trinity.utils.umap.metric.ChebyshevMetric;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Sean Phillips
+ */
+public class CsrMatrixTest {
+
+    public CsrMatrixTest() {
+    }
+
+    /**
+     * Bag of words style rows, a few percent nonzero, drawn from a handful of topics.
+     */
+    private static List<List<Double>> sparseRows(final int rows, final int cols) {
+        final Random random = new Random(5);
+        final List<List<Double>> data = new ArrayList<>(rows);
+        for (int r = 0; r < rows; ++r) {
+            final List<Double> row = new ArrayList<>(cols);
+            for (int c = 0; c < cols; ++c) {
+                row.add(0.0);
+            }
+            final int topic = r % 5;
+            for (int w = 0; w < 12; ++w) {
+                final int c = random.nextInt(4) == 0 ? random.nextInt(cols) : topic * 40 + random.nextInt(40);
+                row.set(c, row.get(c) + 1 + random.nextInt(3));
+            }
+            data.add(row);
+        }
+        return data;
+    }
+
+    /**
+     * Test of distance method, of class CsrMatrix.
+     */
+    @Test
+    public void testDistanceMatchesDense() {
+        System.out.println("distance matches dense");
+        final List<List<Double>> rows = sparseRows(40, 300);
+        final CsrMatrix sparse = CsrMatrix.fromRows(rows);
+        assertTrue(sparse.density() < 0.05);
+        final Matrix dense = new DefaultMatrix(sparse.toArray());
+        final Metric[] metrics = {EuclideanMetric.SINGLETON, ManhattanMetric.SINGLETON,
+            CosineMetric.SINGLETON, JaccardMetric.SINGLETON, HammingMetric.SINGLETON};
+        for (final Metric metric : metrics) {
+            assertTrue(metric.isSparse());
+            for (int i = 0; i < sparse.rows(); ++i) {
+                for (int j = 0; j < sparse.rows(); ++j) {
+                    assertEquals(dense.distance(metric, i, j), sparse.distance(metric, i, j), 1e-5);
+                }
+            }
+        }
+        // metrics without a sparse kernel fall back to dense rows
+        assertEquals(dense.distance(ChebyshevMetric.SINGLETON, 0, 1), sparse.distance(ChebyshevMetric.SINGLETON, 0, 1), 1e-6);
+    }
+
+    /**
+     * Test of sparse nearest neighbor descent, of class Umap.
+     */
+    @Test
+    public void testSparseNearestNeighbors() {
+        System.out.println("sparse nearest neighbors");
+        final CsrMatrix x = CsrMatrix.fromRows(sparseRows(1500, 400));
+        final int k = 10;
+        final IndexedDistances exact = PairwiseDistances.parallelNearestNeighbors(x, CosineMetric.SINGLETON, k, false);
+        final IndexedDistances approx = Umap.nearestNeighbors(x, k, CosineMetric.SINGLETON, true, new Random(42), 2, false);
+        long hits = 0;
+        for (int i = 0; i < x.rows(); ++i) {
+            final Set<Integer> expected = new HashSet<>();
+            for (final int j : exact.getIndices()[i]) {
+                expected.add(j);
+            }
+            for (final int j : approx.getIndices()[i]) {
+                if (expected.contains(j)) {
+                    ++hits;
+                }
+            }
+        }
+        assertTrue(hits > 0.9 * x.rows() * k);
+
+        final Umap umap = new Umap();
+        umap.setMetric(ChebyshevMetric.SINGLETON);
+        assertThrows(IllegalArgumentException.class, () -> umap.fitTransform(x));
+    }
+
+    /**
+     * Test of sparse forest construction with tied rows, of class Umap.
+     */
+    @Test
+    public void testSparseFitWithDuplicateRows() {
+        System.out.println("sparse fit with duplicate rows");
+        // few distinct rows repeated past the small problem threshold, so the
+        // random projection splits land on the hyperplane and break ties
+        final List<List<Double>> distinct = sparseRows(25, 300);
+        final List<List<Double>> rows = new ArrayList<>();
+        for (int r = 0; r < 5000; ++r) {
+            rows.add(distinct.get(r % distinct.size()));
+        }
+        final CsrMatrix x = CsrMatrix.fromRows(rows);
+        final Umap umap = new Umap();
+        umap.setMetric(HammingMetric.SINGLETON);
+        umap.setThreads(4);
+        umap.setNumberEpochs(20);
+        umap.setSeed(42);
+        final double[][] embedding = umap.fitTransformSparse(x, new CancellationToken(), null, 0);
+        assertEquals(x.rows(), embedding.length);
+    }
+}
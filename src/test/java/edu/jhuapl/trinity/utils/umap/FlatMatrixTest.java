@@ -0,0 +1,112 @@
+package edu.jhuapl.trinity.utils.umap;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import edu.jhuapl.trinity.utils.umap.metric.Metric;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Sean Phillips
+ */
+public class FlatMatrixTest {
+
+    public FlatMatrixTest() {
+    }
+
+    private static float[][] randomData(final int rows, final int cols) {
+        final Random random = new Random(7);
+        final float[][] data = new float[rows][cols];
+        for (final float[] row : data) {
+            for (int c = 0; c < cols; ++c) {
+                row[c] = (float) random.nextGaussian();
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Test of row, get and toArray methods, of class FlatMatrix.
+     */
+    @Test
+    public void testLayout() {
+        System.out.println("layout");
+        final float[][] data = randomData(5, 3);
+        final FlatMatrix flat = new FlatMatrix(new DefaultMatrix(data));
+        assertEquals(5, flat.rows());
+        assertEquals(3, flat.cols());
+        assertEquals(data[2][1], flat.data()[flat.offset(2) + 1], 0.0);
+        for (int r = 0; r < data.length; ++r) {
+            assertArrayEquals(data[r], flat.row(r), 0.0F);
+            assertArrayEquals(data[r], flat.toArray()[r], 0.0F);
+        }
+        flat.set(4, 2, 42);
+        assertEquals(42, flat.get(4, 2), 0.0);
+    }
+
+    /**
+     * Test of fromRows method, of class FlatMatrix.
+     */
+    @Test
+    public void testFromRows() {
+        System.out.println("fromRows");
+        final List<List<Double>> rows = new ArrayList<>();
+        rows.add(Arrays.asList(1.5, -2.0, 3.25));
+        rows.add(Arrays.asList(4.0));
+        rows.add(Arrays.asList(0.0, 0.1, 7.0));
+        final FlatMatrix flat = FlatMatrix.fromRows(rows);
+        assertEquals(3, flat.rows());
+        assertEquals(3, flat.cols());
+        assertArrayEquals(new float[]{1.5F, -2.0F, 3.25F}, flat.row(0), 0.0F);
+        // short rows are zero padded
+        assertArrayEquals(new float[]{4.0F, 0.0F, 0.0F}, flat.row(1), 0.0F);
+        assertArrayEquals(new float[]{0.0F, 0.1F, 7.0F}, flat.row(2), 0.0F);
+    }
+
+    /**
+     * Test of distance method, of class FlatMatrix.
+     */
+    @Test
+    public void testDistanceMatchesJaggedRows() {
+        System.out.println("distance");
+        final float[][] data = randomData(6, 17);
+        final DefaultMatrix jagged = new DefaultMatrix(data);
+        final FlatMatrix flat = new FlatMatrix(jagged);
+        for (final String name : new String[]{"euclidean", "cosine", "manhattan", "chebyshev", "correlation", "canberra"}) {
+            final Metric metric = Metric.getMetric(name);
+            for (int i = 0; i < data.length; ++i) {
+                for (int j = 0; j < data.length; ++j) {
+                    final float expected = metric.distance(data[i], data[j]);
+                    assertEquals(expected, flat.distance(metric, i, j), 1e-6);
+                    assertEquals(expected, flat.distance(metric, i, jagged, j), 1e-6);
+                    assertEquals(expected, jagged.distance(metric, i, flat, j), 1e-6);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package edu.jhuapl.trinity.utils.umap;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import edu.jhuapl.trinity.utils.umap.metric.EuclideanMetric;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Sean Phillips
+ */
+public class PairwiseDistancesTest {
+
+    public PairwiseDistancesTest() {
+    }
+
+    private static Matrix randomMatrix(final int rows, final int cols) {
+        final Random random = new Random(5);
+        final float[][] data = new float[rows][cols];
+        for (final float[] row : data) {
+            for (int c = 0; c < cols; ++c) {
+                row[c] = (float) random.nextGaussian();
+            }
+        }
+        return new DefaultMatrix(data);
+    }
+
+    /**
+     * Test of parallelPairwise method, of class PairwiseDistances.
+     */
+    @Test
+    public void testParallelPairwise() {
+        System.out.println("parallelPairwise");
+        // rows not a multiple of the block size so edge tiles are partial
+        final Matrix x = randomMatrix(301, 40);
+        final Matrix expected = PairwiseDistances.pairwiseDistances(x, EuclideanMetric.SINGLETON);
+        final Matrix actual = PairwiseDistances.parallelPairwise(x, EuclideanMetric.SINGLETON, false);
+        for (int i = 0; i < x.rows(); ++i) {
+            assertArrayEquals(expected.row(i), actual.row(i), 0.0F);
+        }
+    }
+
+    /**
+     * Test of parallelNearestNeighbors method, of class PairwiseDistances.
+     */
+    @Test
+    public void testParallelNearestNeighbors() {
+        System.out.println("parallelNearestNeighbors");
+        final Matrix x = randomMatrix(301, 40);
+        final int k = 10;
+        final Matrix dmat = PairwiseDistances.pairwiseDistances(x, EuclideanMetric.SINGLETON);
+        final int[][] expected = Utils.fastKnnIndices(dmat, k);
+        final IndexedDistances nn = PairwiseDistances.parallelNearestNeighbors(x, EuclideanMetric.SINGLETON, k, false);
+        for (int i = 0; i < x.rows(); ++i) {
+            assertEquals(i, nn.getIndices()[i][0]);
+            assertArrayEquals(expected[i], nn.getIndices()[i]);
+            for (int j = 0; j < k; ++j) {
+                assertEquals(dmat.get(i, expected[i][j]), nn.getDistances()[i][j], 0.0);
+            }
+        }
+    }
+
+    /**
+     * Test of parallelNearestNeighbors method over a subset of query rows, of class PairwiseDistances.
+     */
+    @Test
+    public void testParallelNearestNeighborsQueries() {
+        System.out.println("parallelNearestNeighborsQueries");
+        final Matrix x = randomMatrix(301, 40);
+        final int k = 10;
+        final int[] queries = {0, 7, 150, 299, 300};
+        final IndexedDistances all = PairwiseDistances.parallelNearestNeighbors(x, EuclideanMetric.SINGLETON, k, false);
+        final IndexedDistances some = PairwiseDistances.parallelNearestNeighbors(x, queries, EuclideanMetric.SINGLETON, k);
+        for (int q = 0; q < queries.length; ++q) {
+            assertArrayEquals(all.getIndices()[queries[q]], some.getIndices()[q]);
+            assertArrayEquals(all.getDistances()[queries[q]], some.getDistances()[q], 0.0F);
+        }
+        // exact neighbors have perfect recall
+        assertEquals(1.0F, Umap.nearestNeighborRecall(x, all, EuclideanMetric.SINGLETON, 50, new Random(3)), 0.0F);
+    }
+}
@@ -0,0 +1,110 @@
+package edu.jhuapl.trinity.utils.umap;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Sean Phillips
+ */
+public class ParallelLayoutOptimizerTest {
+
+    public ParallelLayoutOptimizerTest() {
+    }
+
+    // swiss roll with noise dimensions, large enough for the parallel layout
+    private static float[][] swissRoll(final int rows, final int cols) {
+        final Random random = new Random(7);
+        final float[][] data = new float[rows][cols];
+        for (final float[] row : data) {
+            final double t = 3 * Math.PI * random.nextDouble();
+            for (int c = 0; c < cols; ++c) {
+                row[c] = (float) (0.05 * random.nextGaussian());
+            }
+            row[0] += (float) (t * Math.cos(t));
+            row[1] += (float) (t * Math.sin(t));
+            row[2] += (float) (10 * random.nextDouble());
+        }
+        return data;
+    }
+
+    private static float[][] fit(final float[][] data, final int threads, final boolean deterministic) {
+        final Umap umap = new Umap();
+        umap.setSeed(42);
+        umap.setThreads(threads);
+        umap.setDeterministicLayout(deterministic);
+        umap.setNumberEpochs(200);
+        return umap.fitTransform(data);
+    }
+
+    private static double distance(final float[] x, final float[] y) {
+        double sum = 0;
+        for (int i = 0; i < x.length; ++i) {
+            sum += (x[i] - y[i]) * (x[i] - y[i]);
+        }
+        return Math.sqrt(sum);
+    }
+
+    // correlation of distances between the same random pairs of rows
+    private static double distanceCorrelation(final float[][] a, final float[][] b) {
+        final Random random = new Random(1);
+        final int pairs = 20000;
+        double sx = 0, sy = 0, sxx = 0, syy = 0, sxy = 0;
+        for (int k = 0; k < pairs; ++k) {
+            final int i = random.nextInt(a.length);
+            final int j = random.nextInt(a.length);
+            final double x = distance(a[i], a[j]);
+            final double y = distance(b[i], b[j]);
+            sx += x;
+            sy += y;
+            sxx += x * x;
+            syy += y * y;
+            sxy += x * y;
+        }
+        return (sxy - sx * sy / pairs) / Math.sqrt((sxx - sx * sx / pairs) * (syy - sy * sy / pairs));
+    }
+
+    /**
+     * Test of optimize method in deterministic mode, of class ParallelLayoutOptimizer.
+     */
+    @Test
+    public void testDeterministicLayout() {
+        System.out.println("deterministic layout");
+        final float[][] data = swissRoll(1500, 10);
+        final float[][] first = fit(data, 4, true);
+        final float[][] second = fit(data, 4, true);
+        for (int i = 0; i < first.length; ++i) {
+            assertArrayEquals(first[i], second[i], 0.0F);
+        }
+
+        // a different random stream, but the same layout up to rotation and noise
+        final float[][] serial = fit(data, 1, false);
+        final double agreement = distanceCorrelation(serial, first);
+        System.out.println("serial vs parallel distance correlation " + agreement);
+        assertTrue(agreement > 0.7);
+        assertTrue(distanceCorrelation(data, first) > distanceCorrelation(data, serial) - 0.1);
+    }
+}
@@ -0,0 +1,81 @@
+package edu.jhuapl.trinity.utils.umap;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import edu.jhuapl.trinity.utils.umap.metric.EuclideanMetric;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Sean Phillips
+ */
+public class ParallelNearestNeighborDescentTest {
+
+    public ParallelNearestNeighborDescentTest() {
+    }
+
+    private static Matrix clusters(final int rows, final int cols) {
+        final Random random = new Random(3);
+        final float[][] data = new float[rows][cols];
+        for (int r = 0; r < rows; ++r) {
+            for (int c = 0; c < cols; ++c) {
+                data[r][c] = (float) random.nextGaussian() + 5 * (r % 7) * ((r + c) % 2);
+            }
+        }
+        return new DefaultMatrix(data);
+    }
+
+    /**
+     * Test of descent method, of class ParallelNearestNeighborDescent.
+     */
+    @Test
+    public void testDescent() {
+        System.out.println("descent");
+        final Matrix x = clusters(6000, 12);
+        final int k = 10;
+        final IndexedDistances exact = PairwiseDistances.parallelNearestNeighbors(x, EuclideanMetric.SINGLETON, k, false);
+        final IndexedDistances first = Umap.nearestNeighbors(x, k, EuclideanMetric.SINGLETON, false, new Random(42), 4, false);
+        long hits = 0;
+        for (int i = 0; i < x.rows(); ++i) {
+            final Set<Integer> expected = new HashSet<>();
+            for (final int j : exact.getIndices()[i]) {
+                expected.add(j);
+            }
+            for (final int j : first.getIndices()[i]) {
+                if (expected.contains(j)) {
+                    ++hits;
+                }
+            }
+        }
+        assertTrue(hits > 0.95 * x.rows() * k);
+        // per job random streams and ordered updates make runs repeatable
+        final IndexedDistances second = Umap.nearestNeighbors(x, k, EuclideanMetric.SINGLETON, false, new Random(42), 4, false);
+        for (int i = 0; i < x.rows(); ++i) {
+            assertArrayEquals(first.getIndices()[i], second.getIndices()[i]);
+        }
+    }
+}
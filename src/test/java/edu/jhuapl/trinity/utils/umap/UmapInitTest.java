@@ -0,0 +1,137 @@
+package edu.jhuapl.trinity.utils.umap;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Sean Phillips
+ */
+public class UmapInitTest {
+
+    public UmapInitTest() {
+    }
+
+    /**
+     * Chain graph, with a second chain as a separate component.
+     */
+    private static CooMatrix chains(final int n) {
+        final int edges = 2 * (n - 1);
+        final int[] row = new int[2 * edges];
+        final int[] col = new int[2 * edges];
+        final float[] data = new float[2 * edges];
+        int e = 0;
+        for (int chain = 0; chain < 2; ++chain) {
+            for (int i = chain * n; i < (chain + 1) * n - 1; ++i) {
+                row[e] = i;
+                col[e] = i + 1;
+                data[e++] = 1;
+                row[e] = i + 1;
+                col[e] = i;
+                data[e++] = 1;
+            }
+        }
+        return new CooMatrix(data, row, col, 2 * n, 2 * n);
+    }
+
+    /**
+     * Test of spectralLayout method, of class Spectral.
+     */
+    @Test
+    public void testSpectralLayout() {
+        System.out.println("spectral layout");
+        final int n = 200;
+        final CooMatrix graph = chains(n);
+        assertEquals(2, Spectral.components(graph.rows(), graph.row(), graph.col(), new int[graph.rows()]));
+        final float[][] layout = Spectral.spectralLayout(graph, 2, new Random(1));
+        // the leading nontrivial eigenvector of a path is monotone along it
+        for (int chain = 0; chain < 2; ++chain) {
+            int increasing = 0;
+            for (int i = chain * n; i < (chain + 1) * n - 1; ++i) {
+                if (layout[i + 1][0] > layout[i][0]) {
+                    ++increasing;
+                }
+            }
+            assertTrue(increasing < 5 || increasing > n - 6);
+        }
+        for (final float[] p : layout) {
+            assertTrue(Math.abs(p[0]) <= 1 && Math.abs(p[1]) <= 1);
+        }
+    }
+
+    /**
+     * Test of a warm started fit, of class Umap.
+     */
+    @Test
+    public void testWarmStart() {
+        System.out.println("warm start");
+        final Random random = new Random(4);
+        final float[][] data = new float[600][6];
+        for (int i = 0; i < data.length; ++i) {
+            for (int c = 0; c < 6; ++c) {
+                data[i][c] = (float) random.nextGaussian() + (i % 3 == c ? 8 : 0);
+            }
+        }
+        final Umap first = new Umap();
+        first.setNumberComponents(3);
+        first.setNumberEpochs(100);
+        final float[][] embedding = first.fitTransform(data);
+
+        // the last rows are new and placed from their neighbors
+        final float[][] init = new float[data.length][];
+        for (int i = 0; i < data.length; ++i) {
+            init[i] = i < 550 ? embedding[i].clone() : new float[]{Float.NaN, Float.NaN, Float.NaN};
+        }
+        final Umap second = new Umap();
+        second.setNumberComponents(3);
+        second.setNumberEpochs(20);
+        second.setInitialEmbedding(init);
+        final float[][] warm = second.fitTransform(data);
+        double moved = 0;
+        double spread = 0;
+        final double[] mean = new double[3];
+        for (int i = 0; i < 550; ++i) {
+            for (int d = 0; d < 3; ++d) {
+                mean[d] += embedding[i][d] / 550;
+            }
+        }
+        for (int i = 0; i < data.length; ++i) {
+            for (int d = 0; d < 3; ++d) {
+                assertTrue(Float.isFinite(warm[i][d]));
+                if (i < 550) {
+                    moved += Math.pow(warm[i][d] - embedding[i][d], 2);
+                    spread += Math.pow(embedding[i][d] - mean[d], 2);
+                }
+            }
+        }
+        assertTrue(Math.sqrt(moved / spread) < 0.5);
+
+        second.setInitialEmbedding(new float[10][3]);
+        assertThrows(IllegalArgumentException.class, () -> second.fitTransform(data));
+        assertThrows(IllegalArgumentException.class, () -> second.setInit("pca"));
+    }
+}
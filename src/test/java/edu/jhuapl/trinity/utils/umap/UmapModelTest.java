@@ -0,0 +1,191 @@
+package edu.jhuapl.trinity.utils.umap;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Sean Phillips
+ */
+public class UmapModelTest {
+
+    public UmapModelTest() {
+    }
+
+    private static float[][] clusters(final int rows, final int cols, final long seed) {
+        final Random random = new Random(seed);
+        final float[][] data = new float[rows][cols];
+        for (int r = 0; r < rows; ++r) {
+            for (int c = 0; c < cols; ++c) {
+                data[r][c] = (float) random.nextGaussian() + 10 * (r % 3);
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Test of save and load methods, of class Umap.
+     */
+    @Test
+    public void testSaveLoadRoundTrip() throws IOException {
+        System.out.println("save/load round trip");
+        final Umap umap = new Umap();
+        umap.setNumberComponents(3);
+        umap.setNumberEpochs(50);
+        final float[][] embedding = umap.fitTransform(clusters(300, 8, 1));
+
+        final File file = File.createTempFile("umap", ".model");
+        file.deleteOnExit();
+        umap.save(file);
+        final Umap first = Umap.load(file);
+        final Umap second = Umap.load(file);
+
+        final float[][] restored = first.getmEmbedding().toArray();
+        assertEquals(embedding.length, restored.length);
+        for (int i = 0; i < embedding.length; ++i) {
+            assertArrayEquals(embedding[i], restored[i], 0.0F);
+        }
+
+        // loaded models start from the same state so transform identically
+        final float[][] points = clusters(5, 8, 2);
+        final float[][] a = first.transform(points);
+        final float[][] b = second.transform(points);
+        assertEquals(5, a.length);
+        assertEquals(3, a[0].length);
+        for (int i = 0; i < a.length; ++i) {
+            assertArrayEquals(a[i], b[i], 0.0F);
+        }
+    }
+
+    /**
+     * Test of save and load methods for a sparse fit with a forest, of class Umap.
+     */
+    @Test
+    public void testSaveLoadSparse() throws IOException {
+        System.out.println("save/load sparse");
+        final Random random = new Random(4);
+        final float[][] rows = new float[4500][200];
+        for (int r = 0; r < rows.length; ++r) {
+            for (int w = 0; w < 6; ++w) {
+                rows[r][(r % 4) * 50 + random.nextInt(50)] += 1;
+            }
+        }
+        final List<List<Double>> lists = new ArrayList<>(rows.length);
+        for (final float[] row : rows) {
+            final List<Double> list = new ArrayList<>(row.length);
+            for (final float v : row) {
+                list.add((double) v);
+            }
+            lists.add(list);
+        }
+        final CsrMatrix x = CsrMatrix.fromRows(lists);
+        final Umap umap = new Umap();
+        umap.setNumberEpochs(20);
+        umap.setThreads(2);
+        final double[][] embedding = umap.fitTransformSparse(x, new CancellationToken(), null, 0);
+        assertFalse(umap.getmRpForest().isEmpty());
+
+        final File file = File.createTempFile("umap-sparse", ".model");
+        file.deleteOnExit();
+        umap.save(file);
+        final Umap loaded = Umap.load(file);
+        assertTrue(loaded.getmRpForest().isEmpty());
+        final float[][] restored = loaded.getmEmbedding().toArray();
+        for (int i = 0; i < embedding.length; ++i) {
+            for (int j = 0; j < embedding[i].length; ++j) {
+                assertEquals(embedding[i][j], restored[i][j], 0.0);
+            }
+        }
+        assertEquals(3, loaded.transform(Arrays.copyOf(rows, 3)).length);
+    }
+
+    /**
+     * Test of save method on an unfitted model, of class Umap.
+     */
+    @Test
+    public void testSaveUnfitted() {
+        System.out.println("save unfitted");
+        final File file = new File(System.getProperty("java.io.tmpdir"), "unfitted-umap.model");
+        assertThrows(IllegalStateException.class, () -> {
+            try {
+                new Umap().save(file);
+            } catch (IOException ex) {
+                throw new RuntimeException(ex);
+            }
+        });
+        assertFalse(file.exists());
+    }
+
+    /**
+     * Test of load method on truncated and corrupt files, of class Umap.
+     */
+    @Test
+    public void testLoadCorrupt() throws IOException {
+        System.out.println("load corrupt");
+        final Umap umap = new Umap();
+        umap.setNumberEpochs(20);
+        umap.fitTransform(clusters(100, 8, 3));
+        final File file = File.createTempFile("umap", ".model");
+        file.deleteOnExit();
+        umap.save(file);
+        final byte[] bytes = Files.readAllBytes(file.toPath());
+
+        final File corrupt = File.createTempFile("umap-corrupt", ".model");
+        corrupt.deleteOnExit();
+        for (final int length : new int[]{bytes.length / 4, bytes.length / 2, bytes.length - 1}) {
+            Files.write(corrupt.toPath(), Arrays.copyOf(bytes, length));
+            try {
+                Umap.load(corrupt);
+                throw new AssertionError("truncated model was loaded");
+            } catch (IOException ex) {
+                // expected
+            }
+        }
+        // every int in the file in turn replaced with a negative or huge header
+        for (final int value : new int[]{-1, Integer.MAX_VALUE}) {
+            for (int offset = 8; offset + 4 <= bytes.length; offset += 4) {
+                final byte[] copy = bytes.clone();
+                ByteBuffer.wrap(copy).putInt(offset, value);
+                Files.write(corrupt.toPath(), copy);
+                try {
+                    Umap.load(corrupt);
+                } catch (IOException ex) {
+                    // expected for a header, data values may load fine
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package edu.jhuapl.trinity.utils.umap;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import edu.jhuapl.trinity.utils.umap.metric.EuclideanMetric;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Sean Phillips
+ */
+public class UmapMonitoredFitTest {
+
+    public UmapMonitoredFitTest() {
+    }
+
+    private static Matrix clusters(final int rows, final int cols, final long seed) {
+        final Random random = new Random(seed);
+        final float[][] data = new float[rows][cols];
+        for (int r = 0; r < rows; ++r) {
+            for (int c = 0; c < cols; ++c) {
+                data[r][c] = (float) random.nextGaussian() + 10 * (r % 3);
+            }
+        }
+        return new DefaultMatrix(data);
+    }
+
+    /**
+     * Test of fitTransform with snapshots, of class Umap.
+     */
+    @Test
+    public void testSnapshotsAndEarlyStop() {
+        System.out.println("fitTransform snapshots");
+        final Umap umap = new Umap();
+        umap.setNumberComponents(3);
+        umap.setNumberEpochs(50);
+        final List<Integer> epochs = new ArrayList<>();
+        final List<float[][]> snapshots = new ArrayList<>();
+        final Matrix result = umap.fitTransform(clusters(300, 8, 1), null,
+            (epoch, nEpochs, embedding) -> {
+                epochs.add(epoch);
+                snapshots.add(embedding);
+            }, 20);
+        assertEquals(List.of(20, 40, 50), epochs);
+        //the last snapshot is the result, earlier ones are independent copies
+        final float[][] last = snapshots.get(2);
+        for (int i = 0; i < last.length; ++i) {
+            assertArrayEquals(result.row(i), last[i], 0.0F);
+        }
+        assertTrue(snapshots.get(0)[0] != last[0]);
+
+        final CancellationToken token = new CancellationToken();
+        final List<Integer> stopped = new ArrayList<>();
+        umap.fitTransform(clusters(300, 8, 1), token, new EmbeddingListener() {
+            @Override
+            public void epochCompleted(final int epoch, final int nEpochs) {
+                if (epoch == 15) {
+                    token.requestStop();
+                }
+            }
+
+            @Override
+            public void embeddingUpdated(final int epoch, final int nEpochs, final float[][] embedding) {
+                stopped.add(epoch);
+            }
+        }, 10);
+        //stopping hands over the layout reached so far
+        assertEquals(List.of(10, 15), stopped);
+    }
+
+    /**
+     * Test of fitTransform with a cancelled token, of class Umap.
+     */
+    @Test
+    public void testCancel() {
+        System.out.println("fitTransform cancel");
+        final Umap umap = new Umap();
+        umap.setNumberComponents(2);
+        umap.setNumberEpochs(50);
+        final CancellationToken token = new CancellationToken();
+        token.cancel();
+        assertThrows(CancellationException.class,
+            () -> umap.fitTransform(clusters(100, 4, 3), token, null, 0));
+        //a later fit without the token is unaffected
+        assertEquals(100, umap.fitTransform(clusters(100, 4, 3)).rows());
+    }
+
+    /**
+     * Test of progress reporting through the listener, of class Umap.
+     */
+    @Test
+    public void testProgress() {
+        System.out.println("fitTransform progress");
+        final Umap umap = new Umap();
+        umap.setNumberEpochs(30);
+        final List<ProgressState> states = new ArrayList<>();
+        umap.fitTransform(clusters(200, 4, 4), null, new EmbeddingListener() {
+            @Override
+            public void progressUpdated(final ProgressState state) {
+                states.add(state);
+            }
+
+            @Override
+            public void embeddingUpdated(final int epoch, final int nEpochs, final float[][] embedding) {
+            }
+        }, 0);
+        assertTrue(states.size() >= 2);
+        final ProgressState last = states.get(states.size() - 1);
+        assertEquals(last.getTotal(), last.getCount());
+        assertTrue(last.getTotal() > 30);
+    }
+
+    /**
+     * Test of cancellation inside the forest build and nearest neighbor descent, of class Umap.
+     */
+    @Test
+    public void testCancelNeighborSearch() {
+        System.out.println("cancel neighbor search");
+        final Matrix x = new FlatMatrix(clusters(5000, 8, 5));
+        final CancellationToken token = new CancellationToken();
+        token.cancel();
+        for (final int threads : new int[]{1, 4}) {
+            final UmapProgress progress = new UmapProgress(null, token);
+            assertThrows(CancellationException.class, () -> Umap.nearestNeighbors(
+                x, 15, EuclideanMetric.SINGLETON, false, new Random(1), threads, false, progress));
+            final NearestNeighborDescent descent = threads == 1
+                ? new NearestNeighborDescent(EuclideanMetric.SINGLETON)
+                : new ParallelNearestNeighborDescent(EuclideanMetric.SINGLETON, threads);
+            descent.setProgress(progress);
+            assertThrows(CancellationException.class, () -> descent.descent(
+                x, 15, new Random(1), 60, false, 10, null));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package edu.jhuapl.trinity.utils.umap.metric;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Random;
+
+/**
+ * Micro benchmark comparing the scalar and unrolled distance kernels across
+ * point dimensions. Run the main method directly; each kernel is warmed up
+ * before timing and results are printed as nanoseconds per distance.
+ *
+ * @author Sean Phillips
+ */
+public class DistanceKernelsBenchmark {
+
+    private static final int[] DIMENSIONS = {2, 4, 8, 16, 32, 64, 128, 256, 512, 768, 1024, 2048, 4096};
+    private static final int POINTS = 256;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURE_ROUNDS = 10;
+
+    @FunctionalInterface
+    private interface Kernel {
+        float apply(float[] x, int xOffset, float[] y, int yOffset, int length);
+    }
+
+    private static float sink;
+
+    public static void main(String[] args) {
+        final Kernel[][] kernels = {
+            {DistanceKernels::squaredEuclideanScalar, DistanceKernels::squaredEuclideanUnrolled},
+            {DistanceKernels::manhattanScalar, DistanceKernels::manhattanUnrolled},
+            {DistanceKernels::cosineScalar, DistanceKernels::cosineUnrolled}
+        };
+        final String[] names = {"squaredEuclidean", "manhattan", "cosine"};
+        final Random random = new Random(42);
+
+        System.out.println(String.format("%-18s %6s %12s %12s %8s", "kernel", "dim", "scalar ns", "unrolled ns", "speedup"));
+        for (final int dim : DIMENSIONS) {
+            final float[] data = new float[POINTS * dim];
+            for (int i = 0; i < data.length; ++i) {
+                data[i] = (float) random.nextGaussian();
+            }
+            for (int k = 0; k < kernels.length; ++k) {
+                final double scalar = measure(kernels[k][0], data, dim);
+                final double unrolled = measure(kernels[k][1], data, dim);
+                System.out.println(String.format("%-18s %6d %12.2f %12.2f %7.2fx", names[k], dim, scalar, unrolled, scalar / unrolled));
+            }
+        }
+        System.out.println("(checksum " + sink + ")");
+    }
+
+    private static double measure(final Kernel kernel, final float[] data, final int dim) {
+        // keep the work per round roughly constant across dimensions
+        final int repeats = Math.max(1, (1 << 22) / (POINTS * POINTS * dim));
+        for (int r = 0; r < WARMUP_ROUNDS; ++r) {
+            run(kernel, data, dim, repeats);
+        }
+        long best = Long.MAX_VALUE;
+        for (int r = 0; r < MEASURE_ROUNDS; ++r) {
+            final long start = System.nanoTime();
+            run(kernel, data, dim, repeats);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / (double) ((long) repeats * POINTS * POINTS);
+    }
+
+    private static void run(final Kernel kernel, final float[] data, final int dim, final int repeats) {
+        float total = 0;
+        for (int rep = 0; rep < repeats; ++rep) {
+            for (int i = 0; i < POINTS; ++i) {
+                for (int j = 0; j < POINTS; ++j) {
+                    total += kernel.apply(data, i * dim, data, j * dim, dim);
+                }
+            }
+        }
+        sink += total;
+    }
+}
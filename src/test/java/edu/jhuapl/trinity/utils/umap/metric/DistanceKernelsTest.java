@@ -0,0 +1,88 @@
+package edu.jhuapl.trinity.utils.umap.metric;
+
+/*-
+ * #%L
+ * trinity
+ * %%
+ * Copyright (C) 2021 - 2023 The Johns Hopkins University Applied Physics Laboratory LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Sean Phillips
+ */
+public class DistanceKernelsTest {
+
+    public DistanceKernelsTest() {
+    }
+
+    /**
+     * Test of the unrolled kernels against the scalar kernels, of class DistanceKernels.
+     */
+    @Test
+    public void testUnrolledMatchesScalar() {
+        System.out.println("unrolled matches scalar");
+        final Random random = new Random(11);
+        // odd lengths and offsets exercise the remainder loops
+        for (int length = 1; length <= 67; ++length) {
+            final float[] x = new float[length + 3];
+            final float[] y = new float[length + 5];
+            for (int i = 0; i < x.length; ++i) {
+                x[i] = (float) random.nextGaussian();
+            }
+            for (int i = 0; i < y.length; ++i) {
+                y[i] = (float) random.nextGaussian();
+            }
+            final double tolerance = 1e-4 * length;
+            assertEquals(DistanceKernels.squaredEuclideanScalar(x, 3, y, 5, length),
+                DistanceKernels.squaredEuclideanUnrolled(x, 3, y, 5, length), tolerance);
+            assertEquals(DistanceKernels.manhattanScalar(x, 3, y, 5, length),
+                DistanceKernels.manhattanUnrolled(x, 3, y, 5, length), tolerance);
+            assertEquals(DistanceKernels.cosineScalar(x, 3, y, 5, length),
+                DistanceKernels.cosineUnrolled(x, 3, y, 5, length), 1e-5);
+        }
+    }
+
+    /**
+     * Test of the unrolled cosine kernel on near duplicate high dimensional points, of class DistanceKernels.
+     */
+    @Test
+    public void testCosineNearDuplicates() {
+        System.out.println("cosine near duplicates");
+        final Random random = new Random(13);
+        for (final int length : new int[]{768, 4096}) {
+            for (int trial = 0; trial < 20; ++trial) {
+                final float[] x = new float[length];
+                final float[] y = new float[length];
+                for (int i = 0; i < length; ++i) {
+                    x[i] = (float) random.nextGaussian();
+                    y[i] = x[i] + (float) (1e-4 * random.nextGaussian());
+                }
+                final float scalar = DistanceKernels.cosineScalar(x, 0, y, 0, length);
+                final float unrolled = DistanceKernels.cosineUnrolled(x, 0, y, 0, length);
+                assertEquals(CosineMetric.SINGLETON.distance(x, y), unrolled, 0.0F);
+                assertTrue(unrolled >= 0.0F);
+                assertEquals(scalar, unrolled, 1e-8);
+            }
+        }
+    }
+}